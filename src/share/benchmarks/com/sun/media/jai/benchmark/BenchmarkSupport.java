@@ -0,0 +1,221 @@
+/*
+ * $RCSfile: BenchmarkSupport.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.Interpolation;
+import javax.media.jai.JAI;
+import javax.media.jai.OperationDescriptor;
+import javax.media.jai.OperationRegistry;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+/**
+ * Static helpers shared by the benchmarks: the creation of source
+ * images, the selection of the Java or mediaLib factory of an operation
+ * and the computation of every tile of a rendering.
+ */
+final class BenchmarkSupport {
+
+    /** The width and height of the source images. */
+    static final int IMAGE_SIZE = 1024;
+
+    /** The product of the factories of the operations. */
+    private static final String PRODUCT = "com.sun.media.jai";
+
+    /** The package of the mediaLib factories. */
+    private static final String MLIB_PACKAGE = "com.sun.media.jai.mlib.";
+
+    private BenchmarkSupport() {}
+
+    /**
+     * Returns the <code>DataBuffer</code> type of the given name, which
+     * is one of "byte", "ushort", "short", "int", "float" and "double".
+     */
+    static int getDataType(String name) {
+        if (name.equals("byte")) {
+            return DataBuffer.TYPE_BYTE;
+        } else if (name.equals("ushort")) {
+            return DataBuffer.TYPE_USHORT;
+        } else if (name.equals("short")) {
+            return DataBuffer.TYPE_SHORT;
+        } else if (name.equals("int")) {
+            return DataBuffer.TYPE_INT;
+        } else if (name.equals("float")) {
+            return DataBuffer.TYPE_FLOAT;
+        } else if (name.equals("double")) {
+            return DataBuffer.TYPE_DOUBLE;
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Returns the <code>Interpolation</code> of the given name, which
+     * is one of "nearest", "bilinear", "bicubic" and "bicubic2".
+     */
+    static Interpolation getInterpolation(String name) {
+        if (name.equals("nearest")) {
+            return Interpolation.getInstance(Interpolation.INTERP_NEAREST);
+        } else if (name.equals("bilinear")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BILINEAR);
+        } else if (name.equals("bicubic")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BICUBIC);
+        } else if (name.equals("bicubic2")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BICUBIC_2);
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Creates a pixel interleaved image of <code>IMAGE_SIZE</code> square
+     * whose samples are random values from 0 to 255.
+     *
+     * @param seed the seed of the random values.
+     */
+    static TiledImage createImage(int dataType, int numBands,
+                                  int tileSize, long seed) {
+        SampleModel sm =
+            RasterFactory.createPixelInterleavedSampleModel(dataType,
+                                                            tileSize,
+                                                            tileSize,
+                                                            numBands);
+        TiledImage image =
+            new TiledImage(0, 0, IMAGE_SIZE, IMAGE_SIZE, 0, 0, sm,
+                           PlanarImage.createColorModel(sm));
+
+        Random random = new Random(seed);
+        int[] samples = new int[tileSize*tileSize*numBands];
+        for (int ty = image.getMinTileY(); ty <= image.getMaxTileY(); ty++) {
+            for (int tx = image.getMinTileX();
+                 tx <= image.getMaxTileX(); tx++) {
+                WritableRaster tile = image.getWritableTile(tx, ty);
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = random.nextInt(256);
+                }
+                tile.setPixels(tile.getMinX(), tile.getMinY(),
+                               tile.getWidth(), tile.getHeight(), samples);
+                image.releaseWritableTile(tx, ty);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns hints giving the tile size of the rendering.  The hints
+     * contain no tile cache so that each tile is computed when requested.
+     */
+    static RenderingHints createHints(int tileSize) {
+        ImageLayout layout = new ImageLayout();
+        layout.setTileGridXOffset(0);
+        layout.setTileGridYOffset(0);
+        layout.setTileWidth(tileSize);
+        layout.setTileHeight(tileSize);
+        return new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout);
+    }
+
+    /**
+     * Returns the factory of an operation in the "rendered" mode which
+     * is implemented in Java or by mediaLib.
+     *
+     * @param operation the name of the operation.
+     * @param path "java" or "mlib".
+     * @throws IllegalArgumentException if there is no such factory.
+     */
+    static RenderedImageFactory getFactory(String operation, String path) {
+        boolean mlib = path.equals("mlib");
+        if (!mlib && !path.equals("java")) {
+            throw new IllegalArgumentException(path);
+        }
+
+        OperationRegistry registry =
+            JAI.getDefaultInstance().getOperationRegistry();
+        List factories =
+            registry.getOrderedFactoryList("rendered", operation, PRODUCT);
+        if (factories != null) {
+            for (Iterator it = factories.iterator(); it.hasNext(); ) {
+                Object factory = it.next();
+                if (factory.getClass().getName().startsWith(MLIB_PACKAGE)
+                    == mlib) {
+                    return (RenderedImageFactory)factory;
+                }
+            }
+        }
+
+        throw new IllegalArgumentException(operation + " " + path);
+    }
+
+    /**
+     * Renders an operation through its Java or mediaLib factory and
+     * computes every tile of the rendering.  The parameters are first
+     * validated by the descriptor of the operation, which adds the
+     * default values of those which are not given.
+     *
+     * @param path "java" or "mlib".
+     */
+    static double render(String operation, String path,
+                         ParameterBlock pb, RenderingHints hints) {
+        OperationDescriptor od = (OperationDescriptor)
+            JAI.getDefaultInstance().getOperationRegistry().getDescriptor(
+                "rendered", operation);
+        StringBuffer msg = new StringBuffer();
+        if (!od.validateArguments("rendered", pb, msg)) {
+            throw new IllegalArgumentException(msg.toString());
+        }
+
+        return computeTiles(getFactory(operation, path).create(pb, hints));
+    }
+
+    /**
+     * Computes every tile of an image in turn and returns the sum of
+     * their first samples, which the benchmarks return so that the
+     * computation is not eliminated.
+     *
+     * @throws IllegalStateException if <code>image</code> is
+     * <code>null</code>, which is the case when a mediaLib factory
+     * cannot be used.
+     */
+    static double computeTiles(RenderedImage image) {
+        if (image == null) {
+            throw new IllegalStateException("No rendering was created.");
+        }
+
+        double sum = 0.0;
+        int maxTileX = image.getMinTileX() + image.getNumXTiles() - 1;
+        int maxTileY = image.getMinTileY() + image.getNumYTiles() - 1;
+        for (int ty = image.getMinTileY(); ty <= maxTileY; ty++) {
+            for (int tx = image.getMinTileX(); tx <= maxTileX; tx++) {
+                Raster tile = image.getTile(tx, ty);
+                sum += tile.getSampleDouble(tile.getMinX(),
+                                            tile.getMinY(), 0);
+            }
+        }
+
+        if (image instanceof PlanarImage) {
+            ((PlanarImage)image).dispose();
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * $RCSfile: CodecBenchmark.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import com.sun.media.jai.codec.ByteArraySeekableStream;
+import com.sun.media.jai.codec.ImageCodec;
+import com.sun.media.jai.codec.ImageEncodeParam;
+import com.sun.media.jai.codec.PNGEncodeParam;
+import com.sun.media.jai.codec.TIFFEncodeParam;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the encoding and decoding of byte images by the TIFF, PNG and
+ * BMP codecs, in memory.  The TIFF images are written in tiles of the
+ * size given by the "tileSize" parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"tiff", "png", "bmp"})
+    public String format;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    @Param({"256", "512"})
+    public int tileSize;
+
+    private RenderedImage image;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        image = BenchmarkSupport.createImage(DataBuffer.TYPE_BYTE, bands,
+                                             tileSize, 0);
+        encoded = encodeImage();
+    }
+
+    private ImageEncodeParam createEncodeParam() {
+        if (format.equals("tiff")) {
+            TIFFEncodeParam param = new TIFFEncodeParam();
+            param.setWriteTiled(true);
+            param.setTileSize(tileSize, tileSize);
+            return param;
+        } else if (format.equals("png")) {
+            return PNGEncodeParam.getDefaultEncodeParam(image);
+        }
+        return null;
+    }
+
+    private byte[] encodeImage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageCodec.createImageEncoder(format, out,
+                                      createEncodeParam()).encode(image);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        return encodeImage().length;
+    }
+
+    @Benchmark
+    public double decode() throws IOException {
+        return BenchmarkSupport.computeTiles(
+            ImageCodec.createImageDecoder(
+                format, new ByteArraySeekableStream(encoded),
+                null).decodeAsRenderedImage());
+    }
+}
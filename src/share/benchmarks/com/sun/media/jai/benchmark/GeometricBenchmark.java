@@ -0,0 +1,139 @@
+/*
+ * $RCSfile: GeometricBenchmark.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.concurrent.TimeUnit;
+import javax.media.jai.Interpolation;
+import javax.media.jai.WarpAffine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the geometric operators which have both a Java and a mediaLib
+ * implementation, for each interpolation.  Each invocation renders the
+ * operation through the factory selected by the "path" parameter and
+ * computes every tile of the rendering, which is not cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeometricBenchmark {
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    @Param({"256", "512"})
+    public int tileSize;
+
+    @Param({"nearest", "bilinear", "bicubic"})
+    public String interpolation;
+
+    @Param({"java", "mlib"})
+    public String path;
+
+    private RenderedImage source;
+    private RenderingHints hints;
+    private Interpolation interp;
+
+    /** A rotation by 30 degrees about the center of the image. */
+    private AffineTransform rotation;
+
+    @Setup
+    public void setup() {
+        source = BenchmarkSupport.createImage(
+            BenchmarkSupport.getDataType(dataType), bands, tileSize, 0);
+        hints = BenchmarkSupport.createHints(tileSize);
+        interp = BenchmarkSupport.getInterpolation(interpolation);
+
+        double center = BenchmarkSupport.IMAGE_SIZE/2.0;
+        rotation = AffineTransform.getRotateInstance(Math.PI/6.0,
+                                                     center, center);
+    }
+
+    private double render(String operation, ParameterBlock pb) {
+        return BenchmarkSupport.render(operation, path, pb, hints);
+    }
+
+    private ParameterBlock createParameterBlock() {
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source);
+        return pb;
+    }
+
+    @Benchmark
+    public double scaleUp() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(1.5F);
+        pb.add(1.5F);
+        pb.add(0.0F);
+        pb.add(0.0F);
+        pb.add(interp);
+        return render("scale", pb);
+    }
+
+    @Benchmark
+    public double scaleDown() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(0.4F);
+        pb.add(0.4F);
+        pb.add(0.0F);
+        pb.add(0.0F);
+        pb.add(interp);
+        return render("scale", pb);
+    }
+
+    @Benchmark
+    public double affine() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(rotation);
+        pb.add(interp);
+        return render("affine", pb);
+    }
+
+    @Benchmark
+    public double rotate() {
+        float center = BenchmarkSupport.IMAGE_SIZE/2.0F;
+        ParameterBlock pb = createParameterBlock();
+        pb.add(center);
+        pb.add(center);
+        pb.add((float)(Math.PI/6.0));
+        pb.add(interp);
+        return render("rotate", pb);
+    }
+
+    @Benchmark
+    public double warpAffine() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(new WarpAffine(rotation));
+        pb.add(interp);
+        return render("warp", pb);
+    }
+}
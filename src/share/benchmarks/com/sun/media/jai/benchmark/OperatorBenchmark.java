@@ -0,0 +1,162 @@
+/*
+ * $RCSfile: OperatorBenchmark.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.media.jai.KernelJAI;
+import javax.media.jai.operator.DFTDescriptor;
+import javax.media.jai.operator.MaxFilterDescriptor;
+import javax.media.jai.operator.MedianFilterDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the point, area and frequency operators which have both a Java
+ * and a mediaLib implementation.  Each invocation renders the operation
+ * through the factory selected by the "path" parameter and computes
+ * every tile of the rendering, which is not cached.  A combination of
+ * parameters which the mediaLib factory does not accept fails with an
+ * <code>IllegalStateException</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperatorBenchmark {
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    @Param({"256", "512"})
+    public int tileSize;
+
+    @Param({"java", "mlib"})
+    public String path;
+
+    private RenderedImage source0;
+    private RenderedImage source1;
+    private RenderingHints hints;
+
+    @Setup
+    public void setup() {
+        int type = BenchmarkSupport.getDataType(dataType);
+        source0 = BenchmarkSupport.createImage(type, bands, tileSize, 0);
+        source1 = BenchmarkSupport.createImage(type, bands, tileSize, 1);
+        hints = BenchmarkSupport.createHints(tileSize);
+    }
+
+    private double render(String operation, ParameterBlock pb) {
+        return BenchmarkSupport.render(operation, path, pb, hints);
+    }
+
+    private ParameterBlock createParameterBlock() {
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source0);
+        return pb;
+    }
+
+    @Benchmark
+    public double add() {
+        ParameterBlock pb = createParameterBlock();
+        pb.addSource(source1);
+        return render("add", pb);
+    }
+
+    @Benchmark
+    public double multiplyConst() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(new double[] {1.5});
+        return render("multiplyconst", pb);
+    }
+
+    @Benchmark
+    public double rescale() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(new double[] {0.5});
+        pb.add(new double[] {10.0});
+        return render("rescale", pb);
+    }
+
+    @Benchmark
+    public double convolve3x3() {
+        float[] data = new float[9];
+        Arrays.fill(data, 1.0F/9.0F);
+        ParameterBlock pb = createParameterBlock();
+        pb.add(new KernelJAI(3, 3, data));
+        return render("convolve", pb);
+    }
+
+    @Benchmark
+    public double boxFilter5x5() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(5);
+        pb.add(5);
+        pb.add(2);
+        pb.add(2);
+        return render("boxfilter", pb);
+    }
+
+    @Benchmark
+    public double medianFilter3x3() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(MedianFilterDescriptor.MEDIAN_MASK_SQUARE);
+        pb.add(3);
+        return render("medianfilter", pb);
+    }
+
+    @Benchmark
+    public double maxFilter5x5() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(MaxFilterDescriptor.MAX_MASK_SQUARE);
+        pb.add(5);
+        return render("maxfilter", pb);
+    }
+
+    @Benchmark
+    public double subsampleAverage() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(0.5);
+        pb.add(0.5);
+        return render("subsampleaverage", pb);
+    }
+
+    @Benchmark
+    public double dft() {
+        ParameterBlock pb = createParameterBlock();
+        pb.add(DFTDescriptor.SCALING_NONE);
+        pb.add(DFTDescriptor.REAL_TO_COMPLEX);
+        return render("dft", pb);
+    }
+
+    @Benchmark
+    public double dct() {
+        return render("dct", createParameterBlock());
+    }
+}
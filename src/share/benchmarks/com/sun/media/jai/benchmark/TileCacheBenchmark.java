@@ -0,0 +1,112 @@
+/*
+ * $RCSfile: TileCacheBenchmark.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.concurrent.TimeUnit;
+import javax.media.jai.TileCache;
+import javax.media.jai.TiledImage;
+import com.sun.media.jai.util.SunConcurrentTileCache;
+import com.sun.media.jai.util.SunTileCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the lookup and the addition of tiles in the tile caches, from
+ * several threads sharing one cache.  The "hit" benchmark looks up tiles
+ * which are all cached, and the "addEvict" benchmark adds tiles to a
+ * cache which holds only a quarter of them, so that each addition
+ * evicts another tile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class TileCacheBenchmark {
+
+    /** The number of tiles along each side of the owner image. */
+    private static final int NUM_TILES = 32;
+
+    /** The width and height of the tiles. */
+    private static final int TILE_SIZE = 64;
+
+    @Param({"sun", "concurrent"})
+    public String cache;
+
+    private TiledImage owner;
+    private Raster tile;
+    private TileCache fullCache;
+    private TileCache smallCache;
+
+    /** The index of the next tile of a thread. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            index = (index + 7) % (NUM_TILES*NUM_TILES);
+            return index;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        owner = BenchmarkSupport.createImage(DataBuffer.TYPE_BYTE, 1,
+                                             TILE_SIZE, 0);
+        tile = owner.getTile(0, 0);
+
+        long tileBytes = (long)TILE_SIZE*TILE_SIZE;
+        fullCache = createCache(2*NUM_TILES*NUM_TILES*tileBytes);
+        smallCache = createCache(NUM_TILES*NUM_TILES*tileBytes/4);
+
+        for (int ty = 0; ty < NUM_TILES; ty++) {
+            for (int tx = 0; tx < NUM_TILES; tx++) {
+                fullCache.add(owner, tx, ty, tile);
+            }
+        }
+    }
+
+    private TileCache createCache(long capacity) {
+        if (cache.equals("sun")) {
+            return new SunTileCache(capacity);
+        } else if (cache.equals("concurrent")) {
+            return new SunConcurrentTileCache(capacity);
+        }
+        throw new IllegalArgumentException(cache);
+    }
+
+    @Benchmark
+    public Raster hit(Cursor cursor) {
+        int i = cursor.next();
+        return fullCache.getTile(owner, i % NUM_TILES, i / NUM_TILES);
+    }
+
+    @Benchmark
+    public void addEvict(Cursor cursor) {
+        int i = cursor.next();
+        smallCache.add(owner, i % NUM_TILES, i / NUM_TILES, tile);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * $RCSfile: TileSchedulerBenchmark.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.benchmark;
+
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.media.jai.JAI;
+import javax.media.jai.KernelJAI;
+import javax.media.jai.OpImage;
+import javax.media.jai.TileScheduler;
+import com.sun.media.jai.util.SunTileScheduler;
+import com.sun.media.jai.util.SunWorkStealingTileScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the computation of all the tiles of a 3x3 convolution by the
+ * tile schedulers, for several degrees of parallelism and tile sizes.
+ * The tiles are not cached so that each invocation computes them all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TileSchedulerBenchmark {
+
+    @Param({"sun", "workstealing"})
+    public String scheduler;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    @Param({"64", "256"})
+    public int tileSize;
+
+    private TileScheduler tileScheduler;
+    private OpImage image;
+    private Point[] tileIndices;
+
+    @Setup
+    public void setup() {
+        if (scheduler.equals("sun")) {
+            tileScheduler = new SunTileScheduler();
+        } else if (scheduler.equals("workstealing")) {
+            tileScheduler = new SunWorkStealingTileScheduler();
+        } else {
+            throw new IllegalArgumentException(scheduler);
+        }
+        tileScheduler.setParallelism(parallelism);
+
+        float[] data = new float[9];
+        Arrays.fill(data, 1.0F/9.0F);
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(BenchmarkSupport.createImage(DataBuffer.TYPE_BYTE, 3,
+                                                  tileSize, 0));
+        pb.add(new KernelJAI(3, 3, data));
+
+        RenderingHints hints = BenchmarkSupport.createHints(tileSize);
+        hints.put(JAI.KEY_TILE_SCHEDULER, tileScheduler);
+
+        image = (OpImage)
+            BenchmarkSupport.getFactory("convolve", "java").create(pb, hints);
+        tileIndices = image.getTileIndices(image.getBounds());
+    }
+
+    @Benchmark
+    public int scheduleTiles() {
+        Raster[] tiles = tileScheduler.scheduleTiles(image, tileIndices);
+        return tiles.length;
+    }
+}
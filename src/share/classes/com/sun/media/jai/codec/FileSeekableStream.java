@@ -10,15 +10,21 @@
  * $State: Exp $
  */
 package com.sun.media.jai.codec;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * A subclass of <code>SeekableStream</code> that takes its input
  * from a <code>File</code> or <code>RandomAccessFile</code>.
  * Backwards seeking is supported.  The <code>mark()</code> and
- * <code>reset()</code> methods are supported.
+ * <code>reset()</code> methods are supported.  Reads at an absolute
+ * position through <code>readFully(long, byte[], int, int)</code> do
+ * not use the stream pointer and may be issued by several threads at
+ * once.
  *
  * <p><b> This class is not a committed part of the JAI API.  It may
  * be removed or changed in future releases of JAI.</b>
@@ -182,6 +188,31 @@ public class FileSeekableStream extends SeekableStream {
         }
     }
 
+    /**
+     * Reads <code>len</code> bytes at position <code>pos</code> directly
+     * from the file channel.  Neither the stream pointer nor the page
+     * cache is used, so concurrent calls do not interfere with each other
+     * or with sequential reads.
+     *
+     * @since JAI 1.1.4
+     */
+    public void readFully(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        FileChannel channel = file.getChannel();
+        ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+        while (buf.hasRemaining()) {
+            int count = channel.read(buf, pos);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            pos += count;
+        }
+    }
+
     /** Forwards the request to the real <code>File</code>. */
     public final void close() throws IOException {
         file.close();
@@ -20,6 +20,13 @@ package com.sun.media.jai.codec;
  * <code>ComponentSampleModel</code> or a subclass thereof.  By default
  * data are decoded into an image having a <code>ComponentSampleModel</code>.
  *
+ * <p> It also allows the image to be decoded at 1/2, 1/4 or 1/8 of its
+ * size, which for sequential JPEG data is done by applying reduced inverse
+ * discrete cosine transforms to the coefficients of each block rather
+ * than by decoding the full image and reducing it.  The decoding may also
+ * be deferred until the image data are requested, so that an image which
+ * is only reduced may be decoded at reduced size instead.
+ *
  * <p><b> This class is not a committed part of the JAI API.  It may
  * be removed or changed in future releases of JAI.</b>
  */
@@ -30,7 +37,13 @@ public class JPEGDecodeParam implements ImageDecodeParam {
      * a <code>ComponentSampleModel</code>.
      */
     private boolean decodeToCSM = true;
-    
+
+    /** The denominator of the scale at which the image is decoded. */
+    private int scaleDenominator = 1;
+
+    /** Whether decoding is deferred until the data are requested. */
+    private boolean deferDecoding = false;
+
     /**
      * Constructs a <code>JPEGDecodeParam</code> object with default
      * parameter values.
@@ -62,4 +75,70 @@ public class JPEGDecodeParam implements ImageDecodeParam {
     public boolean getDecodeToCSM() {
         return decodeToCSM;
     }
+
+    /**
+     * Sets the scale at which the image is decoded to
+     * <code>1/scaleDenominator</code>.  The decoded image is
+     * <code>ceil(width/scaleDenominator)</code> by
+     * <code>ceil(height/scaleDenominator)</code> pixels.  The gray or
+     * luminance samples of each pixel are, up to rounding, the mean of
+     * the block of <code>scaleDenominator</code> by
+     * <code>scaleDenominator</code> pixels of the full size image it
+     * covers.  Subsampled chrominance is interpolated at the reduced
+     * size, so colors may differ from those block means by a few tens
+     * of levels at sharp color edges, although by less than one level
+     * on average.  The default denominator is 1.
+     *
+     * @param scaleDenominator 1, 2, 4 or 8.
+     *
+     * @throws IllegalArgumentException if <code>scaleDenominator</code>
+     * is not 1, 2, 4 or 8.
+     *
+     * @since JAI 1.1.4
+     */
+    public void setScaleDenominator(int scaleDenominator) {
+        if (scaleDenominator != 1 && scaleDenominator != 2 &&
+            scaleDenominator != 4 && scaleDenominator != 8) {
+            throw new IllegalArgumentException(JaiI18N.getString("JPEGDecodeParam0"));
+        }
+        this.scaleDenominator = scaleDenominator;
+    }
+
+    /**
+     * Returns the denominator of the scale at which the image is
+     * decoded, which is by default 1.
+     *
+     * @since JAI 1.1.4
+     */
+    public int getScaleDenominator() {
+        return scaleDenominator;
+    }
+
+    /**
+     * Sets whether the decoding of the image is deferred until its data
+     * are requested.  The data are then read up to the end of the stream
+     * and only their header is parsed when the image is created, so that
+     * an operation reducing the image may have them decoded at reduced
+     * size instead, and errors in the data are only detected, and thrown
+     * as a <code>RuntimeException</code>, when the data are requested.
+     * The default setting of this flag is <code>false</code>, with which
+     * the image is decoded when it is created.
+     *
+     * @param deferDecoding <code>true</code> if decoding is deferred.
+     *
+     * @since JAI 1.1.4
+     */
+    public void setDeferDecoding(boolean deferDecoding) {
+        this.deferDecoding = deferDecoding;
+    }
+
+    /**
+     * Returns whether the decoding of the image is deferred until its
+     * data are requested, which is by default <code>false</code>.
+     *
+     * @since JAI 1.1.4
+     */
+    public boolean getDeferDecoding() {
+        return deferDecoding;
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * $RCSfile: MappedFileSeekableStream.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.codec;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A subclass of <code>SeekableStream</code> that takes its input
+ * from a <code>File</code> or <code>RandomAccessFile</code> which is
+ * mapped into memory.  Backwards seeking is supported.  The
+ * <code>mark()</code> and <code>reset()</code> methods are supported.
+ *
+ * <p> The file is mapped lazily in read-only windows of at most 1 GB
+ * each so that files larger than 2 GB may be read.  Data are copied
+ * directly from the mapped windows into the destination array without
+ * system calls or an intermediate page cache.
+ *
+ * <p> Reads at an absolute position through
+ * <code>readFully(long, byte[], int, int)</code> neither use nor modify
+ * the stream pointer and may be issued by several threads at once, for
+ * example when the tiles of a <code>TIFFImage</code> are decoded in
+ * parallel.  The sequential <code>read()</code> methods, like those of
+ * the other <code>SeekableStream</code> subclasses, are not thread-safe.
+ *
+ * <p> The mapped windows are released only when they are garbage
+ * collected, which may be later than the call to <code>close()</code>.
+ *
+ * <p><b> This class is not a committed part of the JAI API.  It may
+ * be removed or changed in future releases of JAI.</b>
+ *
+ * @see FileSeekableStream
+ *
+ * @since JAI 1.1.4
+ */
+public class MappedFileSeekableStream extends SeekableStream {
+
+    // Base 2 logarithm of the window size
+    private static final int WINDOW_SHIFT = 30;
+
+    // The window size, derived from WINDOW_SHIFT
+    private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+
+    // Binary mask to find the offset of a pointer within a window
+    private static final long WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+
+    // The mapped windows, created on demand; null once closed.
+    private MappedByteBuffer[] windows;
+
+    // The window last used by read(), and the file offset of its start
+    private ByteBuffer current = null;
+    private long currentBase = -1L;
+
+    private long length = 0L;
+
+    private long pointer = 0L;
+
+    private long markPos = -1;
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>RandomAccessFile</code>.
+     */
+    public MappedFileSeekableStream(RandomAccessFile file)
+        throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.length = channel.size();
+
+        int numWindows = (int)((length + WINDOW_SIZE - 1) >> WINDOW_SHIFT);
+        windows = new MappedByteBuffer[numWindows];
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>File</code>.
+     */
+    public MappedFileSeekableStream(File file) throws IOException {
+        this(new RandomAccessFile(file, "r"));
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>String</code> path name.
+     */
+    public MappedFileSeekableStream(String name) throws IOException {
+        this(new RandomAccessFile(name, "r"));
+    }
+
+    /** Returns the window containing position <code>pos</code>. */
+    private synchronized ByteBuffer getWindow(long pos) throws IOException {
+        if (windows == null) {
+            throw new IOException(JaiI18N.getString("MappedFileSeekableStream1"));
+        }
+
+        int index = (int)(pos >> WINDOW_SHIFT);
+        MappedByteBuffer window = windows[index];
+        if (window == null) {
+            long base = (long)index << WINDOW_SHIFT;
+            long size = Math.min(WINDOW_SIZE, length - base);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, base, size);
+            windows[index] = window;
+        }
+        return window;
+    }
+
+    /**
+     * Copies <code>len</code> bytes starting at <code>pos</code>, which
+     * must all lie within the file, into <code>b</code>.
+     */
+    private void copy(long pos, byte[] b, int off, int len)
+        throws IOException {
+        while (len > 0) {
+            // Use a private view so that concurrent copies from the
+            // same window do not share a position.
+            ByteBuffer view = getWindow(pos).duplicate();
+            int start = (int)(pos & WINDOW_MASK);
+            int count = Math.min(len, view.limit() - start);
+
+            view.position(start);
+            view.get(b, off, count);
+
+            pos += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /** Returns true since seeking backwards is supported. */
+    public final boolean canSeekBackwards() {
+        return true;
+    }
+
+    /**
+     * Returns the current offset in this stream.
+     *
+     * @return     the offset from the beginning of the stream, in bytes,
+     *             at which the next read occurs.
+     * @exception  IOException  if an I/O error occurs.
+     */
+    public final long getFilePointer() throws IOException {
+        return pointer;
+    }
+
+    public final void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException(JaiI18N.getString("MappedFileSeekableStream0"));
+        }
+        pointer = pos;
+    }
+
+    /**
+     * Skips over <code>n</code> bytes without reading them, as
+     * <code>skip(long)</code> does, and returns the number of bytes
+     * skipped.
+     */
+    public final int skip(int n) throws IOException {
+        return (int)skip((long)n);
+    }
+
+    /**
+     * Skips over <code>n</code> bytes without reading them.  Fewer
+     * bytes are skipped if the end of the file is reached first.
+     */
+    public final long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        n = Math.min(n, Math.max(length - pointer, 0L));
+        pointer += n;
+        return n;
+    }
+
+    /** Reads the byte at the stream pointer from the mapped file. */
+    public final int read() throws IOException {
+        if (pointer >= length) {
+            return -1;
+        }
+
+        long base = pointer & ~WINDOW_MASK;
+        if (base != currentBase) {
+            current = getWindow(pointer);
+            currentBase = base;
+        }
+        return current.get((int)(pointer++ & WINDOW_MASK)) & 0xff;
+    }
+
+    /** Copies the requested bytes from the mapped file. */
+    public final int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        len = (int)Math.min((long)len, length - pointer);
+        if (len <= 0) {
+            return -1;
+        }
+
+        copy(pointer, b, off, len);
+        pointer += len;
+        return len;
+    }
+
+    /**
+     * Copies <code>len</code> bytes at position <code>pos</code> from the
+     * mapped file.  The stream pointer is not used so that concurrent
+     * calls do not interfere with each other or with sequential reads.
+     */
+    public void readFully(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (pos < 0) {
+            throw new IOException(JaiI18N.getString("MappedFileSeekableStream0"));
+        }
+        if (pos + len > length) {
+            throw new EOFException();
+        }
+
+        copy(pos, b, off, len);
+    }
+
+    /** Closes the underlying file. */
+    public final void close() throws IOException {
+        synchronized(this) {
+            windows = null;
+        }
+        current = null;
+        currentBase = -1L;
+        file.close();
+    }
+
+    /**
+     * Marks the current file position for later return using
+     * the <code>reset()</code> method.
+     */
+    public synchronized final void mark(int readLimit) {
+        markPos = pointer;
+    }
+
+    /**
+     * Returns the file position to its position at the time of
+     * the immediately previous call to the <code>mark()</code>
+     * method.
+     */
+    public synchronized final void reset() throws IOException {
+        if (markPos != -1) {
+            pointer = markPos;
+        }
+    }
+
+    /** Returns <code>true</code> since marking is supported. */
+    public boolean markSupported() {
+        return true;
+    }
+}
@@ -60,6 +60,10 @@ package com.sun.media.jai.codec;
  * (GA) images to be output as full-color (GGGA) images, which may
  * simplify further processing and display.
  *
+ * <p> <code>setStripHeight()</code> causes non-interlaced images to be
+ * output as horizontal strips which are decoded on demand rather than
+ * as a single tile decoded when the image is created.
+ *
  * <p><b> This class is not a committed part of the JAI API.  It may
  * be removed or changed in future releases of JAI.</b>
  */
@@ -296,6 +300,43 @@ public class PNGDecodeParam implements ImageDecodeParam {
         this.expandGrayAlpha = expandGrayAlpha;
     }
 
+    private int stripHeight = 0;
+
+    /**
+     * Returns the height of the strips into which non-interlaced images
+     * are decoded, or 0 if the image is decoded as a single tile.
+     */
+    public int getStripHeight() {
+        return stripHeight;
+    }
+
+    /**
+     * If positive, a non-interlaced image will be output as a sequence
+     * of tiles, each the full width of the image and
+     * <code>stripHeight</code> rows tall.  The compressed image data are
+     * retained and the rows of each strip are inflated and unfiltered
+     * only when the strip is first requested, so that the memory needed
+     * is bounded by a few strips rather than by the size of the image.
+     * Since the PNG data stream must be decoded sequentially, strips are
+     * decoded most efficiently in top to bottom order: requesting a
+     * strip above the last one decoded restarts decoding at the top of
+     * the image.
+     *
+     * <p> Interlaced images are always decoded in their entirety.
+     *
+     * <p> The default value is 0, which causes the entire image to be
+     * decoded into a single tile when the image is created.
+     *
+     * @throws IllegalArgumentException if <code>stripHeight</code>
+     *         is negative.
+     */
+    public void setStripHeight(int stripHeight) {
+        if (stripHeight < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("PNGDecodeParam2"));
+        }
+        this.stripHeight = stripHeight;
+    }
+
     private boolean generateEncodeParam = false;
 
     private PNGEncodeParam encodeParam = null;
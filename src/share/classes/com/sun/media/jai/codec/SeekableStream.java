@@ -64,7 +64,10 @@ import java.io.IOException;
  * <p> The <code>FileSeekableStream</code> class wraps a
  * <code>File</code> or <code>RandomAccessFile</code>.  It forwards
  * requests to the real underlying file.  It performs a limited amount
- * of caching in order to avoid excessive I/O costs.
+ * of caching in order to avoid excessive I/O costs.  The
+ * <code>MappedFileSeekableStream</code> class instead maps the file
+ * into memory, which avoids system calls and extra copies and allows
+ * concurrent positional reads.
  *
  * <p> The <code>SegmentedSeekableStream</code> class performs a
  * different sort of function.  It creates a
@@ -322,6 +325,41 @@ public abstract class SeekableStream
 	} while (n < len);
     }
 
+    /**
+     * Reads exactly <code>len</code> bytes from this stream into the byte
+     * array, starting at the absolute position <code>pos</code>.  The
+     * stream pointer is the same after the call as before it.
+     *
+     * <p> The default implementation seeks to <code>pos</code>, reads the
+     * data and restores the stream pointer while holding the monitor of
+     * this stream, so that concurrent positional reads on the same stream
+     * are serialized.  Subclasses which are able to read at a given
+     * position without moving a shared pointer should override this
+     * method so that such reads may proceed in parallel.
+     *
+     * @param      pos   the position in the stream of the first byte.
+     * @param      b     the buffer into which the data is read.
+     * @param      off   the start offset of the data.
+     * @param      len   the number of bytes to read.
+     * @exception  EOFException  if this stream reaches the end before reading
+     *               all the bytes.
+     * @exception  IOException   if an I/O error occurs.
+     *
+     * @since JAI 1.1.4
+     */
+    public void readFully(long pos, byte[] b, int off, int len)
+        throws IOException {
+        synchronized(this) {
+            long savePos = getFilePointer();
+            seek(pos);
+            try {
+                readFully(b, off, len);
+            } finally {
+                seek(savePos);
+            }
+        }
+    }
+
     // Methods from DataInput, plus little-endian versions
 
     /**
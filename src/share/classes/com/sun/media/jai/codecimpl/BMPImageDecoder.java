@@ -35,6 +35,7 @@ import com.sun.media.jai.codec.ImageCodec;
 import com.sun.media.jai.codec.ImageDecoder;
 import com.sun.media.jai.codec.ImageDecoderImpl;
 import com.sun.media.jai.codec.ImageDecodeParam;
+import com.sun.media.jai.codec.MappedFileSeekableStream;
 import com.sun.media.jai.codecimpl.ImagingListenerProxy;
 import javax.media.jai.util.ImagingException;
 import javax.media.jai.RasterFactory;
@@ -63,7 +64,7 @@ public class BMPImageDecoder extends ImageDecoderImpl {
 class BMPImage extends SimpleRenderedImage {
 
     // BMP variables
-    private BufferedInputStream inputStream;
+    private InputStream inputStream;
     private long bitmapFileSize;
     private long bitmapOffset;
     private long compression;
@@ -115,8 +116,10 @@ class BMPImage extends SimpleRenderedImage {
      * @param stream
      */
     public BMPImage(InputStream stream) {
-	if (stream instanceof BufferedInputStream) {
-	    inputStream = (BufferedInputStream)stream;
+	if (stream instanceof BufferedInputStream ||
+            stream instanceof MappedFileSeekableStream) {
+	    // Reads from a mapped file are cheap and need no buffering.
+	    inputStream = stream;
 	} else {
 	    inputStream = new BufferedInputStream(stream);
 	}
@@ -13,14 +13,23 @@ package com.sun.media.jai.codecimpl;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
 import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import com.sun.media.jai.codec.ImageDecoderImpl;
 import com.sun.media.jai.codec.ImageDecodeParam;
 import com.sun.media.jai.codec.JPEGDecodeParam;
@@ -48,6 +57,30 @@ public class JPEGImageDecoder extends ImageDecoderImpl {
             throw CodecUtils.toIOException(e);
         }
     }
+
+    /**
+     * Returns an image of the JPEG data of an image returned by
+     * <code>decodeAsRenderedImage()</code> decoded at 1/<code>scale</code>
+     * of its size as if by a <code>JPEGDecodeParam</code> with that scale
+     * denominator, or <code>null</code> if the image is not such an image
+     * whose decoding is still deferred, or if its data cannot be decoded
+     * at a reduced size without being decoded at full size.  This allows
+     * an operation reducing the image to have the decoder do the
+     * reduction.
+     *
+     * @param image An image returned by <code>decodeAsRenderedImage()</code>.
+     * @param scale 2, 4 or 8.
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderedImage createScaledImage(RenderedImage image,
+                                                  int scale) {
+        if (!(image instanceof JPEGImage) ||
+            (scale != 2 && scale != 4 && scale != 8)) {
+            return null;
+        }
+        return ((JPEGImage)image).createScaledImage(scale);
+    }
 }
 
 /**
@@ -86,19 +119,180 @@ class JPEGImage extends SimpleRenderedImage {
 
     private Raster theTile = null;
 
+    /** The JPEG data until they are decoded, or <code>null</code>. */
+    private byte[] data = null;
+
+    /**
+     * The header of the data if they are decoded at reduced size or on
+     * the first request for the tile, or <code>null</code>.
+     */
+    private JPEGScaledDecoder header = null;
+
+    /** The denominator of the scale at which the data are decoded. */
+    private int scale = 1;
+
+    /** Whether the image is forced to have a ComponentSampleModel. */
+    private boolean decodeToCSM;
+
     /**
      * Construct a JPEGmage.
      *
      * @param stream The JPEG InputStream.
      * @param param The decoding parameters.
      */
-    public JPEGImage(InputStream stream, ImageDecodeParam param) {
-        // If the supplied InputStream supports mark/reset wrap it so
-        // it does not.
-        if(stream.markSupported()) {
-            stream = new NoMarkStream(stream);
+    public JPEGImage(InputStream stream, ImageDecodeParam param)
+        throws IOException {
+        decodeToCSM = param == null ||
+            (param instanceof JPEGDecodeParam &&
+             ((JPEGDecodeParam)param).getDecodeToCSM());
+        boolean deferDecoding = false;
+        if (param instanceof JPEGDecodeParam) {
+            scale = ((JPEGDecodeParam)param).getScaleDenominator();
+            deferDecoding = ((JPEGDecodeParam)param).getDeferDecoding();
+        }
+
+        if (scale == 1 && !deferDecoding) {
+            // If the supplied InputStream supports mark/reset wrap it so
+            // it does not.
+            if (stream.markSupported()) {
+                stream = new NoMarkStream(stream);
+            }
+            setTile(decode(stream));
+            return;
+        }
+
+        data = readFully(stream);
+
+        // If the header gives the layout of the decoded image the data
+        // may be decoded at reduced size, and their decoding may be
+        // deferred until the tile is requested.
+        try {
+            header = new JPEGScaledDecoder(data);
+            if (!header.hasStandardColorModel()) {
+                header = null;
+            }
+        } catch (IOException e) {
+            // Leave the data to com.sun.image.codec.jpeg.JPEGImageDecoder.
+            header = null;
+        }
+
+        if (header == null) {
+            Raster tile = decode(new ByteArrayInputStream(data));
+            data = null;
+            if (tile != null && scale > 1) {
+                tile = reduce(tile, scale);
+            }
+            setTile(tile);
+            return;
+        }
+
+        minX = 0;
+        minY = 0;
+        tileWidth = width = (header.getWidth() + scale - 1)/scale;
+        tileHeight = height = (header.getHeight() + scale - 1)/scale;
+
+        // The layout of a BufferedImage of type TYPE_BYTE_GRAY or
+        // TYPE_3BYTE_BGR.
+        int numBands = header.getNumComponents();
+        int[] bandOffsets = numBands == 1 ?
+            new int[] {0} : new int[] {2, 1, 0};
+        sampleModel =
+            new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE,
+                                            width, height,
+                                            numBands, numBands*width,
+                                            bandOffsets);
+        ColorSpace cs = ColorSpace.getInstance(numBands == 1 ?
+                                               ColorSpace.CS_GRAY :
+                                               ColorSpace.CS_sRGB);
+        colorModel =
+            new ComponentColorModel(cs, false, false,
+                                    Transparency.OPAQUE,
+                                    DataBuffer.TYPE_BYTE);
+
+        if (!deferDecoding) {
+            try {
+                theTile = decodeDeferred();
+            } catch (RuntimeException e) {
+                throw new IOException(e.getMessage());
+            }
+            data = null;
+            header = null;
+        }
+    }
+
+    /**
+     * Sets the layout of this image to that of its decoded tile.
+     *
+     * @throws IOException if the data could not be decoded.
+     */
+    private void setTile(Raster tile) throws IOException {
+        if (tile == null) {
+            throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
         }
 
+        minX = 0;
+        minY = 0;
+        tileWidth = width = tile.getWidth();
+        tileHeight = height = tile.getHeight();
+        sampleModel = tile.getSampleModel();
+
+        theTile = tile;
+    }
+
+    /**
+     * Returns an image of the same data decoded at 1/<code>scale</code>
+     * of the size of this one, without decoding this one, or
+     * <code>null</code> if this image is not a full size image whose
+     * decoding has been deferred or if the reduced image could not be
+     * decoded from the coefficients of the data.
+     */
+    synchronized JPEGImage createScaledImage(int scale) {
+        if (data == null || header == null || this.scale != 1 ||
+            !header.canDecode()) {
+            return null;
+        }
+
+        // The decoder keeps its state, so each image has its own.
+        try {
+            return new JPEGImage(this, new JPEGScaledDecoder(data), scale);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Constructs an image of the deferred data of another one. */
+    private JPEGImage(JPEGImage image, JPEGScaledDecoder header, int scale) {
+        this.data = image.data;
+        this.header = header;
+        this.scale = scale;
+        this.decodeToCSM = image.decodeToCSM;
+
+        minX = 0;
+        minY = 0;
+        tileWidth = width = (header.getWidth() + scale - 1)/scale;
+        tileHeight = height = (header.getHeight() + scale - 1)/scale;
+        sampleModel =
+            image.sampleModel.createCompatibleSampleModel(width, height);
+        colorModel = image.colorModel;
+    }
+
+    /** Reads a stream up to its end. */
+    private static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int count;
+        while ((count = stream.read(buf)) != -1) {
+            out.write(buf, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes JPEG data at full size with
+     * com.sun.image.codec.jpeg.JPEGImageDecoder, or returns
+     * <code>null</code> if they cannot be decoded.
+     */
+    private Raster decode(InputStream stream) {
         // Lock the entire class to work around lack of thread safety
         // in com.sun.image.codec.jpeg.JPEGImageDecoder implementation.
         BufferedImage image = null;
@@ -119,17 +313,14 @@ class JPEGImage extends SimpleRenderedImage {
             }
         }
 
-        minX = 0;
-        minY = 0;
-        tileWidth = width = image.getWidth();
-        tileHeight = height = image.getHeight();
+        if (image == null) {
+            return null;
+        }
 
         // Force image to have a ComponentSampleModel if it does not have one
         // and the ImageDecodeParam is either null or is a JPEGDecodeParam
         // with 'decodeToCSM' set to 'true'.
-        if ((param == null ||
-             (param instanceof JPEGDecodeParam &&
-              ((JPEGDecodeParam)param).getDecodeToCSM())) &&
+        if (decodeToCSM &&
             !(image.getSampleModel() instanceof ComponentSampleModel)) {
 
             int type = -1;
@@ -144,16 +335,65 @@ class JPEGImage extends SimpleRenderedImage {
                 throw new RuntimeException(JaiI18N.getString("JPEGImageDecoder3"));
             }
 
-            BufferedImage bi = new BufferedImage(width, height, type);
+            BufferedImage bi = new BufferedImage(image.getWidth(),
+                                                 image.getHeight(), type);
             bi.getWritableTile(0, 0).setRect(image.getWritableTile(0, 0));
             bi.releaseWritableTile(0, 0);
             image = bi;
         }
 
-        sampleModel = image.getSampleModel();
-        colorModel = image.getColorModel();
+        if (sampleModel == null) {
+            sampleModel = image.getSampleModel();
+            colorModel = image.getColorModel();
+        }
 
-        theTile = image.getWritableTile(0, 0);
+        return image.getWritableTile(0, 0);
+    }
+
+    /**
+     * Reduces a raster to 1/<code>scale</code> of its size, each pixel
+     * being the rounded mean of the pixels it covers.
+     */
+    private static Raster reduce(Raster raster, int scale) {
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        int dw = (w + scale - 1)/scale;
+        int dh = (h + scale - 1)/scale;
+        int numBands = raster.getNumBands();
+
+        WritableRaster dest = Raster.createWritableRaster(
+            raster.getSampleModel().createCompatibleSampleModel(dw, dh),
+            null);
+
+        int[] row = new int[w*numBands];
+        int[] sums = new int[dw*numBands];
+        int[] pixels = new int[dw*numBands];
+        for (int dy = 0; dy < dh; dy++) {
+            int y0 = dy*scale;
+            int y1 = Math.min(y0 + scale, h);
+            Arrays.fill(sums, 0);
+            for (int y = y0; y < y1; y++) {
+                raster.getPixels(raster.getMinX(), raster.getMinY() + y,
+                                 w, 1, row);
+                for (int x = 0; x < w; x++) {
+                    int s = x/scale*numBands;
+                    int r = x*numBands;
+                    for (int b = 0; b < numBands; b++) {
+                        sums[s + b] += row[r + b];
+                    }
+                }
+            }
+            for (int dx = 0; dx < dw; dx++) {
+                int area = (Math.min(dx*scale + scale, w) - dx*scale)*(y1 - y0);
+                for (int b = 0; b < numBands; b++) {
+                    int i = dx*numBands + b;
+                    pixels[i] = (sums[i] + area/2)/area;
+                }
+            }
+            dest.setPixels(0, dy, dw, 1, pixels);
+        }
+
+        return dest;
     }
 
     public synchronized Raster getTile(int tileX, int tileY) {
@@ -161,9 +401,55 @@ class JPEGImage extends SimpleRenderedImage {
             throw new IllegalArgumentException(JaiI18N.getString("JPEGImageDecoder4"));
         }
 
+        if (theTile == null && data != null) {
+            theTile = decodeDeferred();
+            data = null;
+        }
+
         return theTile;
     }
 
+    /**
+     * Decodes the deferred data into a raster having the SampleModel of
+     * this image.  As when the data are decoded on construction, a
+     * failure is reported to the <code>ImagingListener</code> and then
+     * thrown, here as a <code>RuntimeException</code>.
+     */
+    private Raster decodeDeferred() {
+        String message = JaiI18N.getString("JPEGImageDecoder1");
+
+        Raster tile = null;
+        if (scale > 1 && header.canDecode()) {
+            try {
+                tile = header.decode(scale);
+            } catch (RuntimeException e) {
+                sendExceptionToListener(message, e);
+                throw new RuntimeException(message);
+            }
+        } else {
+            tile = decode(new ByteArrayInputStream(data));
+            if (tile == null) {
+                throw new RuntimeException(message);
+            }
+            if (scale > 1) {
+                tile = reduce(tile, scale);
+            }
+        }
+
+        if (tile.getWidth() != width || tile.getHeight() != height ||
+            tile.getNumBands() != sampleModel.getNumBands()) {
+            sendExceptionToListener(message, new IOException(message));
+            throw new RuntimeException(message);
+        }
+
+        if (tile.getSampleModel().equals(sampleModel)) {
+            return tile;
+        }
+        WritableRaster dest = Raster.createWritableRaster(sampleModel, null);
+        dest.setRect(tile);
+        return dest;
+    }
+
     public void dispose() {
         theTile = null;
     }
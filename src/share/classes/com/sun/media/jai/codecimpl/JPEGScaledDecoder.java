@@ -0,0 +1,773 @@
+/*
+ * $RCSfile: JPEGScaledDecoder.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.codecimpl;
+
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+
+/**
+ * A reader of the header of JPEG data and a decoder of sequential
+ * Huffman coded JPEG data at 1/2, 1/4 or 1/8 of its size.
+ *
+ * <p> Each 8x8 block of coefficients is transformed directly into the
+ * 8/n by 8/n pixels of the reduced image: the contribution of each
+ * coefficient to a reduced pixel is the mean of its inverse discrete
+ * cosine transform basis function over the n by n pixels of the full
+ * size block which the reduced pixel covers.  Each reduced component
+ * plane is thus the block mean of the exact full size plane, while only
+ * the nonzero coefficients of each block are transformed.
+ *
+ * <p> Only baseline and extended sequential frames of 8-bit samples
+ * with one or three components, coded in a single scan, are decoded.
+ * Three components are converted from YCbCr to RGB unless the data say
+ * they are RGB already.  Subsampled components are interpolated
+ * linearly at the reduced size, which differs from averaging the
+ * upsampled full size image: at sharp color edges the colors may differ
+ * from those block means by a few tens of levels.
+ */
+final class JPEGScaledDecoder {
+
+    /** The natural order index of each zigzag order coefficient. */
+    private static final int[] NATURAL_ORDER = {
+         0,  1,  8, 16,  9,  2,  3, 10,
+        17, 24, 32, 25, 18, 11,  4,  5,
+        12, 19, 26, 33, 40, 48, 41, 34,
+        27, 20, 13,  6,  7, 14, 21, 28,
+        35, 42, 49, 56, 57, 50, 43, 36,
+        29, 22, 15, 23, 30, 37, 44, 51,
+        58, 59, 52, 45, 38, 31, 39, 46,
+        53, 60, 61, 54, 47, 55, 62, 63,
+        // Guard entries for corrupt run lengths.
+        63, 63, 63, 63, 63, 63, 63, 63,
+        63, 63, 63, 63, 63, 63, 63, 63
+    };
+
+    /** The number of bits of the Huffman lookup tables. */
+    private static final int LOOKAHEAD = 9;
+
+    /** The fixed point precision of the color conversion. */
+    private static final int SCALE_BITS = 16;
+
+    /** A Huffman table built for decoding. */
+    private static final class HuffmanTable {
+        /** The largest code of each length, or -1. */
+        final int[] maxCode = new int[18];
+
+        /** The offset from a code to the index of its value. */
+        final int[] valueOffset = new int[17];
+
+        /** The values in order of increasing code. */
+        final int[] values;
+
+        /** (length << 8) | value of the codes of up to LOOKAHEAD bits. */
+        final int[] lookup = new int[1 << LOOKAHEAD];
+
+        HuffmanTable(int[] counts, int[] values) {
+            this.values = values;
+
+            int code = 0;
+            int k = 0;
+            for (int l = 1; l <= 16; l++) {
+                int count = counts[l - 1];
+                valueOffset[l] = k - code;
+                if (count > 0) {
+                    for (int i = 0; i < count && l <= LOOKAHEAD; i++) {
+                        int first = (code + i) << (LOOKAHEAD - l);
+                        int entry = (l << 8) | values[k + i];
+                        for (int j = 0; j < 1 << (LOOKAHEAD - l); j++) {
+                            lookup[first + j] = entry;
+                        }
+                    }
+                    maxCode[l] = code + count - 1;
+                } else {
+                    maxCode[l] = -1;
+                }
+                k += count;
+                code = (code + count) << 1;
+            }
+            maxCode[17] = Integer.MAX_VALUE;
+        }
+    }
+
+    private final byte[] data;
+
+    private int width;
+    private int height;
+    private int precision;
+    private int numComponents;
+    private int[] componentIds;
+    private int[] hSamp;
+    private int[] vSamp;
+    private int[] qTableIndices;
+    private int maxH = 1;
+    private int maxV = 1;
+    private int frameMarker = -1;
+
+    private final int[][] qTables = new int[4][];
+    private final HuffmanTable[] dcTables = new HuffmanTable[4];
+    private final HuffmanTable[] acTables = new HuffmanTable[4];
+    private int restartInterval;
+
+    private boolean hasICCProfile;
+    private int adobeTransform = -1;
+
+    /** The components of the first scan, in scan order. */
+    private int[] scanComponents;
+    private int[] scanDCTables;
+    private int[] scanACTables;
+
+    /** The offset of the entropy coded data of the first scan. */
+    private int scanOffset;
+
+    // The state of the entropy decoder.
+    private int position;
+    private int bitBuffer;
+    private int bitCount;
+
+    /**
+     * Reads the header of JPEG data up to its first scan.
+     *
+     * @throws IOException if the data do not start with a JPEG frame.
+     */
+    JPEGScaledDecoder(byte[] data) throws IOException {
+        this.data = data;
+        readHeader();
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    int getNumComponents() {
+        return numComponents;
+    }
+
+    /**
+     * Whether a full size decoding yields 8-bit gray or RGB pixels without
+     * an embedded color profile, whose <code>ColorModel</code> is thus
+     * known before decoding.
+     */
+    boolean hasStandardColorModel() {
+        return (frameMarker == 0xC0 || frameMarker == 0xC1 ||
+                frameMarker == 0xC2) &&
+            precision == 8 &&
+            (numComponents == 1 || numComponents == 3) &&
+            !hasICCProfile &&
+            (numComponents == 1 || adobeTransform != 2);
+    }
+
+    /** Whether the data may be decoded by <code>decode()</code>. */
+    boolean canDecode() {
+        if ((frameMarker != 0xC0 && frameMarker != 0xC1) ||
+            precision != 8 ||
+            (numComponents != 1 && numComponents != 3) ||
+            scanComponents == null ||
+            scanComponents.length != numComponents) {
+            return false;
+        }
+        for (int i = 0; i < numComponents; i++) {
+            int c = scanComponents[i];
+            if (hSamp[c] < 1 || hSamp[c] > 4 ||
+                vSamp[c] < 1 || vSamp[c] > 4 ||
+                qTables[qTableIndices[c]] == null ||
+                dcTables[scanDCTables[i]] == null ||
+                acTables[scanACTables[i]] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readUnsignedByte(int offset) throws IOException {
+        if (offset >= data.length) {
+            throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+        }
+        return data[offset] & 0xff;
+    }
+
+    private int readUnsignedShort(int offset) throws IOException {
+        return (readUnsignedByte(offset) << 8) | readUnsignedByte(offset + 1);
+    }
+
+    private boolean startsWith(int offset, int end, String id) {
+        if (end - offset < id.length()) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if ((data[offset + i] & 0xff) != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        if (readUnsignedByte(0) != 0xFF || readUnsignedByte(1) != 0xD8) {
+            throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+        }
+
+        int pos = 2;
+        while (true) {
+            if (readUnsignedByte(pos) != 0xFF) {
+                throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+            }
+            while (readUnsignedByte(pos) == 0xFF) {
+                pos++;
+            }
+            int marker = readUnsignedByte(pos++);
+
+            // Markers without a segment.
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                continue;
+            } else if (marker == 0xD9) {
+                throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+            }
+
+            int start = pos + 2;
+            int end = pos + readUnsignedShort(pos);
+            if (end > data.length) {
+                throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+            }
+
+            switch (marker) {
+            case 0xC4:
+                readHuffmanTables(start, end);
+                break;
+            case 0xC8:
+            case 0xCC:
+                // JPG extension and arithmetic conditioning.
+                break;
+            case 0xDA:
+                readScanHeader(start);
+                scanOffset = end;
+                return;
+            case 0xDB:
+                readQuantizationTables(start, end);
+                break;
+            case 0xDD:
+                restartInterval = readUnsignedShort(start);
+                break;
+            case 0xE2:
+                if (startsWith(start, end, "ICC_PROFILE")) {
+                    hasICCProfile = true;
+                }
+                break;
+            case 0xEE:
+                if (startsWith(start, end, "Adobe") && end - start >= 12) {
+                    adobeTransform = readUnsignedByte(start + 11);
+                }
+                break;
+            default:
+                if (marker >= 0xC0 && marker <= 0xCF) {
+                    readFrameHeader(marker, start);
+                }
+                break;
+            }
+
+            pos = end;
+        }
+    }
+
+    private void readFrameHeader(int marker, int pos) throws IOException {
+        frameMarker = marker;
+        precision = readUnsignedByte(pos);
+        height = readUnsignedShort(pos + 1);
+        width = readUnsignedShort(pos + 3);
+        numComponents = readUnsignedByte(pos + 5);
+        if (width == 0 || height == 0 || numComponents == 0) {
+            // A DNL defined height is not supported.
+            throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+        }
+
+        componentIds = new int[numComponents];
+        hSamp = new int[numComponents];
+        vSamp = new int[numComponents];
+        qTableIndices = new int[numComponents];
+        pos += 6;
+        for (int c = 0; c < numComponents; c++, pos += 3) {
+            componentIds[c] = readUnsignedByte(pos);
+            int sampling = readUnsignedByte(pos + 1);
+            hSamp[c] = sampling >> 4;
+            vSamp[c] = sampling & 0xf;
+            qTableIndices[c] = readUnsignedByte(pos + 2) & 3;
+            maxH = Math.max(maxH, hSamp[c]);
+            maxV = Math.max(maxV, vSamp[c]);
+        }
+    }
+
+    private void readHuffmanTables(int pos, int end) throws IOException {
+        while (pos < end) {
+            int info = readUnsignedByte(pos++);
+            int[] counts = new int[16];
+            int total = 0;
+            for (int i = 0; i < 16; i++) {
+                counts[i] = readUnsignedByte(pos++);
+                total += counts[i];
+            }
+            int[] values = new int[total];
+            for (int i = 0; i < total; i++) {
+                values[i] = readUnsignedByte(pos++);
+            }
+
+            HuffmanTable table = new HuffmanTable(counts, values);
+            if ((info >> 4) == 0) {
+                dcTables[info & 3] = table;
+            } else {
+                acTables[info & 3] = table;
+            }
+        }
+    }
+
+    private void readQuantizationTables(int pos, int end) throws IOException {
+        while (pos < end) {
+            int info = readUnsignedByte(pos++);
+            int[] table = new int[64];
+            for (int k = 0; k < 64; k++) {
+                if ((info >> 4) == 0) {
+                    table[NATURAL_ORDER[k]] = readUnsignedByte(pos++);
+                } else {
+                    table[NATURAL_ORDER[k]] = readUnsignedShort(pos);
+                    pos += 2;
+                }
+            }
+            qTables[info & 3] = table;
+        }
+    }
+
+    private void readScanHeader(int pos) throws IOException {
+        int count = readUnsignedByte(pos++);
+        scanComponents = new int[count];
+        scanDCTables = new int[count];
+        scanACTables = new int[count];
+        for (int i = 0; i < count; i++, pos += 2) {
+            int id = readUnsignedByte(pos);
+            int tables = readUnsignedByte(pos + 1);
+            int c = 0;
+            while (c < numComponents && componentIds[c] != id) {
+                c++;
+            }
+            if (c == numComponents) {
+                throw new IOException(JaiI18N.getString("JPEGImageDecoder1"));
+            }
+            scanComponents[i] = c;
+            scanDCTables[i] = tables >> 4 & 3;
+            scanACTables[i] = tables & 3;
+        }
+    }
+
+    /**
+     * Returns the contributions of each coefficient of a block, in natural
+     * order, to the pixels of its reduced block of size <code>m</code>,
+     * in row major order.  An element is the mean over n by n pixels,
+     * n = 8/m, of the inverse DCT basis function of the coefficient,
+     * which includes the 1/8 normalization of the transform.
+     */
+    private static float[][] createBases(int m) {
+        int n = 8/m;
+
+        // mean[x][u] is the mean of the one dimensional basis function u
+        // over the pixels of reduced pixel x.
+        double[][] mean = new double[m][8];
+        for (int x = 0; x < m; x++) {
+            for (int u = 0; u < 8; u++) {
+                double cu = u == 0 ? Math.sqrt(0.5) : 1.0;
+                double sum = 0.0;
+                for (int j = 0; j < n; j++) {
+                    sum += Math.cos((2*(n*x + j) + 1)*u*Math.PI/16.0);
+                }
+                mean[x][u] = cu/2.0*sum/n;
+            }
+        }
+
+        float[][] bases = new float[64][m*m];
+        for (int v = 0; v < 8; v++) {
+            for (int u = 0; u < 8; u++) {
+                float[] basis = bases[v*8 + u];
+                for (int y = 0; y < m; y++) {
+                    for (int x = 0; x < m; x++) {
+                        basis[y*m + x] = (float)(mean[y][v]*mean[x][u]);
+                    }
+                }
+            }
+        }
+
+        return bases;
+    }
+
+    /**
+     * Decodes the image at 1/<code>scale</code> of its size into a pixel
+     * interleaved byte raster with the band offsets of a
+     * <code>BufferedImage</code> of type <code>TYPE_BYTE_GRAY</code> or
+     * <code>TYPE_3BYTE_BGR</code>.  Truncated data leave the rest of the
+     * image to the prediction of the missing coefficients.
+     *
+     * @param scale 2, 4 or 8.
+     */
+    WritableRaster decode(int scale) {
+        int m = 8/scale;
+
+        // Single component scans are not interleaved, and ignore the
+        // sampling factors.
+        boolean interleaved = scanComponents.length > 1;
+        int mcuWidth = interleaved ? 8*maxH : 8;
+        int mcuHeight = interleaved ? 8*maxV : 8;
+        int mcusX = (width + mcuWidth - 1)/mcuWidth;
+        int mcusY = (height + mcuHeight - 1)/mcuHeight;
+
+        // The planes of the reduced components.  The blocks of subsampled
+        // components are reduced less, down to one sample per pixel.
+        int[] blocksH = new int[numComponents];
+        int[] blocksV = new int[numComponents];
+        int[] sizes = new int[numComponents];
+        int[] planeWidths = new int[numComponents];
+        byte[][] planes = new byte[numComponents][];
+        float[][][] bases = new float[9][][];
+        for (int c = 0; c < numComponents; c++) {
+            blocksH[c] = interleaved ? hSamp[c] : 1;
+            blocksV[c] = interleaved ? vSamp[c] : 1;
+            int size = m;
+            while (interleaved && size < 8 &&
+                   2*size/m*hSamp[c] <= maxH && 2*size/m*vSamp[c] <= maxV) {
+                size *= 2;
+            }
+            sizes[c] = size;
+            if (bases[size] == null) {
+                bases[size] = createBases(size);
+            }
+            planeWidths[c] = mcusX*blocksH[c]*size;
+            planes[c] = new byte[planeWidths[c]*mcusY*blocksV[c]*size];
+        }
+
+        position = scanOffset;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        int[] predictors = new int[numComponents];
+        float[] pixels = new float[64];
+        int mcusToRestart = restartInterval;
+
+        for (int my = 0; my < mcusY; my++) {
+            for (int mx = 0; mx < mcusX; mx++) {
+                if (restartInterval > 0) {
+                    if (mcusToRestart == 0) {
+                        restart();
+                        for (int c = 0; c < numComponents; c++) {
+                            predictors[c] = 0;
+                        }
+                        mcusToRestart = restartInterval;
+                    }
+                    mcusToRestart--;
+                }
+
+                for (int i = 0; i < scanComponents.length; i++) {
+                    int c = scanComponents[i];
+                    int[] q = qTables[qTableIndices[c]];
+                    HuffmanTable dc = dcTables[scanDCTables[i]];
+                    HuffmanTable ac = acTables[scanACTables[i]];
+                    byte[] plane = planes[c];
+                    int planeWidth = planeWidths[c];
+                    int size = sizes[c];
+                    float[][] componentBases = bases[size];
+
+                    for (int by = 0; by < blocksV[c]; by++) {
+                        for (int bx = 0; bx < blocksH[c]; bx++) {
+                            // The DC coefficient.
+                            predictors[c] += receiveExtend(decodeHuffman(dc));
+                            float dcValue =
+                                predictors[c]*q[0]*componentBases[0][0];
+                            for (int p = 0; p < size*size; p++) {
+                                pixels[p] = dcValue;
+                            }
+
+                            // The AC coefficients.
+                            for (int k = 1; k < 64; k++) {
+                                int rs = decodeHuffman(ac);
+                                int r = rs >> 4;
+                                int s = rs & 0xf;
+                                if (s == 0) {
+                                    if (r != 15) {
+                                        break;
+                                    }
+                                    k += 15;
+                                    continue;
+                                }
+                                k += r;
+                                int value = receiveExtend(s);
+                                if (size > 1 && k < 64) {
+                                    int z = NATURAL_ORDER[k];
+                                    float coefficient = value*q[z];
+                                    float[] basis = componentBases[z];
+                                    for (int p = 0; p < size*size; p++) {
+                                        pixels[p] += coefficient*basis[p];
+                                    }
+                                }
+                            }
+
+                            // Level shift, round and store the block.
+                            int offset =
+                                ((my*blocksV[c] + by)*planeWidth +
+                                 mx*blocksH[c] + bx)*size;
+                            for (int y = 0, p = 0; y < size; y++) {
+                                for (int x = 0; x < size; x++, p++) {
+                                    int v = (int)Math.floor(pixels[p] + 128.5F);
+                                    plane[offset + x] =
+                                        (byte)(v < 0 ? 0 : (v > 255 ? 255 : v));
+                                }
+                                offset += planeWidth;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return createRaster(scale, planes, planeWidths, sizes,
+                            blocksH, blocksV,
+                            interleaved ? maxH : 1, interleaved ? maxV : 1);
+    }
+
+    /**
+     * Creates the reduced raster from the component planes, interpolating
+     * subsampled components linearly between the centers of their
+     * samples and converting YCbCr to RGB.
+     */
+    private WritableRaster createRaster(int scale,
+                                        byte[][] planes,
+                                        int[] planeWidths,
+                                        int[] sizes,
+                                        int[] blocksH, int[] blocksV,
+                                        int mcuH, int mcuV) {
+        int w = (width + scale - 1)/scale;
+        int h = (height + scale - 1)/scale;
+        int numBands = numComponents;
+        byte[] pixels = new byte[w*h*numBands];
+
+        // The two plane columns of each pixel column, the weight of the
+        // second in 1/256, and the same for the rows.
+        int[][] columns0 = new int[numBands][w];
+        int[][] columns1 = new int[numBands][w];
+        int[][] columnWeights = new int[numBands][w];
+        int[][] rows0 = new int[numBands][h];
+        int[][] rows1 = new int[numBands][h];
+        int[][] rowWeights = new int[numBands][h];
+        for (int c = 0; c < numBands; c++) {
+            int planeWidth = planeWidths[c];
+            int planeHeight = planes[c].length/planeWidth;
+            int m = 8/scale;
+            setInterpolation(w, (double)(blocksH[c]*sizes[c])/(mcuH*m),
+                             planeWidth, 1,
+                             columns0[c], columns1[c], columnWeights[c]);
+            setInterpolation(h, (double)(blocksV[c]*sizes[c])/(mcuV*m),
+                             planeHeight,
+                             planeWidth,
+                             rows0[c], rows1[c], rowWeights[c]);
+        }
+
+        // The samples of a row of pixels, by component.
+        int[][] lines = new int[numBands][w];
+
+        // The data are RGB if an Adobe marker says so, or if the
+        // component identifiers are 'R', 'G' and 'B'.
+        boolean rgb = numBands == 3 &&
+            (adobeTransform == 0 ||
+             (adobeTransform < 0 &&
+              componentIds[0] == 'R' && componentIds[1] == 'G' &&
+              componentIds[2] == 'B'));
+
+        int half = 1 << (SCALE_BITS - 1);
+        int crToR = (int)(1.40200*(1 << SCALE_BITS) + 0.5);
+        int cbToB = (int)(1.77200*(1 << SCALE_BITS) + 0.5);
+        int crToG = (int)(0.71414*(1 << SCALE_BITS) + 0.5);
+        int cbToG = (int)(0.34414*(1 << SCALE_BITS) + 0.5);
+
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int c = 0; c < numBands; c++) {
+                byte[] plane = planes[c];
+                int[] line = lines[c];
+                int row0 = rows0[c][y];
+                int row1 = rows1[c][y];
+                int wy = rowWeights[c][y];
+                int[] c0 = columns0[c];
+                int[] c1 = columns1[c];
+                int[] wx = columnWeights[c];
+                for (int x = 0; x < w; x++) {
+                    int top = (plane[row0 + c0[x]] & 0xff)*(256 - wx[x]) +
+                        (plane[row0 + c1[x]] & 0xff)*wx[x];
+                    int bottom = (plane[row1 + c0[x]] & 0xff)*(256 - wx[x]) +
+                        (plane[row1 + c1[x]] & 0xff)*wx[x];
+                    line[x] = (top*(256 - wy) + bottom*wy + 32768) >> 16;
+                }
+            }
+
+            if (numBands == 1) {
+                int[] line = lines[0];
+                for (int x = 0; x < w; x++) {
+                    pixels[i++] = (byte)line[x];
+                }
+                continue;
+            }
+
+            int[] line0 = lines[0];
+            int[] line1 = lines[1];
+            int[] line2 = lines[2];
+            for (int x = 0; x < w; x++, i += 3) {
+                int r, g, b;
+                if (rgb) {
+                    r = line0[x];
+                    g = line1[x];
+                    b = line2[x];
+                } else {
+                    int luma = line0[x];
+                    int cb = line1[x] - 128;
+                    int cr = line2[x] - 128;
+                    r = luma + ((crToR*cr + half) >> SCALE_BITS);
+                    g = luma - ((cbToG*cb + crToG*cr - half) >> SCALE_BITS);
+                    b = luma + ((cbToB*cb + half) >> SCALE_BITS);
+                    r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                    g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                    b = b < 0 ? 0 : (b > 255 ? 255 : b);
+                }
+                // Blue, green and red as in TYPE_3BYTE_BGR.
+                pixels[i] = (byte)b;
+                pixels[i + 1] = (byte)g;
+                pixels[i + 2] = (byte)r;
+            }
+        }
+
+        if (numBands == 1) {
+            return Raster.createInterleavedRaster(new DataBufferByte(pixels, pixels.length),
+                                                  w, h, w, 1,
+                                                  new int[] {0}, null);
+        }
+        return Raster.createInterleavedRaster(new DataBufferByte(pixels, pixels.length),
+                                              w, h, 3*w, 3,
+                                              new int[] {2, 1, 0}, null);
+    }
+
+    /**
+     * Sets the two plane positions between which each pixel position is
+     * interpolated and the weight of the second in 1/256.
+     *
+     * @param size The number of pixel positions.
+     * @param ratio The number of samples of the plane per pixel.
+     * @param planeSize The number of samples of the plane.
+     * @param stride The offset between consecutive samples of the plane.
+     */
+    private static void setInterpolation(int size, double ratio,
+                                         int planeSize, int stride,
+                                         int[] positions0, int[] positions1,
+                                         int[] weights) {
+        for (int i = 0; i < size; i++) {
+            // The position of the pixel center relative to the sample
+            // centers.
+            double p = (i + 0.5)*ratio - 0.5;
+            int p0 = (int)Math.floor(p);
+            int weight = (int)Math.round((p - p0)*256);
+            int p1 = p0 + 1;
+            p0 = p0 < 0 ? 0 : (p0 >= planeSize ? planeSize - 1 : p0);
+            p1 = p1 < 0 ? 0 : (p1 >= planeSize ? planeSize - 1 : p1);
+            positions0[i] = p0*stride;
+            positions1[i] = p1*stride;
+            weights[i] = weight;
+        }
+    }
+
+    /**
+     * Fills the bit buffer to at least 25 bits.  A marker ends the
+     * entropy coded data, after which zero bits are supplied.
+     */
+    private void fill() {
+        while (bitCount <= 24) {
+            int b = 0;
+            if (position < data.length) {
+                b = data[position] & 0xff;
+                if (b == 0xFF) {
+                    int next = position + 1 < data.length ?
+                        data[position + 1] & 0xff : 0xD9;
+                    if (next == 0) {
+                        position += 2;
+                    } else {
+                        // Stay at the marker.
+                        b = 0;
+                    }
+                } else {
+                    position++;
+                }
+            }
+            bitBuffer |= b << (24 - bitCount);
+            bitCount += 8;
+        }
+    }
+
+    /** Skips to the data after the next restart marker. */
+    private void restart() {
+        bitBuffer = 0;
+        bitCount = 0;
+        while (position + 1 < data.length) {
+            if ((data[position] & 0xff) == 0xFF) {
+                int marker = data[position + 1] & 0xff;
+                if (marker >= 0xD0 && marker <= 0xD7) {
+                    position += 2;
+                    return;
+                } else if (marker != 0 && marker != 0xFF) {
+                    // Another marker: the data are truncated.
+                    return;
+                }
+            }
+            position++;
+        }
+    }
+
+    private int decodeHuffman(HuffmanTable table) {
+        fill();
+        int entry = table.lookup[bitBuffer >>> (32 - LOOKAHEAD)];
+        if (entry != 0) {
+            int length = entry >> 8;
+            bitBuffer <<= length;
+            bitCount -= length;
+            return entry & 0xff;
+        }
+
+        int length = LOOKAHEAD + 1;
+        int code = bitBuffer >>> (32 - length);
+        while (code > table.maxCode[length]) {
+            length++;
+            code = bitBuffer >>> (32 - length);
+        }
+        if (length > 16) {
+            // Corrupt data: skip the bits.
+            bitBuffer <<= 16;
+            bitCount -= 16;
+            return 0;
+        }
+        bitBuffer <<= length;
+        bitCount -= length;
+        return table.values[table.valueOffset[length] + code];
+    }
+
+    private int receiveExtend(int s) {
+        if (s == 0) {
+            return 0;
+        }
+        fill();
+        int value = bitBuffer >>> (32 - s);
+        bitBuffer <<= s;
+        bitCount -= s;
+        return value < (1 << (s - 1)) ? value - (1 << s) + 1 : value;
+    }
+}
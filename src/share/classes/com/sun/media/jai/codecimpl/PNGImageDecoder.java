@@ -240,6 +240,9 @@ class PNGImage extends SimpleRenderedImage {
     // PNGDecodeParam controlling decode process
     private PNGDecodeParam decodeParam = null;
 
+    // Height of the strips to decode on demand, or 0 for a single tile
+    private int stripHeight = 0;
+
     // PNGEncodeParam to store file details in
     private PNGEncodeParam encodeParam = null;
 
@@ -331,6 +334,21 @@ class PNGImage extends SimpleRenderedImage {
 
     private WritableRaster theTile;
 
+    // Strip-by-strip decoding of non-interlaced images.
+    private boolean decodeByStrips = false;
+    private int stripDepth;             // output bit depth of a strip
+    private int stripScanlineStride;    // output scanline stride of a strip
+    private Inflater inflater;
+    private int nextRow = 0;            // next image row in the zlib stream
+    private byte[] currRow;
+    private byte[] priorRow;
+    private WritableRaster rowRaster;   // one input row, before processing
+    private Hashtable stripCache = new Hashtable();
+    private Vector stripOrder = new Vector();
+
+    // Number of decoded strips retained by the image itself.
+    private static final int STRIP_CACHE_SIZE = 4;
+
     private int[] gammaLut = null;
 
     private void initGammaLut(int bits) {
@@ -403,6 +421,7 @@ class PNGImage extends SimpleRenderedImage {
             output8BitGray = true;
         }
         this.generateEncodeParam = decodeParam.getGenerateEncodeParam();
+        this.stripHeight = decodeParam.getStripHeight();
 
         if (emitProperties) {
             properties.put("file_type", "PNG v. 1.0");
@@ -794,11 +813,7 @@ class PNGImage extends SimpleRenderedImage {
         }
 
         // Parse prior IDAT chunks
-        InputStream seqStream =
-            new SequenceInputStream(streamVec.elements());
-        InputStream infStream =
-            new InflaterInputStream(seqStream, new Inflater());
-        dataStream = new DataInputStream(infStream);
+        openDataStream();
 
         // Create an empty WritableRaster
         int depth = bitDepth;
@@ -813,10 +828,6 @@ class PNGImage extends SimpleRenderedImage {
         int scanlineStride =
             (depth == 16) ? (bytesPerRow/2) : bytesPerRow;
 
-        theTile = createRaster(width, height, outputBands,
-                               scanlineStride,
-                               depth);
-
         if (performGammaCorrection && (gammaLut == null)) {
             initGammaLut(bitDepth);
         }
@@ -826,8 +837,35 @@ class PNGImage extends SimpleRenderedImage {
             initGrayLut(bitDepth);
         }
 
-        decodeImage(interlaceMethod == 1);
-        sampleModel = theTile.getSampleModel();
+        decodeByStrips =
+            interlaceMethod == 0 && stripHeight > 0 && stripHeight < height;
+
+        if (decodeByStrips) {
+            // Defer decoding until the strips are requested.
+            tileHeight = stripHeight;
+            stripDepth = depth;
+            stripScanlineStride = scanlineStride;
+
+            int inputBytesPerRow = (inputBands*width*bitDepth + 7)/8;
+            currRow = new byte[inputBytesPerRow];
+            priorRow = new byte[inputBytesPerRow];
+            rowRaster = createRaster(width, 1, inputBands,
+                                     (bitDepth == 16) ?
+                                     inputBytesPerRow/2 : inputBytesPerRow,
+                                     bitDepth);
+
+            sampleModel = createRaster(width, 1, outputBands,
+                                       scanlineStride,
+                                       depth).getSampleModel().
+                createCompatibleSampleModel(width, tileHeight);
+        } else {
+            theTile = createRaster(width, height, outputBands,
+                                   scanlineStride,
+                                   depth);
+
+            decodeImage(interlaceMethod == 1);
+            sampleModel = theTile.getSampleModel();
+        }
 
         if ((colorType == PNG_COLOR_PALETTE) && !expandPalette) {
             if (outputHasAlphaPalette) {
@@ -1291,10 +1329,17 @@ class PNGImage extends SimpleRenderedImage {
     private WritableRaster createRaster(int width, int height, int bands,
                                         int scanlineStride,
                                         int bitDepth) {
+        return createRaster(width, height, bands, scanlineStride, bitDepth,
+                            new Point(0, 0));
+    }
+
+    private WritableRaster createRaster(int width, int height, int bands,
+                                        int scanlineStride,
+                                        int bitDepth,
+                                        Point origin) {
 
         DataBuffer dataBuffer;
         WritableRaster ras = null;
-        Point origin = new Point(0, 0);
         if ((bitDepth < 8) && (bands == 1)) {
             dataBuffer = new DataBufferByte(height*scanlineStride);
             ras = Raster.createPackedRaster(dataBuffer,
@@ -1410,7 +1455,7 @@ class PNGImage extends SimpleRenderedImage {
 
         // Create an array suitable for holding one pixel
         int[] ps = src.getPixel(0, 0, (int[])null);
-        int[] pd = dst.getPixel(0, 0, (int[])null);
+        int[] pd = dst.getPixel(dst.getMinX(), dst.getMinY(), (int[])null);
 
         dstX = xOffset;
         switch (process) {
@@ -1694,48 +1739,7 @@ class PNGImage extends SimpleRenderedImage {
         for (srcY = 0, dstY = yOffset;
              srcY < passHeight;
              srcY++, dstY += yStep) {
-            // Read the filter type byte and a row of data
-            int filter = 0;
-            try {
-                filter = dataStream.read();
-                dataStream.readFully(curr, 0, bytesPerRow);
-            } catch (Exception e) {
-                ImagingListenerProxy.errorOccurred(JaiI18N.getString("PNGImageDecoder2"),
-                                       e, this, false);
-//                e.printStackTrace();
-            }
-
-            switch (filter) {
-            case PNG_FILTER_NONE:
-                break;
-            case PNG_FILTER_SUB:
-                decodeSubFilter(curr, bytesPerRow, bytesPerPixel);
-                break;
-            case PNG_FILTER_UP:
-                decodeUpFilter(curr, prior, bytesPerRow);
-                break;
-            case PNG_FILTER_AVERAGE:
-                decodeAverageFilter(curr, prior, bytesPerRow, bytesPerPixel);
-                break;
-            case PNG_FILTER_PAETH:
-                decodePaethFilter(curr, prior, bytesPerRow, bytesPerPixel);
-                break;
-            default:
-                // Error -- uknown filter type
-                throw new RuntimeException(JaiI18N.getString("PNGImageDecoder16"));
-            }
-
-            // Copy data into passRow byte by byte
-            if (bitDepth < 16) {
-                System.arraycopy(curr, 0, byteData, 0, bytesPerRow);
-            } else {
-                int idx = 0;
-                for (int j = 0; j < eltsPerRow; j++) {
-                    shortData[j] =
-                        (short)((curr[idx] << 8) | (curr[idx + 1] & 0xff));
-                    idx += 2;
-                }
-            }
+            readRow(curr, prior, bytesPerRow, byteData, shortData);
 
             processPixels(postProcess,
                           passRow, imRas, xOffset, xStep, dstY, passWidth);
@@ -1747,6 +1751,156 @@ class PNGImage extends SimpleRenderedImage {
         }
     }
 
+    /**
+     * Reads the filter type byte and the data of the next row from the
+     * zlib stream, reverses the filtering against the prior row and
+     * copies the result into the data array of a one-row
+     * <code>Raster</code>.
+     */
+    private void readRow(byte[] curr, byte[] prior, int bytesPerRow,
+                         byte[] byteData, short[] shortData) {
+        // Read the filter type byte and a row of data
+        int filter = 0;
+        try {
+            filter = dataStream.read();
+            dataStream.readFully(curr, 0, bytesPerRow);
+        } catch (Exception e) {
+            ImagingListenerProxy.errorOccurred(JaiI18N.getString("PNGImageDecoder2"),
+                                   e, this, false);
+//            e.printStackTrace();
+        }
+
+        switch (filter) {
+        case PNG_FILTER_NONE:
+            break;
+        case PNG_FILTER_SUB:
+            decodeSubFilter(curr, bytesPerRow, bytesPerPixel);
+            break;
+        case PNG_FILTER_UP:
+            decodeUpFilter(curr, prior, bytesPerRow);
+            break;
+        case PNG_FILTER_AVERAGE:
+            decodeAverageFilter(curr, prior, bytesPerRow, bytesPerPixel);
+            break;
+        case PNG_FILTER_PAETH:
+            decodePaethFilter(curr, prior, bytesPerRow, bytesPerPixel);
+            break;
+        default:
+            // Error -- uknown filter type
+            throw new RuntimeException(JaiI18N.getString("PNGImageDecoder16"));
+        }
+
+        // Copy data into passRow byte by byte
+        if (bitDepth < 16) {
+            System.arraycopy(curr, 0, byteData, 0, bytesPerRow);
+        } else {
+            int idx = 0;
+            int eltsPerRow = bytesPerRow/2;
+            for (int j = 0; j < eltsPerRow; j++) {
+                shortData[j] =
+                    (short)((curr[idx] << 8) | (curr[idx + 1] & 0xff));
+                idx += 2;
+            }
+        }
+    }
+
+    /**
+     * (Re)creates the zlib stream over the IDAT chunk data, positioned
+     * at the first row of the image.
+     */
+    private void openDataStream() {
+        if (inflater != null) {
+            inflater.end();
+        }
+
+        Enumeration e = streamVec.elements();
+        while (e.hasMoreElements()) {
+            ((ByteArrayInputStream)e.nextElement()).reset();
+        }
+
+        InputStream seqStream =
+            new SequenceInputStream(streamVec.elements());
+        inflater = new Inflater();
+        InputStream infStream =
+            new InflaterInputStream(seqStream, inflater);
+        dataStream = new DataInputStream(infStream);
+        nextRow = 0;
+
+        if (priorRow != null) {
+            for (int i = 0; i < priorRow.length; i++) {
+                priorRow[i] = (byte)0;
+            }
+        }
+    }
+
+    /**
+     * Decodes the strip beginning at row <code>nextRow</code>, which
+     * must be the first row of a strip.
+     */
+    private WritableRaster decodeStrip() {
+        int y0 = nextRow;
+        WritableRaster strip = createRaster(width, tileHeight, outputBands,
+                                            stripScanlineStride,
+                                            stripDepth,
+                                            new Point(0, y0));
+
+        DataBuffer dataBuffer = rowRaster.getDataBuffer();
+        byte[] byteData = null;
+        short[] shortData = null;
+        if (dataBuffer.getDataType() == DataBuffer.TYPE_BYTE) {
+            byteData = ((DataBufferByte)dataBuffer).getData();
+        } else {
+            shortData = ((DataBufferUShort)dataBuffer).getData();
+        }
+
+        int numRows = Math.min(tileHeight, height - y0);
+        for (int y = y0; y < y0 + numRows; y++) {
+            readRow(currRow, priorRow, currRow.length, byteData, shortData);
+
+            processPixels(postProcess, rowRaster, strip, 0, 1, y, width);
+
+            byte[] tmp = priorRow;
+            priorRow = currRow;
+            currRow = tmp;
+        }
+
+        nextRow = y0 + numRows;
+
+        return strip;
+    }
+
+    /** Returns a strip, decoding forward from the current row as needed. */
+    private Raster getStrip(int tileY) {
+        Integer key = new Integer(tileY);
+        Raster strip = (Raster)stripCache.get(key);
+        if (strip != null) {
+            return strip;
+        }
+
+        int y0 = tileY*tileHeight;
+        if (inflater == null || y0 < nextRow) {
+            // The zlib stream cannot be rewound, or has been released by
+            // dispose(): start over.
+            openDataStream();
+        }
+
+        while (true) {
+            int stripY = nextRow/tileHeight;
+            WritableRaster ras = decodeStrip();
+
+            // Retain only the most recently decoded strips.
+            stripCache.put(new Integer(stripY), ras);
+            stripOrder.add(new Integer(stripY));
+            if (stripOrder.size() > STRIP_CACHE_SIZE) {
+                stripCache.remove(stripOrder.remove(0));
+            }
+
+            if (stripY == tileY) {
+                return ras;
+            }
+        }
+    }
+
     private void decodeImage(boolean useInterlacing) {
         if (!useInterlacing) {
             decodePass(theTile, 0, 0, 1, 1, width, height);
@@ -1763,15 +1917,30 @@ class PNGImage extends SimpleRenderedImage {
 
     // RenderedImage stuff
 
-    public Raster getTile(int tileX, int tileY) {
-        if (tileX != 0 || tileY != 0) {
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
             // Error -- bad tile requested
             throw new IllegalArgumentException(JaiI18N.getString("PNGImageDecoder17"));
         }
+        if (decodeByStrips) {
+            return getStrip(tileY);
+        }
         return theTile;
     }
 
-    public void dispose() {
+    /**
+     * Releases the decoded data and the zlib stream of the image.  The
+     * strips of an image decoded strip by strip are decoded again from
+     * the first row if they are requested afterwards.
+     */
+    public synchronized void dispose() {
         theTile = null;
+        stripCache.clear();
+        stripOrder.clear();
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        dataStream = null;
     }
 }
@@ -109,14 +109,12 @@ public class TIFFImage extends SimpleRenderedImage {
 
     // LZW compression related variable
     int predictor;
+    int numSamplesPerPixel;
 
     // TTN2 JPEG related variables
     JPEGDecodeParam decodeParam = null;
     boolean colorConvertJPEG = false;
 
-    // DEFLATE variables
-    Inflater inflater = null;
-
     // Endian-ness indicator
     boolean isBigEndian;
 
@@ -126,10 +124,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
     boolean decodePaletteAsShorts;
 
-    // Decoders
-    private TIFFFaxDecoder decoder = null;
-    private TIFFLZWDecoder lzwDecoder = null;
-
     /**
      * Decode a buffer of data into a Raster with the specified location.
      *
@@ -176,9 +170,10 @@ public class TIFFImage extends SimpleRenderedImage {
 
     /**
      * Inflates <code>deflated</code> into <code>inflated</code> using the
-     * <code>Inflater</code> constructed during class instantiation.
+     * supplied <code>Inflater</code>.
      */
-    private final void inflate(byte[] deflated, byte[] inflated) {
+    private final void inflate(Inflater inflater,
+                               byte[] deflated, byte[] inflated) {
         inflater.setInput(deflated);
         try {
             inflater.inflate(inflated);
@@ -659,7 +654,7 @@ public class TIFFImage extends SimpleRenderedImage {
             // Do nothing.
             break;
         case COMP_DEFLATE:
-            inflater = new Inflater();
+            // The Inflater is created per decoding thread.
             break;
         case COMP_FAX_G3_1D:
         case COMP_FAX_G3_2D:
@@ -692,9 +687,7 @@ public class TIFFImage extends SimpleRenderedImage {
                 }
             }
 
-            // Fax encoding, need to create the Fax decoder.
-            decoder = new TIFFFaxDecoder(fillOrder,
-                                         tileWidth, tileHeight);
+            // Fax encoding: the Fax decoder is created per decoding thread.
             break;
 
         case COMP_LZW:
@@ -717,8 +710,8 @@ public class TIFFImage extends SimpleRenderedImage {
                 }
             }
 
-            lzwDecoder = new TIFFLZWDecoder(tileWidth, predictor,
-                                            samplesPerPixel);
+            // The LZW decoder is created per decoding thread.
+            numSamplesPerPixel = samplesPerPixel;
             break;
 
         case COMP_JPEG_OLD:
@@ -954,21 +947,53 @@ public class TIFFImage extends SimpleRenderedImage {
     /**
      * Returns tile (tileX, tileY) as a Raster.
      */
-    public synchronized Raster getTile(int tileX, int tileY) {
+    public Raster getTile(int tileX, int tileY) {
         // Check parameters.
         if ((tileX < 0) || (tileX >= tilesX) ||
             (tileY < 0) || (tileY >= tilesY)) {
             throw new IllegalArgumentException(JaiI18N.getString("TIFFImage12"));
         }
 
+        // Decoders are created for each tile so that distinct tiles may
+        // be decoded concurrently without sharing any state.
+        TIFFFaxDecoder decoder = null;
+        TIFFLZWDecoder lzwDecoder = null;
+        Inflater inflater = null;
+        switch(compression) {
+        case COMP_FAX_G3_1D:
+        case COMP_FAX_G3_2D:
+        case COMP_FAX_G4_2D:
+            decoder = new TIFFFaxDecoder(fillOrder, tileWidth, tileHeight);
+            break;
+        case COMP_LZW:
+            lzwDecoder = new TIFFLZWDecoder(tileWidth, predictor,
+                                            numSamplesPerPixel);
+            break;
+        case COMP_DEFLATE:
+            inflater = new Inflater();
+            break;
+        }
+
+        try {
+            return decodeTile(tileX, tileY, decoder, lzwDecoder, inflater);
+        } finally {
+            // Release the native memory of the Inflater at once.
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decodes tile (tileX, tileY) using the supplied decoders.
+     */
+    private Raster decodeTile(int tileX, int tileY,
+                              TIFFFaxDecoder decoder,
+                              TIFFLZWDecoder lzwDecoder,
+                              Inflater inflater) {
         // The tile to return.
         WritableRaster tile = null;
 
-        // Synchronize the rest of the method in case other TIFFImage
-        // instances using the same stream were created by the same
-        // TIFFImageDecoder. This fixes 4690773.
-        synchronized(this.stream) {
-
 	// Get the data array out of the DataBuffer
 	byte bdata[] = null;
 	short sdata[] = null;
@@ -1013,22 +1038,32 @@ public class TIFFImage extends SimpleRenderedImage {
                                                    new Point(tileXToX(tileX),
                                                              tileYToY(tileY)));
 
-	// Save original file pointer position and seek to tile data location.
-	long save_offset = 0;
-	try {
-	    save_offset = stream.getFilePointer();
-	    stream.seek(tileOffsets[tileY*tilesX + tileX]);
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("TIFFImage13");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("TIFFImage13"));
-	}
-
 	// Number of bytes in this tile (strip) after compression.
 	int byteCount = (int)tileByteCounts[tileY*tilesX + tileX];
 
+        // The tile data are read with positional reads so that the shared
+        // stream, which other TIFFImage instances created by the same
+        // TIFFImageDecoder may also use (4690773), is only held for the
+        // duration of the I/O and tiles may be decoded concurrently.
+        long tileOffset = tileOffsets[tileY*tilesX + tileX];
+
+        // Compressed and palette data are read into a buffer from which
+        // they are decoded; uncompressed data are read straight into the
+        // tile.
+	byte data[] = null;
+        if (compression != COMP_NONE || imageType == TYPE_PALETTE) {
+            data = new byte[byteCount];
+            try {
+                stream.readFully(tileOffset, data, 0, byteCount);
+            } catch (IOException ioe) {
+                String message = JaiI18N.getString("TIFFImage13");
+                ImagingListenerProxy.errorOccurred(message,
+                                       new ImagingException(message, ioe),
+                                       this, false);
+//	        throw new RuntimeException(JaiI18N.getString("TIFFImage13"));
+            }
+        }
+
 	// Find out the number of bytes in the current tile. If the image is
         // tiled this may include pixels which are outside of the image bounds
         // if the image width and height are not multiples of the tile width
@@ -1039,16 +1074,11 @@ public class TIFFImage extends SimpleRenderedImage {
             tileRect : tileRect.intersection(getBounds());
         int unitsInThisTile = newRect.width * newRect.height * numBands;
 
-        // Allocate read buffer if needed.
-	byte data[] = compression != COMP_NONE || imageType == TYPE_PALETTE ?
-            new byte[byteCount] : null;
-
         // Read the data, uncompressing as needed. There are four cases:
         // bilevel, palette-RGB, 4-bit grayscale, and everything else.
         if(imageType == TYPE_BILEVEL) { // bilevel
 	    try {
 		if (compression == COMP_PACKBITS) {
-		    stream.readFully(data, 0, byteCount);
 
 		    // Since the decompressed data will still be packed
 		    // 8 pixels into 1 byte, calculate bytesInThisTile
@@ -1061,27 +1091,21 @@ public class TIFFImage extends SimpleRenderedImage {
 		    }
 		    decodePackbits(data, bytesInThisTile, bdata);
 		} else if (compression == COMP_LZW) {
-		    stream.readFully(data, 0, byteCount);
 		    lzwDecoder.decode(data, bdata, newRect.height);
 		} else if (compression == COMP_FAX_G3_1D) {
-		    stream.readFully(data, 0, byteCount);
 		    decoder.decode1D(bdata, data, 0, newRect.height);
 		} else if (compression == COMP_FAX_G3_2D) {
-		    stream.readFully(data, 0, byteCount);
 		    decoder.decode2D(bdata, data, 0, newRect.height,
                                      tiffT4Options);
 		} else if (compression == COMP_FAX_G4_2D) {
-		    stream.readFully(data, 0, byteCount);
                     decoder.decodeT6(bdata, data, 0, newRect.height,
                                      tiffT6Options);
 		} else if (compression == COMP_DEFLATE) {
-                    stream.readFully(data, 0, byteCount);
-                    inflate(data, bdata);
+                    inflate(inflater, data, bdata);
 		} else if (compression == COMP_NONE) {
-		    stream.readFully(bdata, 0, byteCount);
+		    stream.readFully(tileOffset, bdata, 0, byteCount);
 		}
 
-		stream.seek(save_offset);
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
                 ImagingListenerProxy.errorOccurred(message,
@@ -1108,58 +1132,39 @@ public class TIFFImage extends SimpleRenderedImage {
 		    // how many bytes we'll get after decompression.
 		    int entries = unitsBeforeLookup * 2;
 
-		    // Read the data, if compressed, decode it, reset the pointer
-		    try {
-
-			if (compression == COMP_PACKBITS) {
-
-			    stream.readFully(data, 0, byteCount);
-
-			    byte byteArray[] = new byte[entries];
-			    decodePackbits(data, entries, byteArray);
-			    tempData = new short[unitsBeforeLookup];
-			    interpretBytesAsShorts(byteArray, tempData,
-						   unitsBeforeLookup);
-
-			}  else if (compression == COMP_LZW) {
-
-			    // Read in all the compressed data for this tile
-			    stream.readFully(data, 0, byteCount);
+		    // Decode the data if it is compressed.
+		    if (compression == COMP_PACKBITS) {
 
-			    byte byteArray[] = new byte[entries];
-			    lzwDecoder.decode(data, byteArray, newRect.height);
-			    tempData = new short[unitsBeforeLookup];
-			    interpretBytesAsShorts(byteArray, tempData,
-						   unitsBeforeLookup);
+			byte byteArray[] = new byte[entries];
+			decodePackbits(data, entries, byteArray);
+			tempData = new short[unitsBeforeLookup];
+			interpretBytesAsShorts(byteArray, tempData,
+					       unitsBeforeLookup);
 
-			}  else if (compression == COMP_DEFLATE) {
+		    }  else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
-			    byte byteArray[] = new byte[entries];
-			    inflate(data, byteArray);
-			    tempData = new short[unitsBeforeLookup];
-			    interpretBytesAsShorts(byteArray, tempData,
-						   unitsBeforeLookup);
+			byte byteArray[] = new byte[entries];
+			lzwDecoder.decode(data, byteArray, newRect.height);
+			tempData = new short[unitsBeforeLookup];
+			interpretBytesAsShorts(byteArray, tempData,
+					       unitsBeforeLookup);
 
-			} else if (compression == COMP_NONE) {
+		    }  else if (compression == COMP_DEFLATE) {
 
-			    // byteCount tells us how many bytes are there
-			    // in this tile, but we need to read in shorts,
-			    // which will take half the space, so while
-			    // allocating we divide byteCount by 2.
-			    tempData = new short[byteCount/2];
-			    readShorts(byteCount/2, tempData);
-			}
+			byte byteArray[] = new byte[entries];
+			inflate(inflater, data, byteArray);
+			tempData = new short[unitsBeforeLookup];
+			interpretBytesAsShorts(byteArray, tempData,
+					       unitsBeforeLookup);
 
-			stream.seek(save_offset);
+		    } else if (compression == COMP_NONE) {
 
-		    } catch (IOException ioe) {
-                        String message = JaiI18N.getString("TIFFImage13");
-                        ImagingListenerProxy.errorOccurred(message,
-                                               new ImagingException(message, ioe),
-                                               this, false);
-//			throw new RuntimeException(
-//					JaiI18N.getString("TIFFImage13"));
+			// byteCount tells us how many bytes are there
+			// in this tile, but we need to read in shorts,
+			// which will take half the space, so while
+			// allocating we divide byteCount by 2.
+			tempData = new short[byteCount/2];
+			readShorts(tileOffset, byteCount/2, tempData);
 		    }
 
 		    if (dataType == DataBuffer.TYPE_USHORT) {
@@ -1210,60 +1215,42 @@ public class TIFFImage extends SimpleRenderedImage {
 		    // No lookup being done here, when RGB values are needed,
 		    // the associated IndexColorModel can be used to get them.
 
-		    try {
-
-			if (compression == COMP_PACKBITS) {
-
-			    stream.readFully(data, 0, byteCount);
-
-			    // Since unitsInThisTile is the number of shorts,
-			    // but we do our decompression in terms of bytes, we
-			    // need to multiply unitsInThisTile by 2 in order to
-			    // figure out how many bytes we'll get after
-			    // decompression.
-			    int bytesInThisTile = unitsInThisTile * 2;
-
-			    byte byteArray[] = new byte[bytesInThisTile];
-			    decodePackbits(data, bytesInThisTile, byteArray);
-			    interpretBytesAsShorts(byteArray, sdata,
-						   unitsInThisTile);
-
-			} else if (compression == COMP_LZW) {
+		    if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			// Since unitsInThisTile is the number of shorts,
+			// but we do our decompression in terms of bytes, we
+			// need to multiply unitsInThisTile by 2 in order to
+			// figure out how many bytes we'll get after
+			// decompression.
+			int bytesInThisTile = unitsInThisTile * 2;
 
-			    // Since unitsInThisTile is the number of shorts,
-			    // but we do our decompression in terms of bytes, we
-			    // need to multiply unitsInThisTile by 2 in order to
-			    // figure out how many bytes we'll get after
-			    // decompression.
-			    byte byteArray[] = new byte[unitsInThisTile * 2];
-			    lzwDecoder.decode(data, byteArray, newRect.height);
-			    interpretBytesAsShorts(byteArray, sdata,
-						   unitsInThisTile);
+			byte byteArray[] = new byte[bytesInThisTile];
+			decodePackbits(data, bytesInThisTile, byteArray);
+			interpretBytesAsShorts(byteArray, sdata,
+					       unitsInThisTile);
 
-			}  else if (compression == COMP_DEFLATE) {
+		    } else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
-			    byte byteArray[] = new byte[unitsInThisTile * 2];
-			    inflate(data, byteArray);
-			    interpretBytesAsShorts(byteArray, sdata,
-						   unitsInThisTile);
+			// Since unitsInThisTile is the number of shorts,
+			// but we do our decompression in terms of bytes, we
+			// need to multiply unitsInThisTile by 2 in order to
+			// figure out how many bytes we'll get after
+			// decompression.
+			byte byteArray[] = new byte[unitsInThisTile * 2];
+			lzwDecoder.decode(data, byteArray, newRect.height);
+			interpretBytesAsShorts(byteArray, sdata,
+					       unitsInThisTile);
 
-			} else if (compression == COMP_NONE) {
+		    }  else if (compression == COMP_DEFLATE) {
 
-			    readShorts(byteCount/2, sdata);
-			}
+			byte byteArray[] = new byte[unitsInThisTile * 2];
+			inflate(inflater, data, byteArray);
+			interpretBytesAsShorts(byteArray, sdata,
+					       unitsInThisTile);
 
-			stream.seek(save_offset);
+		    } else if (compression == COMP_NONE) {
 
-		    } catch (IOException ioe) {
-                        String message = JaiI18N.getString("TIFFImage13");
-                        ImagingListenerProxy.errorOccurred(message,
-                                               new ImagingException(message, ioe),
-                                               this, false);
-//			throw new RuntimeException(
-//					JaiI18N.getString("TIFFImage13"));
+			readShorts(tileOffset, byteCount/2, sdata);
 		    }
 		}
 
@@ -1279,24 +1266,21 @@ public class TIFFImage extends SimpleRenderedImage {
 		    // 3 bands, we need to divide this by 3.
 		    int unitsBeforeLookup = unitsInThisTile / 3;
 
-		    // Read the data, if compressed, decode it, reset the pointer
+		    // Decode the data if it is compressed.
 		    try {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
 			    decodePackbits(data, unitsBeforeLookup, tempData);
 
 			}  else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
 			    lzwDecoder.decode(data, tempData, newRect.height);
 
                         } else if (compression == COMP_JPEG_TTN2) {
 
-                            stream.readFully(data, 0, byteCount);
                             Raster tempTile = decodeJPEG(data,
                                                          decodeParam,
                                                          colorConvertJPEG,
@@ -1315,18 +1299,15 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
-			    inflate(data, tempData);
+			    inflate(inflater, data, tempData);
 
 			} else if (compression == COMP_NONE) {
 
 			    tempData = new byte[byteCount];
-			    stream.readFully(tempData, 0, byteCount);
+			    stream.readFully(tileOffset, tempData, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
-
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
                         ImagingListenerProxy.errorOccurred(message,
@@ -1363,17 +1344,14 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
 			    decodePackbits(data, unitsInThisTile, bdata);
 
 			} else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
 			    lzwDecoder.decode(data, bdata, newRect.height);
 
                         } else if (compression == COMP_JPEG_TTN2) {
 
-                            stream.readFully(data, 0, byteCount);
                             tile.setRect(decodeJPEG(data,
                                                     decodeParam,
                                                     colorConvertJPEG,
@@ -1382,16 +1360,13 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-                            stream.readFully(data, 0, byteCount);
-                            inflate(data, bdata);
+                            inflate(inflater, data, bdata);
 
 			} else if (compression == COMP_NONE) {
 
-			    stream.readFully(bdata, 0, byteCount);
+			    stream.readFully(tileOffset, bdata, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
-
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
                         ImagingListenerProxy.errorOccurred(message,
@@ -1413,18 +1388,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    byte tempData[] = null;
 
-		    try {
-			stream.readFully(data, 0, byteCount);
-			stream.seek(save_offset);
-		    } catch (IOException ioe) {
-                        String message = JaiI18N.getString("TIFFImage13");
-                        ImagingListenerProxy.errorOccurred(message,
-                                               new ImagingException(message, ioe),
-                                               this, false);
-//			throw new RuntimeException(
-//					JaiI18N.getString("TIFFImage13"));
-		    }
-
 		    // If compressed, decode the data.
 		    if (compression == COMP_PACKBITS) {
 
@@ -1439,7 +1402,7 @@ public class TIFFImage extends SimpleRenderedImage {
                     }  else if (compression == COMP_DEFLATE) {
 
 			tempData = new byte[bytesPostDecoding];
-			inflate(data, tempData);
+			inflate(inflater, data, tempData);
 
 		    } else if (compression == COMP_NONE) {
 
@@ -1487,26 +1450,21 @@ public class TIFFImage extends SimpleRenderedImage {
 			// If compressed, decode the data.
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
 			    decodePackbits(data, bytesPostDecoding, bdata);
 
 			}  else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
 			    lzwDecoder.decode(data, bdata, newRect.height);
 
                         }  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
-			    inflate(data, bdata);
+			    inflate(inflater, data, bdata);
 
 			} else if (compression == COMP_NONE) {
 
-			    stream.readFully(bdata, 0, byteCount);
+			    stream.readFully(tileOffset, bdata, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
-
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
                         ImagingListenerProxy.errorOccurred(message,
@@ -1521,8 +1479,6 @@ public class TIFFImage extends SimpleRenderedImage {
             try {
                 if (compression == COMP_PACKBITS) {
 
-                    stream.readFully(data, 0, byteCount);
-
                     // Since the decompressed data will still be packed
                     // 2 pixels into 1 byte, calculate bytesInThisTile
                     int bytesInThisTile;
@@ -1537,20 +1493,17 @@ public class TIFFImage extends SimpleRenderedImage {
 
                 } else if (compression == COMP_LZW) {
 
-                    stream.readFully(data, 0, byteCount);
                     lzwDecoder.decode(data, bdata, newRect.height);
 
                 }  else if (compression == COMP_DEFLATE) {
 
-                    stream.readFully(data, 0, byteCount);
-                    inflate(data, bdata);
+                    inflate(inflater, data, bdata);
 
                 } else {
 
-                    stream.readFully(bdata, 0, byteCount);
+                    stream.readFully(tileOffset, bdata, 0, byteCount);
                 }
 
-                stream.seek(save_offset);
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
                 ImagingListenerProxy.errorOccurred(message,
@@ -1565,21 +1518,18 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    if (compression == COMP_NONE) {
 
-			stream.readFully(bdata, 0, byteCount);
+			stream.readFully(tileOffset, bdata, 0, byteCount);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
 			lzwDecoder.decode(data, bdata, newRect.height);
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
 			decodePackbits(data, unitsInThisTile, bdata);
 
 		    } else if (compression == COMP_JPEG_TTN2) {
 
-			stream.readFully(data, 0, byteCount);
                         tile.setRect(decodeJPEG(data,
                                                 decodeParam,
                                                 colorConvertJPEG,
@@ -1587,20 +1537,17 @@ public class TIFFImage extends SimpleRenderedImage {
                                                 tile.getMinY()));
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
-                        inflate(data, bdata);
+                        inflate(inflater, data, bdata);
                     }
 
 		} else if (sampleSize == 16) {
 
 		    if (compression == COMP_NONE) {
 
-			readShorts(byteCount/2, sdata);
+			readShorts(tileOffset, byteCount/2, sdata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of shorts,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 2 in order to
@@ -1613,8 +1560,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of shorts,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 2 in order to
@@ -1628,9 +1573,8 @@ public class TIFFImage extends SimpleRenderedImage {
 					       unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 2];
-			inflate(data, byteArray);
+			inflate(inflater, data, byteArray);
 			interpretBytesAsShorts(byteArray, sdata,
 					       unitsInThisTile);
 
@@ -1639,12 +1583,10 @@ public class TIFFImage extends SimpleRenderedImage {
                            dataType == DataBuffer.TYPE_INT) { // redundant
 		    if (compression == COMP_NONE) {
 
-			readInts(byteCount/4, idata);
+			readInts(tileOffset, byteCount/4, idata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of ints,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 4 in order to
@@ -1657,8 +1599,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of ints,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 4 in order to
@@ -1672,9 +1612,8 @@ public class TIFFImage extends SimpleRenderedImage {
                                              unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 4];
-			inflate(data, byteArray);
+			inflate(inflater, data, byteArray);
 			interpretBytesAsInts(byteArray, idata,
                                              unitsInThisTile);
 
@@ -1683,12 +1622,10 @@ public class TIFFImage extends SimpleRenderedImage {
                            dataType == DataBuffer.TYPE_FLOAT) { // redundant
 		    if (compression == COMP_NONE) {
 
-			readFloats(byteCount/4, fdata);
+			readFloats(tileOffset, byteCount/4, fdata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of floats,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 4 in order to
@@ -1701,8 +1638,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
-
 			// Since unitsInThisTile is the number of floats,
 			// but we do our decompression in terms of bytes, we
 			// need to multiply unitsInThisTile by 4 in order to
@@ -1716,17 +1651,14 @@ public class TIFFImage extends SimpleRenderedImage {
                                                unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 4];
-                        inflate(data, byteArray);
+                        inflate(inflater, data, byteArray);
 			interpretBytesAsFloats(byteArray, fdata,
                                                unitsInThisTile);
 
                     }
 		}
 
-		stream.seek(save_offset);
-
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
                 ImagingListenerProxy.errorOccurred(message,
@@ -1811,12 +1743,11 @@ public class TIFFImage extends SimpleRenderedImage {
             }
         }
 
-        } // synchronized(this.stream)
-
         return tile;
     }
 
-    private void readShorts(int shortCount, short shortArray[]) {
+    private void readShorts(long offset,
+                            int shortCount, short shortArray[]) {
 
 	// Since each short consists of 2 bytes, we need a
 	// byte array of double size
@@ -1824,7 +1755,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(offset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -1836,7 +1767,8 @@ public class TIFFImage extends SimpleRenderedImage {
 	interpretBytesAsShorts(byteArray, shortArray, shortCount);
     }
 
-    private void readInts(int intCount, int intArray[]) {
+    private void readInts(long offset,
+                          int intCount, int intArray[]) {
 
 	// Since each int consists of 4 bytes, we need a
 	// byte array of quadruple size
@@ -1844,7 +1776,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(offset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -1856,7 +1788,8 @@ public class TIFFImage extends SimpleRenderedImage {
 	interpretBytesAsInts(byteArray, intArray, intCount);
     }
 
-    private void readFloats(int floatCount, float floatArray[]) {
+    private void readFloats(long offset,
+                            int floatCount, float floatArray[]) {
 
 	// Since each float consists of 4 bytes, we need a
 	// byte array of quadruple size
@@ -1864,7 +1797,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(offset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -2109,4 +2042,12 @@ class NoEOFStream extends SeekableStream {
     public void seek(long pos) throws IOException {
         stream.seek(pos);
     }
+
+    public void readFully(long pos, byte[] b, int off, int len)
+        throws IOException {
+        // Lock the wrapped stream as it may be shared with other images.
+        synchronized(stream) {
+            super.readFully(pos, b, off, len);
+        }
+    }
 }
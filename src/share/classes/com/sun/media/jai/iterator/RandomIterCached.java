@@ -0,0 +1,402 @@
+/*
+ * $RCSfile: RandomIterCached.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.iterator;
+import java.awt.Rectangle;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.iterator.RandomIter;
+import com.sun.media.jai.util.DataBufferUtils;
+
+/**
+ * A <code>RandomIter</code> which finds the tile holding each pixel
+ * from the tile grid of the image and keeps the last few tiles it has
+ * touched, so that sparse accesses spread over a large image neither
+ * copy the region being iterated nor call <code>getTile()</code> for
+ * every sample.
+ *
+ * <p> Samples of tiles having a <code>ComponentSampleModel</code> are
+ * read directly from the banks of their <code>DataBuffer</code>; the
+ * <code>SampleModel</code> of any other tile is used to read them.
+ *
+ * @since JAI 1.1.4
+ */
+public class RandomIterCached implements RandomIter {
+
+    /** The number of tiles kept by an iterator. */
+    private static final int CACHE_SIZE = 8;
+
+    protected RenderedImage im;
+
+    private int tileWidth;
+    private int tileHeight;
+    private int tileGridXOffset;
+    private int tileGridYOffset;
+
+    /** The indices and the tiles kept, most recently loaded last. */
+    private int[] cachedTileX = new int[CACHE_SIZE];
+    private int[] cachedTileY = new int[CACHE_SIZE];
+    private Raster[] cachedTiles = new Raster[CACHE_SIZE];
+    private int numCached = 0;
+    private int nextCached = 0;
+
+    /** The bounds of the current tile, exclusive of the maximum. */
+    private int tileMinX = 0;
+    private int tileMinY = 0;
+    private int tileMaxX = 0;
+    private int tileMaxY = 0;
+
+    /** The current tile and how to read its samples. */
+    private SampleModel sampleModel;
+    private DataBuffer dataBuffer;
+    private int sampleModelTranslateX;
+    private int sampleModelTranslateY;
+    private int numBands;
+
+    /** Whether the samples of the current tile are read directly. */
+    private boolean isComponent;
+    private int dataType;
+    private int pixelStride;
+    private int scanlineStride;
+
+    /**
+     * The offset of each band of the current tile into its bank,
+     * less the offset of the sample model translation.
+     */
+    private int[] offsets;
+
+    /** The bank holding each band of the current tile. */
+    private byte[][] byteData;
+    private short[][] shortData;
+    private int[][] intData;
+    private float[][] floatData;
+    private double[][] doubleData;
+
+    /**
+     * Constructs a <code>RandomIterCached</code> over an image.  The
+     * bounds are not used other than to define the area the caller
+     * will iterate over.
+     */
+    public RandomIterCached(RenderedImage im, Rectangle bounds) {
+        this.im = im;
+
+        this.tileWidth = im.getTileWidth();
+        this.tileHeight = im.getTileHeight();
+        this.tileGridXOffset = im.getTileGridXOffset();
+        this.tileGridYOffset = im.getTileGridYOffset();
+    }
+
+    /**
+     * Makes the tile holding the pixel (x, y) current, from the
+     * cache if it was touched recently.
+     */
+    private void makeCurrent(int x, int y) {
+        int tileX = PlanarImage.XToTileX(x, tileGridXOffset, tileWidth);
+        int tileY = PlanarImage.YToTileY(y, tileGridYOffset, tileHeight);
+
+        Raster tile = null;
+        for (int i = 0; i < numCached; i++) {
+            if (cachedTileX[i] == tileX && cachedTileY[i] == tileY) {
+                tile = cachedTiles[i];
+                break;
+            }
+        }
+
+        if (tile == null) {
+            tile = im.getTile(tileX, tileY);
+
+            cachedTileX[nextCached] = tileX;
+            cachedTileY[nextCached] = tileY;
+            cachedTiles[nextCached] = tile;
+            nextCached = (nextCached + 1) % CACHE_SIZE;
+            if (numCached < CACHE_SIZE) {
+                numCached++;
+            }
+        }
+
+        setCurrent(tile);
+
+        this.tileMinX =
+            PlanarImage.tileXToX(tileX, tileGridXOffset, tileWidth);
+        this.tileMinY =
+            PlanarImage.tileYToY(tileY, tileGridYOffset, tileHeight);
+        this.tileMaxX = tileMinX + tileWidth;
+        this.tileMaxY = tileMinY + tileHeight;
+    }
+
+    /** Sets the fields used to read the samples of a tile. */
+    private void setCurrent(Raster tile) {
+        this.sampleModel = tile.getSampleModel();
+        this.dataBuffer = tile.getDataBuffer();
+        this.sampleModelTranslateX = tile.getSampleModelTranslateX();
+        this.sampleModelTranslateY = tile.getSampleModelTranslateY();
+        this.numBands = sampleModel.getNumBands();
+        this.dataType = sampleModel.getDataType();
+
+        this.isComponent = sampleModel instanceof ComponentSampleModel;
+        if (!isComponent) {
+            return;
+        }
+
+        ComponentSampleModel csm = (ComponentSampleModel)sampleModel;
+        this.pixelStride = csm.getPixelStride();
+        this.scanlineStride = csm.getScanlineStride();
+
+        int[] bankIndices = csm.getBankIndices();
+        int[] bandOffsets = csm.getBandOffsets();
+        int[] dataOffsets = dataBuffer.getOffsets();
+        int translation = sampleModelTranslateX*pixelStride +
+            sampleModelTranslateY*scanlineStride;
+
+        this.offsets = new int[numBands];
+        for (int b = 0; b < numBands; b++) {
+            offsets[b] = dataOffsets[bankIndices[b]] + bandOffsets[b] -
+                translation;
+        }
+
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            {
+                byte[][] bankData =
+                    ((DataBufferByte)dataBuffer).getBankData();
+                byteData = new byte[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    byteData[b] = bankData[bankIndices[b]];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            {
+                short[][] bankData = dataType == DataBuffer.TYPE_USHORT ?
+                    ((DataBufferUShort)dataBuffer).getBankData() :
+                    ((DataBufferShort)dataBuffer).getBankData();
+                shortData = new short[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    shortData[b] = bankData[bankIndices[b]];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_INT:
+            {
+                int[][] bankData =
+                    ((DataBufferInt)dataBuffer).getBankData();
+                intData = new int[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    intData[b] = bankData[bankIndices[b]];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            {
+                float[][] bankData =
+                    DataBufferUtils.getBankDataFloat(dataBuffer);
+                floatData = new float[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    floatData[b] = bankData[bankIndices[b]];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            {
+                double[][] bankData =
+                    DataBufferUtils.getBankDataDouble(dataBuffer);
+                doubleData = new double[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    doubleData[b] = bankData[bankIndices[b]];
+                }
+            }
+            break;
+        default:
+            this.isComponent = false;
+        }
+    }
+
+    public int getSample(int x, int y, int b) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getSample(x - sampleModelTranslateX,
+                                         y - sampleModelTranslateY,
+                                         b,
+                                         dataBuffer);
+        }
+
+        int index = x*pixelStride + y*scanlineStride + offsets[b];
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return byteData[b][index] & 0xff;
+        case DataBuffer.TYPE_USHORT:
+            return shortData[b][index] & 0xffff;
+        case DataBuffer.TYPE_SHORT:
+            return shortData[b][index];
+        case DataBuffer.TYPE_INT:
+            return intData[b][index];
+        case DataBuffer.TYPE_FLOAT:
+            return (int)floatData[b][index];
+        default:
+            return (int)doubleData[b][index];
+        }
+    }
+
+    public float getSampleFloat(int x, int y, int b) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getSampleFloat(x - sampleModelTranslateX,
+                                              y - sampleModelTranslateY,
+                                              b,
+                                              dataBuffer);
+        }
+
+        int index = x*pixelStride + y*scanlineStride + offsets[b];
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return byteData[b][index] & 0xff;
+        case DataBuffer.TYPE_USHORT:
+            return shortData[b][index] & 0xffff;
+        case DataBuffer.TYPE_SHORT:
+            return shortData[b][index];
+        case DataBuffer.TYPE_INT:
+            return (float)intData[b][index];
+        case DataBuffer.TYPE_FLOAT:
+            return floatData[b][index];
+        default:
+            return (float)doubleData[b][index];
+        }
+    }
+
+    public double getSampleDouble(int x, int y, int b) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getSampleDouble(x - sampleModelTranslateX,
+                                               y - sampleModelTranslateY,
+                                               b,
+                                               dataBuffer);
+        }
+
+        int index = x*pixelStride + y*scanlineStride + offsets[b];
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return byteData[b][index] & 0xff;
+        case DataBuffer.TYPE_USHORT:
+            return shortData[b][index] & 0xffff;
+        case DataBuffer.TYPE_SHORT:
+            return shortData[b][index];
+        case DataBuffer.TYPE_INT:
+            return intData[b][index];
+        case DataBuffer.TYPE_FLOAT:
+            return floatData[b][index];
+        default:
+            return doubleData[b][index];
+        }
+    }
+
+    public int[] getPixel(int x, int y, int[] iArray) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getPixel(x - sampleModelTranslateX,
+                                        y - sampleModelTranslateY,
+                                        iArray,
+                                        dataBuffer);
+        }
+
+        if (iArray == null) {
+            iArray = new int[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            iArray[b] = getSample(x, y, b);
+        }
+        return iArray;
+    }
+
+    public float[] getPixel(int x, int y, float[] fArray) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getPixel(x - sampleModelTranslateX,
+                                        y - sampleModelTranslateY,
+                                        fArray,
+                                        dataBuffer);
+        }
+
+        if (fArray == null) {
+            fArray = new float[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            fArray[b] = getSampleFloat(x, y, b);
+        }
+        return fArray;
+    }
+
+    public double[] getPixel(int x, int y, double[] dArray) {
+        if (x < tileMinX || x >= tileMaxX ||
+            y < tileMinY || y >= tileMaxY || dataBuffer == null) {
+            makeCurrent(x, y);
+        }
+
+        if (!isComponent) {
+            return sampleModel.getPixel(x - sampleModelTranslateX,
+                                        y - sampleModelTranslateY,
+                                        dArray,
+                                        dataBuffer);
+        }
+
+        if (dArray == null) {
+            dArray = new double[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            dArray[b] = getSampleDouble(x, y, b);
+        }
+        return dArray;
+    }
+
+    public void done() {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cachedTiles[i] = null;
+        }
+        numCached = 0;
+        nextCached = 0;
+
+        sampleModel = null;
+        dataBuffer = null;
+        byteData = null;
+        shortData = null;
+        intData = null;
+        floatData = null;
+        doubleData = null;
+    }
+}
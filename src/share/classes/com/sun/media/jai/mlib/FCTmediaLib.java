@@ -365,4 +365,19 @@ public class FCTmediaLib extends FCT {
             Image.IFFT_2(real, imag);
         }
     }
+
+    /**
+     * Returns a copy of this object having its own work arrays, so that
+     * the copy and this object may be used in different threads.
+     *
+     * @since JAI 1.1.4
+     */
+    public Object clone() {
+        FCTmediaLib fct = (FCTmediaLib)super.clone();
+        if(real != null) {
+            fct.real = new double[real.length];
+            fct.imag = new double[imag.length];
+        }
+        return fct;
+    }
 }
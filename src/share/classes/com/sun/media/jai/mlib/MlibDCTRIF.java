@@ -15,10 +15,12 @@ import java.awt.image.RenderedImage;
 import java.awt.image.renderable.ParameterBlock;
 import java.awt.image.renderable.RenderedImageFactory;
 import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
 import java.util.Map;
 import com.sun.media.jai.opimage.DCTOpImage;
 import com.sun.media.jai.opimage.FCT;
 import com.sun.media.jai.opimage.RIFUtil;
+import com.sun.media.jai.util.MathJAI;
 
 /**
  * A <code>RIF</code> supporting the "DCT" operation in the
@@ -52,6 +54,17 @@ public class MlibDCTRIF implements RenderedImageFactory {
             return null;
         }
 
+        // The mediaLib transforms require dimensions which are powers of 2
+        // so leave unpadded transforms of other images to the Java code.
+        RenderedImage src = args.getRenderedSource(0);
+        if (hints != null &&
+            Boolean.FALSE.equals(
+                hints.get(JAI.KEY_FREQUENCY_TRANSFORM_PADDING)) &&
+            (!MathJAI.isPositivePowerOf2(src.getWidth()) ||
+             !MathJAI.isPositivePowerOf2(src.getHeight()))) {
+            return null;
+        }
+
         return new DCTOpImage(args.getRenderedSource(0),
                               hints, layout,
                               new FCTmediaLib(true, 2));
@@ -57,6 +57,17 @@ public class MlibDFTRIF implements RenderedImageFactory {
             return null;
         }
 
+        // The mediaLib transforms require dimensions which are powers of 2
+        // so leave unpadded transforms of other images to the Java code.
+        RenderedImage src = args.getRenderedSource(0);
+        if (hints != null &&
+            Boolean.FALSE.equals(
+                hints.get(JAI.KEY_FREQUENCY_TRANSFORM_PADDING)) &&
+            (!MathJAI.isPositivePowerOf2(src.getWidth()) ||
+             !MathJAI.isPositivePowerOf2(src.getHeight()))) {
+            return null;
+        }
+
         RenderedImage source = args.getRenderedSource(0);
         EnumeratedParameter scalingType =
             (EnumeratedParameter)args.getObjectParameter(0);
@@ -63,6 +63,14 @@ final class MlibExtremaOpImage extends ExtremaOpImage {
 	      saveLocations, maxRuns);
     }
 
+    /**
+     * The tiles are accumulated into the extrema of this image, one
+     * after the other, rather than merged.
+     */
+    protected boolean isMergeable(String name) {
+        return false;
+    }
+
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
@@ -49,6 +49,14 @@ final class MlibMeanOpImage extends MeanOpImage {
 	super(source, roi, xStart, yStart, xPeriod, yPeriod);
     }
 
+    /**
+     * The tiles are accumulated into the mean itself, one after the
+     * other, rather than merged through sums.
+     */
+    protected boolean isMergeable(String name) {
+        return false;
+    }
+
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
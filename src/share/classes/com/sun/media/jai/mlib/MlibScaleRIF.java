@@ -27,6 +27,7 @@ import javax.media.jai.InterpolationBicubic;
 import javax.media.jai.InterpolationBicubic2;
 import javax.media.jai.InterpolationTable;
 import java.util.Map;
+import com.sun.media.jai.opimage.CodecRIFUtil;
 import com.sun.media.jai.opimage.RIFUtil;
 import com.sun.media.jai.opimage.TranslateIntOpImage;
 
@@ -92,6 +93,20 @@ public class MlibScaleRIF implements RenderedImageFactory {
         float xTrans = args.getFloatParameter(2);
         float yTrans = args.getFloatParameter(3);
 
+        // If the source is decoded from JPEG data have the decoder do as
+        // much of a reduction as it can.
+        RenderedImage reduced =
+            CodecRIFUtil.createScaledJPEGImage(source, xScale, yScale,
+                                               false, hints);
+        if (reduced != null) {
+            int n = source.getWidth()/reduced.getWidth();
+            ParameterBlock pb = (ParameterBlock)args.clone();
+            pb.setSource(reduced, 0);
+            pb.set(xScale*n, 0);
+            pb.set(yScale*n, 1);
+            return create(pb, hints);
+        }
+
 	// Check and see if we are scaling by 1.0 in both x and y and no
         // translations. If so call the copy operation.
 	if (xScale == 1.0F && yScale == 1.0F && 
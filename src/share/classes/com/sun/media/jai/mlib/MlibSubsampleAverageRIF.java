@@ -15,6 +15,7 @@ import java.awt.image.RenderedImage;
 import java.awt.image.renderable.RenderedImageFactory;
 import java.awt.image.renderable.ParameterBlock;
 import javax.media.jai.ImageLayout;
+import com.sun.media.jai.opimage.CodecRIFUtil;
 import com.sun.media.jai.opimage.RIFUtil;
 
 /**
@@ -59,6 +60,20 @@ public class MlibSubsampleAverageRIF implements RenderedImageFactory {
             return null;
         }
 
+        // If the source is decoded from JPEG data have the decoder do as
+        // much of the averaging as it can.
+        RenderedImage reduced =
+            CodecRIFUtil.createScaledJPEGImage(args.getRenderedSource(0),
+                                               scaleX, scaleY, true, hints);
+        if (reduced != null) {
+            int n = args.getRenderedSource(0).getWidth()/reduced.getWidth();
+            ParameterBlock pb = (ParameterBlock)args.clone();
+            pb.setSource(reduced, 0);
+            pb.set(scaleX*n, 0);
+            pb.set(scaleY*n, 1);
+            return create(pb, hints);
+        }
+
         // Create and return the OpImage.
         return new MlibSubsampleAverageOpImage(args.getRenderedSource(0),
                                                layout, hints,
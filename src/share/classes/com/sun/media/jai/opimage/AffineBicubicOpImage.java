@@ -10,6 +10,7 @@
  * $State: Exp $
  */
 package com.sun.media.jai.opimage;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.AffineTransform;
@@ -22,9 +23,11 @@ import javax.media.jai.BorderExtender;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.Interpolation;
 import javax.media.jai.InterpolationBicubic;
+import javax.media.jai.InterpolationTable;
 import javax.media.jai.OpImage;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
+import javax.media.jai.util.Range;
 import java.util.Map;
 // import com.sun.media.jai.test.OpImageTester;
 
@@ -33,6 +36,22 @@ import java.util.Map;
  */
 final class AffineBicubicOpImage extends AffineOpImage {
 
+    /**
+     * The fixed-point horizontal and vertical tables of the
+     * interpolation.  Their precision is 8 bits, so that the sums of the
+     * byte and ushort loops fit in an int.
+     */
+    private int[] dataH, dataV;
+
+    /** The precision of the tables and the rounding value of a sum. */
+    private int precisionBits, round;
+
+    /**
+     * The shifts from the fixed-point offsets to the subsample positions
+     * of the tables.
+     */
+    private int fracShift, fracScale;
+
     /**
      * Constructs an AffineBicubicOpImage from a RenderedImage source,
      *
@@ -57,6 +76,14 @@ final class AffineBicubicOpImage extends AffineOpImage {
               transform,
               interp,
               backgroundValues);
+
+        InterpolationTable table = (InterpolationTable)interp;
+        dataH = table.getHorizontalTableData();
+        dataV = table.getVerticalTableData();
+        precisionBits = table.getPrecisionBits();
+        round = precisionBits > 0 ? 1 << (precisionBits - 1) : 0;
+        fracShift = Math.max(geom_frac_bits - table.getSubsampleBitsH(), 0);
+        fracScale = Math.max(table.getSubsampleBitsH() - geom_frac_bits, 0);
     }
 
     /**
@@ -169,35 +196,21 @@ final class AffineBicubicOpImage extends AffineOpImage {
         float src_rect_x2 = src_rect_x1 + src.getWidth();
         float src_rect_y2 = src_rect_y1 + src.getHeight();
 
-        float s_x, s_y;
-
-        float fracx, fracy;
-        float float_fracx, float_fracy;
-        float frac_xx, frac_yy;
-
-        int s_ix, s_iy;
-        int p_x, p_y;
-
-        int p__, p0_, p1_, p2_;
-        int p_0, p00, p01, p02;
-        int p_1, p10, p11, p12;
-        int p_2, p20, p21, p22;
+        double s_x, s_y;
 
-        int s__, s0_, s1_, s2_;
-        int s_0, s00, s01, s02;
-        int s_1, s10, s11, s12;
-        int s_2, s20, s21, s22;
+        int s_ix, s_iy, ifracx, ifracy;
+        int src_pos, xfrac, yfrac;
 
-        float s0, s1, s_, s2;
-        float q_, q0, q1, q2;
-        float s, q;
+        int wx_, wx0, wx1, wx2;
+        int wy_, wy0, wy1, wy2;
+        int sum_, sum0, sum1, sum2;
         int result;
 
         int dstPixelOffset;
         int dstOffset = 0;
 
-        Point2D dst_pt = new Point2D.Float();
-        Point2D src_pt = new Point2D.Float();
+        Point2D dst_pt = new Point2D.Double();
+        Point2D src_pt = new Point2D.Double();
 
         byte dstDataArrays[][] = dst.getByteDataArrays();
         int dstBandOffsets[] = dst.getBandOffsets();
@@ -216,11 +229,18 @@ final class AffineBicubicOpImage extends AffineOpImage {
         int dst_max_x = destRect.x + destRect.width;
         int dst_max_y = destRect.y + destRect.height;
 
+        int incxStride = incx*srcPixelStride;
+        int incx1Stride = incx1*srcPixelStride;
+        int incyStride = incy*srcScanlineStride;
+        int incy1Stride = incy1*srcScanlineStride;
+
+        int srcPixelStride2 = 2*srcPixelStride;
+
         byte[] backgroundByte = new byte[dst_num_bands];
 	for (int i = 0; i < dst_num_bands; i++)
 	    backgroundByte[i] = (byte)backgroundValues[i];
 
-        for (int y = dst_min_y; y < dst_max_y ; y++) {
+        for (int y = dst_min_y; y < dst_max_y; y++)  {
             dstPixelOffset = dstOffset;
 
             // Backward map the first point in the line
@@ -230,197 +250,154 @@ final class AffineBicubicOpImage extends AffineOpImage {
             mapDestPoint(dst_pt, src_pt);
 
             // Get the mapped source coordinates
-            s_x = (float) src_pt.getX();
-            s_y = (float) src_pt.getY();
-
             // As per definition of bicubic interpolation
-            s_x -= 0.5;
-            s_y -= 0.5;
+            s_x = src_pt.getX() - 0.5;
+            s_y = src_pt.getY() - 0.5;
 
             // Floor to get the integral coordinate
             s_ix = (int) Math.floor(s_x);
             s_iy = (int) Math.floor(s_y);
 
-            fracx = s_x - (float) s_ix;
-            fracy = s_y - (float) s_iy;
+            ifracx = (int) Math.floor((s_x - s_ix) * geom_frac_max);
+            ifracy = (int) Math.floor((s_y - s_iy) * geom_frac_max);
+
+            // Compute clipMinX, clipMaxX
+            Range clipRange =
+		performScanlineClipping(src_rect_x1, src_rect_y1,
+					// Last point in the source is
+					// x2 = x1 + width - 1
+					// y2 = y1 + height - 1
+					src_rect_x2 - 1, src_rect_y2 - 1,
+					s_ix, s_iy,
+					ifracx, ifracy,
+					dst_min_x, dst_max_x,
+					1, 2, 1, 2);
+            int clipMinX = ((Integer)clipRange.getMinValue()).intValue();
+            int clipMaxX = Math.max(
+                ((Integer)clipRange.getMaxValue()).intValue(), clipMinX);
+
+            // Advance s_ix, s_iy, ifracx, ifracy
+            Point[] startPts = advanceToStartOfScanline(dst_min_x, clipMinX,
+                                                        s_ix, s_iy,
+                                                        ifracx, ifracy);
+            s_ix = startPts[0].x;
+            s_iy = startPts[0].y;
+            ifracx = startPts[1].x;
+            ifracy = startPts[1].y;
 
             // Translate to/from SampleModel space & Raster space
-            p_x = (s_ix - srcRectX) * srcPixelStride;
-            p_y = (s_iy - srcRectY) * srcScanlineStride;
-
-            //
-            // Get the 16 neighbouring positions of the
-            // coordinate in question (p00).
-            //
-            //       p__  p0_  p1_  p2_
-            //       p_0  p00  p10  p20
-            //       p_1  p01  p11  p21
-            //       p_2  p02  p12  p22
-            //
-            p__ = p_x + p_y - srcScanlineStride - srcPixelStride;
-            p0_ = p__ + srcPixelStride;
-            p1_ = p0_ + srcPixelStride;
-            p2_ = p1_ + srcPixelStride;
-            p_0 = p__ + srcScanlineStride;
-            p00 = p_0 + srcPixelStride;
-            p10 = p00 + srcPixelStride;
-            p20 = p10 + srcPixelStride;
-            p_1 = p_0 + srcScanlineStride;
-            p01 = p_1 + srcPixelStride;
-            p11 = p01 + srcPixelStride;
-            p21 = p11 + srcPixelStride;
-            p_2 = p_1 + srcScanlineStride;
-            p02 = p_2 + srcPixelStride;
-            p12 = p02 + srcPixelStride;
-            p22 = p12 + srcPixelStride;
-
-            for (int x = dst_min_x; x < dst_max_x; x++) {
-                //
-                // Check against the source rectangle
-                //
-
-                if ((s_ix >= src_rect_x1 + 1) &&
-                    (s_ix < (src_rect_x2 - 2)) &&
-                    (s_iy >= (src_rect_y1 + 1)) &&
-                    (s_iy < (src_rect_y2 - 2))) {
-                    for (int k2=0; k2 < dst_num_bands; k2++) {
-                        //
-                        // Get the pixels
-                        //
-                        byte tmp_row[];
-                        int tmp_col;
-
-                        tmp_row = srcDataArrays[k2];
-                        tmp_col = bandOffsets[k2];
-
-                        s__ = tmp_row[p__ + tmp_col] & 0xff;
-                        s0_ = tmp_row[p0_ + tmp_col] & 0xff;
-                        s1_ = tmp_row[p1_ + tmp_col] & 0xff;
-                        s2_ = tmp_row[p2_ + tmp_col] & 0xff;
-                        s_0 = tmp_row[p_0 + tmp_col] & 0xff;
-                        s00 = tmp_row[p00 + tmp_col] & 0xff;
-                        s10 = tmp_row[p10 + tmp_col] & 0xff;
-                        s20 = tmp_row[p20 + tmp_col] & 0xff;
-                        s_1 = tmp_row[p_1 + tmp_col] & 0xff;
-                        s01 = tmp_row[p01 + tmp_col] & 0xff;
-                        s11 = tmp_row[p11 + tmp_col] & 0xff;
-                        s21 = tmp_row[p21 + tmp_col] & 0xff;
-                        s_2 = tmp_row[p_2 + tmp_col] & 0xff;
-                        s02 = tmp_row[p02 + tmp_col] & 0xff;
-                        s12 = tmp_row[p12 + tmp_col] & 0xff;
-                        s22 = tmp_row[p22 + tmp_col] & 0xff;
-
-                        // Get the new frac values
-                        float_fracx = fracx;
-                        float_fracy = fracy;
-                        frac_xx = float_fracx * (1.0F - float_fracx);
-                        frac_yy = float_fracx * (1.0F - float_fracy);
-
-                        s0 = s00 + ((s10 - s00) * float_fracx);
-                        s1 = s01 + ((s11 - s01) * float_fracx);
-                        s_ = s0_ + ((s1_ - s0_) * float_fracx);
-                        s2 = s02 + ((s12 - s02) * float_fracx);
-
-                        q_ = (s1_ + s__) +
-                            (((s2_ + s0_) - (s1_ + s__)) * float_fracx);
-                        q0 = (s10 + s_0) +
-                            (((s20 + s00) - (s10 + s_0)) * float_fracx);
-                        q1 = (s11 + s_1) +
-                            ((s21 + s01) - (s11 + s_1)) * float_fracx;
-                        q2 = (s12 + s_2) +
-                            (((s22 + s02) - (s12 + s_2)) * float_fracx);
-
-                        q_ = s_ - q_ / 2.0F;
-                        q0 = s0 - q0 / 2.0F;
-                        q1 = s1 - q1 / 2.0F;
-                        q2 = s2 - q2 / 2.0F;
-
-                        s_ += (q_ * frac_xx);
-                        s0 += (q0 * frac_xx);
-                        s1 += (q1 * frac_xx);
-                        s2 += (q2 * frac_xx);
-
-                        s = s0 + ((s1 - s0) * float_fracy);
-                        q = (s1 + s_) +
-                            (((s2 + s0) - (s1 + s_)) * float_fracy);
+            src_pos = (s_iy - srcRectY)*srcScanlineStride +
+                (s_ix - srcRectX)*srcPixelStride;
 
-                        q = s - q / 2.0F;
-
-                        s += (q * frac_yy);
-
-                        // Round
-                        if (s < 0.5F) {
-                           result = 0;
-                        } else if (s > 254.5F) {
-                            result = 255;
-                        } else {
-                            result = (int) (s + 0.5F);
-                        }
-
-                        // write the result
+            if (setBackground) {
+                for (int x = dst_min_x; x < clipMinX; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
                         dstDataArrays[k2]
                             [dstPixelOffset+dstBandOffsets[k2]] =
-                            (byte) (result & 0xff);
+                            backgroundByte[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            } else             // Advance to first pixel
+                dstPixelOffset += (clipMinX - dst_min_x)*dstPixelStride;
+
+            for (int x = clipMinX; x < clipMaxX; x++) {
+                // Get the weights of the subsample position
+                xfrac = 4*((ifracx >> fracShift) << fracScale);
+                yfrac = 4*((ifracy >> fracShift) << fracScale);
+
+                wx_ = dataH[xfrac];
+                wx0 = dataH[xfrac + 1];
+                wx1 = dataH[xfrac + 2];
+                wx2 = dataH[xfrac + 3];
+                wy_ = dataV[yfrac];
+                wy0 = dataV[yfrac + 1];
+                wy1 = dataV[yfrac + 2];
+                wy2 = dataV[yfrac + 3];
+
+                for (int k2=0; k2 < dst_num_bands; k2++) {
+                    //
+                    // Get the 4 rows of the 16 neighbouring pixels,
+                    // the central pixel being in the second row.
+                    //
+                    byte tmp_row[] = srcDataArrays[k2];
+                    int p0 = src_pos + bandOffsets[k2];
+                    int p_ = p0 - srcScanlineStride;
+                    int p1 = p0 + srcScanlineStride;
+                    int p2 = p1 + srcScanlineStride;
+
+                    // Interpolate in X
+                    sum_ = (wx_*(tmp_row[p_ - srcPixelStride] & 0xff) +
+                            wx0*(tmp_row[p_] & 0xff) +
+                            wx1*(tmp_row[p_ + srcPixelStride] & 0xff) +
+                            wx2*(tmp_row[p_ + srcPixelStride2] & 0xff) +
+                            round) >> precisionBits;
+                    sum0 = (wx_*(tmp_row[p0 - srcPixelStride] & 0xff) +
+                            wx0*(tmp_row[p0] & 0xff) +
+                            wx1*(tmp_row[p0 + srcPixelStride] & 0xff) +
+                            wx2*(tmp_row[p0 + srcPixelStride2] & 0xff) +
+                            round) >> precisionBits;
+                    sum1 = (wx_*(tmp_row[p1 - srcPixelStride] & 0xff) +
+                            wx0*(tmp_row[p1] & 0xff) +
+                            wx1*(tmp_row[p1 + srcPixelStride] & 0xff) +
+                            wx2*(tmp_row[p1 + srcPixelStride2] & 0xff) +
+                            round) >> precisionBits;
+                    sum2 = (wx_*(tmp_row[p2 - srcPixelStride] & 0xff) +
+                            wx0*(tmp_row[p2] & 0xff) +
+                            wx1*(tmp_row[p2 + srcPixelStride] & 0xff) +
+                            wx2*(tmp_row[p2 + srcPixelStride2] & 0xff) +
+                            round) >> precisionBits;
+
+                    // Interpolate in Y
+                    result = (wy_*sum_ + wy0*sum0 + wy1*sum1 + wy2*sum2 +
+                              round) >> precisionBits;
+
+                    // Clamp
+                    if (result < 0) {
+                        result = 0;
+                    } else if (result > 255) {
+                        result = 255;
                     }
-                } else if (setBackground) {
-		    for (int k=0; k < dst_num_bands; k++)
-			dstDataArrays[k][dstPixelOffset+dstBandOffsets[k]] =
-			    backgroundByte[k];
-		}
+
+                    // write the result
+                    dstDataArrays[k2]
+                        [dstPixelOffset+dstBandOffsets[k2]] =
+                        (byte) result;
+                }
 
                 // walk
-                if (fracx < fracdx1) {
-                    s_ix += incx;
-                    fracx += fracdx;
+                if (ifracx < ifracdx1) {
+                    src_pos += incxStride;
+                    ifracx += ifracdx;
                 } else {
-                    s_ix += incx1;
-                    fracx -= fracdx1;
+                    src_pos += incx1Stride;
+                    ifracx -= ifracdx1;
                 }
 
-                if (fracy < fracdy1) {
-                    s_iy += incy;
-                    fracy += fracdy;
+                if (ifracy < ifracdy1) {
+                    src_pos += incyStride;
+                    ifracy += ifracdy;
                 } else {
-                    s_iy += incy1;
-                    fracy -= fracdy1;
+                    src_pos += incy1Stride;
+                    ifracy -= ifracdy1;
                 }
 
-                // Translate to/from SampleModel space & Raster space
-                p_x = (s_ix - srcRectX) * srcPixelStride;
-                p_y = (s_iy - srcRectY) * srcScanlineStride;
-
-                //
-                // Get the 16 neighbouring positions of the
-                // coordinate in question (p00).
-                //
-                //       p__  p0_  p1_  p2_
-                //       p_0  p00  p10  p20
-                //       p_1  p01  p11  p21
-                //       p_2  p02  p12  p22
-                //
-                p__ = p_x + p_y - srcScanlineStride - srcPixelStride;
-                p0_ = p__ + srcPixelStride;
-                p1_ = p0_ + srcPixelStride;
-                p2_ = p1_ + srcPixelStride;
-                p_0 = p__ + srcScanlineStride;
-                p00 = p_0 + srcPixelStride;
-                p10 = p00 + srcPixelStride;
-                p20 = p10 + srcPixelStride;
-                p_1 = p_0 + srcScanlineStride;
-                p01 = p_1 + srcPixelStride;
-                p11 = p01 + srcPixelStride;
-                p21 = p11 + srcPixelStride;
-                p_2 = p_1 + srcScanlineStride;
-                p02 = p_2 + srcPixelStride;
-                p12 = p02 + srcPixelStride;
-                p22 = p12 + srcPixelStride;
-
+                // Go to next pixel
                 dstPixelOffset += dstPixelStride;
             }
 
+            if (setBackground) {
+                for (int x = clipMaxX; x < dst_max_x; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
+                        dstDataArrays[k2]
+                            [dstPixelOffset+dstBandOffsets[k2]] =
+                            backgroundByte[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            }
+
+            // Go to the next line in the destination rectangle
             dstOffset += dstScanlineStride;
         }
-
     }
 
     private void intLoop(RasterAccessor src,
@@ -954,46 +931,31 @@ final class AffineBicubicOpImage extends AffineOpImage {
     }
 
     private void ushortLoop(RasterAccessor src,
-                            Rectangle destRect,
-                            int srcRectX,
-                            int srcRectY,
-                            RasterAccessor dst) {
+                          Rectangle destRect,
+                          int srcRectX,
+                          int srcRectY,
+                          RasterAccessor dst) {
 
         float src_rect_x1 = src.getX();
         float src_rect_y1 = src.getY();
         float src_rect_x2 = src_rect_x1 + src.getWidth();
         float src_rect_y2 = src_rect_y1 + src.getHeight();
 
-        float s_x, s_y;
-
-        float fracx, fracy;
-        float float_fracx, float_fracy;
-        float frac_xx, frac_yy;
-
-        int s_ix, s_iy;
-        int p_x, p_y;
-
-        int p__, p0_, p1_, p2_;
-        int p_0, p00, p01, p02;
-        int p_1, p10, p11, p12;
-        int p_2, p20, p21, p22;
-
-        int s__, s0_, s1_, s2_;
-        int s_0, s00, s01, s02;
-        int s_1, s10, s11, s12;
-        int s_2, s20, s21, s22;
+        double s_x, s_y;
 
-        float s0, s1, s_, s2;
-        float q_, q0, q1, q2;
-        float s, q;
+        int s_ix, s_iy, ifracx, ifracy;
+        int src_pos, xfrac, yfrac;
 
+        int wx_, wx0, wx1, wx2;
+        int wy_, wy0, wy1, wy2;
+        int sum_, sum0, sum1, sum2;
         int result;
 
         int dstPixelOffset;
         int dstOffset = 0;
 
-        Point2D dst_pt = new Point2D.Float();
-        Point2D src_pt = new Point2D.Float();
+        Point2D dst_pt = new Point2D.Double();
+        Point2D src_pt = new Point2D.Double();
 
         short dstDataArrays[][] = dst.getShortDataArrays();
         int dstBandOffsets[] = dst.getBandOffsets();
@@ -1012,11 +974,18 @@ final class AffineBicubicOpImage extends AffineOpImage {
         int dst_max_x = destRect.x + destRect.width;
         int dst_max_y = destRect.y + destRect.height;
 
-	short[] backgroundUShort = new short[dst_num_bands];
+        int incxStride = incx*srcPixelStride;
+        int incx1Stride = incx1*srcPixelStride;
+        int incyStride = incy*srcScanlineStride;
+        int incy1Stride = incy1*srcScanlineStride;
+
+        int srcPixelStride2 = 2*srcPixelStride;
+
+        short[] backgroundUShort = new short[dst_num_bands];
 	for (int i = 0; i < dst_num_bands; i++)
 	    backgroundUShort[i] = (short)backgroundValues[i];
 
-        for (int y = dst_min_y; y < dst_max_y ; y++) {
+        for (int y = dst_min_y; y < dst_max_y; y++)  {
             dstPixelOffset = dstOffset;
 
             // Backward map the first point in the line
@@ -1026,194 +995,152 @@ final class AffineBicubicOpImage extends AffineOpImage {
             mapDestPoint(dst_pt, src_pt);
 
             // Get the mapped source coordinates
-            s_x = (float) src_pt.getX();
-            s_y = (float) src_pt.getY();
-
             // As per definition of bicubic interpolation
-            s_x -= 0.5;
-            s_y -= 0.5;
+            s_x = src_pt.getX() - 0.5;
+            s_y = src_pt.getY() - 0.5;
 
             // Floor to get the integral coordinate
             s_ix = (int) Math.floor(s_x);
             s_iy = (int) Math.floor(s_y);
 
-            fracx = s_x - (float) s_ix;
-            fracy = s_y - (float) s_iy;
+            ifracx = (int) Math.floor((s_x - s_ix) * geom_frac_max);
+            ifracy = (int) Math.floor((s_y - s_iy) * geom_frac_max);
+
+            // Compute clipMinX, clipMaxX
+            Range clipRange =
+		performScanlineClipping(src_rect_x1, src_rect_y1,
+					// Last point in the source is
+					// x2 = x1 + width - 1
+					// y2 = y1 + height - 1
+					src_rect_x2 - 1, src_rect_y2 - 1,
+					s_ix, s_iy,
+					ifracx, ifracy,
+					dst_min_x, dst_max_x,
+					1, 2, 1, 2);
+            int clipMinX = ((Integer)clipRange.getMinValue()).intValue();
+            int clipMaxX = Math.max(
+                ((Integer)clipRange.getMaxValue()).intValue(), clipMinX);
+
+            // Advance s_ix, s_iy, ifracx, ifracy
+            Point[] startPts = advanceToStartOfScanline(dst_min_x, clipMinX,
+                                                        s_ix, s_iy,
+                                                        ifracx, ifracy);
+            s_ix = startPts[0].x;
+            s_iy = startPts[0].y;
+            ifracx = startPts[1].x;
+            ifracy = startPts[1].y;
 
             // Translate to/from SampleModel space & Raster space
-            p_x = (s_ix - srcRectX) * srcPixelStride;
-            p_y = (s_iy - srcRectY) * srcScanlineStride;
-
-            //
-            // Get the 16 neighbouring positions of the
-            // coordinate in question (p00).
-            //
-            //       p__  p0_  p1_  p2_
-            //       p_0  p00  p10  p20
-            //       p_1  p01  p11  p21
-            //       p_2  p02  p12  p22
-            //
-            p__ = p_x + p_y - srcScanlineStride - srcPixelStride;
-            p0_ = p__ + srcPixelStride;
-            p1_ = p0_ + srcPixelStride;
-            p2_ = p1_ + srcPixelStride;
-            p_0 = p__ + srcScanlineStride;
-            p00 = p_0 + srcPixelStride;
-            p10 = p00 + srcPixelStride;
-            p20 = p10 + srcPixelStride;
-            p_1 = p_0 + srcScanlineStride;
-            p01 = p_1 + srcPixelStride;
-            p11 = p01 + srcPixelStride;
-            p21 = p11 + srcPixelStride;
-            p_2 = p_1 + srcScanlineStride;
-            p02 = p_2 + srcPixelStride;
-            p12 = p02 + srcPixelStride;
-            p22 = p12 + srcPixelStride;
-
-            for (int x = dst_min_x; x < dst_max_x; x++) {
-                //
-                // Check against the source rectangle
-                //
-                if ((s_ix >= (src_rect_x1 + 1)) &&
-                    (s_ix < (src_rect_x2 - 2)) &&
-                    (s_iy >= (src_rect_y1 + 1)) &&
-                    (s_iy < (src_rect_y2 - 2))) {
-                    for (int k2=0; k2 < dst_num_bands; k2++) {
-                        //
-                        // Get the pixels
-                        //
-                        short tmp_row[];
-                        int tmp_col;
-
-                        tmp_row = srcDataArrays[k2];
-                        tmp_col = bandOffsets[k2];
-
-                        s__ = tmp_row[p__ + tmp_col] & 0xffff;
-                        s0_ = tmp_row[p0_ + tmp_col] & 0xffff;
-                        s1_ = tmp_row[p1_ + tmp_col] & 0xffff;
-                        s2_ = tmp_row[p2_ + tmp_col] & 0xffff;
-                        s_0 = tmp_row[p_0 + tmp_col] & 0xffff;
-                        s00 = tmp_row[p00 + tmp_col] & 0xffff;
-                        s10 = tmp_row[p10 + tmp_col] & 0xffff;
-                        s20 = tmp_row[p20 + tmp_col] & 0xffff;
-                        s_1 = tmp_row[p_1 + tmp_col] & 0xffff;
-                        s01 = tmp_row[p01 + tmp_col] & 0xffff;
-                        s11 = tmp_row[p11 + tmp_col] & 0xffff;
-                        s21 = tmp_row[p21 + tmp_col] & 0xffff;
-                        s_2 = tmp_row[p_2 + tmp_col] & 0xffff;
-                        s02 = tmp_row[p02 + tmp_col] & 0xffff;
-                        s12 = tmp_row[p12 + tmp_col] & 0xffff;
-                        s22 = tmp_row[p22 + tmp_col] & 0xffff;
-
-                        // Get the new frac values
-                        float_fracx = fracx;
-                        float_fracy = fracy;
-                        frac_xx = float_fracx * (1.0F - float_fracx);
-                        frac_yy = float_fracx * (1.0F - float_fracy);
-
-                        s0 = s00 + ((s10 - s00) * float_fracx);
-                        s1 = s01 + ((s11 - s01) * float_fracx);
-                        s_ = s0_ + ((s1_ - s0_) * float_fracx);
-                        s2 = s02 + ((s12 - s02) * float_fracx);
-
-                        q_ = (s1_ + s__) +
-                            (((s2_ + s0_) - (s1_ + s__)) * float_fracx);
-                        q0 = (s10 + s_0) +
-                            (((s20 + s00) - (s10 + s_0)) * float_fracx);
-                        q1 = (s11 + s_1) +
-                            ((s21 + s01) - (s11 + s_1)) * float_fracx;
-                        q2 = (s12 + s_2) +
-                            (((s22 + s02) - (s12 + s_2)) * float_fracx);
-
-                        q_ = s_ - q_ / 2.0F;
-                        q0 = s0 - q0 / 2.0F;
-                        q1 = s1 - q1 / 2.0F;
-                        q2 = s2 - q2 / 2.0F;
-
-                        s_ += (q_ * frac_xx);
-                        s0 += (q0 * frac_xx);
-                        s1 += (q1 * frac_xx);
-                        s2 += (q2 * frac_xx);
-
-                        s = s0 + ((s1 - s0) * float_fracy);
-                        q = (s1 + s_) +
-                            (((s2 + s0) - (s1 + s_)) * float_fracy);
-
-
-                        q = s - q / 2.0F;
-
-                        s += (q * frac_yy);
+            src_pos = (s_iy - srcRectY)*srcScanlineStride +
+                (s_ix - srcRectX)*srcPixelStride;
 
-                        // Round
-                        if (s < 0.0) {
-                           result = 0;
-                        } else if (s > (float) USHORT_MAX) {
-                            result = USHORT_MAX;
-                        } else {
-                            result = (int) (s + 0.5F);
-                        }
-
-                        // write the result
+            if (setBackground) {
+                for (int x = dst_min_x; x < clipMinX; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
                         dstDataArrays[k2]
                             [dstPixelOffset+dstBandOffsets[k2]] =
-                            (short)(result & 0xFFFF);
+                            backgroundUShort[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            } else             // Advance to first pixel
+                dstPixelOffset += (clipMinX - dst_min_x)*dstPixelStride;
+
+            for (int x = clipMinX; x < clipMaxX; x++) {
+                // Get the weights of the subsample position
+                xfrac = 4*((ifracx >> fracShift) << fracScale);
+                yfrac = 4*((ifracy >> fracShift) << fracScale);
+
+                wx_ = dataH[xfrac];
+                wx0 = dataH[xfrac + 1];
+                wx1 = dataH[xfrac + 2];
+                wx2 = dataH[xfrac + 3];
+                wy_ = dataV[yfrac];
+                wy0 = dataV[yfrac + 1];
+                wy1 = dataV[yfrac + 2];
+                wy2 = dataV[yfrac + 3];
+
+                for (int k2=0; k2 < dst_num_bands; k2++) {
+                    //
+                    // Get the 4 rows of the 16 neighbouring pixels,
+                    // the central pixel being in the second row.
+                    //
+                    short tmp_row[] = srcDataArrays[k2];
+                    int p0 = src_pos + bandOffsets[k2];
+                    int p_ = p0 - srcScanlineStride;
+                    int p1 = p0 + srcScanlineStride;
+                    int p2 = p1 + srcScanlineStride;
+
+                    // Interpolate in X
+                    sum_ = (wx_*(tmp_row[p_ - srcPixelStride] & 0xffff) +
+                            wx0*(tmp_row[p_] & 0xffff) +
+                            wx1*(tmp_row[p_ + srcPixelStride] & 0xffff) +
+                            wx2*(tmp_row[p_ + srcPixelStride2] & 0xffff) +
+                            round) >> precisionBits;
+                    sum0 = (wx_*(tmp_row[p0 - srcPixelStride] & 0xffff) +
+                            wx0*(tmp_row[p0] & 0xffff) +
+                            wx1*(tmp_row[p0 + srcPixelStride] & 0xffff) +
+                            wx2*(tmp_row[p0 + srcPixelStride2] & 0xffff) +
+                            round) >> precisionBits;
+                    sum1 = (wx_*(tmp_row[p1 - srcPixelStride] & 0xffff) +
+                            wx0*(tmp_row[p1] & 0xffff) +
+                            wx1*(tmp_row[p1 + srcPixelStride] & 0xffff) +
+                            wx2*(tmp_row[p1 + srcPixelStride2] & 0xffff) +
+                            round) >> precisionBits;
+                    sum2 = (wx_*(tmp_row[p2 - srcPixelStride] & 0xffff) +
+                            wx0*(tmp_row[p2] & 0xffff) +
+                            wx1*(tmp_row[p2 + srcPixelStride] & 0xffff) +
+                            wx2*(tmp_row[p2 + srcPixelStride2] & 0xffff) +
+                            round) >> precisionBits;
+
+                    // Interpolate in Y
+                    result = (wy_*sum_ + wy0*sum0 + wy1*sum1 + wy2*sum2 +
+                              round) >> precisionBits;
+
+                    // Clamp
+                    if (result < 0) {
+                        result = 0;
+                    } else if (result > USHORT_MAX) {
+                        result = USHORT_MAX;
                     }
-                } else if (setBackground) {
-		    for (int k=0; k < dst_num_bands; k++)
-			dstDataArrays[k][dstPixelOffset+dstBandOffsets[k]] =
-			    backgroundUShort[k];
-		}
+
+                    // write the result
+                    dstDataArrays[k2]
+                        [dstPixelOffset+dstBandOffsets[k2]] =
+                        (short) result;
+                }
 
                 // walk
-                if (fracx < fracdx1) {
-                    s_ix += incx;
-                    fracx += fracdx;
+                if (ifracx < ifracdx1) {
+                    src_pos += incxStride;
+                    ifracx += ifracdx;
                 } else {
-                    s_ix += incx1;
-                    fracx -= fracdx1;
+                    src_pos += incx1Stride;
+                    ifracx -= ifracdx1;
                 }
 
-                if (fracy < fracdy1) {
-                    s_iy += incy;
-                    fracy += fracdy;
+                if (ifracy < ifracdy1) {
+                    src_pos += incyStride;
+                    ifracy += ifracdy;
                 } else {
-                    s_iy += incy1;
-                    fracy -= fracdy1;
+                    src_pos += incy1Stride;
+                    ifracy -= ifracdy1;
                 }
 
-                // Translate to/from SampleModel space & Raster space
-                p_x = (s_ix - srcRectX) * srcPixelStride;
-                p_y = (s_iy - srcRectY) * srcScanlineStride;
-
-                //
-                // Get the 16 neighbouring positions of the
-                // coordinate in question (p00).
-                //
-                //       p__  p0_  p1_  p2_
-                //       p_0  p00  p10  p20
-                //       p_1  p01  p11  p21
-                //       p_2  p02  p12  p22
-                //
-                p__ = p_x + p_y - srcScanlineStride - srcPixelStride;
-                p0_ = p__ + srcPixelStride;
-                p1_ = p0_ + srcPixelStride;
-                p2_ = p1_ + srcPixelStride;
-                p_0 = p__ + srcScanlineStride;
-                p00 = p_0 + srcPixelStride;
-                p10 = p00 + srcPixelStride;
-                p20 = p10 + srcPixelStride;
-                p_1 = p_0 + srcScanlineStride;
-                p01 = p_1 + srcPixelStride;
-                p11 = p01 + srcPixelStride;
-                p21 = p11 + srcPixelStride;
-                p_2 = p_1 + srcScanlineStride;
-                p02 = p_2 + srcPixelStride;
-                p12 = p02 + srcPixelStride;
-                p22 = p12 + srcPixelStride;
-
+                // Go to next pixel
                 dstPixelOffset += dstPixelStride;
             }
 
+            if (setBackground) {
+                for (int x = clipMaxX; x < dst_max_x; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
+                        dstDataArrays[k2]
+                            [dstPixelOffset+dstBandOffsets[k2]] =
+                            backgroundUShort[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            }
+
+            // Go to the next line in the destination rectangle
             dstOffset += dstScanlineStride;
         }
     }
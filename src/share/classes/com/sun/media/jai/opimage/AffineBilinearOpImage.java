@@ -10,6 +10,7 @@
  * $State: Exp $
  */
 package com.sun.media.jai.opimage;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
@@ -25,6 +26,7 @@ import javax.media.jai.InterpolationBilinear;
 import javax.media.jai.OpImage;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
+import javax.media.jai.util.Range;
 import java.util.Map;
 // import com.sun.media.jai.test.OpImageTester;
 
@@ -33,6 +35,18 @@ import java.util.Map;
  */
 final class AffineBilinearOpImage extends AffineOpImage {
 
+    /**
+     * The largest number of subsample bits of the byte and ushort loops,
+     * for which the products of the byte loop fit in an int.
+     */
+    private static final int MAX_SUBSAMPLE_BITS = 11;
+
+    /** The number of subsample bits of the byte and ushort loops. */
+    private int subsampleBits;
+
+    /** The shift from the fixed-point offsets to the subsample positions. */
+    private int fracShift;
+
     /**
      * Constructs an AffineBilinearOpImage from a RenderedImage source,
      *
@@ -57,6 +71,10 @@ final class AffineBilinearOpImage extends AffineOpImage {
               transform,
               interp,
               backgroundValues);
+
+        subsampleBits = Math.min(interp.getSubsampleBitsH(),
+                                 MAX_SUBSAMPLE_BITS);
+        fracShift = geom_frac_bits - subsampleBits;
     }
 
     /**
@@ -169,25 +187,19 @@ final class AffineBilinearOpImage extends AffineOpImage {
         float src_rect_x2 = src_rect_x1 + src.getWidth();
         float src_rect_y2 = src_rect_y1 + src.getHeight();
 
-        float s_x, s_y;
-
-        float fracx, fracy;
+        double s_x, s_y;
 
-        int pxlow, pylow, pxhigh, pyhigh;
+        int s_ix, s_iy, ifracx, ifracy;
+        int src_pos, xfrac, yfrac;
 
-        int s, s00, s01, s10, s11;
-        float s0, s1;
-        float tmp;
+        int s00, s01, s10, s11;
+        int s0, s1;
 
         int dstPixelOffset;
         int dstOffset = 0;
 
-        Point2D dst_pt = new Point2D.Float();
-        Point2D src_pt = new Point2D.Float();
-
-        int dwidth = dst.getWidth();
-        int dheight = dst.getHeight();
-        int dnumBands = dst.getNumBands();
+        Point2D dst_pt = new Point2D.Double();
+        Point2D src_pt = new Point2D.Double();
 
         byte dstDataArrays[][] = dst.getByteDataArrays();
         int dstBandOffsets[] = dst.getBandOffsets();
@@ -206,12 +218,19 @@ final class AffineBilinearOpImage extends AffineOpImage {
         int dst_max_x = destRect.x + destRect.width;
         int dst_max_y = destRect.y + destRect.height;
 
-	byte[] backgroundByte = new byte[dst_num_bands];
+        int incxStride = incx*srcPixelStride;
+        int incx1Stride = incx1*srcPixelStride;
+        int incyStride = incy*srcScanlineStride;
+        int incy1Stride = incy1*srcScanlineStride;
+
+        int shift2 = 2*subsampleBits;
+        int round2 = 1 << (shift2 - 1);
+
+        byte[] backgroundByte = new byte[dst_num_bands];
 	for (int i = 0; i < dst_num_bands; i++)
 	    backgroundByte[i] = (byte)backgroundValues[i];
 
         for (int y = dst_min_y; y < dst_max_y; y++)  {
-
             dstPixelOffset = dstOffset;
 
             // Backward map the first point in the line
@@ -221,115 +240,114 @@ final class AffineBilinearOpImage extends AffineOpImage {
             mapDestPoint(dst_pt, src_pt);
 
             // Get the mapped source coordinates
-            s_x = (float)src_pt.getX();
-            s_y = (float)src_pt.getY();
-
             // As per definition of bilinear interpolation
-            s_x -= 0.5;
-            s_y -= 0.5;
+            s_x = src_pt.getX() - 0.5;
+            s_y = src_pt.getY() - 0.5;
 
             // Floor to get the integral coordinate
-            int s_ix = (int) Math.floor(s_x);
-            int s_iy = (int) Math.floor(s_y);
-
-            fracx = s_x - (float)s_ix;
-            fracy = s_y - (float)s_iy;
+            s_ix = (int) Math.floor(s_x);
+            s_iy = (int) Math.floor(s_y);
+
+            ifracx = (int) Math.floor((s_x - s_ix) * geom_frac_max);
+            ifracy = (int) Math.floor((s_y - s_iy) * geom_frac_max);
+
+            // Compute clipMinX, clipMaxX
+            Range clipRange =
+		performScanlineClipping(src_rect_x1, src_rect_y1,
+					// Last point in the source is
+					// x2 = x1 + width - 1
+					// y2 = y1 + height - 1
+					src_rect_x2 - 1, src_rect_y2 - 1,
+					s_ix, s_iy,
+					ifracx, ifracy,
+					dst_min_x, dst_max_x,
+					0, 1, 0, 1);
+            int clipMinX = ((Integer)clipRange.getMinValue()).intValue();
+            int clipMaxX = Math.max(
+                ((Integer)clipRange.getMaxValue()).intValue(), clipMinX);
+
+            // Advance s_ix, s_iy, ifracx, ifracy
+            Point[] startPts = advanceToStartOfScanline(dst_min_x, clipMinX,
+                                                        s_ix, s_iy,
+                                                        ifracx, ifracy);
+            s_ix = startPts[0].x;
+            s_iy = startPts[0].y;
+            ifracx = startPts[1].x;
+            ifracy = startPts[1].y;
 
             // Translate to/from SampleModel space & Raster space
-            pylow = (s_iy - srcRectY) * srcScanlineStride;
-            pxlow = (s_ix - srcRectX) * srcPixelStride;
-            pyhigh = pylow + srcScanlineStride;
-            pxhigh = pxlow + srcPixelStride;
-
-            int tmp00 = pxlow + pylow;
-            int tmp01 = pxhigh + pylow;
-            int tmp10 = pxlow + pyhigh;
-            int tmp11 = pxhigh + pyhigh;
-
-            for (int x = dst_min_x; x < dst_max_x; x++)  {
-                //
-                // Check against the source rectangle
-                //
-                if ((s_ix >= src_rect_x1) &&
-                    (s_ix < (src_rect_x2 - 1)) &&
-                    (s_iy >= src_rect_y1) &&
-                    (s_iy < (src_rect_y2 - 1))) {
-                    for (int k2=0; k2 < dst_num_bands; k2++) {
-                        //
-                        // Get the 4 neighbourhood pixels
-                        //
-                        byte tmp_row[];
-                        int tmp_col;
+            src_pos = (s_iy - srcRectY)*srcScanlineStride +
+                (s_ix - srcRectX)*srcPixelStride;
 
-                        // Get to the right row
-                        tmp_row = srcDataArrays[k2];
-
-                        // Position at the bandOffset
-                        tmp_col = bandOffsets[k2];
-
-                        s00 = tmp_row[tmp00 + tmp_col] & 0xff;
-                        s01 = tmp_row[tmp01 + tmp_col] & 0xff;
-                        s10 = tmp_row[tmp10 + tmp_col] & 0xff;
-                        s11 = tmp_row[tmp11 + tmp_col] & 0xff;
-
-                        // Weighted Average of these 4 pixels
-                        s0 = (float) s00 + ((float) (s01 - s00) * fracx);
-                        s1 = (float) s10 + ((float) (s11 - s10) * fracx);
-
-                        tmp = s0 + ((s1 - s0) * fracy);
-
-                        // Round
-                        if (tmp < 0.5F) {
-                            s = 0;
-                        } else if (tmp > 254.5F) {
-                            s = 255;
-                        } else {
-                            s = (int) (tmp + 0.5F);
-                        }
-
-                        // Write the result
+            if (setBackground) {
+                for (int x = dst_min_x; x < clipMinX; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
                         dstDataArrays[k2]
                             [dstPixelOffset+dstBandOffsets[k2]] =
-                            (byte) (s & 0xff);
-                    }
-                } else if (setBackground) {
-		    for (int k=0; k < dst_num_bands; k++)
-			dstDataArrays[k][dstPixelOffset+dstBandOffsets[k]] =
-			    backgroundByte[k];
-		}
+                            backgroundByte[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            } else             // Advance to first pixel
+                dstPixelOffset += (clipMinX - dst_min_x)*dstPixelStride;
+
+            for (int x = clipMinX; x < clipMaxX; x++) {
+                xfrac = ifracx >> fracShift;
+                yfrac = ifracy >> fracShift;
+
+                for (int k2=0; k2 < dst_num_bands; k2++) {
+                    //
+                    // Get the 4 neighbourhood pixels
+                    //
+                    byte tmp_row[] = srcDataArrays[k2];
+                    int tmp00 = src_pos + bandOffsets[k2];
+                    int tmp10 = tmp00 + srcScanlineStride;
+
+                    s00 = tmp_row[tmp00] & 0xff;
+                    s01 = tmp_row[tmp00 + srcPixelStride] & 0xff;
+                    s10 = tmp_row[tmp10] & 0xff;
+                    s11 = tmp_row[tmp10 + srcPixelStride] & 0xff;
+
+                    // Weighted Average of these 4 pixels
+                    s0 = (s01 - s00)*xfrac + (s00 << subsampleBits);
+                    s1 = (s11 - s10)*xfrac + (s10 << subsampleBits);
+
+                    dstDataArrays[k2]
+                        [dstPixelOffset+dstBandOffsets[k2]] =
+                        (byte)(((s1 - s0)*yfrac + (s0 << subsampleBits) +
+                                round2) >> shift2);
+                }
 
                 // walk
-                if (fracx < fracdx1) {
-                    s_ix += incx;
-                    fracx += fracdx;
+                if (ifracx < ifracdx1) {
+                    src_pos += incxStride;
+                    ifracx += ifracdx;
                 } else {
-                    s_ix += incx1;
-                    fracx -= fracdx1;
+                    src_pos += incx1Stride;
+                    ifracx -= ifracdx1;
                 }
 
-                if (fracy < fracdy1) {
-                    s_iy += incy;
-                    fracy += fracdy;
+                if (ifracy < ifracdy1) {
+                    src_pos += incyStride;
+                    ifracy += ifracdy;
                 } else {
-                    s_iy += incy1;
-                    fracy -= fracdy1;
+                    src_pos += incy1Stride;
+                    ifracy -= ifracdy1;
                 }
 
-                // Translate to/from SampleModel space & Raster space
-                pylow = (s_iy - srcRectY) * srcScanlineStride;
-                pxlow = (s_ix - srcRectX) * srcPixelStride;
-                pyhigh = pylow + srcScanlineStride;
-                pxhigh = pxlow + srcPixelStride;
-
-                tmp00 = pxlow + pylow;
-                tmp01 = pxhigh + pylow;
-                tmp10 = pxlow + pyhigh;
-                tmp11 = pxhigh + pyhigh;
-
                 // Go to next pixel
                 dstPixelOffset += dstPixelStride;
             }
 
+            if (setBackground) {
+                for (int x = clipMaxX; x < dst_max_x; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
+                        dstDataArrays[k2]
+                            [dstPixelOffset+dstBandOffsets[k2]] =
+                            backgroundByte[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            }
+
             // Go to the next line in the destination rectangle
             dstOffset += dstScanlineStride;
         }
@@ -685,35 +703,29 @@ final class AffineBilinearOpImage extends AffineOpImage {
     }
 
     private void ushortLoop(RasterAccessor src,
-                            Rectangle destRect,
-                            int srcRectX,
-                            int srcRectY,
-                            RasterAccessor dst) {
+                          Rectangle destRect,
+                          int srcRectX,
+                          int srcRectY,
+                          RasterAccessor dst) {
 
         float src_rect_x1 = src.getX();
         float src_rect_y1 = src.getY();
         float src_rect_x2 = src_rect_x1 + src.getWidth();
         float src_rect_y2 = src_rect_y1 + src.getHeight();
 
-        float s_x, s_y;
-
-        float fracx, fracy;
+        double s_x, s_y;
 
-        int pxlow, pylow, pxhigh, pyhigh;
+        int s_ix, s_iy, ifracx, ifracy;
+        int src_pos, xfrac, yfrac;
 
-        int s, s00, s01, s10, s11;
-        float s0, s1;
-        float tmp;
+        int s00, s01, s10, s11;
+        int s0, s1;
 
         int dstPixelOffset;
         int dstOffset = 0;
 
-        Point2D dst_pt = new Point2D.Float();
-        Point2D src_pt = new Point2D.Float();
-
-        int dwidth = dst.getWidth();
-        int dheight = dst.getHeight();
-        int dnumBands = dst.getNumBands();
+        Point2D dst_pt = new Point2D.Double();
+        Point2D src_pt = new Point2D.Double();
 
         short dstDataArrays[][] = dst.getShortDataArrays();
         int dstBandOffsets[] = dst.getBandOffsets();
@@ -732,127 +744,139 @@ final class AffineBilinearOpImage extends AffineOpImage {
         int dst_max_x = destRect.x + destRect.width;
         int dst_max_y = destRect.y + destRect.height;
 
-	short[] backgroundUShort = new short[dst_num_bands];
+        int incxStride = incx*srcPixelStride;
+        int incx1Stride = incx1*srcPixelStride;
+        int incyStride = incy*srcScanlineStride;
+        int incy1Stride = incy1*srcScanlineStride;
+
+        int shift2 = 2*subsampleBits;
+        int round2 = 1 << (shift2 - 1);
+
+        short[] backgroundUShort = new short[dst_num_bands];
 	for (int i = 0; i < dst_num_bands; i++)
 	    backgroundUShort[i] = (short)backgroundValues[i];
 
         for (int y = dst_min_y; y < dst_max_y; y++)  {
-
             dstPixelOffset = dstOffset;
 
             // Backward map the first point in the line
+            // The energy is at the (pt_x + 0.5, pt_y + 0.5)
             dst_pt.setLocation((double)dst_min_x + 0.5,
                                (double)y + 0.5);
             mapDestPoint(dst_pt, src_pt);
 
             // Get the mapped source coordinates
-            s_x = (float)src_pt.getX();
-            s_y = (float)src_pt.getY();
-
             // As per definition of bilinear interpolation
-            s_x -= 0.5;
-            s_y -= 0.5;
+            s_x = src_pt.getX() - 0.5;
+            s_y = src_pt.getY() - 0.5;
 
             // Floor to get the integral coordinate
-            int s_ix = (int) Math.floor(s_x);
-            int s_iy = (int) Math.floor(s_y);
-
-            fracx = s_x - (float)s_ix;
-            fracy = s_y - (float)s_iy;
+            s_ix = (int) Math.floor(s_x);
+            s_iy = (int) Math.floor(s_y);
+
+            ifracx = (int) Math.floor((s_x - s_ix) * geom_frac_max);
+            ifracy = (int) Math.floor((s_y - s_iy) * geom_frac_max);
+
+            // Compute clipMinX, clipMaxX
+            Range clipRange =
+		performScanlineClipping(src_rect_x1, src_rect_y1,
+					// Last point in the source is
+					// x2 = x1 + width - 1
+					// y2 = y1 + height - 1
+					src_rect_x2 - 1, src_rect_y2 - 1,
+					s_ix, s_iy,
+					ifracx, ifracy,
+					dst_min_x, dst_max_x,
+					0, 1, 0, 1);
+            int clipMinX = ((Integer)clipRange.getMinValue()).intValue();
+            int clipMaxX = Math.max(
+                ((Integer)clipRange.getMaxValue()).intValue(), clipMinX);
+
+            // Advance s_ix, s_iy, ifracx, ifracy
+            Point[] startPts = advanceToStartOfScanline(dst_min_x, clipMinX,
+                                                        s_ix, s_iy,
+                                                        ifracx, ifracy);
+            s_ix = startPts[0].x;
+            s_iy = startPts[0].y;
+            ifracx = startPts[1].x;
+            ifracy = startPts[1].y;
 
             // Translate to/from SampleModel space & Raster space
-            pylow = (s_iy - srcRectY) * srcScanlineStride;
-            pxlow = (s_ix - srcRectX) * srcPixelStride;
-            pyhigh = pylow + srcScanlineStride;
-            pxhigh = pxlow + srcPixelStride;
+            src_pos = (s_iy - srcRectY)*srcScanlineStride +
+                (s_ix - srcRectX)*srcPixelStride;
 
-            int tmp00 = pxlow + pylow;
-            int tmp01 = pxhigh + pylow;
-            int tmp10 = pxlow + pyhigh;
-            int tmp11 = pxhigh + pyhigh;
-
-            for (int x = dst_min_x; x < dst_max_x; x++)  {
-                //
-                // Check against the source rectangle
-                //
-                if ((s_ix >= src_rect_x1) &&
-                    (s_ix < (src_rect_x2 - 1)) &&
-                    (s_iy >= src_rect_y1) &&
-                    (s_iy < (src_rect_y2 - 1))) {
-                    for (int k2=0; k2 < dst_num_bands; k2++) {
-                        //
-                        // Get the 4 neighbourhood pixels
-                        //
-                        short tmp_row[];
-                        int tmp_col;
-
-                        // Get to the right row
-                        tmp_row = srcDataArrays[k2];
-
-                        // Position at the bandOffset
-                        tmp_col = bandOffsets[k2];
-
-                        s00 = tmp_row[tmp00 + tmp_col] & 0xffff;
-                        s01 = tmp_row[tmp01 + tmp_col] & 0xffff;
-                        s10 = tmp_row[tmp10 + tmp_col] & 0xffff;
-                        s11 = tmp_row[tmp11 + tmp_col] & 0xffff;
-
-                        // Weighted Average of these 4 pixels
-                        s0 = (float) s00 + ((float) (s01 - s00) * fracx);
-                        s1 = (float) s10 + ((float) (s11 - s10) * fracx);
-                        tmp = s0 + ((s1 - s0) * fracy);
-
-                        // Round
-                        if (tmp < 0.0) {
-                            s = 0;
-                        } else if (tmp > (float)(USHORT_MAX)) {
-                            s = (int) (USHORT_MAX);
-                        } else {
-                            s = (int) (tmp + 0.5F);
-                        }
-
-                        // Write the result
+            if (setBackground) {
+                for (int x = dst_min_x; x < clipMinX; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
                         dstDataArrays[k2]
                             [dstPixelOffset+dstBandOffsets[k2]] =
-                            (short)(s & 0xFFFF);
-                    }
-                } else if (setBackground) {
-		    for (int k=0; k < dst_num_bands; k++)
-			dstDataArrays[k][dstPixelOffset+dstBandOffsets[k]] =
-			    backgroundUShort[k];
-		}
+                            backgroundUShort[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            } else             // Advance to first pixel
+                dstPixelOffset += (clipMinX - dst_min_x)*dstPixelStride;
+
+            for (int x = clipMinX; x < clipMaxX; x++) {
+                xfrac = ifracx >> fracShift;
+                yfrac = ifracy >> fracShift;
+
+                for (int k2=0; k2 < dst_num_bands; k2++) {
+                    //
+                    // Get the 4 neighbourhood pixels
+                    //
+                    short tmp_row[] = srcDataArrays[k2];
+                    int tmp00 = src_pos + bandOffsets[k2];
+                    int tmp10 = tmp00 + srcScanlineStride;
+
+                    s00 = tmp_row[tmp00] & 0xffff;
+                    s01 = tmp_row[tmp00 + srcPixelStride] & 0xffff;
+                    s10 = tmp_row[tmp10] & 0xffff;
+                    s11 = tmp_row[tmp10 + srcPixelStride] & 0xffff;
+
+                    // Weighted Average of these 4 pixels
+                    s0 = (s01 - s00)*xfrac + (s00 << subsampleBits);
+                    s1 = (s11 - s10)*xfrac + (s10 << subsampleBits);
+
+                    // The vertical products may exceed an int
+                    dstDataArrays[k2]
+                        [dstPixelOffset+dstBandOffsets[k2]] =
+                        (short)(((long)(s1 - s0)*yfrac +
+                                 ((long)s0 << subsampleBits) +
+                                 round2) >> shift2);
+                }
 
                 // walk
-                if (fracx < fracdx1) {
-                    s_ix += incx;
-                    fracx += fracdx;
+                if (ifracx < ifracdx1) {
+                    src_pos += incxStride;
+                    ifracx += ifracdx;
                 } else {
-                    s_ix += incx1;
-                    fracx -= fracdx1;
+                    src_pos += incx1Stride;
+                    ifracx -= ifracdx1;
                 }
 
-                if (fracy < fracdy1) {
-                    s_iy += incy;
-                    fracy += fracdy;
+                if (ifracy < ifracdy1) {
+                    src_pos += incyStride;
+                    ifracy += ifracdy;
                 } else {
-                    s_iy += incy1;
-                    fracy -= fracdy1;
+                    src_pos += incy1Stride;
+                    ifracy -= ifracdy1;
                 }
 
-                // Translate to/from SampleModel space & Raster space
-                pylow = (s_iy - srcRectY) * srcScanlineStride;
-                pxlow = (s_ix - srcRectX) * srcPixelStride;
-                pyhigh = pylow + srcScanlineStride;
-                pxhigh = pxlow + srcPixelStride;
-
-                tmp00 = pxlow + pylow;
-                tmp01 = pxhigh + pylow;
-                tmp10 = pxlow + pyhigh;
-                tmp11 = pxhigh + pyhigh;
-
+                // Go to next pixel
                 dstPixelOffset += dstPixelStride;
             }
 
+            if (setBackground) {
+                for (int x = clipMaxX; x < dst_max_x; x++) {
+                    for (int k2=0; k2 < dst_num_bands; k2++)
+                        dstDataArrays[k2]
+                            [dstPixelOffset+dstBandOffsets[k2]] =
+                            backgroundUShort[k2];
+                    dstPixelOffset += dstPixelStride;
+                }
+            }
+
+            // Go to the next line in the destination rectangle
             dstOffset += dstScanlineStride;
         }
     }
@@ -11,6 +11,7 @@
  */
 package com.sun.media.jai.opimage;
 import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.awt.image.renderable.ParameterBlock;
 import java.awt.image.renderable.RenderedImageFactory;
@@ -24,14 +25,28 @@ import java.util.Map;
  * A <code>RIF</code> supporting the "BoxFilter" operation in the rendered
  * image layer.
  *
+ * <p> The filter is computed from an "IntegralImage" of the source in
+ * constant time per pixel if the hint <code>JAI.KEY_INTEGRAL_IMAGE</code>
+ * gives one and no <code>BorderExtender</code> is given, or if the box
+ * has at least <code>MIN_INTEGRAL_AREA</code> pixels and the source
+ * samples are bytes, whose means then equal those of the convolution.
+ * Otherwise it is computed as a separable convolution.
+ *
  * @see javax.media.jai.operator.BoxFilterDescriptor
  * @see com.sun.media.jai.opimage.SeparableConvolveOpImage
+ * @see IntegralBoxFilterOpImage
  *
  * @since EA4
  *
  */
 public class BoxFilterRIF implements RenderedImageFactory {
 
+    /**
+     * The smallest box for which an integral image is created, below
+     * which the separable convolution is faster.
+     */
+    private static final int MIN_INTEGRAL_AREA = 256;
+
     /** Constructor. */
     public BoxFilterRIF() {}
 
@@ -56,6 +71,40 @@ public class BoxFilterRIF implements RenderedImageFactory {
         int xOrigin = paramBlock.getIntParameter(2);
         int yOrigin = paramBlock.getIntParameter(3);
 
+        RenderedImage source = paramBlock.getRenderedSource(0);
+
+        // Read the sums from an integral image if one is given, or if
+        // the box is large enough to make one worthwhile.
+        IntegralImageOpImage integral = null;
+        if (extender == null) {
+            integral = IntegralImageOpImage.getIntegralImageHint(renderHints,
+                                                                 source,
+                                                                 false);
+        }
+        // The exact sums of 16 bit samples may round differently from
+        // the float accumulation of the convolution, so an integral image
+        // is only created implicitly for byte data.
+        if (integral == null && width*height >= MIN_INTEGRAL_AREA) {
+            int dataType = source.getSampleModel().getDataType();
+            if (dataType == DataBuffer.TYPE_BYTE) {
+                integral =
+                    IntegralBoxOpImage.createIntegralImage(source,
+                                                           renderHints,
+                                                           extender,
+                                                           width, height,
+                                                           xOrigin, yOrigin,
+                                                           false);
+            }
+        }
+        if (integral != null) {
+            return new IntegralBoxFilterOpImage(source,
+                                                integral,
+                                                renderHints,
+                                                layout,
+                                                width, height,
+                                                xOrigin, yOrigin);
+        }
+
         // Allocate and initialize arrays.
         float[] dataH = new float[width];
         Arrays.fill(dataH, 1.0F/(float)width);
@@ -72,7 +121,7 @@ public class BoxFilterRIF implements RenderedImageFactory {
                                          dataH, dataV);
 
         // Construct and return the OpImage.
-        return new SeparableConvolveOpImage(paramBlock.getRenderedSource(0),
+        return new SeparableConvolveOpImage(source,
                                             extender,
                                             renderHints,
                                             layout,
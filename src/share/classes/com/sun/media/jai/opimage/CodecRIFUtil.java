@@ -18,13 +18,17 @@ import java.io.IOException;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.JAI;
 import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RenderedImageAdapter;
 import javax.media.jai.TileCache;
 import javax.media.jai.util.ImagingException;
 import javax.media.jai.util.ImagingListener;
 import com.sun.media.jai.codec.ImageCodec;
 import com.sun.media.jai.codec.ImageDecoder;
 import com.sun.media.jai.codec.ImageDecodeParam;
+import com.sun.media.jai.codec.JPEGDecodeParam;
 import com.sun.media.jai.codec.SeekableStream;
+import com.sun.media.jai.codecimpl.JPEGImageDecoder;
 import com.sun.media.jai.util.DisposableNullOpImage;
 import com.sun.media.jai.util.ImageUtil;
 
@@ -48,6 +52,7 @@ public class CodecRIFUtil {
         if (paramBlock.getNumParameters() > 2) {
             page = paramBlock.getIntParameter(2);
         }
+        param = getDecodeParam(type, param, renderHints);
 
         ImageDecoder dec = ImageCodec.createImageDecoder(type, source, param);
         try {
@@ -132,4 +137,108 @@ public class CodecRIFUtil {
             return null;
         }
     }
+
+    /**
+     * Returns the parameters with which a decoder of the given type
+     * decodes an image for a "JPEG" or "Stream" operation.  If the type
+     * is "jpeg" and the hint <code>JAI.KEY_JPEG_SCALED_DECODING</code> is
+     * <code>Boolean.TRUE</code>, these are a copy of the given ones which
+     * defers the decoding, so that an operation reducing the image may
+     * have it decoded at reduced size.  The given parameters are returned
+     * otherwise.
+     *
+     * @since JAI 1.1.4
+     */
+    public static ImageDecodeParam getDecodeParam(String type,
+                                                  ImageDecodeParam param,
+                                                  RenderingHints renderHints) {
+        if (!"jpeg".equalsIgnoreCase(type) ||
+            renderHints == null ||
+            !Boolean.TRUE.equals(
+                renderHints.get(JAI.KEY_JPEG_SCALED_DECODING)) ||
+            !(param == null || param instanceof JPEGDecodeParam)) {
+            return param;
+        }
+
+        JPEGDecodeParam jpegParam = new JPEGDecodeParam();
+        if (param != null) {
+            JPEGDecodeParam p = (JPEGDecodeParam)param;
+            jpegParam.setDecodeToCSM(p.getDecodeToCSM());
+            jpegParam.setScaleDenominator(p.getScaleDenominator());
+        }
+        jpegParam.setDeferDecoding(true);
+
+        return jpegParam;
+    }
+
+    /**
+     * Returns the JPEG image of the rendering of a "JPEG" or "Stream"
+     * operation decoded at 1/n of its size, where n is the largest of 8,
+     * 4 and 2 by which the image may be reduced before being scaled by
+     * the given factors and which divides its width and height, or
+     * <code>null</code> if there is no such image or reduction, or unless
+     * the hint <code>JAI.KEY_JPEG_SCALED_DECODING</code> is
+     * <code>Boolean.TRUE</code>.  The image must not have been decoded,
+     * which requires that the hint was also given to the "JPEG" or
+     * "Stream" operation.  As n is a power of two, the operation
+     * scaling the reduced image by n times the given factors has the
+     * bounds of the operation scaling the source.
+     *
+     * @param source The source of an operation reducing it.
+     * @param scaleX The horizontal scale factor of the operation.
+     * @param scaleY The vertical scale factor of the operation.
+     * @param averaging Whether the operation averages the source over
+     *        blocks of <code>ceil(1/scaleX)</code> by
+     *        <code>ceil(1/scaleY)</code> pixels, in which case n also
+     *        divides these sizes so that the blocks keep their size.
+     * @param renderHints The hints of the operation.
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderedImage createScaledJPEGImage(RenderedImage source,
+                                                      double scaleX,
+                                                      double scaleY,
+                                                      boolean averaging,
+                                                      RenderingHints renderHints) {
+        if (renderHints == null ||
+            !Boolean.TRUE.equals(
+                renderHints.get(JAI.KEY_JPEG_SCALED_DECODING)) ||
+            !(source instanceof DisposableNullOpImage)) {
+            return null;
+        }
+
+        // The decoder image, unless a layout hint changed its bounds or
+        // its data layout.
+        PlanarImage decoded = ((DisposableNullOpImage)source).getSourceImage(0);
+        if (!(decoded instanceof RenderedImageAdapter)) {
+            return null;
+        }
+        RenderedImage image = ((RenderedImageAdapter)decoded).getWrappedImage();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (source.getMinX() != image.getMinX() ||
+            source.getMinY() != image.getMinY() ||
+            source.getWidth() != width ||
+            source.getHeight() != height ||
+            source.getSampleModel().getDataType() !=
+            image.getSampleModel().getDataType() ||
+            source.getSampleModel().getNumBands() !=
+            image.getSampleModel().getNumBands() ||
+            source.getColorModel() == null ||
+            !source.getColorModel().equals(image.getColorModel())) {
+            return null;
+        }
+
+        int blockX = (int)Math.ceil(1.0/scaleX);
+        int blockY = (int)Math.ceil(1.0/scaleY);
+        for (int n = 8; n > 1; n /= 2) {
+            if (scaleX*n <= 1.0 && scaleY*n <= 1.0 &&
+                width % n == 0 && height % n == 0 &&
+                (!averaging || (blockX % n == 0 && blockY % n == 0))) {
+                return JPEGImageDecoder.createScaledImage(image, n);
+            }
+        }
+
+        return null;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * $RCSfile: ColorConvertLattice.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.media.jai.RasterAccessor;
+
+/**
+ * A three dimensional lookup table converting byte pixels of three
+ * samples into byte pixels of another color space.  The table holds
+ * the converted colors of a regular lattice of source colors, and the
+ * colors between the nodes of the lattice are computed by tetrahedral
+ * interpolation in integer arithmetic.
+ *
+ * <p> Lattices are shared through a cache keyed by the pair of source
+ * and destination color spaces.  The cache holds at most
+ * <code>MAX_CACHED_LATTICES</code> lattices and discards the least
+ * recently used one first.
+ *
+ * @see ColorConvertOpImage
+ */
+final class ColorConvertLattice {
+
+    /** The distance between two nodes along a source axis. */
+    static final int NODE_STEP = 15;
+
+    /** The number of nodes along each source axis. */
+    static final int NUM_NODES = 255/NODE_STEP + 1;
+
+    /** The number of bits of the interpolation weights. */
+    private static final int WEIGHT_BITS = 8;
+
+    /** The maximum number of lattices in the cache. */
+    private static final int MAX_CACHED_LATTICES = 8;
+
+    /**
+     * The index of the lower node of each sample value along an axis.
+     * The last node is never a lower node so that the upper node
+     * always exists.
+     */
+    private static final int[] lowerNode = new int[256];
+
+    /**
+     * The distance of each sample value from its lower node, in units
+     * of <code>1/(1 << WEIGHT_BITS)</code> of <code>NODE_STEP</code>.
+     */
+    private static final int[] nodeWeight = new int[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            int node = Math.min(v/NODE_STEP, NUM_NODES - 2);
+            lowerNode[v] = node;
+            nodeWeight[v] =
+                ((v - node*NODE_STEP)*(1 << WEIGHT_BITS) + NODE_STEP/2)/
+                NODE_STEP;
+        }
+    }
+
+    /** The cache of the lattices, in access order. */
+    private static final Map cache =
+        new LinkedHashMap(16, 0.75F, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > MAX_CACHED_LATTICES;
+            }
+        };
+
+    /** The number of samples of a converted color. */
+    private final int numOutputs;
+
+    /**
+     * The converted colors of the nodes.  The samples of the node
+     * (i0, i1, i2) start at ((i0*NUM_NODES + i1)*NUM_NODES + i2)*numOutputs.
+     */
+    private final int[] table;
+
+    /**
+     * Returns the source samples of the lattice nodes.  Node n of the
+     * lattice is pixel n of the returned interleaved samples, in the
+     * order of the table.
+     */
+    static int[] getNodeSamples() {
+        int[] samples = new int[NUM_NODES*NUM_NODES*NUM_NODES*3];
+        int i = 0;
+        for (int i0 = 0; i0 < NUM_NODES; i0++) {
+            for (int i1 = 0; i1 < NUM_NODES; i1++) {
+                for (int i2 = 0; i2 < NUM_NODES; i2++) {
+                    samples[i++] = i0*NODE_STEP;
+                    samples[i++] = i1*NODE_STEP;
+                    samples[i++] = i2*NODE_STEP;
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Returns the cached lattice converting between two color spaces,
+     * or <code>null</code> if there is none.
+     */
+    static ColorConvertLattice get(Object srcColorSpace,
+                                   Object dstColorSpace) {
+        ArrayList key = new ArrayList(2);
+        key.add(srcColorSpace);
+        key.add(dstColorSpace);
+        synchronized (cache) {
+            return (ColorConvertLattice)cache.get(key);
+        }
+    }
+
+    /**
+     * Adds a lattice converting between two color spaces to the cache.
+     */
+    static void put(Object srcColorSpace, Object dstColorSpace,
+                    ColorConvertLattice lattice) {
+        ArrayList key = new ArrayList(2);
+        key.add(srcColorSpace);
+        key.add(dstColorSpace);
+        synchronized (cache) {
+            cache.put(key, lattice);
+        }
+    }
+
+    /**
+     * Constructs a lattice from the converted colors of its nodes.
+     *
+     * @param nodeColors the interleaved converted samples of the nodes
+     *        given by <code>getNodeSamples()</code>, in the same order.
+     * @param numOutputs the number of samples of a converted color.
+     */
+    ColorConvertLattice(int[] nodeColors, int numOutputs) {
+        this.numOutputs = numOutputs;
+        this.table = nodeColors;
+    }
+
+    /**
+     * Converts the pixels of a byte source into a byte destination.
+     * The source has three bands and the destination
+     * <code>numOutputs</code> bands.
+     */
+    void convert(RasterAccessor src, RasterAccessor dst) {
+        int sLineStride = src.getScanlineStride();
+        int sPixelStride = src.getPixelStride();
+        int[] sBandOffsets = src.getBandOffsets();
+        byte[][] sData = src.getByteDataArrays();
+        byte[] s0 = sData[0];
+        byte[] s1 = sData[1];
+        byte[] s2 = sData[2];
+
+        int dwidth = dst.getWidth();
+        int dheight = dst.getHeight();
+        int dLineStride = dst.getScanlineStride();
+        int dPixelStride = dst.getPixelStride();
+        int[] dBandOffsets = dst.getBandOffsets();
+        byte[][] dData = dst.getByteDataArrays();
+
+        int[] table = this.table;
+        int numOutputs = this.numOutputs;
+
+        // The offsets to the next node along each axis.
+        int step2 = numOutputs;
+        int step1 = NUM_NODES*step2;
+        int step0 = NUM_NODES*step1;
+
+        int one = 1 << WEIGHT_BITS;
+        int round = one >> 1;
+
+        int sLineOffset0 = sBandOffsets[0];
+        int sLineOffset1 = sBandOffsets[1];
+        int sLineOffset2 = sBandOffsets[2];
+        int dLineOffset = 0;
+
+        for (int h = 0; h < dheight; h++) {
+            int sPixelOffset0 = sLineOffset0;
+            int sPixelOffset1 = sLineOffset1;
+            int sPixelOffset2 = sLineOffset2;
+            int dPixelOffset = dLineOffset;
+
+            sLineOffset0 += sLineStride;
+            sLineOffset1 += sLineStride;
+            sLineOffset2 += sLineStride;
+            dLineOffset += dLineStride;
+
+            for (int w = 0; w < dwidth; w++) {
+                int v0 = s0[sPixelOffset0]&0xff;
+                int v1 = s1[sPixelOffset1]&0xff;
+                int v2 = s2[sPixelOffset2]&0xff;
+
+                int base = ((lowerNode[v0]*NUM_NODES + lowerNode[v1])*
+                            NUM_NODES + lowerNode[v2])*numOutputs;
+                int f0 = nodeWeight[v0];
+                int f1 = nodeWeight[v1];
+                int f2 = nodeWeight[v2];
+
+                // Select the tetrahedron of the cell containing the
+                // color: walk from the lower node to the upper node
+                // along the axes in decreasing order of the distances.
+                int n1, n2, w0, w1, w2, w3;
+                if (f0 >= f1) {
+                    if (f1 >= f2) {
+                        n1 = step0; n2 = step0 + step1;
+                        w1 = f0 - f1; w2 = f1 - f2; w3 = f2;
+                    } else if (f0 >= f2) {
+                        n1 = step0; n2 = step0 + step2;
+                        w1 = f0 - f2; w2 = f2 - f1; w3 = f1;
+                    } else {
+                        n1 = step2; n2 = step2 + step0;
+                        w1 = f2 - f0; w2 = f0 - f1; w3 = f1;
+                    }
+                } else {
+                    if (f0 >= f2) {
+                        n1 = step1; n2 = step1 + step0;
+                        w1 = f1 - f0; w2 = f0 - f2; w3 = f2;
+                    } else if (f1 >= f2) {
+                        n1 = step1; n2 = step1 + step2;
+                        w1 = f1 - f2; w2 = f2 - f0; w3 = f0;
+                    } else {
+                        n1 = step2; n2 = step2 + step1;
+                        w1 = f2 - f1; w2 = f1 - f0; w3 = f0;
+                    }
+                }
+                w0 = one - w1 - w2 - w3;
+
+                int p0 = base;
+                int p1 = base + n1;
+                int p2 = base + n2;
+                int p3 = base + step0 + step1 + step2;
+                for (int b = 0; b < numOutputs; b++) {
+                    dData[b][dPixelOffset + dBandOffsets[b]] =
+                        (byte)((w0*table[p0++] + w1*table[p1++] +
+                                w2*table[p2++] + w3*table[p3++] + round) >>
+                               WEIGHT_BITS);
+                }
+
+                sPixelOffset0 += sPixelStride;
+                sPixelOffset1 += sPixelStride;
+                sPixelOffset2 += sPixelStride;
+                dPixelOffset += dPixelStride;
+            }
+        }
+    }
+}
@@ -32,8 +32,11 @@ import java.util.Map;
 import javax.media.jai.ColorSpaceJAI;
 import javax.media.jai.IHSColorSpace;
 import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
 import javax.media.jai.PointOpImage;
+import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFactory;
+import javax.media.jai.RasterFormatTag;
 import java.lang.ref.SoftReference;
 
 /**
@@ -68,6 +71,9 @@ final class ColorConvertOpImage extends PointOpImage {
     /** case number */
     private int caseNumber;
 
+    /** The lattice converting byte pixels, or null if it is not used. */
+    private ColorConvertLattice lattice = null;
+
     /** 
      * Retrive/cache the ColorConvertOp. Because instantiate a ColorConvertOp
      * is a time-consuming step, create a hashtable referred to by a 
@@ -221,10 +227,90 @@ final class ColorConvertOpImage extends PointOpImage {
             colorConvertOp = getColorConvertOp(srcColorSpace, dstColorSpace);
 	}
 
+        // Convert byte pixels through a lattice if requested.
+        if (config != null &&
+            Boolean.TRUE.equals(config.get(JAI.KEY_COLOR_CONVERT_LUT)) &&
+            isLatticeCompatible()) {
+            lattice = ColorConvertLattice.get(srcColorSpace, dstColorSpace);
+            if (lattice == null) {
+                lattice = createLattice();
+                ColorConvertLattice.put(srcColorSpace, dstColorSpace,
+                                        lattice);
+            }
+        }
+
         // Set flag to permit in-place operation.
         permitInPlaceOperation();
     }
 
+    /**
+     * Whether the pixels may be converted by a
+     * <code>ColorConvertLattice</code>: the source has three 8-bit color
+     * bands, the destination only 8-bit color bands, and neither has
+     * alpha.  Conversions involving a <code>ColorSpaceJAI</code> are
+     * excluded as the hue of <code>IHSColorSpace</code> wraps around,
+     * which interpolation between nodes cannot follow.
+     */
+    private boolean isLatticeCompatible() {
+        if (caseNumber != 6 ||
+            srcParam.getDataType() != DataBuffer.TYPE_BYTE ||
+            dstParam.getDataType() != DataBuffer.TYPE_BYTE) {
+            return false;
+        }
+
+        ColorModel srcCM = srcParam.getColorModel();
+        ColorModel dstCM = dstParam.getColorModel();
+        if (srcCM.hasAlpha() || dstCM.hasAlpha() ||
+            srcCM.getNumComponents() != 3 ||
+            srcParam.getSampleModel().getNumBands() != 3 ||
+            dstCM.getNumComponents() != sampleModel.getNumBands()) {
+            return false;
+        }
+
+        int[] srcSize = srcParam.getComponentSize();
+        int[] dstSize = dstParam.getComponentSize();
+        for (int i = 0; i < srcSize.length; i++) {
+            if (srcSize[i] != 8) {
+                return false;
+            }
+        }
+        for (int i = 0; i < dstSize.length; i++) {
+            if (dstSize[i] != 8) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the lattice of this conversion by converting its nodes
+     * with <code>computeRect()</code>, so that the lattice agrees with
+     * the other conversions at the nodes.
+     */
+    private ColorConvertLattice createLattice() {
+        int width = ColorConvertLattice.NUM_NODES*
+            ColorConvertLattice.NUM_NODES;
+        int height = ColorConvertLattice.NUM_NODES;
+        Rectangle rect = new Rectangle(0, 0, width, height);
+        Point origin = new Point(0, 0);
+
+        WritableRaster nodes = RasterFactory.createWritableRaster(
+            srcParam.getSampleModel().createCompatibleSampleModel(width,
+                                                                  height),
+            origin);
+        nodes.setPixels(0, 0, width, height,
+                        ColorConvertLattice.getNodeSamples());
+
+        WritableRaster colors = RasterFactory.createWritableRaster(
+            sampleModel.createCompatibleSampleModel(width, height), origin);
+        computeRect(new Raster[] {nodes}, colors, rect);
+
+        return new ColorConvertLattice(
+            colors.getPixels(0, 0, width, height, (int[])null),
+            colors.getNumBands());
+    }
+
     /**
      * Computes a tile of the destination image in the destination color space.
      *
@@ -238,6 +324,19 @@ final class ColorConvertOpImage extends PointOpImage {
                                Rectangle destRect) {
 	WritableRaster tempRas = null;
 
+        if (lattice != null) {
+            RasterFormatTag[] formatTags = getFormatTags();
+            RasterAccessor s =
+                new RasterAccessor(sources[0], destRect, formatTags[0],
+                                   getSourceImage(0).getColorModel());
+            RasterAccessor d =
+                new RasterAccessor(dest, destRect, formatTags[1],
+                                   getColorModel());
+            lattice.convert(s, d);
+            d.copyDataToRaster();
+            return;
+        }
+
         // Save a reference to the source Raster.
         Raster source = sources[0];
 
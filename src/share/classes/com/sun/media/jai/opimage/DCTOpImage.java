@@ -22,6 +22,7 @@ import java.awt.image.WritableRaster;
 import java.util.Arrays;
 import java.util.Map;
 import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
 import javax.media.jai.RasterFactory;
@@ -41,7 +42,10 @@ import com.sun.media.jai.util.MathJAI;
  * of 2 greater than or equal to the respective dimension unless the dimension
  * is unity in which case it is not modified. Source image values are padded
  * with zeros when the dimension is smaller than the output power-of-2
- * dimension.
+ * dimension. The dimensions are not enlarged if the configuration maps
+ * <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code> to
+ * <code>Boolean.FALSE</code>. The transforms of the rows, and then those of
+ * the columns, of large images are divided among several threads.
  *
  * @since EA3
  *
@@ -56,12 +60,24 @@ public class DCTOpImage extends UntiledOpImage {
      */
     private FCT fct;
 
+    /**
+     * Whether the configuration requests that the dimensions be enlarged
+     * to powers of 2.
+     */
+    private static boolean isPadded(Map config) {
+        return config == null ||
+            !Boolean.FALSE.equals(
+                config.get(JAI.KEY_FREQUENCY_TRANSFORM_PADDING));
+    }
+
     /**
      * Override the dimension specification for the destination such that it
-     * has width and height which are equal to non-negative powers of 2.
+     * has width and height which are equal to non-negative powers of 2
+     * unless <code>pad</code> is <code>false</code>.
      */
     private static ImageLayout layoutHelper(ImageLayout layout,
-                                            RenderedImage source) {
+                                            RenderedImage source,
+                                            boolean pad) {
         // Create an ImageLayout or clone the one passed in.
         ImageLayout il = layout == null ?
             new ImageLayout() : (ImageLayout)layout.clone();
@@ -71,11 +87,9 @@ public class DCTOpImage extends UntiledOpImage {
         il.setMinY(source.getMinY());
 
         // Recalculate the non-unity dimensions to be a positive power of 2.
-        // XXX This calculation should not be effected if an implementation
-        // of the FCT which supports arbitrary dimensions is used.
         boolean createNewSampleModel = false;
         int w = il.getWidth(source);
-        if(w > 1) {
+        if(pad && w > 1) {
             int newWidth = MathJAI.nextPositivePowerOf2(w);
             if(newWidth != w) {
                 il.setWidth(w = newWidth);
@@ -83,7 +97,7 @@ public class DCTOpImage extends UntiledOpImage {
             }
         }
         int h = il.getHeight(source);
-        if(h > 1) {
+        if(pad && h > 1) {
             int newHeight = MathJAI.nextPositivePowerOf2(h);
             if(newHeight != h) {
                 il.setHeight(h = newHeight);
@@ -122,9 +136,11 @@ public class DCTOpImage extends UntiledOpImage {
      * Constructs a <code>DCTOpImage</code> object.
      *
      * <p>The image dimensions are the respective next positive powers of 2
-     * greater than or equal to the dimensions of the source image. The tile
-     * grid layout, SampleModel, and ColorModel may optionally be specified
-     * by an ImageLayout object.
+     * greater than or equal to the dimensions of the source image, or the
+     * dimensions of the source image if <code>config</code> maps
+     * <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code> to
+     * <code>Boolean.FALSE</code>. The tile grid layout, SampleModel, and
+     * ColorModel may optionally be specified by an ImageLayout object.
      *
      * @param source A RenderedImage.
      * @param layout An ImageLayout optionally containing the tile grid layout,
@@ -135,7 +151,7 @@ public class DCTOpImage extends UntiledOpImage {
                       Map config,
                       ImageLayout layout,
                       FCT fct) {
-        super(source, config, layoutHelper(layout, source));
+        super(source, config, layoutHelper(layout, source, isPadded(config)));
 
         // Cache the FCT object.
         this.fct = fct;
@@ -204,8 +220,8 @@ public class DCTOpImage extends UntiledOpImage {
         fct.setLength(destRect.width > 1 ? getWidth() : getHeight());
 
         // Get some information about the source image.
-        int srcWidth = source.getWidth();
-        int srcHeight = source.getHeight();
+        final int srcWidth = source.getWidth();
+        final int srcHeight = source.getHeight();
         int srcX = source.getMinX();
         int srcY = source.getMinY();
 
@@ -223,58 +239,69 @@ public class DCTOpImage extends UntiledOpImage {
                                formatTags[1], getColorModel());
 
         // Set data type flags.
-        int srcDataType = srcAccessor.getDataType();
-        int dstDataType = dstAccessor.getDataType();
+        final int srcDataType = srcAccessor.getDataType();
+        final int dstDataType = dstAccessor.getDataType();
 
         // Set pixel and line strides.
-        int srcPixelStride = srcAccessor.getPixelStride();
-        int srcScanlineStride = srcAccessor.getScanlineStride();
-        int dstPixelStride = dstAccessor.getPixelStride();
-        int dstScanlineStride = dstAccessor.getScanlineStride();
+        final int srcPixelStride = srcAccessor.getPixelStride();
+        final int srcScanlineStride = srcAccessor.getScanlineStride();
+        final int dstPixelStride = dstAccessor.getPixelStride();
+        final int dstScanlineStride = dstAccessor.getScanlineStride();
+        final int dstHeight = destRect.height;
 
         // Loop over the bands.
         int numBands = sampleModel.getNumBands();
         for(int band = 0; band < numBands; band++) {
             // Get the source and destination arrays for this band.
-            Object srcData = srcAccessor.getDataArray(band);
-            Object dstData = dstAccessor.getDataArray(band);
+            final Object srcData = srcAccessor.getDataArray(band);
+            final Object dstData = dstAccessor.getDataArray(band);
+
+            // Initialize the data offsets for this band.
+            final int srcBandOffset = srcAccessor.getBandOffset(band);
+            final int dstBandOffset = dstAccessor.getBandOffset(band);
 
             if(destRect.width > 1) {
                 // Set the FCT length.
                 fct.setLength(getWidth());
 
-                // Initialize the data offsets for this band.
-                int srcOffset = srcAccessor.getBandOffset(band);
-                int dstOffset = dstAccessor.getBandOffset(band);
-
                 // Perform the row transforms.
-                for(int row = 0; row < srcHeight; row++) {
-                    // Set the input data of the FCT.
-                    fct.setData(srcDataType, srcData,
-                                srcOffset, srcPixelStride,
-                                srcWidth);
-
-                    // Calculate the DFT of the row.
-                    fct.transform();
-
-                    // Get the output data of the FCT.
-                    fct.getData(dstDataType, dstData,
-                                dstOffset, dstPixelStride);
-
-                    // Increment the data offsets.
-                    srcOffset += srcScanlineStride;
-                    dstOffset += dstScanlineStride;
-                }
+                int numThreads =
+                    TransformPass.getNumThreads(srcHeight, getWidth());
+                final FCT[] fcts = getTransforms(numThreads);
+                new TransformPass() {
+                    void transform(int thread, int start, int end) {
+                        FCT fct = fcts[thread];
+
+                        int srcOffset =
+                            srcBandOffset + start*srcScanlineStride;
+                        int dstOffset =
+                            dstBandOffset + start*dstScanlineStride;
+
+                        for(int row = start; row < end; row++) {
+                            // Set the input data of the FCT.
+                            fct.setData(srcDataType, srcData,
+                                        srcOffset, srcPixelStride,
+                                        srcWidth);
+
+                            // Calculate the DFT of the row.
+                            fct.transform();
+
+                            // Get the output data of the FCT.
+                            fct.getData(dstDataType, dstData,
+                                        dstOffset, dstPixelStride);
+
+                            // Increment the data offsets.
+                            srcOffset += srcScanlineStride;
+                            dstOffset += dstScanlineStride;
+                        }
+                    }
+                }.run(numThreads, srcHeight);
             }
 
             if(destRect.width == 1) { // destRect.height > 1
-                // Initialize the data offsets for this band.
-                int srcOffset = srcAccessor.getBandOffset(band);
-                int dstOffset = dstAccessor.getBandOffset(band);
-
                 // Set the input data of the FCT.
                 fct.setData(srcDataType, srcData,
-                            srcOffset, srcScanlineStride,
+                            srcBandOffset, srcScanlineStride,
                             srcHeight);
 
                 // Calculate the DFT of the row.
@@ -282,31 +309,39 @@ public class DCTOpImage extends UntiledOpImage {
 
                 // Get the output data of the FCT.
                 fct.getData(dstDataType, dstData,
-                            dstOffset, dstScanlineStride);
+                            dstBandOffset, dstScanlineStride);
             } else if(destRect.height > 1) { // destRect.width > 1
                 // Reset the FCT length.
                 fct.setLength(getHeight());
 
-                // Initialize destination offset.
-                int dstOffset = dstAccessor.getBandOffset(band);
-
                 // Perform the column transforms.
-                for(int col = 0; col < destRect.width; col++) {
-                    // Set the input data of the FCT.
-                    fct.setData(dstDataType, dstData,
-                                dstOffset, dstScanlineStride,
-                                destRect.height);
-
-                    // Calculate the DFT of the column.
-                    fct.transform();
-
-                    // Get the output data of the FCT.
-                    fct.getData(dstDataType, dstData,
-                                dstOffset, dstScanlineStride);
-
-                    // Increment the data offset.
-                    dstOffset += dstPixelStride;
-                }
+                int numThreads =
+                    TransformPass.getNumThreads(destRect.width, getHeight());
+                final FCT[] fcts = getTransforms(numThreads);
+                new TransformPass() {
+                    void transform(int thread, int start, int end) {
+                        FCT fct = fcts[thread];
+
+                        int dstOffset = dstBandOffset + start*dstPixelStride;
+
+                        for(int col = start; col < end; col++) {
+                            // Set the input data of the FCT.
+                            fct.setData(dstDataType, dstData,
+                                        dstOffset, dstScanlineStride,
+                                        dstHeight);
+
+                            // Calculate the DFT of the column.
+                            fct.transform();
+
+                            // Get the output data of the FCT.
+                            fct.getData(dstDataType, dstData,
+                                        dstOffset, dstScanlineStride);
+
+                            // Increment the data offset.
+                            dstOffset += dstPixelStride;
+                        }
+                    }
+                }.run(numThreads, destRect.width);
             }
         }
 
@@ -317,4 +352,17 @@ public class DCTOpImage extends UntiledOpImage {
         // Make sure that the output data is copied to the destination.
         dstAccessor.copyDataToRaster();
     }
+
+    /**
+     * Returns the FCT object followed by copies of it, one for each
+     * thread of a pass.
+     */
+    private FCT[] getTransforms(int numThreads) {
+        FCT[] fcts = new FCT[numThreads];
+        fcts[0] = fct;
+        for(int i = 1; i < numThreads; i++) {
+            fcts[i] = (FCT)fct.clone();
+        }
+        return fcts;
+    }
 }
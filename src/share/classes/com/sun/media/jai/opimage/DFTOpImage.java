@@ -26,6 +26,7 @@ import java.util.Locale;
 import java.util.Map;
 import javax.media.jai.EnumeratedParameter;
 import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
 import javax.media.jai.RasterFactory;
@@ -46,7 +47,10 @@ import com.sun.media.jai.util.MathJAI;
  * next positive power of 2 greater than or equal to the respective dimension
  * unless the dimension is unity in which case it is not modified. Source
  * image values are padded with zeros when the dimension is smaller than the
- * output power-of-2 dimension.
+ * output power-of-2 dimension. The dimensions are not enlarged if the
+ * configuration maps <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code> to
+ * <code>Boolean.FALSE</code>. The transforms of the rows, and then those of
+ * the columns, of large images are divided among several threads.
  *
  * @since EA3
  *
@@ -65,13 +69,25 @@ public class DFTOpImage extends UntiledOpImage {
     /** Flag indicating whether the destination image is complex. */
     protected boolean complexDst;
 
+    /**
+     * Whether the configuration requests that the dimensions be enlarged
+     * to powers of 2.
+     */
+    private static boolean isPadded(Map config) {
+        return config == null ||
+            !Boolean.FALSE.equals(
+                config.get(JAI.KEY_FREQUENCY_TRANSFORM_PADDING));
+    }
+
     /**
      * Override the dimension specification for the destination such that it
-     * has width and height which are equal to non-negative powers of 2.
+     * has width and height which are equal to non-negative powers of 2
+     * unless <code>pad</code> is <code>false</code>.
      */
     private static ImageLayout layoutHelper(ImageLayout layout,
                                             RenderedImage source,
-                                            EnumeratedParameter dataNature) {
+                                            EnumeratedParameter dataNature,
+                                            boolean pad) {
         // Create an ImageLayout or clone the one passed in.
         ImageLayout il = layout == null ?
             new ImageLayout() : (ImageLayout)layout.clone();
@@ -81,13 +97,14 @@ public class DFTOpImage extends UntiledOpImage {
         il.setMinY(source.getMinY());
 
         // Recalculate the non-unity dimensions to be a positive power of 2.
-        // XXX This calculation should not be effected if an implementation
-        // of the FFT which supports arbitrary dimensions is used.
         int currentWidth = il.getWidth(source);
         int currentHeight = il.getHeight(source);
         int newWidth;
         int newHeight;
-        if(currentWidth == 1 && currentHeight == 1) {
+        if(!pad) {
+            newWidth = currentWidth;
+            newHeight = currentHeight;
+        } else if(currentWidth == 1 && currentHeight == 1) {
             newWidth = newHeight = 1;
         } else if(currentWidth == 1 && currentHeight > 1) {
             newWidth = 1;
@@ -161,9 +178,11 @@ public class DFTOpImage extends UntiledOpImage {
      * Constructs a <code>DFTOpImage</code> object.
      *
      * <p>The image dimensions are the respective next positive powers of 2
-     * greater than or equal to the dimensions of the source image. The tile
-     * grid layout, SampleModel, and ColorModel may optionally be specified
-     * by an ImageLayout object.
+     * greater than or equal to the dimensions of the source image, or the
+     * dimensions of the source image if <code>config</code> maps
+     * <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code> to
+     * <code>Boolean.FALSE</code>. The tile grid layout, SampleModel, and
+     * ColorModel may optionally be specified by an ImageLayout object.
      *
      * @param source A RenderedImage.
      * @param layout An ImageLayout optionally containing the tile grid layout,
@@ -177,7 +196,8 @@ public class DFTOpImage extends UntiledOpImage {
                       ImageLayout layout,
                       EnumeratedParameter dataNature,
                       FFT fft) {
-        super(source, config, layoutHelper(layout, source, dataNature));
+        super(source, config,
+              layoutHelper(layout, source, dataNature, isPadded(config)));
 
         // Cache the FFT object.
         this.fft = fft;
@@ -268,8 +288,8 @@ public class DFTOpImage extends UntiledOpImage {
         fft.setLength(destRect.width > 1 ? getWidth() : getHeight());
 
         // Get some information about the source image.
-        int srcWidth = source.getWidth();
-        int srcHeight = source.getHeight();
+        final int srcWidth = source.getWidth();
+        final int srcHeight = source.getHeight();
         int srcX = source.getMinX();
         int srcY = source.getMinY();
 
@@ -285,20 +305,23 @@ public class DFTOpImage extends UntiledOpImage {
             new RasterAccessor(dest, destRect, formatTags[1], getColorModel());
 
         // Set data type flags.
-        int srcDataType = srcAccessor.getDataType();
-        int dstDataType = dstAccessor.getDataType();
+        final int srcDataType = srcAccessor.getDataType();
+        final int dstDataType = dstAccessor.getDataType();
 
         // Set pixel and line strides.
-        int srcPixelStride = srcAccessor.getPixelStride();
-        int srcScanlineStride = srcAccessor.getScanlineStride();
-        int dstPixelStride = dstAccessor.getPixelStride();
-        int dstScanlineStride = dstAccessor.getScanlineStride();
+        final int srcPixelStride = srcAccessor.getPixelStride();
+        final int srcScanlineStride = srcAccessor.getScanlineStride();
+        final int dstPixelStride = dstAccessor.getPixelStride();
+        final int dstScanlineStride = dstAccessor.getScanlineStride();
         int dstPixelStrideImag = 1;
         int dstLineStrideImag = destRect.width;
         if(complexDst) {
             dstPixelStrideImag = dstPixelStride;
             dstLineStrideImag = dstScanlineStride;
         }
+        final int dstPixelStrideI = dstPixelStrideImag;
+        final int dstLineStrideI = dstLineStrideImag;
+        final int dstHeight = destRect.height;
 
         // Set indices and strides for image bands (real/imaginary).
         int srcBandIndex = 0;
@@ -314,74 +337,92 @@ public class DFTOpImage extends UntiledOpImage {
         // Loop over the components.
         for(int comp = 0; comp < numComponents; comp++) {
             // Get the real source data for this component.
-            Object srcReal = srcAccessor.getDataArray(srcBandIndex);
+            final Object srcReal = srcAccessor.getDataArray(srcBandIndex);
 
             // Get the imaginary source data for this component if present.
-            Object srcImag = null;
+            Object srcImagData = null;
             if(complexSrc) {
-                srcImag = srcAccessor.getDataArray(srcBandIndex+1);
+                srcImagData = srcAccessor.getDataArray(srcBandIndex+1);
             }
+            final Object srcImag = srcImagData;
 
             // Specify the destination components.
-            Object dstReal = dstAccessor.getDataArray(dstBandIndex);
-            Object dstImag = null;
+            final Object dstReal = dstAccessor.getDataArray(dstBandIndex);
+            Object dstImagData = null;
             if(complexDst) {
-                dstImag = dstAccessor.getDataArray(dstBandIndex+1);
+                dstImagData = dstAccessor.getDataArray(dstBandIndex+1);
             } else {
                 // Need to allocate an array for the entire band anyway
                 // even though the destination is real because it is needed
                 // for storage of the result of the row transforms.
                 if(dstDataType == DataBuffer.TYPE_FLOAT) {
-                    dstImag = new float[destRect.width*destRect.height];
+                    dstImagData = new float[destRect.width*destRect.height];
                 } else {
-                    dstImag = new double[destRect.width*destRect.height];
+                    dstImagData = new double[destRect.width*destRect.height];
                 }
             }
+            final Object dstImag = dstImagData;
+
+            // Initialize destination offsets for this component.
+            final int dstBandOffsetReal =
+                dstAccessor.getBandOffset(dstBandIndex);
+            final int dstBandOffsetImag = complexDst ?
+                dstAccessor.getBandOffset(dstBandIndex+1) : 0;
 
             if(destRect.width > 1) {
                 // Set the FFT length.
                 fft.setLength(getWidth());
 
                 // Initialize the source offsets for this component.
-                int srcOffsetReal =
+                final int srcBandOffsetReal =
                     srcAccessor.getBandOffset(srcBandIndex);
-                int srcOffsetImag = 0;
-                if(complexSrc) {
-                    srcOffsetImag =
-                        srcAccessor.getBandOffset(srcBandIndex+1);
-                }
-
-                // Initialize destination offsets and strides.
-                int dstOffsetReal =
-                    dstAccessor.getBandOffset(dstBandIndex);
-                int dstOffsetImag = 0;
-                if(complexDst) {
-                    dstOffsetImag =
-                        dstAccessor.getBandOffset(dstBandIndex+1);
-                }
+                final int srcBandOffsetImag = complexSrc ?
+                    srcAccessor.getBandOffset(srcBandIndex+1) : 0;
 
                 // Perform the row transforms.
-                for(int row = 0; row < srcHeight; row++) {
-                    // Set the input data of the FFT.
-                    fft.setData(srcDataType,
-                                srcReal, srcOffsetReal, srcPixelStride,
-                                srcImag, srcOffsetImag, srcPixelStride,
-                                srcWidth);
-
-                    // Calculate the DFT of the row.
-                    fft.transform();
-
-                    // Get the output data of the FFT.
-                    fft.getData(dstDataType,
-                                dstReal, dstOffsetReal, dstPixelStride,
-                                dstImag, dstOffsetImag, dstPixelStrideImag);
-
-                    // Increment the data offsets.
-                    srcOffsetReal += srcScanlineStride;
-                    srcOffsetImag += srcScanlineStride;
-                    dstOffsetReal += dstScanlineStride;
-                    dstOffsetImag += dstLineStrideImag;
-                }
+                int numThreads =
+                    TransformPass.getNumThreads(srcHeight, getWidth());
+                final FFT[] ffts = getTransforms(numThreads);
+                new TransformPass() {
+                    void transform(int thread, int start, int end) {
+                        FFT fft = ffts[thread];
+
+                        int srcOffsetReal =
+                            srcBandOffsetReal + start*srcScanlineStride;
+                        int srcOffsetImag =
+                            srcBandOffsetImag + start*srcScanlineStride;
+                        int dstOffsetReal =
+                            dstBandOffsetReal + start*dstScanlineStride;
+                        int dstOffsetImag =
+                            dstBandOffsetImag + start*dstLineStrideI;
+
+                        for(int row = start; row < end; row++) {
+                            // Set the input data of the FFT.
+                            fft.setData(srcDataType,
+                                        srcReal, srcOffsetReal,
+                                        srcPixelStride,
+                                        srcImag, srcOffsetImag,
+                                        srcPixelStride,
+                                        srcWidth);
+
+                            // Calculate the DFT of the row.
+                            fft.transform();
+
+                            // Get the output data of the FFT.
+                            fft.getData(dstDataType,
+                                        dstReal, dstOffsetReal,
+                                        dstPixelStride,
+                                        dstImag, dstOffsetImag,
+                                        dstPixelStrideI);
+
+                            // Increment the data offsets.
+                            srcOffsetReal += srcScanlineStride;
+                            srcOffsetImag += srcScanlineStride;
+                            dstOffsetReal += dstScanlineStride;
+                            dstOffsetImag += dstLineStrideI;
+                        }
+                    }
+                }.run(numThreads, srcHeight);
             }
 
             if(destRect.width == 1) { // destRect.height > 1
@@ -401,15 +442,6 @@ public class DFTOpImage extends UntiledOpImage {
                         srcAccessor.getBandOffset(srcBandIndex+1);
                 }
 
-                // Initialize destination offsets and strides.
-                int dstOffsetReal =
-                    dstAccessor.getBandOffset(dstBandIndex);
-                int dstOffsetImag = 0;
-                if(complexDst) {
-                    dstOffsetImag =
-                        dstAccessor.getBandOffset(dstBandIndex+1);
-                }
-
                 // Set the input data of the FFT.
                 fft.setData(srcDataType,
                             srcReal, srcOffsetReal, srcScanlineStride,
@@ -421,42 +453,50 @@ public class DFTOpImage extends UntiledOpImage {
 
                 // Get the output data of the FFT.
                 fft.getData(dstDataType,
-                            dstReal, dstOffsetReal, dstScanlineStride,
-                            dstImag, dstOffsetImag, dstLineStrideImag);
+                            dstReal, dstBandOffsetReal, dstScanlineStride,
+                            dstImag, dstBandOffsetImag, dstLineStrideI);
             } else if(destRect.height > 1) { // destRect.width > 1
                 // Reset the FFT length.
                 fft.setLength(getHeight());
 
-                // Initialize destination offsets and strides.
-                int dstOffsetReal =
-                    dstAccessor.getBandOffset(dstBandIndex);
-                int dstOffsetImag = 0;
-                if(complexDst) {
-                    dstOffsetImag =
-                        dstAccessor.getBandOffset(dstBandIndex+1);
-                }
-
                 // Perform the column transforms.
-                for(int col = 0; col < destRect.width; col++) {
-                    // Set the input data of the FFT.
-                    fft.setData(dstDataType,
-                                dstReal, dstOffsetReal, dstScanlineStride,
-                                dstImag, dstOffsetImag, dstLineStrideImag,
-                                destRect.height);
-
-                    // Calculate the DFT of the column.
-                    fft.transform();
-
-                    // Get the output data of the FFT.
-                    fft.getData(dstDataType,
-                                dstReal, dstOffsetReal, dstScanlineStride,
-                                complexDst ? dstImag : null,
-                                dstOffsetImag, dstLineStrideImag);
-
-                    // Increment the data offset.
-                    dstOffsetReal += dstPixelStride;
-                    dstOffsetImag += dstPixelStrideImag;
-                }
+                int numThreads =
+                    TransformPass.getNumThreads(destRect.width, getHeight());
+                final FFT[] ffts = getTransforms(numThreads);
+                new TransformPass() {
+                    void transform(int thread, int start, int end) {
+                        FFT fft = ffts[thread];
+
+                        int dstOffsetReal =
+                            dstBandOffsetReal + start*dstPixelStride;
+                        int dstOffsetImag =
+                            dstBandOffsetImag + start*dstPixelStrideI;
+
+                        for(int col = start; col < end; col++) {
+                            // Set the input data of the FFT.
+                            fft.setData(dstDataType,
+                                        dstReal, dstOffsetReal,
+                                        dstScanlineStride,
+                                        dstImag, dstOffsetImag,
+                                        dstLineStrideI,
+                                        dstHeight);
+
+                            // Calculate the DFT of the column.
+                            fft.transform();
+
+                            // Get the output data of the FFT.
+                            fft.getData(dstDataType,
+                                        dstReal, dstOffsetReal,
+                                        dstScanlineStride,
+                                        complexDst ? dstImag : null,
+                                        dstOffsetImag, dstLineStrideI);
+
+                            // Increment the data offset.
+                            dstOffsetReal += dstPixelStride;
+                            dstOffsetImag += dstPixelStrideI;
+                        }
+                    }
+                }.run(numThreads, destRect.width);
             }
 
             // Increment the indices of the real bands in both images.
@@ -471,5 +511,17 @@ public class DFTOpImage extends UntiledOpImage {
         // Make sure that the output data is copied to the destination.
         dstAccessor.copyDataToRaster();
     }
-}
 
+    /**
+     * Returns the FFT object followed by copies of it, one for each
+     * thread of a pass.
+     */
+    private FFT[] getTransforms(int numThreads) {
+        FFT[] ffts = new FFT[numThreads];
+        ffts[0] = fft;
+        for(int i = 1; i < numThreads; i++) {
+            ffts[i] = (FFT)fft.clone();
+        }
+        return ffts;
+    }
+}
@@ -143,6 +143,10 @@ final class DilateOpImage extends AreaOpImage {
     private int kw, kh, kx, ky;
     private float[] kdata;
 
+    /** Whether all kernel elements are equal, and their value if so. */
+    private boolean isFlat;
+    private float flatValue;
+
     /**
      * Creates a DilateOpImage given a ParameterBlock containing the image
      * source and pre-rotated dilation kernel.  The image dimensions are 
@@ -179,6 +183,12 @@ final class DilateOpImage extends AreaOpImage {
 	ky = kernel.getYOrigin();
 
         kdata = kernel.getKernelData();
+
+        flatValue = kdata[0];
+        isFlat = !Float.isNaN(flatValue) && !Float.isInfinite(flatValue);
+        for (int i = 1; isFlat && i < kdata.length; i++) {
+            isFlat = kdata[i] == flatValue;
+        }
     }
 
     /**
@@ -207,27 +217,31 @@ final class DilateOpImage extends AreaOpImage {
             new RasterAccessor(dest, destRect, 
                                formatTags[1], getColorModel());
  
-        switch (dstAccessor.getDataType()) {
-        case DataBuffer.TYPE_BYTE:
-            byteLoop(srcAccessor, dstAccessor);
-	    break;
-        case DataBuffer.TYPE_INT:
-            intLoop(srcAccessor, dstAccessor);
-            break;
-        case DataBuffer.TYPE_SHORT:
-            shortLoop(srcAccessor, dstAccessor);
-            break;
-        case DataBuffer.TYPE_USHORT:
-            ushortLoop(srcAccessor, dstAccessor);
-            break;
-        case DataBuffer.TYPE_FLOAT:
-            floatLoop(srcAccessor, dstAccessor);
-            break;
-        case DataBuffer.TYPE_DOUBLE:
-            doubleLoop(srcAccessor, dstAccessor);
-            break;
+        if (isFlat) {
+            flatLoop(srcAccessor, dstAccessor);
+        } else {
+            switch (dstAccessor.getDataType()) {
+            case DataBuffer.TYPE_BYTE:
+                byteLoop(srcAccessor, dstAccessor);
+    	    break;
+            case DataBuffer.TYPE_INT:
+                intLoop(srcAccessor, dstAccessor);
+                break;
+            case DataBuffer.TYPE_SHORT:
+                shortLoop(srcAccessor, dstAccessor);
+                break;
+            case DataBuffer.TYPE_USHORT:
+                ushortLoop(srcAccessor, dstAccessor);
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                floatLoop(srcAccessor, dstAccessor);
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                doubleLoop(srcAccessor, dstAccessor);
+                break;
 
-        default:
+            default:
+            }
         }
  
         // If the RasterAccessor object set up a temporary buffer for the
@@ -239,6 +253,194 @@ final class DilateOpImage extends AreaOpImage {
         }
     }
 
+    /**
+     * Performs dilation with a flat kernel, that is one whose elements
+     * all equal <code>flatValue</code>.  Since adding a constant preserves
+     * order, the result is the maximum of the source samples under the
+     * kernel plus that constant, and the maximum over the rectangle is
+     * computed in separate row and column passes by
+     * <code>SlidingExtrema</code>.  The arithmetic and clamping are those
+     * of the general loops so that the results are identical.
+     */
+    private void flatLoop(RasterAccessor src, RasterAccessor dst) {
+ 
+        int dwidth    = dst.getWidth();
+        int dheight   = dst.getHeight();
+        int dnumBands = dst.getNumBands();
+        int dataType  = dst.getDataType();
+ 
+        int dstBandOffsets[]  = dst.getBandOffsets();
+        int dstPixelStride    = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+ 
+        int srcBandOffsets[]  = src.getBandOffsets();
+        int srcPixelStride    = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        int swidth  = dwidth + kw - 1;
+        int sheight = dheight + kh - 1;
+        int numValues = swidth*sheight;
+        int bufferSize = Math.max(swidth, sheight);
+
+        int intValues[] = null, intBuffer[] = null;
+        float floatValues[] = null, floatBuffer[] = null;
+        double doubleValues[] = null, doubleBuffer[] = null;
+        if (dataType == DataBuffer.TYPE_FLOAT) {
+            floatValues = new float[numValues];
+            floatBuffer = new float[bufferSize];
+        } else if (dataType == DataBuffer.TYPE_DOUBLE) {
+            doubleValues = new double[numValues];
+            doubleBuffer = new double[bufferSize];
+        } else {
+            intValues = new int[numValues];
+            intBuffer = new int[bufferSize];
+        }
+
+        for (int k = 0; k < dnumBands; k++)  {
+            // Gather the source samples of the band row by row.
+            int srcScanlineOffset = srcBandOffsets[k];
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
+                int srcPixelOffset = srcScanlineOffset;
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    byte byteData[] = src.getByteDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        intValues[valueOffset++] =
+                            byteData[srcPixelOffset]&0xff;
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    short ushortData[] = src.getShortDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        intValues[valueOffset++] =
+                            ushortData[srcPixelOffset]&0xffff;
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    short shortData[] = src.getShortDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        intValues[valueOffset++] = shortData[srcPixelOffset];
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_INT:
+                    int intData[] = src.getIntDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        intValues[valueOffset++] = intData[srcPixelOffset];
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    float floatData[] = src.getFloatDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        floatValues[valueOffset++] = floatData[srcPixelOffset];
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_DOUBLE:
+                    double doubleData[] = src.getDoubleDataArray(k);
+                    for (int i = 0; i < swidth; i++)  {
+                        doubleValues[valueOffset++] =
+                            doubleData[srcPixelOffset];
+                        srcPixelOffset += srcPixelStride;
+                    }
+                    break;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            if (dataType == DataBuffer.TYPE_FLOAT) {
+                SlidingExtrema.max(floatValues, swidth, sheight, kw, kh,
+                                   floatBuffer, Float.NEGATIVE_INFINITY);
+            } else if (dataType == DataBuffer.TYPE_DOUBLE) {
+                SlidingExtrema.max(doubleValues, swidth, sheight, kw, kh,
+                                   doubleBuffer, Double.NEGATIVE_INFINITY);
+            } else {
+                SlidingExtrema.max(intValues, swidth, sheight, kw, kh,
+                                   intBuffer);
+            }
+
+            // Add the kernel value and store the results.
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < dheight; j++)  {
+                int dstPixelOffset = dstScanlineOffset;
+                valueOffset = j*swidth;
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    byte byteData[] = dst.getByteDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        float f = intValues[valueOffset++] + flatValue;
+                        int val  = (int)f;
+                        if (val < 0)  {
+                            val = 0;
+                        } else if (val > 255)  {
+                            val = 255;
+                        }
+                        byteData[dstPixelOffset] = (byte)val;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    short ushortData[] = dst.getShortDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        float f = intValues[valueOffset++] + flatValue;
+                        int val  = (int)f;
+                        if (val < 0)  {
+                            val = 0;
+                        } else if (val > 0xffff)  {
+                            val = 0xffff;
+                        }
+                        ushortData[dstPixelOffset] = (short)val;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    short shortData[] = dst.getShortDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        float f = intValues[valueOffset++] + flatValue;
+                        int val  = (int)f;
+                        if (val < Short.MIN_VALUE)  {
+                            val = Short.MIN_VALUE;
+                        } else if (val > Short.MAX_VALUE)  {
+                            val = Short.MAX_VALUE;
+                        }
+                        shortData[dstPixelOffset] = (short)val;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_INT:
+                    int intData[] = dst.getIntDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        float f = intValues[valueOffset++] + flatValue;
+                        intData[dstPixelOffset] = (int)f;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    float floatData[] = dst.getFloatDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        floatData[dstPixelOffset] =
+                            floatValues[valueOffset++] + flatValue;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                case DataBuffer.TYPE_DOUBLE:
+                    double doubleData[] = dst.getDoubleDataArray(k);
+                    for (int i = 0; i < dwidth; i++)  {
+                        doubleData[dstPixelOffset] =
+                            doubleValues[valueOffset++] + flatValue;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    break;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
     private void byteLoop(RasterAccessor src, RasterAccessor dst) {
  
         int dwidth    = dst.getWidth();
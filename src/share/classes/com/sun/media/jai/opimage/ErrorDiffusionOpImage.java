@@ -27,11 +27,11 @@ import javax.media.jai.ImageLayout;
 import javax.media.jai.KernelJAI;
 import javax.media.jai.LookupTableJAI;
 import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
 import javax.media.jai.RasterFactory;
 import javax.media.jai.RasterFormatTag;
-import javax.media.jai.UntiledOpImage;
 import com.sun.media.jai.util.ImageUtil;
 import com.sun.media.jai.util.JDKWorkarounds;
 
@@ -55,7 +55,7 @@ import com.sun.media.jai.util.JDKWorkarounds;
  * @since EA2
  *
  */
-final class ErrorDiffusionOpImage extends UntiledOpImage {
+final class ErrorDiffusionOpImage extends OpImage {
     /**
      * Smallest float value which when added to unity will yield something
      * other than unity.
@@ -104,6 +104,45 @@ final class ErrorDiffusionOpImage extends UntiledOpImage {
      */
     private float maxPixelValue;
 
+    /**
+     * The number of lines of the source held in the rolling buffer of
+     * the general case.
+     */
+    private int numLinesBuffer;
+
+    /**
+     * The dither table of the optimized case.
+     */
+    private int[] ditherTable;
+
+    /**
+     * The first line which has not yet been diffused.
+     */
+    private int nextLine;
+
+    /**
+     * The rolling buffer of the general case, holding the source lines
+     * following the last line diffused with the error diffused into them.
+     */
+    private float[][] bufMem;
+
+    /**
+     * The indices of the lines of the rolling buffer, in line order.
+     */
+    private int[] bufIdx;
+
+    /**
+     * The error buffer of the optimized case, holding the error diffused
+     * into the line following the last line diffused.
+     */
+    private int[] errBuf;
+
+    /**
+     * The tiles of the last tile row diffused, and its index.
+     */
+    private Raster[] rowTiles;
+    private int rowTileY;
+
     /**
      * Determines whether a kernel is the Floyd-Steinberg kernel.
      *
@@ -393,7 +432,8 @@ final class ErrorDiffusionOpImage extends UntiledOpImage {
                                  ImageLayout layout,
                                  LookupTableJAI colorMap,
                                  KernelJAI errorKernel) {
-	super(source, config, layoutHelper(layout, source, colorMap));
+	super(vectorize(source), layoutHelper(layout, source, colorMap),
+              config, true);
 
         // Get the source sample model.
         SampleModel srcSampleModel = source.getSampleModel();
@@ -415,6 +455,13 @@ final class ErrorDiffusionOpImage extends UntiledOpImage {
              colorMap instanceof ColorCube &&
              isFloydSteinbergKernel(errorKernel));
 
+        // Initialize the state of the diffusion.
+        numLinesBuffer = errorKernel.getHeight() - errorKernel.getYOrigin();
+        if (isOptimizedCase) {
+            ditherTable = initFloydSteinberg24To8((ColorCube)colorMap);
+        }
+        resetDiffusion();
+
         // Determine minumum and maximum valid pixel values
         switch (colorMap.getDataType()) {
         case DataBuffer.TYPE_BYTE:
@@ -450,53 +497,187 @@ final class ErrorDiffusionOpImage extends UntiledOpImage {
     }
 
     /**
-     * Performs error diffusion on a specified rectangle. The sources are
-     * cobbled. As error diffusion must be calculated on a line-by-line basis
-     * starting at the upper left corner of the image, all image lines through
-     * and including the last line of the tile containing the requested
-     * <code>Rectangle</code> are calculated.
+     * Returns the bounds of the destination affected by a region of the
+     * source, which extend from the top of the region to the bottom of
+     * the image across its whole width.
+     */
+    public Rectangle mapSourceRect(Rectangle sourceRect,
+                                   int sourceIndex) {
+        if(sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        int y = Math.max(sourceRect.y, minY);
+        return new Rectangle(minX, y, width, getMaxY() - y);
+    }
+
+    /**
+     * Returns the bounds of the source needed to compute a region of
+     * the destination, which extend from the top of the image to the
+     * bottom of the region, and the lines of the source loaded ahead of
+     * it, across its whole width.
+     */
+    public Rectangle mapDestRect(Rectangle destRect,
+                                 int sourceIndex) {
+        if(sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        int maxY = Math.min(destRect.y + destRect.height +
+                            (isOptimizedCase ? 0 : numLinesBuffer),
+                            getMaxY());
+        return new Rectangle(minX, minY, width, Math.max(maxY - minY, 0));
+    }
+
+    /**
+     * Returns <code>false</code> as the tiles of the last tile row
+     * computed are kept and may be returned more than once.
+     */
+    public boolean computesUniqueTiles() {
+        return false;
+    }
+
+    /**
+     * Computes a tile.
      *
-     * @param sources The source image Raster.
-     * @param dest A WritableRaster tile containing the area to be computed.
-     * @param destRect The rectangle within dest to be processed.
+     * <p> As error diffusion must be calculated on a line-by-line basis
+     * starting at the upper left corner of the image, the image is
+     * diffused one tile row at a time, carrying only the error into the
+     * following lines from one tile row to the next.  All the tile rows
+     * through the row of the requested tile which have not been diffused
+     * yet are computed, and their tiles added to the tile cache.  If the
+     * requested tile row has already been diffused and its tiles are no
+     * longer available, the diffusion starts again at the top of the
+     * image.
+     *
+     * @param tileX The X index of the tile.
+     * @param tileY The Y index of the tile.
      */
-    protected void computeImage(Raster[] sources,
-                                WritableRaster dest,
-                                Rectangle destRect) {
-        Raster source = sources[0];
+    public synchronized Raster computeTile(int tileX, int tileY) {
+        int minTileX = getMinTileX();
+
+        if(rowTiles == null || rowTileY != tileY) {
+            if(Math.max(tileYToY(tileY), minY) < nextLine) {
+                resetDiffusion();
+            }
+
+            do {
+                int ty = YToTileY(nextLine);
+                rowTiles = diffuseTileRow(ty);
+                rowTileY = ty;
+
+                // The requested tile is cached by getTile().
+                for(int i = 0; i < rowTiles.length; i++) {
+                    if(ty != tileY || minTileX + i != tileX) {
+                        addTileToCache(minTileX + i, ty, rowTiles[i]);
+                    }
+                }
+            } while(rowTileY != tileY);
+        }
+
+        return rowTiles[tileX - minTileX];
+    }
+
+    /**
+     * Diffuses the next tile row of the image and returns its tiles.
+     *
+     * @param tileY The Y index of the tile row, which must contain
+     * <code>nextLine</code>.
+     */
+    private Raster[] diffuseTileRow(int tileY) {
+        int startY = nextLine;
+        int endY = Math.min(tileYToY(tileY) + tileHeight, getMaxY());
+        Rectangle rowRect = new Rectangle(minX, startY, width, endY - startY);
+
+        // Get the source lines of the row and those loaded ahead.
+        PlanarImage source = getSourceImage(0);
+        Rectangle srcRect = mapDestRect(rowRect, 0);
+        srcRect.height -= startY - srcRect.y;
+        srcRect.y = startY;
+        Raster sourceData = source.getData(srcRect);
+
+        WritableRaster dest =
+            createWritableRaster(
+                sampleModel.createCompatibleSampleModel(rowRect.width,
+                                                        rowRect.height),
+                rowRect.getLocation());
 
         if (isOptimizedCase) {
-            computeImageOptimized(source, dest, destRect);
+            diffuseOptimized(sourceData, dest, rowRect);
         } else {
-            computeImageDefault(source, dest, destRect);
+            diffuseDefault(sourceData, dest, rowRect);
+        }
+        nextLine = endY;
+
+        if(source.overlapsMultipleTiles(srcRect)) {
+            recycleTile(sourceData);
         }
+
+        // Split the row into tiles.
+        int minTileX = getMinTileX();
+        int maxTileX = getMaxTileX();
+        Raster[] tiles = new Raster[maxTileX - minTileX + 1];
+        for(int tx = minTileX; tx <= maxTileX; tx++) {
+            WritableRaster tile = createTile(tx, tileY);
+            tile.setRect(dest);
+            tiles[tx - minTileX] = tile;
+        }
+
+        return tiles;
     }
 
-    protected void computeImageDefault(Raster source,
-                                       WritableRaster dest,
-                                       Rectangle destRect) {
+    /**
+     * Restarts the diffusion at the top of the image.
+     */
+    private void resetDiffusion() {
+        nextLine = minY;
+        bufMem = null;
+        bufIdx = null;
+        errBuf = null;
+        rowTiles = null;
+    }
+
+    /**
+     * Releases the state of the diffusion and calls
+     * <code>super.dispose()</code>.
+     */
+    public synchronized void dispose() {
+        resetDiffusion();
+        super.dispose();
+    }
+
+    /**
+     * Diffuses the lines of <code>destRect</code>, which must start at
+     * <code>nextLine</code> and span the width of the image, in the
+     * general case.  <code>source</code> must also contain the lines
+     * loaded ahead into the rolling buffer.
+     */
+    private void diffuseDefault(Raster source,
+                                WritableRaster dest,
+                                Rectangle destRect) {
         // Set X-coordinate range.
         int startX = minX;
         int endX = startX + width - 1;
 
         // Set Y-coordinate range.
-        int startY = minY;
-        int endY = startY + height - 1;
-
-        // Set the number of lines in the calculation buffer.
-        int numLinesBuffer =
-            errorKernel.getHeight() - errorKernel.getYOrigin();
-
-        // Allocate memory for the calculation buffer.
-        float[][] bufMem = new float[numLinesBuffer][width*numBandsSource];
-
-        // Allocate memory for the buffer index array.
-        int[] bufIdx = new int[numLinesBuffer];
-
-        // Initialize the buffer index array and the rolling buffer.
-        for(int idx = 0; idx < numLinesBuffer; idx++) {
-            bufIdx[idx] = idx;
-            source.getPixels(startX, startY + idx, width, 1, bufMem[idx]);
+        int startY = destRect.y;
+        int endY = startY + destRect.height - 1;
+
+        if (bufMem == null) {
+            // Allocate memory for the calculation buffer.
+            bufMem = new float[numLinesBuffer][width*numBandsSource];
+
+            // Allocate memory for the buffer index array.
+            bufIdx = new int[numLinesBuffer];
+
+            // Initialize the buffer index array and the rolling buffer.
+            for(int idx = 0; idx < numLinesBuffer; idx++) {
+                bufIdx[idx] = idx;
+                if (startY + idx < getMaxY()) {
+                    source.getPixels(startX, startY + idx, width, 1,
+                                     bufMem[idx]);
+                }
+            }
         }
 
         // Set variable to indicate index of last rolling buffer line.
@@ -611,34 +792,36 @@ final class ErrorDiffusionOpImage extends UntiledOpImage {
         }
     }
 
-    protected void computeImageOptimized(Raster source,
-                                         WritableRaster dest,
-                                         Rectangle destRect) {
+    /**
+     * Diffuses the lines of <code>destRect</code>, which must start at
+     * <code>nextLine</code> and span the width of the image, in the
+     * optimized case.
+     */
+    private void diffuseOptimized(Raster source,
+                                  WritableRaster dest,
+                                  Rectangle destRect) {
         // Set X-coordinate range.
         int startX = minX;
         int endX = startX + width - 1;
 
         // Set Y-coordinate range.
-        int startY = minY;
-        int endY = startY + height - 1;
-
-        // Initialize the dither table.
-        int[] ditherTable = initFloydSteinberg24To8((ColorCube)colorMap);
+        int startY = destRect.y;
+        int endY = startY + destRect.height - 1;
 
         // Initialize the padded source width.
-        int sourceWidthPadded = source.getWidth() + 2;
+        int sourceWidthPadded = width + 2;
 
         // Allocate memory for the error buffer.
-        int[] errBuf = new int[sourceWidthPadded*NBANDS];
+        if (this.errBuf == null) {
+            this.errBuf = new int[sourceWidthPadded*NBANDS];
+        }
+        int[] errBuf = this.errBuf;
 
         // Retrieve format tags.
         RasterFormatTag[] formatTags = getFormatTags();
 
         RasterAccessor srcAccessor =
-            new RasterAccessor(source,
-                               new Rectangle(startX, startY,
-                                             source.getWidth(),
-                                             source.getHeight()),
+            new RasterAccessor(source, destRect,
                                formatTags[0], getSourceImage(0).getColorModel());
         RasterAccessor dstAccessor =
             new RasterAccessor(dest, destRect, formatTags[1], getColorModel());
@@ -55,11 +55,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
     protected int numMaxLocations = 0;
 
-    private boolean isInitialized = false;
+    /**
+     * The extrema of each statistics object when locations are not
+     * saved, so that parts of the image may be accumulated concurrently
+     * and merged.
+     */
+    private Hashtable partialExtrema = new Hashtable();
 
-    private PixelAccessor srcPA;
+    private final PixelAccessor srcPA;
 
-    private int srcSampleType;
+    private final int srcSampleType;
 
     private final boolean tileIntersectsROI(int tileX, int tileY) {
         if (roi == null) {	// ROI is entire tile
@@ -88,6 +93,10 @@ public class ExtremaOpImage extends StatisticsOpImage {
         extrema = null;
         this.saveLocations = saveLocations;
         this.maxRuns = maxRuns;
+
+        srcPA = new PixelAccessor(getSourceImage(0));
+        srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
+            DataBuffer.TYPE_BYTE : srcPA.sampleType;
     }
 
     /** Returns one of the available statistics as a property. */
@@ -97,7 +106,22 @@ public class ExtremaOpImage extends StatisticsOpImage {
         if (extrema == null) {
             // Statistics have not been accumulated: call superclass
             // method to do so.
-            return super.getProperty(name);
+            Object stats = super.getProperty(name);
+
+            // Keep the extrema accumulated without locations so that the
+            // other statistics are derived from them.
+            if (!saveLocations && stats != null) {
+                synchronized (this) {
+                    double[][] ext;
+                    synchronized (partialExtrema) {
+                        ext = (double[][])partialExtrema.remove(stats);
+                    }
+                    if (ext != null && extrema == null) {
+                        extrema = ext;
+                    }
+                }
+            }
+            return stats;
         } else if (name.equalsIgnoreCase("extrema")) {
             double[][] stats = new double[2][numBands];
             for (int i = 0; i < numBands; i++) {
@@ -158,13 +182,6 @@ public class ExtremaOpImage extends StatisticsOpImage {
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
-        if(!isInitialized) {
-            srcPA = new PixelAccessor(getSourceImage(0));
-            srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
-                DataBuffer.TYPE_BYTE : srcPA.sampleType;
-            isInitialized = true;
-        }
-
         Rectangle srcBounds = getSourceImage(0).getBounds().intersection(
                                                   source.getBounds());
 
@@ -198,47 +215,72 @@ public class ExtremaOpImage extends StatisticsOpImage {
                 continue;	// no pixel to count in this rectangle
             }
 
-            initializeState(source);
+            double[][] ext;
+            if (saveLocations) {
+                initializeState(source);
+                ext = extrema;
+            } else {
+                ext = getExtrema(stats, source, rect);
+            }
 
             UnpackedImageData uid = srcPA.getPixels(source, rect,
                                                     srcSampleType, false);
             switch (uid.type) {
             case DataBuffer.TYPE_BYTE:
-                accumulateStatisticsByte(uid);
+                accumulateStatisticsByte(uid, ext);
                 break;
             case DataBuffer.TYPE_USHORT:
-                accumulateStatisticsUShort(uid);
+                accumulateStatisticsUShort(uid, ext);
                 break;
             case DataBuffer.TYPE_SHORT:
-                accumulateStatisticsShort(uid);
+                accumulateStatisticsShort(uid, ext);
                 break;
             case DataBuffer.TYPE_INT:
-                accumulateStatisticsInt(uid);
+                accumulateStatisticsInt(uid, ext);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                accumulateStatisticsFloat(uid);
+                accumulateStatisticsFloat(uid, ext);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                accumulateStatisticsDouble(uid);
+                accumulateStatisticsDouble(uid, ext);
                 break;
             }
         }
 
+        // Without locations this may run on several threads at once, so
+        // only the extrema of the statistics object are used.
+        double[][] ext;
+        if (!saveLocations) {
+            synchronized (partialExtrema) {
+                ext = (double[][])partialExtrema.get(stats);
+            }
+        } else {
+            ext = extrema;
+        }
+        if (ext == null) {
+            return;	// no pixel has been counted
+        }
+
+        setStatistics(name, stats, ext);
+    }
+
+    /** Copies the extrema or their locations into a statistics object. */
+    private void setStatistics(String name, Object stats, double[][] ext) {
         if (name.equalsIgnoreCase("extrema")) {
-            double[][] ext = (double[][])stats;
+            double[][] extStats = (double[][])stats;
             for (int i = 0; i < srcPA.numBands; i++) {
-                ext[0][i] = extrema[0][i];
-                ext[1][i] = extrema[1][i];
+                extStats[0][i] = ext[0][i];
+                extStats[1][i] = ext[1][i];
             }
         } else if (name.equalsIgnoreCase("minimum")) {
             double[] min = (double[])stats;
             for (int i = 0; i < srcPA.numBands; i++) {
-                min[i] = extrema[0][i];
+                min[i] = ext[0][i];
             }
         } else if (name.equalsIgnoreCase("maximum")) {
             double[] max = (double[])stats;
             for (int i = 0; i < srcPA.numBands; i++) {
-                max[i] = extrema[1][i];
+                max[i] = ext[1][i];
             }
         } else if (name.equalsIgnoreCase("minLocations")) {
 	    ArrayList[] minLoc = (ArrayList[])stats;
@@ -252,7 +294,72 @@ public class ExtremaOpImage extends StatisticsOpImage {
 	}
     }
 
-    private void accumulateStatisticsByte(UnpackedImageData uid) {
+    /**
+     * Returns the extrema of a statistics object, initializing them with
+     * the first pixel of <code>rect</code> if none has been counted.
+     */
+    private double[][] getExtrema(Object stats, Raster source,
+                                  Rectangle rect) {
+        synchronized (partialExtrema) {
+            double[][] ext = (double[][])partialExtrema.get(stats);
+            if (ext == null) {
+                int numBands = sampleModel.getNumBands();
+                ext = new double[2][numBands];
+                source.getPixel(rect.x, rect.y, ext[0]);
+                for (int i = 0; i < numBands; i++) {
+                    ext[1][i] = ext[0][i];
+                }
+                partialExtrema.put(stats, ext);
+            }
+            return ext;
+        }
+    }
+
+    /**
+     * Extrema over disjoint regions are merged by comparison unless
+     * their locations are saved, as the runs would then depend on the
+     * order in which the regions are visited.
+     */
+    protected boolean isMergeable(String name) {
+        return !saveLocations &&
+            (name.equalsIgnoreCase("extrema") ||
+             name.equalsIgnoreCase("minimum") ||
+             name.equalsIgnoreCase("maximum"));
+    }
+
+    protected void mergeStatistics(String name,
+                                   Object stats,
+                                   Object partialStats) {
+        double[][] ext;
+        synchronized (partialExtrema) {
+            double[][] partial =
+                (double[][])partialExtrema.remove(partialStats);
+            ext = (double[][])partialExtrema.get(stats);
+
+            if (partial == null) {
+                if (ext == null) {
+                    return;	// no pixel has been counted
+                }
+            } else if (ext == null) {
+                ext = partial;
+                partialExtrema.put(stats, ext);
+            } else {
+                for (int i = 0; i < ext[0].length; i++) {
+                    if (partial[0][i] < ext[0][i]) {
+                        ext[0][i] = partial[0][i];
+                    }
+                    if (partial[1][i] > ext[1][i]) {
+                        ext[1][i] = partial[1][i];
+                    }
+                }
+            }
+        }
+
+        setStatistics(name, stats, ext);
+    }
+
+    private void accumulateStatisticsByte(UnpackedImageData uid,
+                                          double[][] ext) {
         Rectangle rect = uid.rect;
         byte[][] data = uid.getByteData();
         int lineStride = uid.lineStride;
@@ -263,8 +370,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
 
                 byte[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -282,13 +389,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];	// minimum
-                int max = (int)extrema[1][b];	// maximum
+                int min = (int)ext[0][b];	// minimum
+                int max = (int)ext[1][b];	// maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -357,15 +464,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
         }
     }
 
-    private void accumulateStatisticsUShort(UnpackedImageData uid) {
+    private void accumulateStatisticsUShort(UnpackedImageData uid,
+                                            double[][] ext) {
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -376,8 +484,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
 
                 short[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -395,13 +503,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -470,15 +578,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
         }
     }
 
-    private void accumulateStatisticsShort(UnpackedImageData uid) {
+    private void accumulateStatisticsShort(UnpackedImageData uid,
+                                           double[][] ext) {
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -489,8 +598,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
 
                 short[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -508,13 +617,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -583,15 +692,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
         }
     }
 
-    private void accumulateStatisticsInt(UnpackedImageData uid) {
+    private void accumulateStatisticsInt(UnpackedImageData uid,
+                                         double[][] ext) {
         Rectangle rect = uid.rect;
         int[][] data = uid.getIntData();
         int lineStride = uid.lineStride;
@@ -602,8 +712,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
 
                 int[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -621,13 +731,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                int min = (int)extrema[0][b];       // minimum
-                int max = (int)extrema[1][b];       // maximum
+                int min = (int)ext[0][b];       // minimum
+                int max = (int)ext[1][b];       // maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -696,15 +806,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
         }
     }
 
-    private void accumulateStatisticsFloat(UnpackedImageData uid) {
+    private void accumulateStatisticsFloat(UnpackedImageData uid,
+                                           double[][] ext) {
         Rectangle rect = uid.rect;
         float[][] data = uid.getFloatData();
         int lineStride = uid.lineStride;
@@ -715,8 +826,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                float min = (float)extrema[0][b];       // minimum
-                float max = (float)extrema[1][b];       // maximum
+                float min = (float)ext[0][b];       // minimum
+                float max = (float)ext[1][b];       // maximum
 
                 float[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -734,13 +845,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                float min = (float)extrema[0][b];       // minimum
-                float max = (float)extrema[1][b];       // maximum
+                float min = (float)ext[0][b];       // minimum
+                float max = (float)ext[1][b];       // maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -809,15 +920,16 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
         }
     }
 
-    private void accumulateStatisticsDouble(UnpackedImageData uid) {
+    private void accumulateStatisticsDouble(UnpackedImageData uid,
+                                            double[][] ext) {
         Rectangle rect = uid.rect;
         double[][] data = uid.getDoubleData();
         int lineStride = uid.lineStride;
@@ -828,8 +940,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
 
         if (!saveLocations) {
             for (int b = 0; b < srcPA.numBands; b++) {
-                double min = extrema[0][b];       // minimum
-                double max = extrema[1][b];       // maximum
+                double min = ext[0][b];       // minimum
+                double max = ext[1][b];       // maximum
 
                 double[] d = data[b];
                 int lastLine = uid.bandOffsets[b] + rect.height * lineStride;
@@ -847,13 +959,13 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         }
                     }
                 }
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
             }
         } else {
             for (int b = 0; b < srcPA.numBands; b++) {
-                double min = extrema[0][b];       // minimum
-                double max = extrema[1][b];       // maximum
+                double min = ext[0][b];       // minimum
+                double max = ext[1][b];       // maximum
                 ArrayList minList = minLocations[b];
                 ArrayList maxList = maxLocations[b];
                 int minCount = minCounts[b];
@@ -922,8 +1034,8 @@ public class ExtremaOpImage extends StatisticsOpImage {
                     }
                 }
 
-                extrema[0][b] = min;
-                extrema[1][b] = max;
+                ext[0][b] = min;
+                ext[1][b] = max;
                 minCounts[b] = minCount;
                 maxCounts[b] = maxCount;
             }
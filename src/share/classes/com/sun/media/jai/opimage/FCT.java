@@ -20,7 +20,7 @@ import com.sun.media.jai.util.MathJAI;
  *
  * @since EA3
  */
-public class FCT {
+public class FCT implements Cloneable {
     /*
      * Flag indicating whether the transform is forward (true)
      * or inverse (false).
@@ -36,7 +36,7 @@ public class FCT {
     /**
      * Construct a new FCT object.
      *
-     * @param length The length of the FCT; must be a positive power of 2.
+     * @param length The length of the FCT; must be positive.
      */
     public FCT(boolean isForwardTransform, int length) {
         // Cache the directional flag.
@@ -51,7 +51,7 @@ public class FCT {
     /**
      * Initialize the length-dependent fields.
      *
-     * @param length The length of the FCT; must be a positive power of 2.
+     * @param length The length of the FCT; must be positive.
      */
     public void setLength(int length) {
         fft.setLength(length);
@@ -103,4 +103,23 @@ public class FCT {
     public void transform() {
         fft.transform();
     }
+
+    /**
+     * Returns a copy of this object having its own work arrays, so that
+     * the copy and this object may be used in different threads.
+     *
+     * @since JAI 1.1.4
+     */
+    public Object clone() {
+        try {
+            FCT fct = (FCT)super.clone();
+            if(fft != null) {
+                fct.fft = (FFT)fft.clone();
+            }
+            return fct;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
 }
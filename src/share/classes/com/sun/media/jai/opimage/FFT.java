@@ -21,9 +21,16 @@ import com.sun.media.jai.util.MathJAI;
 /**
  * The Fast Fourier Transform (FFT) class.
  *
+ * <p> Sequences whose length is a positive power of 2 are transformed by
+ * a radix-2 algorithm and those whose length has no prime factor other
+ * than 2, 3 and 5 by a mixed-radix algorithm using radices 2, 3, 4 and 5.
+ * Sequences of any other length are transformed by Bluestein's algorithm,
+ * which expresses the transform as a convolution calculated by radix-2
+ * transforms.
+ *
  * @since EA3
  */
-public class FFT {
+public class FFT implements Cloneable {
     /**
      * A flag indicating that the transform is not to be scaled.
      */
@@ -83,12 +90,50 @@ public class FFT {
     /** Work array for imaginary part. */
     protected double[] imag;
 
+    /** Whether the length is a positive power of 2. */
+    private boolean isPowerOf2;
+
+    /**
+     * The factors of the length for the mixed-radix algorithm as pairs
+     * of a radix and the length remaining after it, or <code>null</code>
+     * if the length is not a product of 2, 3 and 5 only.
+     */
+    private int[] factors;
+
+    /** Lookup table of the cosines of the mixed-radix algorithm. */
+    private double[] twr;
+
+    /** Lookup table of the sines of the mixed-radix algorithm. */
+    private double[] twi;
+
+    /** Lookup table of the cosines of Bluestein's chirp. */
+    private double[] chirpReal;
+
+    /** Lookup table of the sines of Bluestein's chirp. */
+    private double[] chirpImag;
+
+    /** Real part of the transform of Bluestein's convolution kernel. */
+    private double[] kernelReal;
+
+    /** Imaginary part of the transform of Bluestein's convolution kernel. */
+    private double[] kernelImag;
+
+    /** The radix-2 transforms of Bluestein's convolution. */
+    private FFT convolutionFFT;
+    private FFT convolutionIFFT;
+
+    /** Work array for real part of the mixed-radix and Bluestein cases. */
+    private double[] workReal;
+
+    /** Work array for imaginary part of the mixed-radix and Bluestein cases. */
+    private double[] workImag;
+
     /**
      * Construct a new FFT object.
      *
      * @param negatedExponent Whether the exponent is negated.
      * @param scaleType The type of scaling to be applied.
-     * @param length The length of the FFT; must be a positive power of 2.
+     * @param length The length of the FFT; must be positive.
      */
     public FFT(boolean negatedExponent, Integer scaleType, int length) {
         // Set the exponential sign.
@@ -104,7 +149,7 @@ public class FFT {
     /**
      * Initialize the length-dependent fields.
      *
-     * @param length The length of the FFT; must be a positive power of 2.
+     * @param length The length of the FFT; must be positive.
      */
     public void setLength(int length) {
         // Check whether it's necessary to continue.
@@ -112,8 +157,8 @@ public class FFT {
             return;
         }
 
-        // Ensure that the length is a positive power of two.
-        if(!MathJAI.isPositivePowerOf2(length)) {
+        // Ensure that the length is positive.
+        if(length < 1) {
             throw new RuntimeException(JaiI18N.getString("FFT0"));
         }
 
@@ -141,11 +186,33 @@ public class FFT {
             power <<= 1;
         }
 
-        // Initialize the bit-reversal LUT.
-        initBitReversalLUT();
+        isPowerOf2 = length == 1 || MathJAI.isPositivePowerOf2(length);
+        factors = null;
+        twr = twi = null;
+        chirpReal = chirpImag = null;
+        kernelReal = kernelImag = null;
+        convolutionFFT = convolutionIFFT = null;
 
-        // Calculate lookup tables of the W values.
-        calculateCoefficientLUTs();
+        if(isPowerOf2) {
+            // Initialize the bit-reversal LUT.
+            initBitReversalLUT();
+
+            // Calculate lookup tables of the W values.
+            calculateCoefficientLUTs();
+        } else {
+            // The data remain in natural order.
+            index = new int[length];
+            for(int i = 0; i < length; i++) {
+                index[i] = i;
+            }
+
+            factors = factorLength(length);
+            if(factors != null) {
+                calculateMixedRadixLUTs();
+            } else {
+                initBluestein();
+            }
+        }
 
         // Allocate work buffer memory.
         if(!lengthIsSet || length > real.length) {
@@ -197,6 +264,96 @@ public class FFT {
         }
     }
 
+    /**
+     * Factors a length into radices 4, 2, 3 and 5, in this order, for
+     * the mixed-radix algorithm.
+     *
+     * @return Pairs of a radix and the length remaining after it, or
+     * <code>null</code> if the length has another prime factor.
+     */
+    private static int[] factorLength(int n) {
+        int[] f = new int[64];
+        int count = 0;
+
+        int[] radices = new int[] {4, 2, 3, 5};
+        for(int r = 0; r < radices.length; r++) {
+            int p = radices[r];
+            while(n % p == 0 && n > 1) {
+                n /= p;
+                f[count++] = p;
+                f[count++] = n;
+            }
+        }
+
+        if(n != 1) {
+            return null;
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(f, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Calculate the sine and cosine lookup tables of the mixed-radix
+     * algorithm.
+     */
+    private void calculateMixedRadixLUTs() {
+        twr = new double[length];
+        twi = new double[length];
+
+        double cons = exponentSign*2.0*Math.PI/length;
+        for(int i = 0; i < length; i++) {
+            twr[i] = Math.cos(cons*i);
+            twi[i] = Math.sin(cons*i);
+        }
+
+        workReal = new double[length];
+        workImag = new double[length];
+    }
+
+    /**
+     * Initialize the chirp, the transformed convolution kernel and the
+     * radix-2 transforms of Bluestein's algorithm.
+     */
+    private void initBluestein() {
+        int n = length;
+        int m = MathJAI.nextPositivePowerOf2(2*n - 1);
+
+        // The chirp exp(i*sign*pi*k*k/n), with k*k reduced modulo 2*n.
+        chirpReal = new double[n];
+        chirpImag = new double[n];
+        long twiceN = 2L*n;
+        for(int k = 0; k < n; k++) {
+            double angle =
+                exponentSign*Math.PI*(((long)k*k) % twiceN)/n;
+            chirpReal[k] = Math.cos(angle);
+            chirpImag[k] = Math.sin(angle);
+        }
+
+        Integer none = new Integer(SCALING_NONE);
+        convolutionFFT = new FFT(true, none, m);
+        convolutionIFFT = new FFT(false, none, m);
+
+        // The kernel is the conjugate chirp, wrapped around.
+        workReal = new double[m];
+        workImag = new double[m];
+        workReal[0] = chirpReal[0];
+        workImag[0] = -chirpImag[0];
+        for(int k = 1; k < n; k++) {
+            workReal[k] = workReal[m - k] = chirpReal[k];
+            workImag[k] = workImag[m - k] = -chirpImag[k];
+        }
+
+        kernelReal = new double[m];
+        kernelImag = new double[m];
+        convolutionFFT.setData(DataBuffer.TYPE_DOUBLE,
+                               workReal, 0, 1, workImag, 0, 1, m);
+        convolutionFFT.transform();
+        convolutionFFT.getData(DataBuffer.TYPE_DOUBLE,
+                               kernelReal, 0, 1, kernelImag, 0, 1);
+    }
+
     /**
      * Calculate the FCT sine and cosine lookup tables.
      */
@@ -440,6 +597,9 @@ public class FFT {
                     real[i] = imag[j++];
                     real[k--] = imag[j++];
                 }
+                if(j < length) { // Odd length.
+                    real[k] = imag[j];
+                }
             }
         break;
         case DataBuffer.TYPE_DOUBLE:
@@ -458,6 +618,9 @@ public class FFT {
                     real[i] = imag[j++];
                     real[k--] = imag[j++];
                 }
+                if(j < length) { // Odd length.
+                    real[k] = imag[j];
+                }
             }
         break;
         default:
@@ -608,6 +771,9 @@ public class FFT {
                     realFloat[offset] = (float)real[index[k--]];
                     offset += stride;
                 }
+                if(length % 2 != 0) { // Odd length.
+                    realFloat[offset] = (float)real[index[k]];
+                }
             }
         break;
         case DataBuffer.TYPE_DOUBLE:
@@ -620,6 +786,9 @@ public class FFT {
                     realDouble[offset] = (float)real[index[k--]];
                     offset += stride;
                 }
+                if(length % 2 != 0) { // Odd length.
+                    realDouble[offset] = (float)real[index[k]];
+                }
             }
         break;
         default:
@@ -636,8 +805,6 @@ public class FFT {
      * Calculate the DFT of a complex sequence using the FFT algorithm.
      */
     public void transform() {
-        int i, k, j, l; // Index variables
-
         Integer i18n = new Integer(length);
         NumberFormat numberFormatter = NumberFormat.getNumberInstance(Locale.getDefault());
 	    
@@ -645,6 +812,29 @@ public class FFT {
             throw new RuntimeException(numberFormatter.format(i18n) + JaiI18N.getString("FFT3"));
         }
 
+        if(isPowerOf2) {
+            transformRadix2();
+        } else if(factors != null) {
+            transformMixedRadix();
+        } else {
+            transformBluestein();
+        }
+
+        if(scaleFactor != 1.0) { // multiply by non-unity scale factor
+            for(int i = 0; i < length; ++i) {
+                real[i] = real[i]*scaleFactor;
+                imag[i] = imag[i]*scaleFactor;
+            }
+        }
+    }
+
+    /**
+     * Calculate the DFT of a sequence whose length is a power of 2 in
+     * place, leaving the result in bit-reversed order.
+     */
+    private void transformRadix2() {
+        int i, k, j, l; // Index variables
+
         int inode = 1;
         int ipair;
         for(l = 0; l < nbits; ++l) {
@@ -669,12 +859,312 @@ public class FFT {
             }
             inode = inode * 2; // new nodal dist
         }
+    }
 
-        if(scaleFactor != 1.0) { // multiply by non-unity scale factor
-            for(i = 0; i < length; ++i) {
-                real[i] = real[i]*scaleFactor;
-                imag[i] = imag[i]*scaleFactor;
+    /**
+     * Calculate the DFT of a sequence whose length is a product of 2, 3
+     * and 5 by the mixed-radix algorithm.
+     */
+    private void transformMixedRadix() {
+        mixedRadix(real, imag, 0, 1, workReal, workImag, 0, 0);
+
+        // Swap the arrays so that real and imag hold the result.
+        double[] tmp = real;
+        real = workReal;
+        workReal = tmp;
+        tmp = imag;
+        imag = workImag;
+        workImag = tmp;
+    }
+
+    /**
+     * Calculate by decimation in time the DFT of the elements of the input
+     * starting at <code>inOffset</code> with stride <code>inStride</code>
+     * into consecutive elements of the output starting at
+     * <code>outOffset</code>.
+     *
+     * @param factor The index in <code>factors</code> of the radix of
+     * this stage.
+     */
+    private void mixedRadix(double[] inReal, double[] inImag,
+                            int inOffset, int inStride,
+                            double[] outReal, double[] outImag,
+                            int outOffset, int factor) {
+        int p = factors[factor];
+        int m = factors[factor + 1];
+
+        if(m == 1) {
+            for(int k = 0; k < p; k++) {
+                outReal[outOffset + k] = inReal[inOffset];
+                outImag[outOffset + k] = inImag[inOffset];
+                inOffset += inStride;
+            }
+        } else {
+            for(int k = 0; k < p; k++) {
+                mixedRadix(inReal, inImag, inOffset, inStride*p,
+                           outReal, outImag, outOffset + k*m, factor + 2);
+                inOffset += inStride;
+            }
+        }
+
+        // The stride through the twiddle factors at this stage.
+        int twStride = length/(p*m);
+
+        switch(p) {
+        case 2:
+            butterfly2(outReal, outImag, outOffset, twStride, m);
+            break;
+        case 3:
+            butterfly3(outReal, outImag, outOffset, twStride, m);
+            break;
+        case 4:
+            butterfly4(outReal, outImag, outOffset, twStride, m);
+            break;
+        default:
+            butterfly5(outReal, outImag, outOffset, twStride, m);
+            break;
+        }
+    }
+
+    /**
+     * Radix-2 butterflies of the mixed-radix algorithm.
+     */
+    private void butterfly2(double[] re, double[] im, int offset,
+                            int twStride, int m) {
+        for(int k = 0, tw = 0; k < m; k++, tw += twStride) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            double tr = re[i1]*twr[tw] - im[i1]*twi[tw];
+            double ti = re[i1]*twi[tw] + im[i1]*twr[tw];
+            re[i1] = re[i0] - tr;
+            im[i1] = im[i0] - ti;
+            re[i0] += tr;
+            im[i0] += ti;
+        }
+    }
+
+    /**
+     * Radix-3 butterflies of the mixed-radix algorithm.
+     */
+    private void butterfly3(double[] re, double[] im, int offset,
+                            int twStride, int m) {
+        // The sine of sign*2*pi/3.
+        double epi3 = twi[twStride*m];
+
+        for(int k = 0, tw1 = 0, tw2 = 0; k < m;
+            k++, tw1 += twStride, tw2 += 2*twStride) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+
+            double s1r = re[i1]*twr[tw1] - im[i1]*twi[tw1];
+            double s1i = re[i1]*twi[tw1] + im[i1]*twr[tw1];
+            double s2r = re[i2]*twr[tw2] - im[i2]*twi[tw2];
+            double s2i = re[i2]*twi[tw2] + im[i2]*twr[tw2];
+
+            double s3r = s1r + s2r;
+            double s3i = s1i + s2i;
+            double s0r = (s1r - s2r)*epi3;
+            double s0i = (s1i - s2i)*epi3;
+
+            double r1 = re[i0] - 0.5*s3r;
+            double j1 = im[i0] - 0.5*s3i;
+
+            re[i0] += s3r;
+            im[i0] += s3i;
+            re[i1] = r1 - s0i;
+            im[i1] = j1 + s0r;
+            re[i2] = r1 + s0i;
+            im[i2] = j1 - s0r;
+        }
+    }
+
+    /**
+     * Radix-4 butterflies of the mixed-radix algorithm.
+     */
+    private void butterfly4(double[] re, double[] im, int offset,
+                            int twStride, int m) {
+        boolean inverse = exponentSign > 0;
+
+        for(int k = 0, tw1 = 0, tw2 = 0, tw3 = 0; k < m;
+            k++, tw1 += twStride, tw2 += 2*twStride, tw3 += 3*twStride) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+            int i3 = i2 + m;
+
+            double s0r = re[i1]*twr[tw1] - im[i1]*twi[tw1];
+            double s0i = re[i1]*twi[tw1] + im[i1]*twr[tw1];
+            double s1r = re[i2]*twr[tw2] - im[i2]*twi[tw2];
+            double s1i = re[i2]*twi[tw2] + im[i2]*twr[tw2];
+            double s2r = re[i3]*twr[tw3] - im[i3]*twi[tw3];
+            double s2i = re[i3]*twi[tw3] + im[i3]*twr[tw3];
+
+            double s5r = re[i0] - s1r;
+            double s5i = im[i0] - s1i;
+            double r0 = re[i0] + s1r;
+            double j0 = im[i0] + s1i;
+            double s3r = s0r + s2r;
+            double s3i = s0i + s2i;
+            double s4r = s0r - s2r;
+            double s4i = s0i - s2i;
+
+            re[i0] = r0 + s3r;
+            im[i0] = j0 + s3i;
+            re[i2] = r0 - s3r;
+            im[i2] = j0 - s3i;
+            if(inverse) {
+                re[i1] = s5r - s4i;
+                im[i1] = s5i + s4r;
+                re[i3] = s5r + s4i;
+                im[i3] = s5i - s4r;
+            } else {
+                re[i1] = s5r + s4i;
+                im[i1] = s5i - s4r;
+                re[i3] = s5r - s4i;
+                im[i3] = s5i + s4r;
+            }
+        }
+    }
+
+    /**
+     * Radix-5 butterflies of the mixed-radix algorithm.
+     */
+    private void butterfly5(double[] re, double[] im, int offset,
+                            int twStride, int m) {
+        // exp(i*sign*2*pi/5) and exp(i*sign*4*pi/5).
+        double yar = twr[twStride*m];
+        double yai = twi[twStride*m];
+        double ybr = twr[2*twStride*m];
+        double ybi = twi[2*twStride*m];
+
+        for(int k = 0; k < m; k++) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+            int i3 = i2 + m;
+            int i4 = i3 + m;
+            int tw1 = k*twStride;
+            int tw2 = 2*tw1;
+            int tw3 = 3*tw1;
+            int tw4 = 4*tw1;
+
+            double s0r = re[i0];
+            double s0i = im[i0];
+            double s1r = re[i1]*twr[tw1] - im[i1]*twi[tw1];
+            double s1i = re[i1]*twi[tw1] + im[i1]*twr[tw1];
+            double s2r = re[i2]*twr[tw2] - im[i2]*twi[tw2];
+            double s2i = re[i2]*twi[tw2] + im[i2]*twr[tw2];
+            double s3r = re[i3]*twr[tw3] - im[i3]*twi[tw3];
+            double s3i = re[i3]*twi[tw3] + im[i3]*twr[tw3];
+            double s4r = re[i4]*twr[tw4] - im[i4]*twi[tw4];
+            double s4i = re[i4]*twi[tw4] + im[i4]*twr[tw4];
+
+            double s7r = s1r + s4r;
+            double s7i = s1i + s4i;
+            double s10r = s1r - s4r;
+            double s10i = s1i - s4i;
+            double s8r = s2r + s3r;
+            double s8i = s2i + s3i;
+            double s9r = s2r - s3r;
+            double s9i = s2i - s3i;
+
+            re[i0] = s0r + s7r + s8r;
+            im[i0] = s0i + s7i + s8i;
+
+            double s5r = s0r + s7r*yar + s8r*ybr;
+            double s5i = s0i + s7i*yar + s8i*ybr;
+            double s6r = s10i*yai + s9i*ybi;
+            double s6i = -s10r*yai - s9r*ybi;
+
+            re[i1] = s5r - s6r;
+            im[i1] = s5i - s6i;
+            re[i4] = s5r + s6r;
+            im[i4] = s5i + s6i;
+
+            double s11r = s0r + s7r*ybr + s8r*yar;
+            double s11i = s0i + s7i*ybr + s8i*yar;
+            double s12r = -s10i*ybi + s9i*yai;
+            double s12i = s10r*ybi - s9r*yai;
+
+            re[i2] = s11r + s12r;
+            im[i2] = s11i + s12i;
+            re[i3] = s11r - s12r;
+            im[i3] = s11i - s12i;
+        }
+    }
+
+    /**
+     * Calculate the DFT of a sequence of any length by Bluestein's
+     * algorithm, as the convolution of the sequence multiplied by the
+     * chirp with the conjugate chirp.
+     */
+    private void transformBluestein() {
+        int m = kernelReal.length;
+
+        // Multiply by the chirp and pad with zeros.
+        for(int k = 0; k < length; k++) {
+            double r = real[k];
+            double i = imag[k];
+            workReal[k] = r*chirpReal[k] - i*chirpImag[k];
+            workImag[k] = r*chirpImag[k] + i*chirpReal[k];
+        }
+        Arrays.fill(workReal, length, m, 0.0);
+        Arrays.fill(workImag, length, m, 0.0);
+
+        // Convolve with the conjugate chirp.
+        convolutionFFT.setData(DataBuffer.TYPE_DOUBLE,
+                               workReal, 0, 1, workImag, 0, 1, m);
+        convolutionFFT.transform();
+        convolutionFFT.getData(DataBuffer.TYPE_DOUBLE,
+                               workReal, 0, 1, workImag, 0, 1);
+        for(int k = 0; k < m; k++) {
+            double r = workReal[k];
+            double i = workImag[k];
+            workReal[k] = r*kernelReal[k] - i*kernelImag[k];
+            workImag[k] = r*kernelImag[k] + i*kernelReal[k];
+        }
+        convolutionIFFT.setData(DataBuffer.TYPE_DOUBLE,
+                                workReal, 0, 1, workImag, 0, 1, m);
+        convolutionIFFT.transform();
+        convolutionIFFT.getData(DataBuffer.TYPE_DOUBLE,
+                                workReal, 0, 1, workImag, 0, 1);
+
+        // Multiply by the chirp, undoing the scaling of the convolution.
+        double scale = 1.0/m;
+        for(int k = 0; k < length; k++) {
+            double r = workReal[k]*scale;
+            double i = workImag[k]*scale;
+            real[k] = r*chirpReal[k] - i*chirpImag[k];
+            imag[k] = r*chirpImag[k] + i*chirpReal[k];
+        }
+    }
+
+    /**
+     * Returns a copy of this object having its own work arrays, so that
+     * the copy and this object may be used in different threads.
+     *
+     * @since JAI 1.1.4
+     */
+    public Object clone() {
+        try {
+            FFT fft = (FFT)super.clone();
+            if(real != null) {
+                fft.real = new double[real.length];
+                fft.imag = new double[imag.length];
+            }
+            if(workReal != null) {
+                fft.workReal = new double[workReal.length];
+                fft.workImag = new double[workImag.length];
+            }
+            if(convolutionFFT != null) {
+                fft.convolutionFFT = (FFT)convolutionFFT.clone();
+                fft.convolutionIFFT = (FFT)convolutionIFFT.clone();
             }
+            return fft;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
         }
     }
 }
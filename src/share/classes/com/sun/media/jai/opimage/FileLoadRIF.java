@@ -27,6 +27,7 @@ import javax.media.jai.registry.RIFRegistry;
 import javax.media.jai.util.ImagingListener;
 import com.sun.media.jai.codec.FileSeekableStream;
 import com.sun.media.jai.codec.ImageDecodeParam;
+import com.sun.media.jai.codec.MappedFileSeekableStream;
 import com.sun.media.jai.codec.SeekableStream;
 import com.sun.media.jai.util.ImageUtil;
 
@@ -91,6 +92,21 @@ class StreamImage extends RenderedImageAdapter {
  */
 public class FileLoadRIF implements RenderedImageFactory {
 
+    /**
+     * Whether local files are read through a memory mapping rather than
+     * a <code>FileSeekableStream</code>.  Set by the system property
+     * <code>com.sun.media.jai.mapFiles</code>.
+     */
+    private static boolean mapFiles = false;
+
+    static {
+        try {
+            mapFiles = Boolean.getBoolean("com.sun.media.jai.mapFiles");
+        } catch (java.security.AccessControlException e) {
+            // The property is not readable: use FileSeekableStream.
+        }
+    }
+
     /** Constructor. */
     public FileLoadRIF() {}
 
@@ -107,7 +123,9 @@ public class FileLoadRIF implements RenderedImageFactory {
 
 	    SeekableStream src = null;
 	    try {
-                src = new FileSeekableStream(fileName);
+                src = mapFiles ?
+                    (SeekableStream)new MappedFileSeekableStream(fileName) :
+                    (SeekableStream)new FileSeekableStream(fileName);
             } catch (FileNotFoundException fnfe) {
 		// Try to get the file as an InputStream resource. This would
 		// happen when the application and image file are packaged in
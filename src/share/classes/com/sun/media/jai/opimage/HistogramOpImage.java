@@ -105,4 +105,24 @@ final class HistogramOpImage extends StatisticsOpImage {
         Histogram histogram = (Histogram)stats;
         histogram.countPixels(source, roi, xStart, yStart, xPeriod, yPeriod);
     }
+
+    /** Histograms of disjoint regions are merged by adding their bins. */
+    protected boolean isMergeable(String name) {
+        return name.equalsIgnoreCase("histogram");
+    }
+
+    protected void mergeStatistics(String name,
+                                   Object stats,
+                                   Object partialStats) {
+        int[][] bins = ((Histogram)stats).getBins();
+        int[][] partialBins = ((Histogram)partialStats).getBins();
+
+        for (int b = 0; b < numBands; b++) {
+            int[] bin = bins[b];
+            int[] partialBin = partialBins[b];
+            for (int i = 0; i < bin.length; i++) {
+                bin[i] += partialBin[i];
+            }
+        }
+    }
 }
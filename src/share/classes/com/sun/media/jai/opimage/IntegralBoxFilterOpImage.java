@@ -0,0 +1,100 @@
+/*
+ * $RCSfile: IntegralBoxFilterOpImage.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import javax.media.jai.ImageLayout;
+
+/**
+ * An <code>OpImage</code> implementing the "BoxFilter" operation from an
+ * "IntegralImage" of its source, in constant time per pixel whatever the
+ * size of the box.
+ *
+ * <p> The destination pixel (x, y) is the mean of the source over
+ * [x - xKey, x - xKey + width) x [y - yKey, y - yKey + height).  The
+ * destination has the bounds of the source.  If the integral image is
+ * that of the source, the pixels whose box crosses the bounds of the
+ * source are zero as those of a "BoxFilter" with no
+ * <code>BorderExtender</code>; if it is that of the source extended by
+ * the size of the box, all the pixels are computed.
+ *
+ * @see javax.media.jai.operator.BoxFilterDescriptor
+ * @see BoxFilterRIF
+ */
+final class IntegralBoxFilterOpImage extends IntegralBoxOpImage {
+
+    /** The position of the key element of the box. */
+    private int xKey, yKey;
+
+    private static ImageLayout layoutHelper(ImageLayout layout,
+                                            RenderedImage source,
+                                            IntegralImageOpImage integral) {
+        ImageLayout il = layout == null ?
+            new ImageLayout() : (ImageLayout)layout.clone();
+
+        // The destination has the bounds of the source, as that of an
+        // AreaOpImage.
+        il.setMinX(source.getMinX());
+        il.setMinY(source.getMinY());
+        il.setWidth(source.getWidth());
+        il.setHeight(source.getHeight());
+
+        setSourceModels(il, source);
+
+        return il;
+    }
+
+    /**
+     * Constructs an <code>IntegralBoxFilterOpImage</code>.
+     *
+     * @param source The source image.
+     * @param integral The "IntegralImage" of the source, or of the source
+     *        extended by the size of the box.
+     * @param config Configurable attributes of the image.
+     * @param layout The destination image layout, which should give the
+     *        <code>SampleModel</code> and <code>ColorModel</code> of the
+     *        source.
+     */
+    public IntegralBoxFilterOpImage(RenderedImage source,
+                                    IntegralImageOpImage integral,
+                                    Map config,
+                                    ImageLayout layout,
+                                    int width, int height,
+                                    int xKey, int yKey) {
+        super(integral,
+              layoutHelper(layout, source, integral),
+              config,
+              width, height,
+              false, false);
+
+        this.xKey = xKey;
+        this.yKey = yKey;
+    }
+
+    protected int getBoxX(int x, int originX) {
+        return x - xKey;
+    }
+
+    protected int getBoxY(int y, int originY) {
+        return y - yKey;
+    }
+
+    protected void storeRow(WritableRaster dest,
+                            int x, int y, int width,
+                            double[][] sums,
+                            double[][] squares,
+                            int[] areas) {
+        storeMeans(dest, x, y, width, sums, areas, true);
+    }
+}
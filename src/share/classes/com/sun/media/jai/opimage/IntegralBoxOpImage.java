@@ -0,0 +1,328 @@
+/*
+ * $RCSfile: IntegralBoxOpImage.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import javax.media.jai.BorderExtender;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.OpImage;
+import com.sun.media.jai.util.ImageUtil;
+
+/**
+ * The base class of the operations which compute each destination pixel
+ * from the sums of the source samples over a box, read from an
+ * "IntegralImage" of the source in constant time whatever the size of
+ * the box.
+ *
+ * <p> The source of this image is the integral image.  The box of the
+ * destination pixel (x, y) of a rectangle computed from (originX,
+ * originY) is [getBoxX(x, originX), getBoxX(x, originX) + boxWidth) x
+ * [getBoxY(y, originY), getBoxY(y, originY) + boxHeight) in the
+ * coordinates of the original source.  Boxes which cross the bounds of the source are
+ * clipped to them if <code>clipBoxes</code> is set, and are otherwise
+ * empty, as are the boxes of the pixels which an
+ * <code>AreaOpImage</code> without a <code>BorderExtender</code> leaves
+ * unset.  The subclasses store the sums of each row of destination pixels
+ * with <code>storeRow()</code>.
+ *
+ * @see IntegralImageOpImage
+ */
+abstract class IntegralBoxOpImage extends OpImage {
+
+    /** The width of the boxes. */
+    protected int boxWidth;
+
+    /** The height of the boxes. */
+    protected int boxHeight;
+
+    /** The number of bands of the original source. */
+    protected int numSourceBands;
+
+    /** Whether the sums of the squares are read. */
+    protected boolean sumOfSquares;
+
+    /** Whether the boxes are clipped to the bounds of the source. */
+    protected boolean clipBoxes;
+
+    /**
+     * Constructs an <code>IntegralBoxOpImage</code>.
+     *
+     * @param integral The "IntegralImage" of the original source.
+     * @param layout The destination image layout.
+     * @param config Configurable attributes of the image.
+     * @param boxWidth The width of the boxes.
+     * @param boxHeight The height of the boxes.
+     * @param sumOfSquares Whether the sums of the squares are read.
+     * @param clipBoxes Whether the boxes are clipped to the bounds of the
+     *        source rather than left empty where they cross them.
+     */
+    public IntegralBoxOpImage(IntegralImageOpImage integral,
+                              ImageLayout layout,
+                              Map config,
+                              int boxWidth,
+                              int boxHeight,
+                              boolean sumOfSquares,
+                              boolean clipBoxes) {
+        super(vectorize(integral), layout, config, true);
+
+        this.boxWidth = boxWidth;
+        this.boxHeight = boxHeight;
+        this.sumOfSquares = sumOfSquares;
+        this.clipBoxes = clipBoxes;
+
+        numSourceBands = integral.getSampleModel().getNumBands();
+        if (integral.hasSumOfSquares()) {
+            numSourceBands /= 2;
+        }
+    }
+
+    /**
+     * Creates an integral image of a source for boxes of the given size
+     * and key element.  If <code>extender</code> is not <code>null</code>
+     * the source is first extended so that the boxes of all its pixels
+     * lie within the integral image.
+     */
+    static IntegralImageOpImage createIntegralImage(RenderedImage source,
+                                                    Map config,
+                                                    BorderExtender extender,
+                                                    int width, int height,
+                                                    int xKey, int yKey,
+                                                    boolean sumOfSquares) {
+        if (extender != null) {
+            source = new BorderOpImage(source, config, null,
+                                       xKey, width - xKey - 1,
+                                       yKey, height - yKey - 1,
+                                       extender);
+        }
+
+        return new IntegralImageOpImage(source, config, null, sumOfSquares);
+    }
+
+    /**
+     * Gives a layout the <code>SampleModel</code> and
+     * <code>ColorModel</code> of a source unless it sets them.
+     */
+    protected static void setSourceModels(ImageLayout il,
+                                          RenderedImage source) {
+        if (!il.isValid(ImageLayout.SAMPLE_MODEL_MASK)) {
+            il.setSampleModel(source.getSampleModel());
+        }
+        if (!il.isValid(ImageLayout.COLOR_MODEL_MASK) &&
+            source.getColorModel() != null) {
+            il.setColorModel(source.getColorModel());
+        }
+    }
+
+    /**
+     * Returns the first column of the box of a destination column of a
+     * rectangle whose first column is <code>originX</code>.
+     */
+    protected abstract int getBoxX(int x, int originX);
+
+    /**
+     * Returns the first row of the box of a destination row of a
+     * rectangle whose first row is <code>originY</code>.
+     */
+    protected abstract int getBoxY(int y, int originY);
+
+    /**
+     * Stores a row of destination pixels.
+     *
+     * @param dest The destination tile.
+     * @param x The first column of the row.
+     * @param y The row.
+     * @param width The number of pixels of the row.
+     * @param sums The sums of the samples over the boxes, by band.
+     * @param squares The sums of the squares of the samples over the
+     *        boxes, by band, or <code>null</code> if they are not read.
+     * @param areas The number of pixels of the boxes.
+     */
+    protected abstract void storeRow(WritableRaster dest,
+                                     int x, int y, int width,
+                                     double[][] sums,
+                                     double[][] squares,
+                                     int[] areas);
+
+    /**
+     * Returns the rectangle of the integral image holding the corners of
+     * the boxes of the destination pixels of <code>destRect</code>.
+     */
+    public Rectangle mapDestRect(Rectangle destRect, int sourceIndex) {
+        if (destRect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        int x1 = getBoxX(destRect.x, destRect.x);
+        int y1 = getBoxY(destRect.y, destRect.y);
+        int x2 = getBoxX(destRect.x + destRect.width - 1, destRect.x) +
+            boxWidth;
+        int y2 = getBoxY(destRect.y + destRect.height - 1, destRect.y) +
+            boxHeight;
+
+        return new Rectangle(x1, y1, x2 - x1 + 1, y2 - y1 + 1).intersection(
+            getSourceImage(0).getBounds());
+    }
+
+    /**
+     * Returns the bounds of the destination, as every destination pixel
+     * may depend upon any sum of the integral image.
+     */
+    public Rectangle mapSourceRect(Rectangle sourceRect, int sourceIndex) {
+        if (sourceRect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        return getBounds();
+    }
+
+    /**
+     * Computes the sums over the boxes of the destination pixels of a
+     * rectangle, row by row.  The sources are cobbled.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        Raster integral = sources[0];
+        Rectangle bounds = getSourceImage(0).getBounds();
+
+        // The corners of the boxes are clipped to the integral image,
+        // whose last row and column follow those of the source.
+        int minX = bounds.x;
+        int minY = bounds.y;
+        int maxX = bounds.x + bounds.width - 1;
+        int maxY = bounds.y + bounds.height - 1;
+
+        int width = destRect.width;
+        int[] x0 = new int[width];
+        int[] x1 = new int[width];
+        for (int i = 0; i < width; i++) {
+            int x = getBoxX(destRect.x + i, destRect.x);
+            x0[i] = clamp(x, minX, maxX);
+            x1[i] = clamp(x + boxWidth, minX, maxX);
+        }
+
+        Rectangle srcRect = mapDestRect(destRect, 0);
+        int numBands = numSourceBands;
+        double[] row0 = new double[srcRect.width];
+        double[] row1 = new double[srcRect.width];
+        double[][] sums = new double[numBands][width];
+        double[][] squares = sumOfSquares ? new double[numBands][width] : null;
+        int[] areas = new int[width];
+
+        for (int j = 0; j < destRect.height; j++) {
+            int y = destRect.y + j;
+            int by = getBoxY(y, destRect.y);
+            int y0 = clamp(by, minY, maxY);
+            int y1 = clamp(by + boxHeight, minY, maxY);
+
+            int fullArea = boxWidth*boxHeight;
+            for (int i = 0; i < width; i++) {
+                areas[i] = (x1[i] - x0[i])*(y1 - y0);
+                if (!clipBoxes && areas[i] != fullArea) {
+                    areas[i] = 0;
+                }
+            }
+
+            int numRead = sumOfSquares ? 2*numBands : numBands;
+            for (int b = 0; b < numRead; b++) {
+                integral.getSamples(srcRect.x, y0, srcRect.width, 1, b, row0);
+                integral.getSamples(srcRect.x, y1, srcRect.width, 1, b, row1);
+
+                double[] s = b < numBands ? sums[b] : squares[b - numBands];
+                for (int i = 0; i < width; i++) {
+                    int i0 = x0[i] - srcRect.x;
+                    int i1 = x1[i] - srcRect.x;
+                    s[i] = row1[i1] - row1[i0] - row0[i1] + row0[i0];
+                }
+            }
+
+            storeRow(dest, destRect.x, y, width, sums, squares, areas);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    private static int clampShort(int value) {
+        return clamp(value, Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    /**
+     * Stores the means of the boxes of a row in the bands of the
+     * destination, rounded and clamped to its data type.  The pixels of
+     * empty boxes are zero.
+     *
+     * @param truncate Whether signed means are rounded as
+     *        <code>(int)(mean + 0.5)</code>, as the convolutions do,
+     *        rather than to the nearest integer.
+     */
+    protected static void storeMeans(WritableRaster dest,
+                                     int x, int y, int width,
+                                     double[][] sums, int[] areas,
+                                     boolean truncate) {
+        int dataType = dest.getSampleModel().getDataType();
+        int numBands = sums.length;
+
+        if (dataType == DataBuffer.TYPE_FLOAT ||
+            dataType == DataBuffer.TYPE_DOUBLE) {
+            double[] means = new double[width];
+            for (int b = 0; b < numBands; b++) {
+                double[] s = sums[b];
+                for (int i = 0; i < width; i++) {
+                    means[i] = areas[i] > 0 ? s[i]/areas[i] : 0.0;
+                }
+                dest.setSamples(x, y, width, 1, b, means);
+            }
+            return;
+        }
+
+        int[] means = new int[width];
+        for (int b = 0; b < numBands; b++) {
+            double[] s = sums[b];
+            for (int i = 0; i < width; i++) {
+                double mean = areas[i] > 0 ? s[i]/areas[i] : 0.0;
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    means[i] = ImageUtil.clampRoundByte(mean) & 0xff;
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    means[i] = ImageUtil.clampRoundUShort(mean) & 0xffff;
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    means[i] = truncate ?
+                        clampShort((int)(mean + 0.5)) :
+                        ImageUtil.clampRoundShort(mean);
+                    break;
+                default:
+                    means[i] = truncate ?
+                        (int)(mean + 0.5) : ImageUtil.clampRoundInt(mean);
+                    break;
+                }
+            }
+            dest.setSamples(x, y, width, 1, b, means);
+        }
+    }
+}
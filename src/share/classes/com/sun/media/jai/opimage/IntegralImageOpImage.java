@@ -0,0 +1,359 @@
+/*
+ * $RCSfile: IntegralImageOpImage.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.RenderedOp;
+import com.sun.media.jai.util.JDKWorkarounds;
+
+/**
+ * An <code>OpImage</code> implementing the "IntegralImage" operation as
+ * described in <code>javax.media.jai.operator.IntegralImageDescriptor</code>.
+ *
+ * <p> The destination is one pixel wider and higher than the source.
+ * The sample of the destination at (x, y) is the sum of the source
+ * samples at (i, j) with i &lt; x and j &lt; y, so that its first row and
+ * column are zero.  The sum of the source over the rectangle
+ * [x0, x1) x [y0, y1) is then
+ * <code>I(x1, y1) - I(x0, y1) - I(x1, y0) + I(x0, y0)</code>.
+ *
+ * <p> A tile is computed from the source pixels under it and from the
+ * last row of the tile above it and the last column of the tile to its
+ * left.  These rows and columns are kept for every computed tile, so that
+ * each tile costs time proportional to its area whether or not the tiles
+ * which it depends upon are cached.
+ *
+ * @see javax.media.jai.operator.IntegralImageDescriptor
+ * @see IntegralImageRIF
+ *
+ * @since JAI 1.1.4
+ */
+final class IntegralImageOpImage extends OpImage {
+
+    /** The number of bands of the source. */
+    private int numSourceBands;
+
+    /** Whether the sums of the squares follow the sums. */
+    private boolean sumOfSquares;
+
+    /**
+     * The last row and column of each computed tile, keyed by the
+     * tile indices.  Access is synchronized on the map.
+     */
+    private final Map edges = new HashMap();
+
+    /** The last row and the last column of a tile, by band. */
+    private static final class Edges {
+        double[][] lastRow;
+        double[][] lastColumn;
+    }
+
+    private static ImageLayout layoutHelper(ImageLayout layout,
+                                            RenderedImage source,
+                                            boolean sumOfSquares) {
+        ImageLayout il = layout == null ?
+            new ImageLayout() : (ImageLayout)layout.clone();
+
+        // The destination has one more row and column than the source.
+        il.setMinX(source.getMinX());
+        il.setMinY(source.getMinY());
+        il.setWidth(source.getWidth() + 1);
+        il.setHeight(source.getHeight() + 1);
+
+        // Force the destination to contain double data.
+        SampleModel sm = il.getSampleModel(source);
+        int numBands = source.getSampleModel().getNumBands();
+        if (sumOfSquares) {
+            numBands *= 2;
+        }
+        if (sm.getNumBands() != numBands ||
+            sm.getTransferType() != DataBuffer.TYPE_DOUBLE) {
+            sm = RasterFactory.createComponentSampleModel(sm,
+                                                          DataBuffer.TYPE_DOUBLE,
+                                                          il.getTileWidth(source),
+                                                          il.getTileHeight(source),
+                                                          numBands);
+            il.setSampleModel(sm);
+
+            // Clear the ColorModel mask if needed.
+            ColorModel cm = il.getColorModel(null);
+            if (cm != null &&
+                !JDKWorkarounds.areCompatibleDataModels(sm, cm)) {
+                il.unsetValid(ImageLayout.COLOR_MODEL_MASK);
+            }
+        }
+
+        return il;
+    }
+
+    /**
+     * Returns the rendering of the "IntegralImage" operation given by
+     * the hint <code>JAI.KEY_INTEGRAL_IMAGE</code> if it is that of
+     * <code>source</code> and contains the sums of the squares when
+     * <code>sumOfSquares</code> is set, and <code>null</code> otherwise.
+     */
+    static IntegralImageOpImage getIntegralImageHint(RenderingHints hints,
+                                                     RenderedImage source,
+                                                     boolean sumOfSquares) {
+        if (hints == null) {
+            return null;
+        }
+
+        Object image = hints.get(JAI.KEY_INTEGRAL_IMAGE);
+        if (image instanceof RenderedOp) {
+            image = ((RenderedOp)image).getRendering();
+        }
+        if (!(image instanceof IntegralImageOpImage)) {
+            return null;
+        }
+
+        IntegralImageOpImage integral = (IntegralImageOpImage)image;
+        if (integral.getSourceImage(0) != source ||
+            (sumOfSquares && !integral.sumOfSquares)) {
+            return null;
+        }
+
+        return integral;
+    }
+
+    /**
+     * Constructs an <code>IntegralImageOpImage</code>.
+     *
+     * @param source The source image.
+     * @param config Configurable attributes of the image.
+     * @param layout The destination image layout.
+     * @param sumOfSquares Whether the destination also contains the sums
+     *        of the squares of the source samples.
+     */
+    public IntegralImageOpImage(RenderedImage source,
+                                Map config,
+                                ImageLayout layout,
+                                boolean sumOfSquares) {
+        super(vectorize(source),
+              layoutHelper(layout, source, sumOfSquares),
+              config,
+              false);
+
+        this.numSourceBands = source.getSampleModel().getNumBands();
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    /** Whether the destination contains the sums of the squares. */
+    boolean hasSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    /**
+     * Returns the source pixels which the destination pixels of
+     * <code>destRect</code> sum.
+     */
+    public Rectangle mapDestRect(Rectangle destRect, int sourceIndex) {
+        if (destRect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        RenderedImage source = getSourceImage(0);
+        Rectangle srcRect =
+            new Rectangle(source.getMinX(), source.getMinY(),
+                          destRect.x + destRect.width - 1 - source.getMinX(),
+                          destRect.y + destRect.height - 1 -
+                          source.getMinY());
+        return srcRect.intersection(getSourceImage(0).getBounds());
+    }
+
+    /**
+     * Returns the destination pixels whose sums include the source
+     * pixels of <code>sourceRect</code>.
+     */
+    public Rectangle mapSourceRect(Rectangle sourceRect, int sourceIndex) {
+        if (sourceRect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic1"));
+        }
+
+        Rectangle destRect =
+            new Rectangle(sourceRect.x + 1, sourceRect.y + 1,
+                          getMaxX() - sourceRect.x - 1,
+                          getMaxY() - sourceRect.y - 1);
+        return destRect.intersection(getBounds());
+    }
+
+    /**
+     * Computes a tile.  The last rows and columns of the tiles above and
+     * to the left of it are computed first if they are not known yet.
+     */
+    public Raster computeTile(int tileX, int tileY) {
+        WritableRaster dest = createTile(tileX, tileY);
+        Rectangle rect = dest.getBounds().intersection(getBounds());
+
+        // Make sure that the tiles this one depends upon are known.
+        synchronized (edges) {
+            if (rect.x > getMinX()) {
+                computeEdges(tileX - 1, tileY);
+            }
+            if (rect.y > getMinY()) {
+                computeEdges(tileX, tileY - 1);
+            }
+        }
+
+        computeRect(dest, rect, tileX, tileY);
+        return dest;
+    }
+
+    /**
+     * Computes the last rows and columns of all the tiles above and to
+     * the left of a tile, and of the tile itself, which are not known.
+     * The tiles are computed row by row so that the neighbors of each
+     * tile are known when it is computed.  The caller synchronizes on
+     * <code>edges</code>.
+     */
+    private void computeEdges(int tileX, int tileY) {
+        if (edges.containsKey(new Point(tileX, tileY))) {
+            return;
+        }
+
+        int minTileX = XToTileX(getMinX());
+        int minTileY = YToTileY(getMinY());
+        for (int ty = minTileY; ty <= tileY; ty++) {
+            for (int tx = minTileX; tx <= tileX; tx++) {
+                if (!edges.containsKey(new Point(tx, ty))) {
+                    WritableRaster tile = createTile(tx, ty);
+                    computeRect(tile,
+                                tile.getBounds().intersection(getBounds()),
+                                tx, ty);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the sums of a rectangle of a tile and records the last
+     * row and column of the rectangle.
+     */
+    private void computeRect(WritableRaster dest, Rectangle rect,
+                             int tileX, int tileY) {
+        int numBands = numSourceBands;
+        int numDestBands = sumOfSquares ? 2*numBands : numBands;
+        int width = rect.width;
+        int height = rect.height;
+
+        // Get the sums at the last row and column before the rectangle.
+        double[][] above = null;
+        double[][] left = null;
+        double[] corner = new double[numDestBands];
+        synchronized (edges) {
+            if (rect.y > getMinY()) {
+                above = ((Edges)edges.get(
+                             new Point(tileX, tileY - 1))).lastRow;
+            }
+            if (rect.x > getMinX()) {
+                left = ((Edges)edges.get(
+                            new Point(tileX - 1, tileY))).lastColumn;
+                if (above != null) {
+                    Edges e = (Edges)edges.get(new Point(tileX - 1,
+                                                         tileY - 1));
+                    int last = e.lastRow[0].length - 1;
+                    for (int b = 0; b < numDestBands; b++) {
+                        corner[b] = e.lastRow[b][last];
+                    }
+                }
+            }
+        }
+
+        // The sum at (x, y) adds to the sums before the rectangle those
+        // of the source from the column and row before the rectangle,
+        // which are the source samples at [x0, x) x [y0, y) with
+        // x0 = rect.x - 1 and y0 = rect.y - 1.
+        PlanarImage source = getSourceImage(0);
+        Rectangle srcRect =
+            new Rectangle(rect.x - 1, rect.y - 1, width, height).intersection(
+                source.getBounds());
+        Raster src = srcRect.isEmpty() ? null : source.getData(srcRect);
+
+        Edges result = new Edges();
+        result.lastRow = new double[numDestBands][];
+        result.lastColumn = new double[numDestBands][height];
+
+        double[] samples = new double[width];
+        double[] sums = new double[width];
+        double[] columnSums = new double[width];
+
+        for (int b = 0; b < numDestBands; b++) {
+            int srcBand = b % numBands;
+            boolean square = b >= numBands;
+            double[] lastColumn = result.lastColumn[b];
+            double[] aboveRow = above == null ? null : above[b];
+            double[] leftColumn = left == null ? null : left[b];
+
+            Arrays.fill(columnSums, 0.0);
+            for (int j = 0; j < height; j++) {
+                int y = rect.y + j;
+
+                // Accumulate the source row y - 1 into the column sums.
+                if (src != null && y - 1 >= srcRect.y &&
+                    y - 1 < srcRect.y + srcRect.height) {
+                    src.getSamples(srcRect.x, y - 1, srcRect.width, 1,
+                                   srcBand, samples);
+                    double rowSum = 0.0;
+                    int k = srcRect.x - (rect.x - 1);
+                    for (int i = 0; i < srcRect.width; i++, k++) {
+                        double s = samples[i];
+                        rowSum += square ? s*s : s;
+                        columnSums[k] += rowSum;
+                    }
+                    // Past the source the row sum no longer changes.
+                    for (; k < width; k++) {
+                        columnSums[k] += rowSum;
+                    }
+                }
+
+                double base = (leftColumn == null ? 0.0 : leftColumn[j]) -
+                    corner[b];
+                for (int i = 0; i < width; i++) {
+                    sums[i] = base + columnSums[i] +
+                        (aboveRow == null ? 0.0 : aboveRow[i]);
+                }
+
+                dest.setSamples(rect.x, y, width, 1, b, sums);
+                lastColumn[j] = sums[width - 1];
+            }
+            result.lastRow[b] = (double[])sums.clone();
+        }
+
+        synchronized (edges) {
+            edges.put(new Point(tileX, tileY), result);
+        }
+    }
+}
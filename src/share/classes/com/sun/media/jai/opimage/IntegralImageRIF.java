@@ -0,0 +1,53 @@
+/*
+ * $RCSfile: IntegralImageRIF.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import javax.media.jai.ImageLayout;
+
+/**
+ * A <code>RIF</code> supporting the "IntegralImage" operation in the
+ * rendered image layer.
+ *
+ * @see javax.media.jai.operator.IntegralImageDescriptor
+ * @see IntegralImageOpImage
+ *
+ * @since JAI 1.1.4
+ */
+public class IntegralImageRIF implements RenderedImageFactory {
+
+    /** Constructor. */
+    public IntegralImageRIF() {}
+
+    /**
+     * Creates a new instance of <code>IntegralImageOpImage</code> in the
+     * rendered layer.
+     *
+     * @param paramBlock  The source image and whether the sums of the
+     *                    squares are computed.
+     */
+    public RenderedImage create(ParameterBlock paramBlock,
+                                RenderingHints renderHints) {
+        // Get ImageLayout from renderHints if any.
+        ImageLayout layout = RIFUtil.getImageLayoutHint(renderHints);
+
+        boolean sumOfSquares =
+            ((Boolean)paramBlock.getObjectParameter(0)).booleanValue();
+
+        return new IntegralImageOpImage(paramBlock.getRenderedSource(0),
+                                        renderHints,
+                                        layout,
+                                        sumOfSquares);
+    }
+}
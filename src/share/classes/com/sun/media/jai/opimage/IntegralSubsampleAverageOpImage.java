@@ -0,0 +1,115 @@
+/*
+ * $RCSfile: IntegralSubsampleAverageOpImage.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import javax.media.jai.ImageLayout;
+
+/**
+ * An <code>OpImage</code> implementing the "SubsampleAverage" operation
+ * from an "IntegralImage" of its source, in constant time per destination
+ * pixel whatever the scale factors.
+ *
+ * <p> The destination pixel (x, y) is the mean of the source block of
+ * <code>ceil(1/scaleX)</code> by <code>ceil(1/scaleY)</code> pixels
+ * which <code>SubsampleAverageOpImage</code> averages for it, clipped to
+ * the source bounds, so that the two images are the same.
+ *
+ * @see javax.media.jai.operator.SubsampleAverageDescriptor
+ * @see SubsampleAverageCRIF
+ */
+final class IntegralSubsampleAverageOpImage extends IntegralBoxOpImage {
+
+    /** The scale factors. */
+    private double scaleX, scaleY;
+
+    private static ImageLayout layoutHelper(ImageLayout layout,
+                                            IntegralImageOpImage integral,
+                                            double scaleX, double scaleY) {
+        ImageLayout il = layout == null ?
+            new ImageLayout() : (ImageLayout)layout.clone();
+
+        // As in SubsampleAverageOpImage.  The source has one less row
+        // and column than the integral image.
+        il.setMinX((int)Math.floor(integral.getMinX()*scaleX));
+        il.setMinY((int)Math.floor(integral.getMinY()*scaleY));
+        il.setWidth((int)((integral.getWidth() - 1)*scaleX));
+        il.setHeight((int)((integral.getHeight() - 1)*scaleY));
+
+        setSourceModels(il, integral.getSourceImage(0));
+
+        return il;
+    }
+
+    /**
+     * Constructs an <code>IntegralSubsampleAverageOpImage</code>.
+     *
+     * @param integral The "IntegralImage" of the source.
+     * @param config Configurable attributes of the image.
+     * @param layout The destination image layout, which should give the
+     *        <code>SampleModel</code> and <code>ColorModel</code> of the
+     *        source.
+     */
+    public IntegralSubsampleAverageOpImage(IntegralImageOpImage integral,
+                                           Map config,
+                                           ImageLayout layout,
+                                           double scaleX, double scaleY) {
+        super(integral,
+              layoutHelper(layout, integral, scaleX, scaleY),
+              config,
+              (int)Math.ceil(1.0/scaleX), (int)Math.ceil(1.0/scaleY),
+              false, true);
+
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+    }
+
+    protected int getBoxX(int x, int originX) {
+        return getBox(x, originX, minX, getSourceImage(0).getMinX(),
+                      scaleX, boxWidth);
+    }
+
+    protected int getBoxY(int y, int originY) {
+        return getBox(y, originY, minY, getSourceImage(0).getMinY(),
+                      scaleY, boxHeight);
+    }
+
+    /**
+     * Returns the first source position of the block of a destination
+     * position as <code>SubsampleAverageOpImage</code> places it.  The
+     * blocks of a rectangle follow the start of the source area which it
+     * reads, that is, the source position of its origin less the left
+     * or top padding of its <code>InterpAverage</code>, and the first
+     * two of them both start there.
+     */
+    private static int getBox(int pos, int origin, int destMin,
+                              int sourceMin, double scale, int block) {
+        int first = (int)Math.floor(sourceMin +
+                                    (origin + 0.5 - destMin)/scale - 0.5) -
+            (block - 1)/2;
+        if (first < sourceMin) {
+            first = sourceMin;
+        }
+
+        int i = pos - origin;
+        return i == 0 ? first : first + (int)Math.floor((i - 1)/scale);
+    }
+
+    protected void storeRow(WritableRaster dest,
+                            int x, int y, int width,
+                            double[][] sums,
+                            double[][] squares,
+                            int[] areas) {
+        storeMeans(dest, x, y, width, sums, areas, false);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * $RCSfile: LocalStatisticsOpImage.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.RasterFactory;
+import com.sun.media.jai.util.JDKWorkarounds;
+
+/**
+ * An <code>OpImage</code> implementing the "LocalStatistics" operation as
+ * described in <code>javax.media.jai.operator.LocalStatisticsDescriptor</code>.
+ *
+ * <p> The means and variances over the box of each pixel are computed
+ * from an "IntegralImage" of the source which contains the sums of the
+ * squares, in constant time per pixel whatever the size of the box.
+ *
+ * @see javax.media.jai.operator.LocalStatisticsDescriptor
+ * @see LocalStatisticsRIF
+ */
+final class LocalStatisticsOpImage extends IntegralBoxOpImage {
+
+    /** The position of the key element of the box. */
+    private int xKey, yKey;
+
+    private static ImageLayout layoutHelper(ImageLayout layout,
+                                            RenderedImage source,
+                                            IntegralImageOpImage integral) {
+        ImageLayout il = layout == null ?
+            new ImageLayout() : (ImageLayout)layout.clone();
+
+        // The destination has the bounds of the source, as that of an
+        // AreaOpImage.
+        il.setMinX(source.getMinX());
+        il.setMinY(source.getMinY());
+        il.setWidth(source.getWidth());
+        il.setHeight(source.getHeight());
+
+        // Two bands of floating point data for each source band.
+        SampleModel sm = il.getSampleModel(integral);
+        int numBands = integral.getSampleModel().getNumBands();
+        if (!integral.hasSumOfSquares()) {
+            numBands *= 2;
+        }
+        int dataType = sm.getTransferType();
+        if (dataType != DataBuffer.TYPE_FLOAT &&
+            dataType != DataBuffer.TYPE_DOUBLE) {
+            dataType = DataBuffer.TYPE_FLOAT;
+        }
+        if (sm.getNumBands() != numBands ||
+            sm.getTransferType() != dataType) {
+            sm = RasterFactory.createComponentSampleModel(sm,
+                                                          dataType,
+                                                          il.getTileWidth(integral),
+                                                          il.getTileHeight(integral),
+                                                          numBands);
+            il.setSampleModel(sm);
+
+            // Clear the ColorModel mask if needed.
+            ColorModel cm = il.getColorModel(null);
+            if (cm != null &&
+                !JDKWorkarounds.areCompatibleDataModels(sm, cm)) {
+                il.unsetValid(ImageLayout.COLOR_MODEL_MASK);
+            }
+        }
+
+        return il;
+    }
+
+    /**
+     * Constructs a <code>LocalStatisticsOpImage</code>.
+     *
+     * @param source The source image.
+     * @param integral The "IntegralImage" of the source, or of the source
+     *        extended by the size of the box, with the sums
+     *        of the squares.
+     * @param config Configurable attributes of the image.
+     * @param layout The destination image layout.
+     */
+    public LocalStatisticsOpImage(RenderedImage source,
+                                  IntegralImageOpImage integral,
+                                  Map config,
+                                  ImageLayout layout,
+                                  int width, int height,
+                                  int xKey, int yKey) {
+        super(integral,
+              layoutHelper(layout, source, integral),
+              config,
+              width, height,
+              true, false);
+
+        this.xKey = xKey;
+        this.yKey = yKey;
+    }
+
+    protected int getBoxX(int x, int originX) {
+        return x - xKey;
+    }
+
+    protected int getBoxY(int y, int originY) {
+        return y - yKey;
+    }
+
+    /**
+     * Stores the means in the first bands and the variances in the
+     * following ones.
+     */
+    protected void storeRow(WritableRaster dest,
+                            int x, int y, int width,
+                            double[][] sums,
+                            double[][] squares,
+                            int[] areas) {
+        int numBands = sums.length;
+        double[] means = new double[width];
+        double[] variances = new double[width];
+
+        for (int b = 0; b < numBands; b++) {
+            double[] s = sums[b];
+            double[] sq = squares[b];
+            for (int i = 0; i < width; i++) {
+                if (areas[i] == 0) {
+                    means[i] = variances[i] = 0.0;
+                    continue;
+                }
+                double mean = s[i]/areas[i];
+                double variance = sq[i]/areas[i] - mean*mean;
+                means[i] = mean;
+                // Rounding may leave a slightly negative variance.
+                variances[i] = variance > 0.0 ? variance : 0.0;
+            }
+            dest.setSamples(x, y, width, 1, b, means);
+            dest.setSamples(x, y, width, 1, numBands + b, variances);
+        }
+    }
+}
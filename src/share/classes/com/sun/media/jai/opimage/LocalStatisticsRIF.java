@@ -0,0 +1,81 @@
+/*
+ * $RCSfile: LocalStatisticsRIF.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import javax.media.jai.BorderExtender;
+import javax.media.jai.ImageLayout;
+
+/**
+ * A <code>RIF</code> supporting the "LocalStatistics" operation in the
+ * rendered image layer.
+ *
+ * <p> The statistics are computed from the "IntegralImage" given by the
+ * hint <code>JAI.KEY_INTEGRAL_IMAGE</code> if it is that of the source,
+ * contains the sums of the squares and no <code>BorderExtender</code> is
+ * given.  Otherwise an integral image of the source is created.
+ *
+ * @see javax.media.jai.operator.LocalStatisticsDescriptor
+ * @see LocalStatisticsOpImage
+ *
+ * @since JAI 1.1.4
+ */
+public class LocalStatisticsRIF implements RenderedImageFactory {
+
+    /** Constructor. */
+    public LocalStatisticsRIF() {}
+
+    /**
+     * Creates a new instance of <code>LocalStatisticsOpImage</code> in the
+     * rendered layer.
+     *
+     * @param paramBlock  The source image and the box.
+     */
+    public RenderedImage create(ParameterBlock paramBlock,
+                                RenderingHints renderHints) {
+        // Get ImageLayout from renderHints if any.
+        ImageLayout layout = RIFUtil.getImageLayoutHint(renderHints);
+
+        // Get BorderExtender from renderHints if any.
+        BorderExtender extender = RIFUtil.getBorderExtenderHint(renderHints);
+
+        RenderedImage source = paramBlock.getRenderedSource(0);
+        int width = paramBlock.getIntParameter(0);
+        int height = paramBlock.getIntParameter(1);
+        int xKey = paramBlock.getIntParameter(2);
+        int yKey = paramBlock.getIntParameter(3);
+
+        IntegralImageOpImage integral = null;
+        if (extender == null) {
+            integral = IntegralImageOpImage.getIntegralImageHint(renderHints,
+                                                                 source,
+                                                                 true);
+        }
+        if (integral == null) {
+            integral = IntegralBoxOpImage.createIntegralImage(source,
+                                                              renderHints,
+                                                              extender,
+                                                              width, height,
+                                                              xKey, yKey,
+                                                              true);
+        }
+
+        return new LocalStatisticsOpImage(source,
+                                          integral,
+                                          renderHints,
+                                          layout,
+                                          width, height,
+                                          xKey, yKey);
+    }
+}
@@ -31,6 +31,8 @@ import com.sun.media.jai.opimage.MaxFilterOpImage;
 /**
  * An OpImage class to perform max filtering on a source image.
  *
+ * <p> The maximum over the square is computed in separate row and
+ * column passes by <code>SlidingExtrema</code>.
  */
 final class MaxFilterSquareOpImage extends MaxFilterOpImage {
 
@@ -76,44 +78,46 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int maxval, val;
         int wp = filterSize;
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        int values[] = new int[swidth*sheight];
+        int buffer[] = new int[Math.max(swidth, sheight)];
 
         for (int k = 0; k < dnumBands; k++)  {
             byte dstData[] = dstDataArrays[k];
             byte srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset]&0xff;
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = Integer.MIN_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = (int)(srcData[imageOffset])&0xff;
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = (byte)maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = (byte)values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
     }
 
     protected void shortLoop(RasterAccessor src, 
-                             RasterAccessor dst,
-                             int filterSize)  {
+                            RasterAccessor dst,
+                            int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -128,44 +132,46 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int maxval, val;
         int wp = filterSize;
- 
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        int values[] = new int[swidth*sheight];
+        int buffer[] = new int[Math.max(swidth, sheight)];
+
         for (int k = 0; k < dnumBands; k++)  {
             short dstData[] = dstDataArrays[k];
             short srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset];
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = Integer.MIN_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = (int)(srcData[imageOffset]);
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = (short)maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = (short)values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
     }
 
     protected void ushortLoop(RasterAccessor src, 
-                              RasterAccessor dst,
-                              int filterSize)  {
+                            RasterAccessor dst,
+                            int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -180,44 +186,46 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int maxval, val;
         int wp = filterSize;
- 
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        int values[] = new int[swidth*sheight];
+        int buffer[] = new int[Math.max(swidth, sheight)];
+
         for (int k = 0; k < dnumBands; k++)  {
             short dstData[] = dstDataArrays[k];
             short srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset]&0xffff;
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = Integer.MIN_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = (int)(srcData[imageOffset])&0xffff;
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = (short)maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = (short)values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
     }
 
     protected void intLoop(RasterAccessor src, 
-                           RasterAccessor dst,
-                           int filterSize)  {
+                            RasterAccessor dst,
+                            int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -232,44 +240,46 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int maxval, val;
         int wp = filterSize;
- 
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        int values[] = new int[swidth*sheight];
+        int buffer[] = new int[Math.max(swidth, sheight)];
+
         for (int k = 0; k < dnumBands; k++)  {
             int dstData[] = dstDataArrays[k];
             int srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset];
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = Integer.MIN_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = srcData[imageOffset];
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
     }
 
     protected void floatLoop(RasterAccessor src, 
-                             RasterAccessor dst,
-                             int filterSize)  {
+                            RasterAccessor dst,
+                            int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -284,44 +294,47 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        float maxval, val;
         int wp = filterSize;
- 
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        float values[] = new float[swidth*sheight];
+        float buffer[] = new float[Math.max(swidth, sheight)];
+
         for (int k = 0; k < dnumBands; k++)  {
             float dstData[] = dstDataArrays[k];
             float srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset];
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer,
+                              -Float.MAX_VALUE);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = -Float.MAX_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = srcData[imageOffset];
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
     }
 
     protected void doubleLoop(RasterAccessor src, 
-                              RasterAccessor dst,
-                              int filterSize)  {
+                            RasterAccessor dst,
+                            int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -336,36 +349,39 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        double maxval, val;
         int wp = filterSize;
- 
+        int swidth = dwidth + wp - 1;
+        int sheight = dheight + wp - 1;
+        double values[] = new double[swidth*sheight];
+        double buffer[] = new double[Math.max(swidth, sheight)];
+
         for (int k = 0; k < dnumBands; k++)  {
             double dstData[] = dstDataArrays[k];
             double srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
-            for (int j = 0; j < dheight; j++)  {
+
+            int valueOffset = 0;
+            for (int j = 0; j < sheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < swidth; i++)  {
+                    values[valueOffset++] = srcData[srcPixelOffset];
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+
+            SlidingExtrema.max(values, swidth, sheight, wp, wp, buffer,
+                              -Double.MAX_VALUE);
+
+            for (int j = 0; j < dheight; j++)  {
                 int dstPixelOffset = dstScanlineOffset;
- 
+                valueOffset = j*swidth;
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    maxval = -Double.MAX_VALUE;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             val = srcData[imageOffset];
-                             imageOffset += srcPixelStride;
-			     maxval = (val > maxval) ? val : maxval;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
-                    }
-                    dstData[dstPixelOffset] = maxval;
-                    srcPixelOffset += srcPixelStride;
+                    dstData[dstPixelOffset] = values[valueOffset];
+                    valueOffset++;
                     dstPixelOffset += dstPixelStride;
                 }
-                srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
         }
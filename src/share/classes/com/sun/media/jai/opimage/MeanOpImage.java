@@ -39,15 +39,22 @@ import javax.media.jai.UnpackedImageData;
  */
 public class MeanOpImage extends StatisticsOpImage {
 
-    private boolean isInitialized = false;
-
     /**
-     * Note: For very large images, these two variables may be overflowed.
-     * An alternative would be to have a set for each tile. But then, the
-     * user could specify very large tile size.
+     * The running sums from which a mean is computed.  A set is kept for
+     * each statistics object so that parts of the image may be
+     * accumulated concurrently and merged.
      */
-    private double[] totalPixelValue;
-    private int totalPixelCount;
+    private static final class Sums {
+        final double[] totalPixelValue;
+        long totalPixelCount = 0;
+
+        Sums(int numBands) {
+            totalPixelValue = new double[numBands];
+        }
+    }
+
+    /** The <code>Sums</code> of each statistics object. */
+    private Hashtable sums = new Hashtable();
 
     private PixelAccessor srcPA;
 
@@ -74,6 +81,23 @@ public class MeanOpImage extends StatisticsOpImage {
                        int xPeriod,
                        int yPeriod) {
         super(source, roi, xStart, yStart, xPeriod, yPeriod);
+
+        srcPA = new PixelAccessor(getSourceImage(0));
+        srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
+            DataBuffer.TYPE_BYTE : srcPA.sampleType;
+    }
+
+    /** Returns one of the available statistics as a property. */
+    public Object getProperty(String name) {
+        Object stats = super.getProperty(name);
+
+        // The mean has been stored: drop the sums it was computed from.
+        if (stats != null) {
+            synchronized (sums) {
+                sums.remove(stats);
+            }
+        }
+        return stats;
     }
 
     protected String[] getStatisticsNames() {
@@ -103,15 +127,7 @@ public class MeanOpImage extends StatisticsOpImage {
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
-        if(!isInitialized) {
-            srcPA = new PixelAccessor(getSourceImage(0));
-            srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
-                DataBuffer.TYPE_BYTE : srcPA.sampleType;
-
-            totalPixelValue = new double[srcPA.numBands];
-            totalPixelCount = 0;
-            isInitialized = true;
-        }
+        Sums s = getSums(stats);
 
         Rectangle srcBounds = getSourceImage(0).getBounds().intersection(
                                                   source.getBounds());
@@ -151,22 +167,22 @@ public class MeanOpImage extends StatisticsOpImage {
 
             switch (uid.type) {
             case DataBuffer.TYPE_BYTE:
-                accumulateStatisticsByte(uid);
+                accumulateStatisticsByte(uid, s);
                 break;
             case DataBuffer.TYPE_USHORT:
-                accumulateStatisticsUShort(uid);
+                accumulateStatisticsUShort(uid, s);
                 break;
             case DataBuffer.TYPE_SHORT:
-                accumulateStatisticsShort(uid);
+                accumulateStatisticsShort(uid, s);
                 break;
             case DataBuffer.TYPE_INT:
-                accumulateStatisticsInt(uid);
+                accumulateStatisticsInt(uid, s);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                accumulateStatisticsFloat(uid);
+                accumulateStatisticsFloat(uid, s);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                accumulateStatisticsDouble(uid);
+                accumulateStatisticsDouble(uid, s);
                 break;
             }
         }
@@ -174,17 +190,60 @@ public class MeanOpImage extends StatisticsOpImage {
         if(name.equalsIgnoreCase("mean")) {
             // This is a totally disgusting hack but no worse than the
             // code was before ... bpb 1 September 2000
-            double[] mean = (double[])stats;
-            if (totalPixelCount != 0) {
-                for (int i = 0; i < srcPA.numBands; i++) {
-                    mean[i] = totalPixelValue[i] /
-                        (double)totalPixelCount;
-                }
+            setMean((double[])stats, s);
+        }
+    }
+
+    /** Returns the <code>Sums</code> of a statistics object. */
+    private Sums getSums(Object stats) {
+        synchronized (sums) {
+            Sums s = (Sums)sums.get(stats);
+            if (s == null) {
+                s = new Sums(srcPA.numBands);
+                sums.put(stats, s);
+            }
+            return s;
+        }
+    }
+
+    /** Sets the mean from the sums if any pixel has been counted. */
+    private void setMean(double[] mean, Sums s) {
+        if (s.totalPixelCount != 0) {
+            for (int i = 0; i < srcPA.numBands; i++) {
+                mean[i] = s.totalPixelValue[i] /
+                    (double)s.totalPixelCount;
             }
         }
     }
 
-    private void accumulateStatisticsByte(UnpackedImageData uid) {
+    /** Means over disjoint regions are merged through their sums. */
+    protected boolean isMergeable(String name) {
+        return name.equalsIgnoreCase("mean");
+    }
+
+    protected void mergeStatistics(String name,
+                                   Object stats,
+                                   Object partialStats) {
+        Sums s = getSums(stats);
+        Sums partial;
+        synchronized (sums) {
+            partial = (Sums)sums.remove(partialStats);
+        }
+        if (partial == null) {
+            return;
+        }
+
+        for (int i = 0; i < srcPA.numBands; i++) {
+            s.totalPixelValue[i] += partial.totalPixelValue[i];
+        }
+        s.totalPixelCount += partial.totalPixelCount;
+
+        setMean((double[])stats, s);
+    }
+
+    private void accumulateStatisticsByte(UnpackedImageData uid,
+                                          Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         byte[][] data = uid.getByteData();
         int lineStride = uid.lineStride;
@@ -205,11 +264,14 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsUShort(UnpackedImageData uid) {
+    private void accumulateStatisticsUShort(UnpackedImageData uid,
+                                            Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -230,11 +292,14 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsShort(UnpackedImageData uid) {
+    private void accumulateStatisticsShort(UnpackedImageData uid,
+                                           Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -255,11 +320,14 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsInt(UnpackedImageData uid) {
+    private void accumulateStatisticsInt(UnpackedImageData uid,
+                                         Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         int[][] data = uid.getIntData();
         int lineStride = uid.lineStride;
@@ -280,11 +348,14 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsFloat(UnpackedImageData uid) {
+    private void accumulateStatisticsFloat(UnpackedImageData uid,
+                                           Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         float[][] data = uid.getFloatData();
         int lineStride = uid.lineStride;
@@ -305,11 +376,14 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsDouble(UnpackedImageData uid) {
+    private void accumulateStatisticsDouble(UnpackedImageData uid,
+                                            Sums sums) {
+        double[] totalPixelValue = sums.totalPixelValue;
         Rectangle rect = uid.rect;
         double[][] data = uid.getDoubleData();
         int lineStride = uid.lineStride;
@@ -330,7 +404,8 @@ public class MeanOpImage extends StatisticsOpImage {
                 }
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        sums.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (int)Math.ceil((double)rect.width / xPeriod);
     }
 }
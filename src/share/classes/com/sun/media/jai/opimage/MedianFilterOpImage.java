@@ -39,6 +39,13 @@ abstract class MedianFilterOpImage extends AreaOpImage {
     protected MedianFilterShape maskType;
     protected int maskSize;
 
+    /**
+     * The largest mask size for which the byte loops of the non-square
+     * masks select the median of the mask values rather than sliding
+     * histograms over the image.
+     */
+    static final int SELECT_MAX_SIZE = 3;
+
     /**
      * Creates a MedianFilterOpImage given an image source, an
      * optional BorderExtender, a maskType and maskSize.  The image
@@ -60,9 +60,142 @@ final class MedianFilterPlusOpImage extends MedianFilterOpImage {
               maskSize);
     }
 
+    /**
+     * Filters byte data in constant time per pixel.  A histogram of the
+     * vertical arm is kept for every column and slid down one row at a
+     * time, and a histogram of the horizontal arm is slid to the right
+     * along each row; the median is searched for in the union of the
+     * two, the center pixel being counted once.
+     */
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize <= SELECT_MAX_SIZE) {
+            byteLoopSelect(src, dst, filterSize);
+            return;
+        }
+
+        int dwidth = dst.getWidth();
+        int dheight = dst.getHeight();
+        int dnumBands = dst.getNumBands();
+ 
+        byte dstDataArrays[][] = dst.getByteDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+ 
+        byte srcDataArrays[][] = src.getByteDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+ 
+        int wp = filterSize;
+        int offset = filterSize/2;
+        int target = wp - 1;
+
+        // Histograms of the vertical arms: 256 fine bins and 16 coarse
+        // bins per destination column.
+        int colFine[] = new int[dwidth*256];
+        int colCoarse[] = new int[dwidth*16];
+        MedianHistogram row = new MedianHistogram(8);
+ 
+        for (int k = 0; k < dnumBands; k++)  {
+            byte dstData[] = dstDataArrays[k];
+            byte srcData[] = srcDataArrays[k];
+            int srcScanlineOffset = srcBandOffsets[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+
+            for (int c = 0; c < colFine.length; c++) {
+                colFine[c] = 0;
+            }
+            for (int c = 0; c < colCoarse.length; c++) {
+                colCoarse[c] = 0;
+            }
+
+            // Load all but the last row of the first vertical arms.
+            int srcTopOffset = srcScanlineOffset + srcPixelStride*offset;
+            int srcBottomOffset = srcTopOffset;
+            for (int u = 0; u < wp-1; u++) {
+                int imageOffset = srcBottomOffset;
+                for (int i = 0; i < dwidth; i++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(i << 8) + val]++;
+                    colCoarse[(i << 4) + (val >> 4)]++;
+                    imageOffset += srcPixelStride;
+                }
+                srcBottomOffset += srcScanlineStride;
+            }
+
+            for (int j = 0; j < dheight; j++)  {
+                // Add the bottom row of the vertical arms.
+                int imageOffset = srcBottomOffset;
+                for (int i = 0; i < dwidth; i++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(i << 8) + val]++;
+                    colCoarse[(i << 4) + (val >> 4)]++;
+                    imageOffset += srcPixelStride;
+                }
+
+                // figure out where the left side of plus starts
+                int leftOffset = srcScanlineOffset + srcScanlineStride*offset;
+                int centerOffset = leftOffset + srcPixelStride*offset;
+                int rightOffset = leftOffset;
+                for (int v = 0; v < wp-1; v++)  {
+                    row.add(srcData[rightOffset]&0xff);
+                    rightOffset += srcPixelStride;
+                }
+
+                int dstPixelOffset = dstScanlineOffset;
+ 
+                for (int i = 0; i < dwidth; i++)  {
+                    row.add(srcData[rightOffset]&0xff);
+
+                    int val =
+                        MedianHistogram.median(row.fine, 0, row.coarse, 0,
+                                               colFine, i << 8,
+                                               colCoarse, i << 4,
+                                               srcData[centerOffset]&0xff,
+                                               target, 4);
+
+                    row.remove(srcData[leftOffset]&0xff);
+ 
+                    dstData[dstPixelOffset] = (byte)val;
+                    leftOffset += srcPixelStride;
+                    centerOffset += srcPixelStride;
+                    rightOffset += srcPixelStride;
+                    dstPixelOffset += dstPixelStride;
+                }
+
+                // Empty the horizontal arm histogram.
+                for (int v = 0; v < wp-1; v++)  {
+                    row.remove(srcData[leftOffset]&0xff);
+                    leftOffset += srcPixelStride;
+                }
+
+                // Remove the top row of the vertical arms.
+                imageOffset = srcTopOffset;
+                for (int i = 0; i < dwidth; i++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(i << 8) + val]--;
+                    colCoarse[(i << 4) + (val >> 4)]--;
+                    imageOffset += srcPixelStride;
+                }
+
+                srcTopOffset += srcScanlineStride;
+                srcBottomOffset += srcScanlineStride;
+                srcScanlineOffset += srcScanlineStride;
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    /**
+     * Filters byte data by selecting the median of the values under the
+     * mask, which is faster than the histograms for the smallest masks.
+     */
+    private void byteLoopSelect(RasterAccessor src, 
+                                RasterAccessor dst,
+                                int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
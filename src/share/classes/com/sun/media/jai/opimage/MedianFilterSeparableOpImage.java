@@ -60,9 +60,106 @@ final class MedianFilterSeparableOpImage extends MedianFilterOpImage {
               maskSize);
     }
 
+    /**
+     * Filters byte data with sliding histograms: one slid along each
+     * source row to compute the row medians and one per destination
+     * column slid down over the row medians.
+     */
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize <= SELECT_MAX_SIZE) {
+            byteLoopSelect(src, dst, filterSize);
+            return;
+        }
+
+        int dwidth = dst.getWidth();
+        int dheight = dst.getHeight();
+        int dnumBands = dst.getNumBands();
+ 
+        byte dstDataArrays[][] = dst.getByteDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+ 
+        byte srcDataArrays[][] = src.getByteDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+ 
+        int wp = filterSize;
+        int tmpBuffer[] = new int[filterSize*dwidth];
+        MedianHistogram row = new MedianHistogram(8);
+ 
+        for (int k = 0; k < dnumBands; k++)  {
+            byte dstData[] = dstDataArrays[k];
+            byte srcData[] = srcDataArrays[k];
+            int srcScanlineOffset = srcBandOffsets[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+
+            MedianHistogram columns[] = new MedianHistogram[dwidth];
+            for (int i = 0; i < dwidth; i++) {
+                columns[i] = new MedianHistogram(8);
+            }
+
+            int revolver = 0;
+            for (int j = 1 - wp; j < dheight; j++)  {
+                int leftOffset = srcScanlineOffset;
+                int rightOffset = srcScanlineOffset;
+                for (int v = 0; v < wp-1; v++)  {
+                    row.add(srcData[rightOffset]&0xff);
+                    rightOffset += srcPixelStride;
+                }
+
+                int dstPixelOffset = dstScanlineOffset;
+ 
+                for (int i = 0; i < dwidth; i++)  {
+                    row.add(srcData[rightOffset]&0xff);
+                    int rowMedian = row.getMedian();
+                    row.remove(srcData[leftOffset]&0xff);
+
+                    // Replace the oldest row median of the column.
+                    MedianHistogram column = columns[i];
+                    if (j > 0) {
+                        column.remove(tmpBuffer[revolver + i]);
+                    }
+                    tmpBuffer[revolver + i] = rowMedian;
+                    column.add(rowMedian);
+
+                    if (j >= 0) {
+                        dstData[dstPixelOffset] = (byte)column.getMedian();
+                        dstPixelOffset += dstPixelStride;
+                    }
+                    leftOffset += srcPixelStride;
+                    rightOffset += srcPixelStride;
+                }
+
+                // Empty the row histogram.
+                for (int v = 0; v < wp-1; v++)  {
+                    row.remove(srcData[leftOffset]&0xff);
+                    leftOffset += srcPixelStride;
+                }
+
+                revolver += dwidth;
+                if (revolver == tmpBuffer.length) {
+                    revolver = 0;
+                }
+
+                srcScanlineOffset += srcScanlineStride;
+                if (j >= 0) {
+                    dstScanlineOffset += dstScanlineStride;
+                }
+            }
+        }
+    }
+
+    /**
+     * Filters byte data by selecting the median of the values under the
+     * mask, which is faster than the histograms for the smallest masks.
+     */
+    private void byteLoopSelect(RasterAccessor src, 
+                                RasterAccessor dst,
+                                int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -226,6 +323,10 @@ final class MedianFilterSeparableOpImage extends MedianFilterOpImage {
  
     }
 
+    /**
+     * Filters unsigned short data.  The row medians are computed with a
+     * histogram slid along each source row.
+     */
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
@@ -244,10 +345,10 @@ final class MedianFilterSeparableOpImage extends MedianFilterOpImage {
         int srcScanlineStride = src.getScanlineStride();
 
         int medianValues[] = new int[filterSize];
-        int tmpValues[] = new int[filterSize];
         int wp = filterSize;
         int tmpBuffer[] = new int[filterSize*dwidth];
         int tmpBufferSize = filterSize*dwidth;
+        MedianHistogram row = new MedianHistogram(16);
  
         for (int k = 0; k < dnumBands; k++)  {
             short dstData[] = dstDataArrays[k];
@@ -256,53 +357,49 @@ final class MedianFilterSeparableOpImage extends MedianFilterOpImage {
             int dstScanlineOffset = dstBandOffsets[k];
  
             int revolver = 0;
-            for (int j = 0; j < filterSize-1; j++) {
-                int srcPixelOffset = srcScanlineOffset;
- 
-                for (int i = 0; i < dwidth; i++) {
-                     int imageOffset = srcPixelOffset;
-                     for (int v = 0; v < wp; v++)  {
-                          tmpValues[v] = srcData[imageOffset] & 0xfff;
-                          imageOffset += srcPixelStride;
-                     }
-                     tmpBuffer[revolver+i] = medianFilter(tmpValues);
-                     srcPixelOffset += srcPixelStride;
+            for (int j = 1 - wp; j < dheight; j++)  {
+                int leftOffset = srcScanlineOffset;
+                int rightOffset = srcScanlineOffset;
+                for (int v = 0; v < wp-1; v++)  {
+                    row.add(srcData[rightOffset]&0xffff);
+                    rightOffset += srcPixelStride;
                 }
-                revolver += dwidth;
-                srcScanlineOffset += srcScanlineStride;
-            }
- 
-            // srcScanlineStride already bumped by
-            // filterSize-1*scanlineStride
- 
-            for (int j = 0; j < dheight; j++)  {
-                int srcPixelOffset = srcScanlineOffset;
+
                 int dstPixelOffset = dstScanlineOffset;
  
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageOffset = srcPixelOffset;
-                    for (int v = 0; v < wp; v++)  {
-                         tmpValues[v] = srcData[imageOffset] & 0xffff;
-                         imageOffset += srcPixelStride;
-                    }
-                    tmpBuffer[revolver + i] = medianFilter(tmpValues);
- 
-                    int a = 0;
-                    for (int b = i; b < tmpBufferSize; b += dwidth) {
-                        medianValues[a++] = tmpBuffer[b];
+                    row.add(srcData[rightOffset]&0xffff);
+                    tmpBuffer[revolver + i] = row.getMedian();
+                    row.remove(srcData[leftOffset]&0xffff);
+
+                    if (j >= 0) {
+                        int a = 0;
+                        for (int b = i; b < tmpBufferSize; b += dwidth) {
+                            medianValues[a++] = tmpBuffer[b];
+                        }
+                        int val = medianFilter(medianValues);
+ 
+                        dstData[dstPixelOffset] = (short)val;
+                        dstPixelOffset += dstPixelStride;
                     }
-                    int val = medianFilter(medianValues);
- 
-                    dstData[dstPixelOffset] = (short)val;
-                    srcPixelOffset += srcPixelStride;
-                    dstPixelOffset += dstPixelStride;
+                    leftOffset += srcPixelStride;
+                    rightOffset += srcPixelStride;
+                }
+
+                // Empty the row histogram.
+                for (int v = 0; v < wp-1; v++)  {
+                    row.remove(srcData[leftOffset]&0xffff);
+                    leftOffset += srcPixelStride;
                 }
+
                 revolver += dwidth;
                 if (revolver == tmpBufferSize) {
                     revolver = 0;
                 }
                 srcScanlineOffset += srcScanlineStride;
-                dstScanlineOffset += dstScanlineStride;
+                if (j >= 0) {
+                    dstScanlineOffset += dstScanlineStride;
+                }
             }
         }
     }
@@ -60,6 +60,14 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
               maskSize);
     }
 
+    /**
+     * Filters byte data with a constant time sliding histogram median
+     * (Perreault and H&eacute;bert).  A histogram is kept for every
+     * column of the window height; moving the window one pixel to the
+     * right adds and subtracts one column histogram from the coarse bins
+     * of the kernel histogram, the fine bins of a block being brought up
+     * to date only when the median lies in that block.
+     */
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
@@ -77,37 +85,131 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int values[] = new int[filterSize*filterSize];
         int wp = filterSize;
+        int target = wp*wp/2;
+        int numColumns = dwidth + wp - 1;
+
+        // Histograms of the wp rows of each source column: 256 fine
+        // bins and 16 coarse bins per column.
+        int colFine[] = new int[numColumns*256];
+        int colCoarse[] = new int[numColumns*16];
+
+        // Kernel histogram. kernelColumn[b] is the first column of the
+        // window last accumulated into the fine bins of block b.
+        int kernelFine[] = new int[256];
+        int kernelCoarse[] = new int[16];
+        int kernelColumn[] = new int[16];
  
         for (int k = 0; k < dnumBands; k++)  {
             byte dstData[] = dstDataArrays[k];
             byte srcData[] = srcDataArrays[k];
             int srcScanlineOffset = srcBandOffsets[k];
             int dstScanlineOffset = dstBandOffsets[k];
+
+            for (int c = 0; c < colFine.length; c++) {
+                colFine[c] = 0;
+            }
+            for (int c = 0; c < colCoarse.length; c++) {
+                colCoarse[c] = 0;
+            }
+
+            // Load all but the last row of the first window.
+            int srcBottomOffset = srcScanlineOffset;
+            for (int u = 0; u < wp-1; u++) {
+                int imageOffset = srcBottomOffset;
+                for (int c = 0; c < numColumns; c++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(c << 8) + val]++;
+                    colCoarse[(c << 4) + (val >> 4)]++;
+                    imageOffset += srcPixelStride;
+                }
+                srcBottomOffset += srcScanlineStride;
+            }
+
             for (int j = 0; j < dheight; j++)  {
-                int srcPixelOffset = srcScanlineOffset;
+                // Add the bottom row of the window.
+                int imageOffset = srcBottomOffset;
+                for (int c = 0; c < numColumns; c++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(c << 8) + val]++;
+                    colCoarse[(c << 4) + (val >> 4)]++;
+                    imageOffset += srcPixelStride;
+                }
+
+                // Initialize the kernel for the leftmost window.
+                for (int b = 0; b < 16; b++) {
+                    kernelCoarse[b] = 0;
+                    kernelColumn[b] = -wp;
+                }
+                for (int c = 0; c < wp; c++) {
+                    for (int b = 0; b < 16; b++) {
+                        kernelCoarse[b] += colCoarse[(c << 4) + b];
+                    }
+                }
+
                 int dstPixelOffset = dstScanlineOffset;
  
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    int valueCount = 0;
-                    for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             values[valueCount++] =
-                                 (int)(srcData[imageOffset])&0xff;
-                             imageOffset += srcPixelStride;
+                    if (i > 0) {
+                        int addOffset = (i + wp - 1) << 4;
+                        int subOffset = (i - 1) << 4;
+                        for (int b = 0; b < 16; b++) {
+                            kernelCoarse[b] += colCoarse[addOffset + b] -
+                                colCoarse[subOffset + b];
                         }
-                        imageVerticalOffset += srcScanlineStride;
                     }
-                    int val = medianFilter(values);
+
+                    // Find the block holding the median.
+                    int sum = 0;
+                    int b = 0;
+                    while (sum + kernelCoarse[b] <= target) {
+                        sum += kernelCoarse[b++];
+                    }
+
+                    // Bring the fine bins of the block up to date.
+                    int base = b << 4;
+                    int first = kernelColumn[b];
+                    if (i - first >= wp) {
+                        for (int t = 0; t < 16; t++) {
+                            kernelFine[base + t] = 0;
+                        }
+                        for (int c = i; c < i + wp; c++) {
+                            int colOffset = (c << 8) + base;
+                            for (int t = 0; t < 16; t++) {
+                                kernelFine[base + t] += colFine[colOffset + t];
+                            }
+                        }
+                    } else {
+                        for (int c = first; c < i; c++) {
+                            int addOffset = ((c + wp) << 8) + base;
+                            int subOffset = (c << 8) + base;
+                            for (int t = 0; t < 16; t++) {
+                                kernelFine[base + t] += colFine[addOffset + t] -
+                                    colFine[subOffset + t];
+                            }
+                        }
+                    }
+                    kernelColumn[b] = i;
+
+                    int val = base;
+                    while (sum + kernelFine[val] <= target) {
+                        sum += kernelFine[val++];
+                    }
  
                     dstData[dstPixelOffset] = (byte)val;
-                    srcPixelOffset += srcPixelStride;
                     dstPixelOffset += dstPixelStride;
                 }
+
+                // Remove the top row of the window.
+                imageOffset = srcScanlineOffset;
+                for (int c = 0; c < numColumns; c++) {
+                    int val = srcData[imageOffset]&0xff;
+                    colFine[(c << 8) + val]--;
+                    colCoarse[(c << 4) + (val >> 4)]--;
+                    imageOffset += srcPixelStride;
+                }
+
+                srcBottomOffset += srcScanlineStride;
                 srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
@@ -168,6 +270,11 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
         }
     }
 
+    /**
+     * Filters unsigned short data with a sliding histogram median
+     * (Huang): moving the window one pixel to the right removes the
+     * leftmost column from the histogram and adds the new rightmost one.
+     */
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
@@ -185,7 +292,7 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
  
-        int values[] = new int[filterSize*filterSize];
+        MedianHistogram histogram = new MedianHistogram(16);
         int wp = filterSize;
  
         for (int k = 0; k < dnumBands; k++)  {
@@ -196,26 +303,51 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
             for (int j = 0; j < dheight; j++)  {
                 int srcPixelOffset = srcScanlineOffset;
                 int dstPixelOffset = dstScanlineOffset;
+
+                // Load all but the last column of the first window.
+                int imageVerticalOffset = srcPixelOffset;
+                for (int v = 0; v < wp-1; v++)  {
+                    int imageOffset = imageVerticalOffset;
+                    for (int u = 0; u < wp; u++)  {
+                        histogram.add(srcData[imageOffset]&0xffff);
+                        imageOffset += srcScanlineStride;
+                    }
+                    imageVerticalOffset += srcPixelStride;
+                }
  
                 for (int i = 0; i < dwidth; i++)  {
-                    int imageVerticalOffset = srcPixelOffset;
- 
-                    int valueCount = 0;
+                    // Add the rightmost column.
+                    int imageOffset = imageVerticalOffset;
                     for (int u = 0; u < wp; u++)  {
-                        int imageOffset = imageVerticalOffset;
-                        for (int v = 0; v < wp; v++)  {
-                             values[valueCount++] =
-                                 (int)(srcData[imageOffset])&0xffff;
-                             imageOffset += srcPixelStride;
-                        }
-                        imageVerticalOffset += srcScanlineStride;
+                        histogram.add(srcData[imageOffset]&0xffff);
+                        imageOffset += srcScanlineStride;
+                    }
+
+                    int val = histogram.getMedian();
+
+                    // Remove the leftmost column.
+                    imageOffset = srcPixelOffset;
+                    for (int u = 0; u < wp; u++)  {
+                        histogram.remove(srcData[imageOffset]&0xffff);
+                        imageOffset += srcScanlineStride;
                     }
-                    int val = medianFilter(values);
  
                     dstData[dstPixelOffset] = (short)val;
+                    imageVerticalOffset += srcPixelStride;
                     srcPixelOffset += srcPixelStride;
                     dstPixelOffset += dstPixelStride;
                 }
+
+                // Empty the histogram for the next row.
+                for (int v = 0; v < wp-1; v++)  {
+                    int imageOffset = srcPixelOffset;
+                    for (int u = 0; u < wp; u++)  {
+                        histogram.remove(srcData[imageOffset]&0xffff);
+                        imageOffset += srcScanlineStride;
+                    }
+                    srcPixelOffset += srcPixelStride;
+                }
+
                 srcScanlineOffset += srcScanlineStride;
                 dstScanlineOffset += dstScanlineStride;
             }
@@ -58,9 +58,158 @@ final class MedianFilterXOpImage extends MedianFilterOpImage {
               maskSize);
     }
 
+    /**
+     * Filters byte data in constant time per pixel.  A histogram is
+     * kept for each diagonal and each anti-diagonal crossing the
+     * destination row and slid down one row at a time; the median is
+     * searched for in the union of the two histograms through a pixel,
+     * the center pixel being counted once.
+     */
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize <= SELECT_MAX_SIZE) {
+            byteLoopSelect(src, dst, filterSize);
+            return;
+        }
+
+        int dwidth = dst.getWidth();
+        int dheight = dst.getHeight();
+        int dnumBands = dst.getNumBands();
+ 
+        byte dstDataArrays[][] = dst.getByteDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+ 
+        byte srcDataArrays[][] = src.getByteDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+ 
+        int wp = filterSize;
+        int offset = filterSize/2;
+        int target = wp - 1;
+
+        // Histograms of the diagonals (down and to the right) and of the
+        // anti-diagonals (down and to the left), 256 fine bins and 16
+        // coarse bins each.  The diagonal through destination pixel
+        // (i, j) is held in slot (i - j) mod dwidth, the anti-diagonal
+        // in slot (i + j) mod dwidth.
+        int diagFine[] = new int[dwidth*256];
+        int diagCoarse[] = new int[dwidth*16];
+        int antiFine[] = new int[dwidth*256];
+        int antiCoarse[] = new int[dwidth*16];
+
+        int diagStride = srcScanlineStride + srcPixelStride;
+        int antiStride = srcScanlineStride - srcPixelStride;
+ 
+        for (int k = 0; k < dnumBands; k++)  {
+            byte dstData[] = dstDataArrays[k];
+            byte srcData[] = srcDataArrays[k];
+            int srcScanlineOffset = srcBandOffsets[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < dheight; j++)  {
+                int srcPixelOffset = srcScanlineOffset;
+                int dstPixelOffset = dstScanlineOffset;
+                int slotShift = j % dwidth;
+ 
+                for (int i = 0; i < dwidth; i++)  {
+                    int diagSlot = i - slotShift;
+                    if (diagSlot < 0) {
+                        diagSlot += dwidth;
+                    }
+                    int antiSlot = i + slotShift;
+                    if (antiSlot >= dwidth) {
+                        antiSlot -= dwidth;
+                    }
+                    int diagFineOffset = diagSlot << 8;
+                    int diagCoarseOffset = diagSlot << 4;
+                    int antiFineOffset = antiSlot << 8;
+                    int antiCoarseOffset = antiSlot << 4;
+
+                    if (j == 0 || i == 0) {
+                        // A new diagonal starting at the top left.
+                        for (int t = 0; t < 256; t++) {
+                            diagFine[diagFineOffset + t] = 0;
+                        }
+                        for (int t = 0; t < 16; t++) {
+                            diagCoarse[diagCoarseOffset + t] = 0;
+                        }
+                        int imageOffset = srcPixelOffset;
+                        for (int u = 0; u < wp; u++)  {
+                            int val = srcData[imageOffset]&0xff;
+                            diagFine[diagFineOffset + val]++;
+                            diagCoarse[diagCoarseOffset + (val >> 4)]++;
+                            imageOffset += diagStride;
+                        }
+                    } else {
+                        // Slide the diagonal of (i-1, j-1) down.
+                        int val = srcData[srcPixelOffset -
+                                          diagStride]&0xff;
+                        diagFine[diagFineOffset + val]--;
+                        diagCoarse[diagCoarseOffset + (val >> 4)]--;
+                        val = srcData[srcPixelOffset +
+                                      diagStride*(wp-1)]&0xff;
+                        diagFine[diagFineOffset + val]++;
+                        diagCoarse[diagCoarseOffset + (val >> 4)]++;
+                    }
+
+                    int topRightOffset =
+                        srcPixelOffset + srcPixelStride*(filterSize-1);
+                    if (j == 0 || i == dwidth-1) {
+                        // A new anti-diagonal starting at the top right.
+                        for (int t = 0; t < 256; t++) {
+                            antiFine[antiFineOffset + t] = 0;
+                        }
+                        for (int t = 0; t < 16; t++) {
+                            antiCoarse[antiCoarseOffset + t] = 0;
+                        }
+                        int imageOffset = topRightOffset;
+                        for (int u = 0; u < wp; u++)  {
+                            int val = srcData[imageOffset]&0xff;
+                            antiFine[antiFineOffset + val]++;
+                            antiCoarse[antiCoarseOffset + (val >> 4)]++;
+                            imageOffset += antiStride;
+                        }
+                    } else {
+                        // Slide the anti-diagonal of (i+1, j-1) down.
+                        int val = srcData[topRightOffset -
+                                          antiStride]&0xff;
+                        antiFine[antiFineOffset + val]--;
+                        antiCoarse[antiCoarseOffset + (val >> 4)]--;
+                        val = srcData[topRightOffset +
+                                      antiStride*(wp-1)]&0xff;
+                        antiFine[antiFineOffset + val]++;
+                        antiCoarse[antiCoarseOffset + (val >> 4)]++;
+                    }
+
+                    int center = srcData[srcPixelOffset +
+                                         diagStride*offset]&0xff;
+                    int val =
+                        MedianHistogram.median(diagFine, diagFineOffset,
+                                               diagCoarse, diagCoarseOffset,
+                                               antiFine, antiFineOffset,
+                                               antiCoarse, antiCoarseOffset,
+                                               center, target, 4);
+
+                    dstData[dstPixelOffset] = (byte)val;
+                    srcPixelOffset += srcPixelStride;
+                    dstPixelOffset += dstPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    /**
+     * Filters byte data by selecting the median of the values under the
+     * mask, which is faster than the histograms for the smallest masks.
+     */
+    private void byteLoopSelect(RasterAccessor src, 
+                                RasterAccessor dst,
+                                int filterSize) {
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
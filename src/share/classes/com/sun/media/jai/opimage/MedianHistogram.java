@@ -0,0 +1,160 @@
+/*
+ * $RCSfile: MedianHistogram.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+/**
+ * A histogram of unsigned integral sample values which supports the
+ * insertion and removal of single values and the retrieval of the median
+ * of the values it currently holds.  It is used by the median filters
+ * to slide a window over byte and unsigned short data so that the cost
+ * of each output pixel does not grow with the area of the mask.
+ *
+ * <p> The counts are kept at two levels: one bin per value and one
+ * coarse bin per block of <code>1 << shift</code> consecutive values.
+ * The median is tracked incrementally, in the manner of Huang's
+ * algorithm, by remembering the last median and the number of values
+ * below it; the coarse bins allow whole empty or full blocks to be
+ * skipped when it moves.
+ *
+ * <p> The static <code>median()</code> method finds the median of the
+ * union of two histograms in the same two-level layout, as in
+ * Perreault and H&eacute;bert's constant time median filter.
+ *
+ * @since JAI 1.1.4
+ */
+final class MedianHistogram {
+
+    /** The number of values in each block is <code>1 << shift</code>. */
+    final int shift;
+
+    /** The count of each value. */
+    final int[] fine;
+
+    /** The count of the values in each block. */
+    final int[] coarse;
+
+    private final int blockMask;
+
+    private int count = 0;
+    private int median = 0;
+    private int below = 0;
+
+    /**
+     * Constructs an empty histogram of values in the range
+     * [0, 2<sup>numBits</sup>).
+     */
+    MedianHistogram(int numBits) {
+        shift = numBits/2;
+        blockMask = (1 << shift) - 1;
+        fine = new int[1 << numBits];
+        coarse = new int[1 << (numBits - shift)];
+    }
+
+    /** Adds a value. */
+    void add(int value) {
+        fine[value]++;
+        coarse[value >> shift]++;
+        count++;
+        if (value < median) {
+            below++;
+        }
+    }
+
+    /** Removes a value which was previously added. */
+    void remove(int value) {
+        fine[value]--;
+        coarse[value >> shift]--;
+        count--;
+        if (value < median) {
+            below--;
+        }
+    }
+
+    /**
+     * Returns the median of the values held, that is the element at
+     * index <code>count/2</code> were they sorted.  The histogram
+     * must not be empty.
+     */
+    int getMedian() {
+        int target = count/2;
+
+        // Move down while too many values lie below the median.
+        while (below > target) {
+            if ((median & blockMask) == 0 &&
+                below - coarse[(median >> shift) - 1] > target) {
+                below -= coarse[(median >> shift) - 1];
+                median -= blockMask + 1;
+            } else {
+                median--;
+                below -= fine[median];
+            }
+        }
+
+        // Move up while the median and the values below it are too few.
+        while (below + fine[median] <= target) {
+            if ((median & blockMask) == 0 &&
+                below + coarse[median >> shift] <= target) {
+                below += coarse[median >> shift];
+                median += blockMask + 1;
+            } else {
+                below += fine[median];
+                median++;
+            }
+        }
+
+        return median;
+    }
+
+    /**
+     * Returns the value at index <code>target</code> of the sorted union
+     * of the values counted by two histograms, less one occurrence of
+     * <code>exclude</code>.  Each histogram is given by its fine and
+     * coarse bins starting at the supplied offsets.
+     *
+     * @param shift the base 2 logarithm of the block size.
+     */
+    static int median(int[] fineA, int fineOffsetA,
+                      int[] coarseA, int coarseOffsetA,
+                      int[] fineB, int fineOffsetB,
+                      int[] coarseB, int coarseOffsetB,
+                      int exclude, int target, int shift) {
+        int excludeBlock = exclude >> shift;
+
+        int sum = 0;
+        int block = 0;
+        while (true) {
+            int n = coarseA[coarseOffsetA + block] +
+                coarseB[coarseOffsetB + block];
+            if (block == excludeBlock) {
+                n--;
+            }
+            if (sum + n > target) {
+                break;
+            }
+            sum += n;
+            block++;
+        }
+
+        int value = block << shift;
+        while (true) {
+            int n = fineA[fineOffsetA + value] + fineB[fineOffsetB + value];
+            if (value == exclude) {
+                n--;
+            }
+            if (sum + n > target) {
+                return value;
+            }
+            sum += n;
+            value++;
+        }
+    }
+}
@@ -60,6 +60,27 @@ public class MosaicOpImage extends OpImage {
     private BorderExtender zeroExtender;
     private PlanarImage[] roiImage;
 
+    /**
+     * The region outside which each source contributes nothing to the
+     * destination: the union of its bounds and those of its alpha or
+     * ROI image, or <code>null</code> if its extension counts.
+     */
+    private Rectangle[] footprints;
+
+    /**
+     * The minimum number of bins of the source index.
+     */
+    private static final int MIN_INDEX_BINS = 1024;
+
+    /**
+     * The index of the sources: for each bin of <code>binTiles</code>
+     * by <code>binTiles</code> tiles, the indices in increasing order of
+     * the sources which intersect it.
+     */
+    private int[][] sourceIndex;
+    private int binTiles;
+    private int numXBins;
+
     private static final ImageLayout getLayout(Vector sources,
                                                ImageLayout layout) {
 
@@ -375,6 +396,100 @@ public class MosaicOpImage extends OpImage {
                 }
             }
         }
+
+        // Determine the footprints of the sources.
+        footprints = new Rectangle[numSources];
+        for(int i = 0; i < numSources; i++) {
+            Rectangle footprint = getSourceImage(i).getBounds();
+            if(this.sourceAlpha != null && this.sourceAlpha[i] != null) {
+                footprint = footprint.union(this.sourceAlpha[i].getBounds());
+            } else if(this.sourceROI != null && this.sourceROI[i] != null) {
+                footprint = footprint.union(roiImage[i].getBounds());
+            } else {
+                // The extension counts if the threshold does not
+                // exceed it.  The floating point constant extender
+                // fills the bands other than the first with zero.
+                for(int j = 0; j < numBands; j++) {
+                    double extension = j > 0 &&
+                        (dataType == DataBuffer.TYPE_FLOAT ||
+                         dataType == DataBuffer.TYPE_DOUBLE) ?
+                        0.0 : sourceExtensionConstant;
+                    if(extension >= this.sourceThreshold[i][j]) {
+                        footprint = null;
+                        break;
+                    }
+                }
+            }
+            footprints[i] = footprint;
+        }
+
+        buildSourceIndex();
+    }
+
+    /**
+     * Builds the index of the sources.  The tiles are grouped into bins
+     * so that there are at most four bins per source, or
+     * <code>MIN_INDEX_BINS</code> if more, and each source is listed in
+     * the bins its bounds intersect.
+     */
+    private void buildSourceIndex() {
+        int numSources = getNumSources();
+        int minTileX = getMinTileX();
+        int minTileY = getMinTileY();
+        int numXTiles = getNumXTiles();
+        int numYTiles = getNumYTiles();
+
+        // Choose the number of tiles per bin.
+        long maxBins = Math.max(MIN_INDEX_BINS, 4L*numSources);
+        binTiles = 1;
+        while((long)((numXTiles + binTiles - 1)/binTiles)*
+              ((numYTiles + binTiles - 1)/binTiles) > maxBins) {
+            binTiles *= 2;
+        }
+        numXBins = (numXTiles + binTiles - 1)/binTiles;
+        int numYBins = (numYTiles + binTiles - 1)/binTiles;
+
+        // Find the range of bins of each source and count the sources
+        // in each bin.
+        Rectangle bounds = getBounds();
+        int[] ranges = new int[4*numSources];
+        int[] counts = new int[numXBins*numYBins];
+        for(int i = 0; i < numSources; i++) {
+            Rectangle r = bounds.intersection(getSourceImage(i).getBounds());
+            if(r.isEmpty()) {
+                ranges[4*i] = 0;
+                ranges[4*i + 2] = -1;
+                continue;
+            }
+            int minBinX = (XToTileX(r.x) - minTileX)/binTiles;
+            int maxBinX = (XToTileX(r.x + r.width - 1) - minTileX)/binTiles;
+            int minBinY = (YToTileY(r.y) - minTileY)/binTiles;
+            int maxBinY = (YToTileY(r.y + r.height - 1) - minTileY)/binTiles;
+            ranges[4*i] = minBinX;
+            ranges[4*i + 1] = minBinY;
+            ranges[4*i + 2] = maxBinX;
+            ranges[4*i + 3] = maxBinY;
+            for(int by = minBinY; by <= maxBinY; by++) {
+                for(int bx = minBinX; bx <= maxBinX; bx++) {
+                    counts[by*numXBins + bx]++;
+                }
+            }
+        }
+
+        // Fill the bins.
+        sourceIndex = new int[counts.length][];
+        for(int b = 0; b < counts.length; b++) {
+            sourceIndex[b] = new int[counts[b]];
+            counts[b] = 0;
+        }
+        for(int i = 0; i < numSources; i++) {
+            for(int by = ranges[4*i + 1]; by <= ranges[4*i + 3]; by++) {
+                for(int bx = ranges[4*i]; bx <= ranges[4*i + 2]; bx++) {
+                    int b = by*numXBins + bx;
+                    sourceIndex[b][counts[b]++] = i;
+                }
+            }
+        }
     }
 
     public Rectangle mapDestRect(Rectangle destRect,
@@ -412,54 +527,202 @@ public class MosaicOpImage extends OpImage {
         // Determine the active area; tile intersects with image's bounds.
         Rectangle destRect = getTileRect(tileX, tileY);
 
-        int numSources = getNumSources();
+        // Get the sources which may intersect the tile from the index.
+        int[] bin =
+            sourceIndex[((tileY - getMinTileY())/binTiles)*numXBins +
+                        (tileX - getMinTileX())/binTiles];
+
+        // Keep those which do intersect it in increasing order so that
+        // the overlay priority is preserved, along with the part of the
+        // tile to which they contribute.
+        int numCandidates = 0;
+        int[] candidates = new int[bin.length];
+        Rectangle[] overlaps = new Rectangle[bin.length];
+        boolean isCovered = true;
+        for (int k = 0; k < bin.length; k++) {
+            int i = bin[k];
+            Rectangle srcRect = mapDestRect(destRect, i);
+            if(srcRect.isEmpty()) {
+                continue;
+            }
+
+            Rectangle overlap = footprints[i] == null ?
+                destRect : destRect.intersection(footprints[i]);
+            candidates[numCandidates] = i;
+            overlaps[numCandidates++] = overlap;
+
+            if(!overlap.equals(destRect)) {
+                isCovered = false;
+            }
+        }
+
+        if(isCovered) {
+            computeArea(dest, destRect, candidates, numCandidates);
+        } else {
+            computeCells(dest, destRect, candidates, overlaps, numCandidates);
+        }
+
+        return dest;
+    }
 
-        Raster[] rasterSources = new Raster[numSources];
+    /**
+     * Computes a rectangle of the destination from the sources of
+     * which the indices are given.  Sources, alpha and ROI images which
+     * contain the rectangle are read in place if it lies within one of
+     * their tiles; the others are extended to the rectangle.
+     */
+    private void computeArea(WritableRaster dest,
+                             Rectangle destRect,
+                             int[] indices,
+                             int numIndices) {
+        Raster[] rasterSources = new Raster[numIndices];
         Raster[] alpha = sourceAlpha != null ?
-            new Raster[numSources] : null;
+            new Raster[numIndices] : null;
         Raster[] roi = sourceROI != null ?
-            new Raster[numSources] : null;
+            new Raster[numIndices] : null;
 
         // Cobble areas
-        for (int i = 0; i < numSources; i++) {
+        for (int k = 0; k < numIndices; k++) {
+            int i = indices[k];
             PlanarImage source = getSourceImage(i);
-            Rectangle srcRect = mapDestRect(destRect, i);
 
-            // If srcRect is empty, set the Raster for this source to
-            // null; otherwise pass srcRect to getData(). If srcRect
-            // is null, getData() will return a Raster containing the
-            // data of the entire source image.
-            rasterSources[i] = srcRect != null && srcRect.isEmpty() ?
-                null : source.getExtendedData(destRect, sourceExtender);
-
-            if(rasterSources[i] != null) {
-                if(sourceAlpha != null && sourceAlpha[i] != null) {
-                    alpha[i] = sourceAlpha[i].getExtendedData(destRect,
-                                                              zeroExtender);
-                }
+            rasterSources[k] = source.getExtendedData(destRect,
+                                                      sourceExtender);
 
-                if(sourceROI != null && sourceROI[i] != null) {
-                    roi[i] = roiImage[i].getExtendedData(destRect,
-                                                         zeroExtender);
-                }
+            if(sourceAlpha != null && sourceAlpha[i] != null) {
+                alpha[k] = sourceAlpha[i].getExtendedData(destRect,
+                                                          zeroExtender);
+            }
+
+            if(sourceROI != null && sourceROI[i] != null) {
+                roi[k] = roiImage[i].getExtendedData(destRect,
+                                                     zeroExtender);
             }
         }
 
-        computeRect(rasterSources, dest, destRect, alpha, roi);
+        computeRect(rasterSources, dest, destRect, alpha, roi, indices);
+
+        for (int k = 0; k < numIndices; k++) {
+            Raster sourceData = rasterSources[k];
+            PlanarImage source = getSourceImage(indices[k]);
+
+            // Recycle the source tile
+            if(source.overlapsMultipleTiles(sourceData.getBounds())) {
+                recycleTile(sourceData);
+            }
+        }
+    }
 
-        for (int i = 0; i < numSources; i++) {
-            Raster sourceData = rasterSources[i];
-            if(sourceData != null) {
-                PlanarImage source = getSourceImage(i);
+    /**
+     * Computes a tile which some sources cover only in part.  The tile
+     * is divided along the edges of the sources into cells each of which
+     * every source either covers or misses, and each cell is computed
+     * from the sources which cover it so that none of them needs to be
+     * extended.  Adjacent cells of a row covered by the same sources are
+     * merged.
+     */
+    private void computeCells(WritableRaster dest,
+                              Rectangle destRect,
+                              int[] candidates,
+                              Rectangle[] overlaps,
+                              int numCandidates) {
+        // Collect the edges of the cells.
+        int[] xEdges = new int[2*numCandidates + 2];
+        int[] yEdges = new int[2*numCandidates + 2];
+        xEdges[0] = destRect.x;
+        xEdges[1] = destRect.x + destRect.width;
+        yEdges[0] = destRect.y;
+        yEdges[1] = destRect.y + destRect.height;
+        for (int k = 0; k < numCandidates; k++) {
+            Rectangle r = overlaps[k];
+            xEdges[2*k + 2] = r.x;
+            xEdges[2*k + 3] = r.x + r.width;
+            yEdges[2*k + 2] = r.y;
+            yEdges[2*k + 3] = r.y + r.height;
+        }
+        int numXEdges = sortUnique(xEdges);
+        int numYEdges = sortUnique(yEdges);
+
+        int[] active = new int[numCandidates];
+        int[] previous = new int[numCandidates];
+
+        for (int yi = 0; yi < numYEdges - 1; yi++) {
+            int y = yEdges[yi];
+            int height = yEdges[yi + 1] - y;
+
+            int cellX = xEdges[0];
+            int numPrevious = 0;
+            for (int xi = 0; xi < numXEdges - 1; xi++) {
+                int x = xEdges[xi];
+
+                // Find the sources which cover the cell.
+                int numActive = 0;
+                for (int k = 0; k < numCandidates; k++) {
+                    Rectangle r = overlaps[k];
+                    if(r.x <= x && x < r.x + r.width &&
+                       r.y <= y && y < r.y + r.height) {
+                        active[numActive++] = candidates[k];
+                    }
+                }
 
-                // Recycle the source tile
-                if(source.overlapsMultipleTiles(sourceData.getBounds())) {
-                    recycleTile(sourceData);
+                // Compute the cells to the left if the sources differ.
+                if(xi > 0 &&
+                   !(numActive == numPrevious &&
+                     equals(active, previous, numActive))) {
+                    computeCell(dest, new Rectangle(cellX, y,
+                                                    x - cellX, height),
+                                previous, numPrevious);
+                    cellX = x;
                 }
+
+                int[] swap = previous;
+                previous = active;
+                active = swap;
+                numPrevious = numActive;
             }
+
+            computeCell(dest, new Rectangle(cellX, y,
+                                            xEdges[numXEdges - 1] - cellX,
+                                            height),
+                        previous, numPrevious);
         }
+    }
 
-        return dest;
+    /** Computes a cell from the sources which cover it. */
+    private void computeCell(WritableRaster dest,
+                             Rectangle cellRect,
+                             int[] indices,
+                             int numIndices) {
+        if(numIndices == 0) {
+            ImageUtil.fillBackground(dest, cellRect, backgroundValues);
+        } else {
+            computeArea(dest, cellRect, indices, numIndices);
+        }
+    }
+
+    /**
+     * Sorts an array and moves its distinct values to its head.
+     * Returns the number of distinct values.
+     */
+    private static int sortUnique(int[] values) {
+        Arrays.sort(values);
+        int n = 1;
+        for (int i = 1; i < values.length; i++) {
+            if(values[i] != values[n - 1]) {
+                values[n++] = values[i];
+            }
+        }
+        return n;
+    }
+
+    /** Whether the first <code>n</code> elements of two arrays are equal. */
+    private static boolean equals(int[] a, int[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            if(a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     protected void computeRect(Raster[] sources,
@@ -473,6 +736,21 @@ public class MosaicOpImage extends OpImage {
                                Rectangle destRect,
                                Raster[] alphaRaster,
                                Raster[] roiRaster) {
+        computeRect(sources, dest, destRect, alphaRaster, roiRaster, null);
+    }
+
+    /**
+     * Computes a rectangle from the supplied rasters.  Element
+     * <code>k</code> of the raster arrays belongs to the source at index
+     * <code>sourceIndices[k]</code>, or at index <code>k</code> if
+     * <code>sourceIndices</code> is <code>null</code>.
+     */
+    private void computeRect(Raster[] sources,
+                             WritableRaster dest,
+                             Rectangle destRect,
+                             Raster[] alphaRaster,
+                             Raster[] roiRaster,
+                             int[] sourceIndices) {
         // Save the source count.
         int numSources = sources.length;
 
@@ -524,6 +802,7 @@ public class MosaicOpImage extends OpImage {
         if(alphaRaster != null) {
             for(int i = 0; i < numSources; i++) {
                 if(alphaRaster[i] != null) {
+                    int index = sourceIndices == null ? i : sourceIndices[i];
                     SampleModel alphaSM = alphaRaster[i].getSampleModel();
                     int alphaFormatTagID =
                         RasterAccessor.findCompatibleTag(null, alphaSM);
@@ -531,30 +810,49 @@ public class MosaicOpImage extends OpImage {
                         new RasterFormatTag(alphaSM, alphaFormatTagID);
                     a[i] = new RasterAccessor(alphaRaster[i], destRect,  
                                               alphaFormatTag,
-                                              sourceAlpha[i].getColorModel());
+                                              sourceAlpha[index].getColorModel());
                 }
             }
         }
 
+        // Initialize weight type and threshold arrays.
+        int[] weightTypes = new int[numSources];
+        double[][] thresholds = sourceThreshold;
+        if(sourceIndices != null) {
+            thresholds = new double[numSources][];
+        }
+        for(int i = 0; i < numSources; i++) {
+            int index = sourceIndices == null ? i : sourceIndices[i];
+            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
+            if(a[i] != null) {
+                weightTypes[i] = WEIGHT_TYPE_ALPHA;
+            } else if(sourceROI != null && sourceROI[index] != null) {
+                weightTypes[i] = WEIGHT_TYPE_ROI;
+            }
+            if(sourceIndices != null) {
+                thresholds[i] = sourceThreshold[index];
+            }
+        }
+
         // Branch to data type-specific method.
         switch (d.getDataType()) {
         case DataBuffer.TYPE_BYTE:
-            computeRectByte(s, d, a, roiRaster);
+            computeRectByte(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         case DataBuffer.TYPE_USHORT:
-            computeRectUShort(s, d, a, roiRaster);
+            computeRectUShort(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         case DataBuffer.TYPE_SHORT:
-            computeRectShort(s, d, a, roiRaster);
+            computeRectShort(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         case DataBuffer.TYPE_INT:
-            computeRectInt(s, d, a, roiRaster);
+            computeRectInt(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         case DataBuffer.TYPE_FLOAT:
-            computeRectFloat(s, d, a, roiRaster);
+            computeRectFloat(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         case DataBuffer.TYPE_DOUBLE:
-            computeRectDouble(s, d, a, roiRaster);
+            computeRectDouble(s, d, a, roiRaster, weightTypes, thresholds);
             break;
         }
 
@@ -564,7 +862,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectByte(RasterAccessor[] src,
                                  RasterAccessor dst,
                                  RasterAccessor[] alfa,
-                                 Raster[] roi) {
+                                 Raster[] roi,
+                                 int[] weightTypes,
+                                 double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -630,17 +930,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -720,7 +1009,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     (sourceValue&0xff) >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -803,7 +1092,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     (sourceValue&0xff) >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -832,7 +1121,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectUShort(RasterAccessor[] src,
                                    RasterAccessor dst,
                                    RasterAccessor[] alfa,
-                                   Raster[] roi) {
+                                   Raster[] roi,
+                                   int[] weightTypes,
+                                   double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -898,17 +1189,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -988,7 +1268,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     (sourceValue&0xffff) >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1071,7 +1351,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     (sourceValue&0xffff) >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1100,7 +1380,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectShort(RasterAccessor[] src,
                                   RasterAccessor dst,
                                   RasterAccessor[] alfa,
-                                  Raster[] roi) {
+                                  Raster[] roi,
+                                  int[] weightTypes,
+                                  double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -1166,17 +1448,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -1256,7 +1527,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1339,7 +1610,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1368,7 +1639,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectInt(RasterAccessor[] src,
                                 RasterAccessor dst,
                                 RasterAccessor[] alfa,
-                                Raster[] roi) {
+                                Raster[] roi,
+                                int[] weightTypes,
+                                double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -1434,17 +1707,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -1524,7 +1786,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1607,7 +1869,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1636,7 +1898,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectFloat(RasterAccessor[] src,
                                   RasterAccessor dst,
                                   RasterAccessor[] alfa,
-                                  Raster[] roi) {
+                                  Raster[] roi,
+                                  int[] weightTypes,
+                                  double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -1702,17 +1966,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -1792,7 +2045,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1873,7 +2126,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1902,7 +2155,9 @@ public class MosaicOpImage extends OpImage {
     private void computeRectDouble(RasterAccessor[] src,
                                    RasterAccessor dst,
                                    RasterAccessor[] alfa,
-                                   Raster[] roi) {
+                                   Raster[] roi,
+                                   int[] weightTypes,
+                                   double[][] thresholds) {
         // Save the source count.
         int numSources = src.length;
 
@@ -1968,17 +2223,6 @@ public class MosaicOpImage extends OpImage {
             }
         }
 
-        // Initialize weight type arrays.
-        int[] weightTypes = new int[numSources];
-        for(int i = 0; i < numSources; i++) {
-            weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
-            if(alfa[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
-                weightTypes[i] = WEIGHT_TYPE_ROI;
-            }
-        }
-
         // Set up source offset and data variabls.
         int[] sLineOffsets = new int[numSources];
         int[] sPixelOffsets = new int[numSources];
@@ -2058,7 +2302,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -2139,7 +2383,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -35,6 +35,15 @@ import java.util.Map;
 
 
 /**
+ * A <code>CRIF</code> supporting the "Scale" operation in the rendered
+ * and renderable image layers.
+ *
+ * <p> If the source is the rendering of a "JPEG" or "Stream" operation
+ * on JPEG data which the scale factors reduce by at least 2, the decoder
+ * is asked for the image reduced by 2, 4 or 8, which is then scaled by
+ * the remaining factors, if the hint
+ * <code>JAI.KEY_JPEG_SCALED_DECODING</code> is <code>Boolean.TRUE</code>.
+ *
  * @see ScaleOpImage
  */
 public class ScaleCRIF extends CRIFImpl {
@@ -72,6 +81,20 @@ public class ScaleCRIF extends CRIFImpl {
         float yTrans = paramBlock.getFloatParameter(3);
         Interpolation interp = (Interpolation)paramBlock.getObjectParameter(4);
 
+        // If the source is decoded from JPEG data have the decoder do as
+        // much of a reduction as it can.
+        RenderedImage reduced =
+            CodecRIFUtil.createScaledJPEGImage(source, xScale, yScale,
+                                               false, renderHints);
+        if (reduced != null) {
+            int n = source.getWidth()/reduced.getWidth();
+            ParameterBlock pb = (ParameterBlock)paramBlock.clone();
+            pb.setSource(reduced, 0);
+            pb.set(xScale*n, 0);
+            pb.set(yScale*n, 1);
+            return create(pb, renderHints);
+        }
+
 	// Check and see if we are scaling by 1.0 in both x and y and no
         // translations. If so call the copy operation.
 	
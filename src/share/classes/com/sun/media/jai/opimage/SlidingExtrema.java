@@ -0,0 +1,372 @@
+/*
+ * $RCSfile: SlidingExtrema.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+/**
+ * Computes the maximum or minimum of the samples under a rectangular
+ * window sliding over a two-dimensional array.  It is used by the max
+ * and min filters and by dilation and erosion with flat kernels.
+ *
+ * <p> The rectangle is decomposed into a horizontal and a vertical
+ * pass, each of which uses the algorithm of van Herk and of Gil and
+ * Werman: the sequence is split into blocks as long as the window, the
+ * running extremum is computed forwards and backwards within each block,
+ * and the extremum of a window is that of the backward value at its
+ * first element and the forward value at its last element.  This takes
+ * about three comparisons per sample and pass whatever the size of the
+ * window.
+ *
+ * <p> The arrays are processed in place.  Given data of
+ * <code>width</code> by <code>height</code> samples stored row by row,
+ * on return the element at <code>(x, y)</code>, for <code>x</code>
+ * less than <code>width - kw + 1</code> and <code>y</code> less than
+ * <code>height - kh + 1</code>, is the extremum of the
+ * <code>kw</code> by <code>kh</code> samples whose upper left corner
+ * was at <code>(x, y)</code>.  The other elements are undefined.
+ *
+ * <p> Samples which do not compare greater (respectively less) than the
+ * <code>initial</code> value, including <code>NaN</code>s, are ignored
+ * by the floating point methods, as they are by a linear scan starting
+ * from that value.
+ *
+ * @since JAI 1.1.4
+ */
+final class SlidingExtrema {
+
+    private SlidingExtrema() {}
+
+    /**
+     * Replaces each element by the maximum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is.
+     *
+     * @param buffer scratch space of at least
+     *        <code>max(width, height)</code> elements.
+     */
+    static void max(int[] data, int width, int height,
+                    int kw, int kh, int[] buffer) {
+        if (kw > 1) {
+            for (int y = 0; y < height; y++) {
+                maxPass(data, y*width, 1, width, kw, buffer);
+            }
+        }
+        if (kh > 1) {
+            int numColumns = width - kw + 1;
+            for (int x = 0; x < numColumns; x++) {
+                maxPass(data, x, width, height, kh, buffer);
+            }
+        }
+    }
+
+    /**
+     * Replaces each element by the minimum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is.
+     *
+     * @param buffer scratch space of at least
+     *        <code>max(width, height)</code> elements.
+     */
+    static void min(int[] data, int width, int height,
+                    int kw, int kh, int[] buffer) {
+        if (kw > 1) {
+            for (int y = 0; y < height; y++) {
+                minPass(data, y*width, 1, width, kw, buffer);
+            }
+        }
+        if (kh > 1) {
+            int numColumns = width - kw + 1;
+            for (int x = 0; x < numColumns; x++) {
+                minPass(data, x, width, height, kh, buffer);
+            }
+        }
+    }
+
+    /**
+     * Replaces each element by the maximum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is, or by
+     * <code>initial</code> if no sample of the window exceeds it.
+     */
+    static void max(float[] data, int width, int height,
+                    int kw, int kh, float[] buffer, float initial) {
+        for (int y = 0; y < height; y++) {
+            maxPass(data, y*width, 1, width, kw, buffer, initial);
+        }
+        int numColumns = width - kw + 1;
+        for (int x = 0; x < numColumns; x++) {
+            maxPass(data, x, width, height, kh, buffer, initial);
+        }
+    }
+
+    /**
+     * Replaces each element by the minimum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is, or by
+     * <code>initial</code> if no sample of the window is less than it.
+     */
+    static void min(float[] data, int width, int height,
+                    int kw, int kh, float[] buffer, float initial) {
+        for (int y = 0; y < height; y++) {
+            minPass(data, y*width, 1, width, kw, buffer, initial);
+        }
+        int numColumns = width - kw + 1;
+        for (int x = 0; x < numColumns; x++) {
+            minPass(data, x, width, height, kh, buffer, initial);
+        }
+    }
+
+    /**
+     * Replaces each element by the maximum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is, or by
+     * <code>initial</code> if no sample of the window exceeds it.
+     */
+    static void max(double[] data, int width, int height,
+                    int kw, int kh, double[] buffer, double initial) {
+        for (int y = 0; y < height; y++) {
+            maxPass(data, y*width, 1, width, kw, buffer, initial);
+        }
+        int numColumns = width - kw + 1;
+        for (int x = 0; x < numColumns; x++) {
+            maxPass(data, x, width, height, kh, buffer, initial);
+        }
+    }
+
+    /**
+     * Replaces each element by the minimum of the <code>kw</code> by
+     * <code>kh</code> window whose upper left corner it is, or by
+     * <code>initial</code> if no sample of the window is less than it.
+     */
+    static void min(double[] data, int width, int height,
+                    int kw, int kh, double[] buffer, double initial) {
+        for (int y = 0; y < height; y++) {
+            minPass(data, y*width, 1, width, kw, buffer, initial);
+        }
+        int numColumns = width - kw + 1;
+        for (int x = 0; x < numColumns; x++) {
+            minPass(data, x, width, height, kh, buffer, initial);
+        }
+    }
+
+    /*
+     * The one-dimensional passes.  Each replaces the first
+     * length - window + 1 of the length elements starting at offset
+     * and spaced by stride with the extremum of the window starting
+     * there.  The backward extrema of all blocks are stored in suffix
+     * first; the forward extremum is then carried along while the
+     * results are written.  A result is written only behind the element
+     * being read so that the pass may be done in place.
+     */
+
+    private static void maxPass(int[] data, int offset, int stride,
+                                int length, int window, int[] suffix) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            int m = Integer.MIN_VALUE;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                int v = data[p];
+                if (v > m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        int m = Integer.MIN_VALUE;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = Integer.MIN_VALUE;
+                blockStart += window;
+            }
+            int v = data[p];
+            if (v > m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                int s = suffix[x - window + 1];
+                data[p - lag] = (s > m) ? s : m;
+            }
+        }
+    }
+
+    private static void minPass(int[] data, int offset, int stride,
+                                int length, int window, int[] suffix) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            int m = Integer.MAX_VALUE;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                int v = data[p];
+                if (v < m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        int m = Integer.MAX_VALUE;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = Integer.MAX_VALUE;
+                blockStart += window;
+            }
+            int v = data[p];
+            if (v < m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                int s = suffix[x - window + 1];
+                data[p - lag] = (s < m) ? s : m;
+            }
+        }
+    }
+
+    private static void maxPass(float[] data, int offset, int stride,
+                                int length, int window, float[] suffix,
+                                float initial) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            float m = initial;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                float v = data[p];
+                if (v > m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        float m = initial;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = initial;
+                blockStart += window;
+            }
+            float v = data[p];
+            if (v > m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                float s = suffix[x - window + 1];
+                data[p - lag] = (s > m) ? s : m;
+            }
+        }
+    }
+
+    private static void minPass(float[] data, int offset, int stride,
+                                int length, int window, float[] suffix,
+                                float initial) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            float m = initial;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                float v = data[p];
+                if (v < m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        float m = initial;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = initial;
+                blockStart += window;
+            }
+            float v = data[p];
+            if (v < m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                float s = suffix[x - window + 1];
+                data[p - lag] = (s < m) ? s : m;
+            }
+        }
+    }
+
+    private static void maxPass(double[] data, int offset, int stride,
+                                int length, int window, double[] suffix,
+                                double initial) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            double m = initial;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                double v = data[p];
+                if (v > m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        double m = initial;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = initial;
+                blockStart += window;
+            }
+            double v = data[p];
+            if (v > m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                double s = suffix[x - window + 1];
+                data[p - lag] = (s > m) ? s : m;
+            }
+        }
+    }
+
+    private static void minPass(double[] data, int offset, int stride,
+                                int length, int window, double[] suffix,
+                                double initial) {
+        for (int start = 0; start < length; start += window) {
+            int end = Math.min(start + window, length) - 1;
+            double m = initial;
+            for (int x = end, p = offset + end*stride; x >= start;
+                 x--, p -= stride) {
+                double v = data[p];
+                if (v < m) {
+                    m = v;
+                }
+                suffix[x] = m;
+            }
+        }
+
+        double m = initial;
+        int blockStart = 0;
+        int lag = (window - 1)*stride;
+        for (int x = 0, p = offset; x < length; x++, p += stride) {
+            if (x == blockStart) {
+                m = initial;
+                blockStart += window;
+            }
+            double v = data[p];
+            if (v < m) {
+                m = v;
+            }
+            if (x >= window - 1) {
+                double s = suffix[x - window + 1];
+                data[p - lag] = (s < m) ? s : m;
+            }
+        }
+    }
+}
@@ -129,7 +129,8 @@ public class StreamRIF implements RenderedImageFactory {
         // Try to create an ImageDecoder directly
         for (int i = 0; i < names.length; i++) {
             ImageDecoder dec =
-                ImageCodec.createImageDecoder(names[i], src, param);
+                ImageCodec.createImageDecoder(names[i], src,
+                    CodecRIFUtil.getDecodeParam(names[i], param, renderHints));
             RenderedImage im = null;
             try {
                 im = dec.decodeAsRenderedImage();
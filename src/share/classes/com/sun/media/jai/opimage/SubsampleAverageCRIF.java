@@ -21,7 +21,22 @@ import javax.media.jai.ImageLayout;
 import javax.media.jai.CRIFImpl;
 
 /**
+ * A <code>CRIF</code> supporting the "SubsampleAverage" operation in the
+ * rendered and renderable image layers.
+ *
+ * <p> If the hint <code>JAI.KEY_INTEGRAL_IMAGE</code> gives an
+ * "IntegralImage" of the source, each destination pixel is computed from
+ * it in constant time whatever the scale factors.
+ *
+ * <p> If the source is the rendering of a "JPEG" or "Stream" operation
+ * on JPEG data which the scale factors reduce by at least 2, the decoder
+ * is asked for the image averaged over blocks of 2, 4 or 8 pixels which
+ * divide the averaging blocks, and which is then averaged by the
+ * remaining factors, if the hint
+ * <code>JAI.KEY_JPEG_SCALED_DECODING</code> is <code>Boolean.TRUE</code>.
+ *
  * @see SubsampleAverageOpImage
+ * @see IntegralSubsampleAverageOpImage
  */
 public class SubsampleAverageCRIF extends CRIFImpl {
 
@@ -53,6 +68,31 @@ public class SubsampleAverageCRIF extends CRIFImpl {
 	    return source;
 	}
 
+        // If the source is decoded from JPEG data have the decoder do as
+        // much of the averaging as it can.
+        RenderedImage reduced =
+            CodecRIFUtil.createScaledJPEGImage(source, scaleX, scaleY,
+                                               true, renderHints);
+        if (reduced != null) {
+            int n = source.getWidth()/reduced.getWidth();
+            ParameterBlock pb = (ParameterBlock)paramBlock.clone();
+            pb.setSource(reduced, 0);
+            pb.set(scaleX*n, 0);
+            pb.set(scaleY*n, 1);
+            return create(pb, renderHints);
+        }
+
+        IntegralImageOpImage integral =
+            IntegralImageOpImage.getIntegralImageHint(renderHints,
+                                                      source,
+                                                      false);
+        if (integral != null) {
+            return new IntegralSubsampleAverageOpImage(integral,
+                                                       renderHints,
+                                                       layout,
+                                                       scaleX, scaleY);
+        }
+
         return new SubsampleAverageOpImage(source, layout, renderHints,
                                            scaleX, scaleY);
     }
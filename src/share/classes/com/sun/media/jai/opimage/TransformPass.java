@@ -0,0 +1,107 @@
+/*
+ * $RCSfile: TransformPass.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.opimage;
+
+/**
+ * A pass of one-dimensional transforms over the rows or the columns of
+ * an image, which may be divided among several threads.  The sequences
+ * are divided into contiguous ranges, one per thread, and the range of
+ * the first thread is transformed by the calling thread.
+ *
+ * @since JAI 1.1.4
+ */
+abstract class TransformPass {
+
+    /** The minimum number of samples transformed by each thread. */
+    private static final int MIN_SAMPLES_PER_THREAD = 65536;
+
+    /**
+     * Returns the number of threads among which to divide a pass of
+     * <code>count</code> transforms of the given length.
+     */
+    static int getNumThreads(int count, int length) {
+        long numThreads = (long)count*length/MIN_SAMPLES_PER_THREAD;
+        numThreads = Math.min(numThreads, count);
+        numThreads = Math.min(numThreads,
+                              Runtime.getRuntime().availableProcessors());
+        return (int)Math.max(numThreads, 1);
+    }
+
+    /**
+     * Transforms the sequences from <code>start</code> inclusive to
+     * <code>end</code> exclusive.
+     *
+     * @param thread The index of the calling thread, from zero to the
+     * number of threads less one, by which it may select a transform
+     * object of its own.
+     */
+    abstract void transform(int thread, int start, int end);
+
+    /**
+     * Transforms <code>count</code> sequences using
+     * <code>numThreads</code> threads, returning when all are done.
+     * An exception thrown by any thread is rethrown.
+     */
+    final void run(int numThreads, final int count) {
+        if(numThreads <= 1) {
+            transform(0, 0, count);
+            return;
+        }
+
+        final Throwable[] errors = new Throwable[numThreads];
+        Thread[] threads = new Thread[numThreads - 1];
+        for(int t = 1; t < numThreads; t++) {
+            final int thread = t;
+            final int start = (int)((long)count*t/numThreads);
+            final int end = (int)((long)count*(t + 1)/numThreads);
+            threads[t - 1] = new Thread("TransformPass") {
+                    public void run() {
+                        try {
+                            transform(thread, start, end);
+                        } catch(Throwable e) {
+                            errors[thread] = e;
+                        }
+                    }
+                };
+            threads[t - 1].setDaemon(true);
+            threads[t - 1].start();
+        }
+
+        try {
+            transform(0, 0, count/numThreads);
+        } catch(Throwable e) {
+            errors[0] = e;
+        }
+
+        boolean interrupted = false;
+        for(int t = 0; t < threads.length; t++) {
+            while(threads[t].isAlive()) {
+                try {
+                    threads[t].join();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        for(int t = 0; t < numThreads; t++) {
+            if(errors[t] instanceof RuntimeException) {
+                throw (RuntimeException)errors[t];
+            } else if(errors[t] instanceof Error) {
+                throw (Error)errors[t];
+            }
+        }
+    }
+}
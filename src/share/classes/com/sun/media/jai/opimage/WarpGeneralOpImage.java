@@ -141,13 +141,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -298,13 +292,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -404,13 +392,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -510,13 +492,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -615,13 +591,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -717,13 +687,7 @@ final class WarpGeneralOpImage extends WarpOpImage {
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
+            iter = createExtendedIter(src, dst, lpad, rpad, tpad, bpad);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
@@ -797,6 +761,68 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
     }
 
+    /**
+     * Returns a <code>RandomIter</code> over the extended source which
+     * covers only the samples needed to interpolate the destination
+     * pixels of <code>dst</code>, or <code>null</code> if all of them
+     * lie outside the source.
+     *
+     * <p> The footprint is found by mapping the destination pixels row
+     * by row exactly as the <code>computeRect</code> methods do, rather
+     * than by <code>Warp.mapDestRect()</code>, since the latter maps
+     * only the edges of the rectangle and may miss interior pixels of
+     * a non-monotonic warp.  Only this region of the source is copied
+     * and extended, instead of the entire source for every tile.
+     */
+    private RandomIter createExtendedIter(PlanarImage src,
+                                          RasterAccessor dst,
+                                          int lpad, int rpad,
+                                          int tpad, int bpad) {
+        int minX = src.getMinX();
+        int maxX = src.getMaxX();
+        int minY = src.getMinY();
+        int maxY = src.getMaxY();
+
+        int dstWidth = dst.getWidth();
+        int dstHeight = dst.getHeight();
+
+        float[] warpData = new float[2 * dstWidth];
+
+        int x0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int y1 = Integer.MIN_VALUE;
+
+        for (int h = 0; h < dstHeight; h++) {
+            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+
+            int count = 0;
+            for (int w = 0; w < dstWidth; w++) {
+                int xint = floor(warpData[count++]);
+                int yint = floor(warpData[count++]);
+
+                if (xint >= minX && xint < maxX &&
+                    yint >= minY && yint < maxY) {
+                    if (xint < x0) x0 = xint;
+                    if (xint > x1) x1 = xint;
+                    if (yint < y0) y0 = yint;
+                    if (yint > y1) y1 = yint;
+                }
+            }
+        }
+
+        if (x0 > x1) {
+            return null;
+        }
+
+        Rectangle bounds = new Rectangle(x0 - lpad,
+                                         y0 - tpad,
+                                         x1 - x0 + 1 + lpad + rpad,
+                                         y1 - y0 + 1 + tpad + bpad);
+        return RandomIterFactory.create(src.getExtendedData(bounds, extender),
+                                        bounds);
+    }
+
     /** Returns the "floor" value of a float. */
     private static final int floor(float f) {
         return f >= 0 ? (int)f : (int)f - 1;
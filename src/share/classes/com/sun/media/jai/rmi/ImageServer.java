@@ -11,6 +11,7 @@
  */
 package com.sun.media.jai.rmi;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.ColorModel;
@@ -24,6 +25,7 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
 import java.util.Vector;
+import javax.media.jai.ImageLayout;
 import javax.media.jai.PropertyChangeEventJAI;
 import javax.media.jai.RenderableOp;
 import javax.media.jai.RenderedOp;
@@ -198,6 +200,14 @@ public interface ImageServer extends Remote {
     /** Returns the Y offset of the tile grid relative to the origin. */
     int getTileGridYOffset(Long id) throws RemoteException;
 
+    /**
+     * Returns the bounds, tile grid, <code>SampleModel</code> and
+     * <code>ColorModel</code> of the image in a single call.
+     *
+     * @since JAI 1.1.4
+     */
+    ImageLayout getImageLayout(Long id) throws RemoteException;
+
     /**
      * Returns tile (x, y).  Note that x and y are indices into the
      * tile array, not pixel locations.  Unlike in the true RenderedImage
@@ -222,6 +232,35 @@ public interface ImageServer extends Remote {
      */
     byte[] getCompressedTile(Long id, int x, int y) throws RemoteException;
 
+    /**
+     * Returns the tiles at the given indices in a single call.  Note that
+     * the indices are into the tile array, not pixel locations.  As for
+     * getTile(), the Rasters that are returned should be considered
+     * copies.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles.
+     * @return copies of the tiles as Rasters, in the order of the indices.
+     *
+     * @since JAI 1.1.4
+     */
+    SerializableState[] getTiles(Long id, Point[] tileIndices)
+	throws RemoteException;
+
+    /**
+     * Compresses the tiles at the given indices and returns their
+     * contents as byte arrays in a single call.  Note that the indices
+     * are into the tile array, not pixel locations.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles.
+     * @return the compressed tile contents, in the order of the indices.
+     *
+     * @since JAI 1.1.4
+     */
+    byte[][] getCompressedTiles(Long id, Point[] tileIndices)
+	throws RemoteException;
+
     /**
      * Returns the entire image as a single Raster.
      *
@@ -11,6 +11,7 @@
  */package com.sun.media.jai.rmi;
 
 import java.awt.Dimension;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
@@ -39,6 +40,7 @@ import java.util.Iterator;
 import java.util.Vector;
 import javax.media.jai.CollectionOp;
 import javax.media.jai.CollectionImage;
+import javax.media.jai.ImageLayout;
 import javax.media.jai.JAI;
 import javax.media.jai.OperationDescriptor;
 import javax.media.jai.OperationRegistry;
@@ -323,6 +325,15 @@ public class JAIRMIImageServer extends UnicastRemoteObject
         return getSource(id).getTileGridYOffset();
     }
 
+    /**
+     * Returns the bounds, tile grid, <code>SampleModel</code> and
+     * <code>ColorModel</code> of the image in a single call.
+     */
+    public ImageLayout getImageLayout(Long id) throws RemoteException {
+
+	return new ImageLayout(getSource(id));
+    }
+
     /** Returns the index of the leftmost column of tiles. */
     public int getMinTileX(Long id) throws RemoteException {
 
@@ -399,6 +410,30 @@ public class JAIRMIImageServer extends UnicastRemoteObject
 	return SerializerFactory.getState(r, null);
     }
 
+    /**
+     * Returns the tiles at the given indices in a single call.  The
+     * tiles are obtained from the image through its <code>getTiles()</code>
+     * method so that an <code>OpImage</code> may compute them together.
+     * Note that the indices are into the tile array, not pixel locations.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles.
+     * @return the tiles as Rasters, in the order of the indices.
+     */
+    public SerializableState[] getTiles(Long id, Point[] tileIndices)
+	throws RemoteException {
+
+	Raster[] tiles = getSource(id).getTiles(tileIndices);
+
+	SerializableState[] states = new SerializableState[tiles.length];
+	for (int i = 0; i < tiles.length; i++) {
+	    if (tiles[i] != null) {
+		states[i] = SerializerFactory.getState(tiles[i], null);
+	    }
+	}
+	return states;
+    }
+
     /**
      * Compresses tile (x, y) and returns the compressed tile's contents
      * as a byte array.  Note that x and y are indices into the
@@ -413,6 +448,23 @@ public class JAIRMIImageServer extends UnicastRemoteObject
     public byte[] getCompressedTile(Long id, int x, int y)
 	throws RemoteException {
 
+	return getCompressedTiles(id, new Point[] {new Point(x, y)})[0];
+    }
+
+    /**
+     * Compresses the tiles at the given indices and returns their
+     * contents as byte arrays in a single call.  The tiles are obtained
+     * from the image through its <code>getTiles()</code> method so that
+     * an <code>OpImage</code> may compute them together.  Note that the
+     * indices are into the tile array, not pixel locations.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles.
+     * @return the compressed tile contents, in the order of the indices.
+     */
+    public byte[][] getCompressedTiles(Long id, Point[] tileIndices)
+	throws RemoteException {
+
 	TileCodecParameterList tcpl = null;
 	TileEncoderFactory tef = null;
 	NegotiableCapability codecCap = null;
@@ -486,18 +538,24 @@ public class JAIRMIImageServer extends UnicastRemoteObject
 		}
 	    }
 
-	    Raster r = getSource(id).getTile(x, y);
-	    ByteArrayOutputStream stream = new ByteArrayOutputStream();
-	    TileEncoder encoder = tef.createEncoder(stream, tcpl,
-						    r.getSampleModel());
+	    Raster[] tiles = getSource(id).getTiles(tileIndices);
+	    byte[][] ctiles = new byte[tiles.length][];
+	    for (int i=0; i<tiles.length; i++) {
+		Raster r = tiles[i];
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		TileEncoder encoder = tef.createEncoder(stream, tcpl,
+							r.getSampleModel());
+
+		try {
+		    encoder.encode(r);
+		} catch (java.io.IOException ioe) {
+		    throw new RuntimeException(ioe.getMessage());
+		}
 
-	    try {
-		encoder.encode(r);
-	    } catch (java.io.IOException ioe) {
-		throw new RuntimeException(ioe.getMessage());
+		ctiles[i] = stream.toByteArray();
 	    }
 
-	    return stream.toByteArray();
+	    return ctiles;
 	} else {
 	    throw new RuntimeException(
 				     JaiI18N.getString("JAIRMIImageServer2"));
@@ -11,6 +11,7 @@
  */package com.sun.media.jai.rmi;
 
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
@@ -794,21 +795,9 @@ public class RMIServerProxy extends PlanarImageServerProxy {
      */
     public ImageLayout getImageLayout() throws RemoteImagingException {
 
-	ImageLayout layout = new ImageLayout();
 	try {
-	    layout.setMinX(remoteImage.getMinX(id));
-	    layout.setMinY(remoteImage.getMinY(id));
-	    layout.setWidth(remoteImage.getWidth(id));
-	    layout.setHeight(remoteImage.getHeight(id));
-	    layout.setTileWidth(remoteImage.getTileWidth(id));
-	    layout.setTileHeight(remoteImage.getTileHeight(id));
-	    layout.setTileGridXOffset(remoteImage.getTileGridXOffset(id));
-	    layout.setTileGridYOffset(remoteImage.getTileGridYOffset(id));
-
-	    SerializableState smState = remoteImage.getSampleModel(id);
-	    layout.setSampleModel((SampleModel)(smState.getObject()));
-	    SerializableState cmState = remoteImage.getColorModel(id);
-	    layout.setColorModel((ColorModel)(cmState.getObject()));
+	    // Fetch the whole layout in a single call.
+	    ImageLayout layout = remoteImage.getImageLayout(id);
             return layout;
 	} catch (RemoteException re) {
             String message = JaiI18N.getString("RMIServerProxy14");
@@ -844,71 +833,8 @@ public class RMIServerProxy extends PlanarImageServerProxy {
 	TileCodecParameterList tcpl = null;
 
 	if (codecCap != null) {
-
-	    String category = codecCap.getCategory();
-	    String capabilityName = codecCap.getCapabilityName();
-	    List generators = codecCap.getGenerators();
-
-	    Class factory;
-	    for (Iterator i=generators.iterator(); i.hasNext(); ) {
-		factory = (Class)i.next();
-		if (tdf == null &&
-		    TileDecoderFactory.class.isAssignableFrom(factory)) {
-
-		    try {
-			tdf = (TileDecoderFactory)factory.newInstance();
-		    } catch (InstantiationException ie) {
-			throw new RemoteImagingException(ImageUtil.getStackTraceString(ie));
-		    } catch (IllegalAccessException iae) {
-			throw new RemoteImagingException(ImageUtil.getStackTraceString(iae));
-		    }
-		}
-	    }
-
-	    if (tdf == null) {
-		throw new RemoteImagingException(
-				     JaiI18N.getString("RMIServerProxy0"));
-	    }
-
-	    TileCodecDescriptor tcd =
-		(TileCodecDescriptor)registry.getDescriptor("tileDecoder",
-							    capabilityName);
-
-	    if (tcd.includesSampleModelInfo() == false ||
-		tcd.includesLocationInfo() == false) {
-		throw new RemoteImagingException(
-				     JaiI18N.getString("RMIServerProxy1"));
-	    }
-
-	    ParameterListDescriptor pld =
-		tcd.getParameterListDescriptor("tileDecoder");
-
-	    tcpl = new TileCodecParameterList(capabilityName,
-					      new String[] {"tileDecoder"},
-					      pld);
-
-	    // Set parameters on TileCodecParameterList only if there are any
-	    // parameters defined.
-	    if (pld != null) {
-
-		String paramNames[] = pld.getParamNames();
-		String currParam;
-		Object currValue;
-		if (paramNames != null) {
-		    for (int i=0; i<paramNames.length; i++) {
-			currParam = paramNames[i];
-			try {
-			    currValue = codecCap.getNegotiatedValue(currParam);
-			} catch (IllegalArgumentException iae) {
-			    // If this parameter is not defined on the
-			    // NegotiableCapability, then move onto the next
-			    continue;
-			}
-
-			tcpl.setParameter(currParam, currValue);
-		    }
-		}
-	    }
+	    tdf = getTileDecoderFactory(codecCap);
+	    tcpl = getTileDecoderParameters(codecCap);
 	}
 
 	try {
@@ -917,13 +843,7 @@ public class RMIServerProxy extends PlanarImageServerProxy {
 		byte ctile[] = remoteImage.getCompressedTile(id,
 							     tileX,
 							     tileY);
-		ByteArrayInputStream stream = new ByteArrayInputStream(ctile);
-		TileDecoder decoder = tdf.createDecoder(stream, tcpl);
-		try {
-		    return decoder.decode();
-		} catch (java.io.IOException ioe) {
-		    throw new RemoteImagingException(ImageUtil.getStackTraceString(ioe));
-		}
+		return decodeTile(ctile, tdf, tcpl);
 	    } else {
 		// Ask for uncompressed tiles.
 		SerializableState rp = remoteImage.getTile(id, tileX, tileY);
@@ -940,6 +860,172 @@ public class RMIServerProxy extends PlanarImageServerProxy {
         return null;
     }
 
+    /**
+     * Gets the requested tiles from the server in a single call. The
+     * server computes them together and returns them, compressed if a
+     * tile codec was negotiated, in the order of the indices.
+     *
+     * @throws a RemoteImagingException if a RemoteException is thrown
+     *         during the RMI communication.
+     */
+    public Raster[] computeTiles(Point[] tileIndices)
+	throws RemoteImagingException {
+
+	Raster[] tiles = new Raster[tileIndices.length];
+
+	// Only ask for the tiles which lie within this image's boundary.
+	int numInside = 0;
+	int[] inside = new int[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    int tileX = tileIndices[i].x;
+	    int tileY = tileIndices[i].y;
+	    if (tileX >= getMinTileX() && tileX <= getMaxTileX() &&
+		tileY >= getMinTileY() && tileY <= getMaxTileY()) {
+		inside[numInside++] = i;
+	    }
+	}
+
+	if (numInside == 0) {
+	    return tiles;
+	}
+
+	Point[] requested = new Point[numInside];
+	for (int k = 0; k < numInside; k++) {
+	    requested[k] = tileIndices[inside[k]];
+	}
+
+	NegotiableCapability codecCap = getNegotiatedValue("tileCodec");
+
+	try {
+	    if (codecCap != null) {
+		TileDecoderFactory tdf = getTileDecoderFactory(codecCap);
+		TileCodecParameterList tcpl =
+		    getTileDecoderParameters(codecCap);
+
+		byte ctiles[][] = remoteImage.getCompressedTiles(id, requested);
+		for (int k = 0; k < numInside; k++) {
+		    tiles[inside[k]] = decodeTile(ctiles[k], tdf, tcpl);
+		}
+	    } else {
+		// Ask for uncompressed tiles.
+		SerializableState rp[] = remoteImage.getTiles(id, requested);
+		for (int k = 0; k < numInside; k++) {
+		    if (rp[k] != null) {
+			tiles[inside[k]] = (Raster)(rp[k].getObject());
+		    }
+		}
+	    }
+	} catch (RemoteException e) {
+            String message = JaiI18N.getString("RMIServerProxy15");
+            listener.errorOccurred(message,
+                                   new RemoteImagingException(message, e),
+                                   this, false);
+	}
+
+	return tiles;
+    }
+
+    /**
+     * Returns a decoder factory of the negotiated tile codec.
+     */
+    private TileDecoderFactory getTileDecoderFactory(
+					NegotiableCapability codecCap) {
+
+	TileDecoderFactory tdf = null;
+
+	List generators = codecCap.getGenerators();
+
+	Class factory;
+	for (Iterator i=generators.iterator(); i.hasNext(); ) {
+	    factory = (Class)i.next();
+	    if (tdf == null &&
+		TileDecoderFactory.class.isAssignableFrom(factory)) {
+
+		try {
+		    tdf = (TileDecoderFactory)factory.newInstance();
+		} catch (InstantiationException ie) {
+		    throw new RemoteImagingException(ImageUtil.getStackTraceString(ie));
+		} catch (IllegalAccessException iae) {
+		    throw new RemoteImagingException(ImageUtil.getStackTraceString(iae));
+		}
+	    }
+	}
+
+	if (tdf == null) {
+	    throw new RemoteImagingException(
+				     JaiI18N.getString("RMIServerProxy0"));
+	}
+
+	return tdf;
+    }
+
+    /**
+     * Returns the decoding parameters of the negotiated tile codec.
+     */
+    private TileCodecParameterList getTileDecoderParameters(
+					NegotiableCapability codecCap) {
+
+	String capabilityName = codecCap.getCapabilityName();
+
+	TileCodecDescriptor tcd =
+	    (TileCodecDescriptor)registry.getDescriptor("tileDecoder",
+							capabilityName);
+
+	if (tcd.includesSampleModelInfo() == false ||
+	    tcd.includesLocationInfo() == false) {
+	    throw new RemoteImagingException(
+				     JaiI18N.getString("RMIServerProxy1"));
+	}
+
+	ParameterListDescriptor pld =
+	    tcd.getParameterListDescriptor("tileDecoder");
+
+	TileCodecParameterList tcpl =
+	    new TileCodecParameterList(capabilityName,
+				       new String[] {"tileDecoder"},
+				       pld);
+
+	// Set parameters on TileCodecParameterList only if there are any
+	// parameters defined.
+	if (pld != null) {
+
+	    String paramNames[] = pld.getParamNames();
+	    String currParam;
+	    Object currValue;
+	    if (paramNames != null) {
+		for (int i=0; i<paramNames.length; i++) {
+		    currParam = paramNames[i];
+		    try {
+			currValue = codecCap.getNegotiatedValue(currParam);
+		    } catch (IllegalArgumentException iae) {
+			// If this parameter is not defined on the
+			// NegotiableCapability, then move onto the next
+			continue;
+		    }
+
+		    tcpl.setParameter(currParam, currValue);
+		}
+	    }
+	}
+
+	return tcpl;
+    }
+
+    /**
+     * Decodes a tile compressed by the negotiated tile codec.
+     */
+    private static Raster decodeTile(byte ctile[],
+				     TileDecoderFactory tdf,
+				     TileCodecParameterList tcpl) {
+	ByteArrayInputStream stream = new ByteArrayInputStream(ctile);
+	TileDecoder decoder = tdf.createDecoder(stream, tcpl);
+	try {
+	    return decoder.decode();
+	} catch (java.io.IOException ioe) {
+	    throw new RemoteImagingException(ImageUtil.getStackTraceString(ioe));
+	}
+    }
+
     public Object getRemoteProperty(String name)
 	throws RemoteImagingException {
 	try {
@@ -0,0 +1,297 @@
+/*
+ * $RCSfile: BinaryTileDecoder.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */package com.sun.media.jai.tilecodec;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.media.jai.ComponentSampleModelJAI;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.tilecodec.TileDecoderImpl;
+import javax.media.jai.tilecodec.TileCodecParameterList;
+import com.sun.media.jai.util.DataBufferUtils;
+
+/**
+ * A concrete implementation of the <code>TileDecoderImpl</code> class
+ * for the binary tile codec.
+ *
+ * @see BinaryTileEncoder
+ */
+public class BinaryTileDecoder extends TileDecoderImpl {
+    /**
+     * Constructs a <code>BinaryTileDecoder</code>.
+     * <code>BinaryTileDecoder</code> may throw a
+     * <code>IllegalArgumentException</code> if <code>param</code>'s
+     * <code>getParameterListDescriptor()</code> method does not return
+     * the same descriptor as that from the associated
+     * <code>TileCodecDescriptor</code>'s
+     * <code>getParameterListDescriptor</code> method for the "tileDecoder"
+     * registry mode.
+     *
+     * <p> If param is null, then the default parameter list for decoding
+     * as defined by the associated <code>TileCodecDescriptor</code>'s
+     * <code>getDefaultParameters()</code> method will be used for decoding.
+     *
+     * @param input The <code>InputStream</code> to decode data from.
+     * @param param  The object containing the tile decoding parameters.
+     * @throws IllegalArgumentException if input is null.
+     * @throws IllegalArgumentException if param is not appropriate.
+     */
+    public BinaryTileDecoder(InputStream input,
+			     TileCodecParameterList param) {
+	super("binary", input, param);
+    }
+
+    /**
+     * Returns a <code>Raster</code> that contains the decoded contents
+     * of the <code>InputStream</code> associated with this
+     * <code>TileDecoder</code>.
+     *
+     * <p>This method can perform the decoding correctly only when
+     * <code>includesLocationInfo()</code> returns true.
+     *
+     * @throws IOException if an I/O error occurs while reading from the
+     * associated InputStream.
+     * @throws IllegalArgumentException if the associated
+     * TileCodecDescriptor's includesLocationInfo() returns false.
+     */
+    public Raster decode() throws IOException {
+	DataInputStream dis = new DataInputStream(inputStream);
+
+	int version = dis.readUnsignedByte();
+	if (version != BinaryTileEncoder.VERSION) {
+	    throw new IOException(JaiI18N.getString("BinaryTileDecoder0"));
+	}
+
+	int flags = dis.readUnsignedByte();
+	int kind = dis.readUnsignedByte();
+	int dataType = dis.readUnsignedByte();
+	int minX = dis.readInt();
+	int minY = dis.readInt();
+	int width = dis.readInt();
+	int height = dis.readInt();
+	int numBands = dis.readInt();
+
+	SampleModel sm;
+	int pixelStride = 1;
+	int scanlineStride;
+
+	switch (kind) {
+	case BinaryTileEncoder.SAMPLE_MODEL_COMPONENT:
+	case BinaryTileEncoder.SAMPLE_MODEL_PIXEL_INTERLEAVED:
+	case BinaryTileEncoder.SAMPLE_MODEL_BANDED:
+	case BinaryTileEncoder.SAMPLE_MODEL_COMPONENT_JAI:
+	    {
+		pixelStride = dis.readInt();
+		scanlineStride = dis.readInt();
+		int[] bankIndices = new int[numBands];
+		int[] bandOffsets = new int[numBands];
+		for (int b = 0; b < numBands; b++) {
+		    bankIndices[b] = dis.readInt();
+		    bandOffsets[b] = dis.readInt();
+		}
+
+		if (kind == BinaryTileEncoder.SAMPLE_MODEL_COMPONENT) {
+		    sm = new ComponentSampleModel(dataType, width, height,
+						  pixelStride, scanlineStride,
+						  bankIndices, bandOffsets);
+		} else if (kind ==
+			   BinaryTileEncoder.SAMPLE_MODEL_PIXEL_INTERLEAVED) {
+		    sm = new PixelInterleavedSampleModel(dataType,
+							 width, height,
+							 pixelStride,
+							 scanlineStride,
+							 bandOffsets);
+		} else if (kind == BinaryTileEncoder.SAMPLE_MODEL_BANDED) {
+		    sm = new BandedSampleModel(dataType, width, height,
+					       scanlineStride,
+					       bankIndices, bandOffsets);
+		} else {
+		    sm = new ComponentSampleModelJAI(dataType, width, height,
+						     pixelStride,
+						     scanlineStride,
+						     bankIndices, bandOffsets);
+		}
+	    }
+	    break;
+	case BinaryTileEncoder.SAMPLE_MODEL_SINGLE_PIXEL_PACKED:
+	    {
+		scanlineStride = dis.readInt();
+		int[] bitMasks = new int[numBands];
+		for (int b = 0; b < numBands; b++) {
+		    bitMasks[b] = dis.readInt();
+		}
+		sm = new SinglePixelPackedSampleModel(dataType, width, height,
+						      scanlineStride,
+						      bitMasks);
+	    }
+	    break;
+	case BinaryTileEncoder.SAMPLE_MODEL_MULTI_PIXEL_PACKED:
+	    {
+		int numberOfBits = dis.readInt();
+		scanlineStride = dis.readInt();
+		int dataBitOffset = dis.readInt();
+		sm = new MultiPixelPackedSampleModel(dataType, width, height,
+						     numberOfBits,
+						     scanlineStride,
+						     dataBitOffset);
+	    }
+	    break;
+	default:
+	    throw new IOException(JaiI18N.getString("BinaryTileDecoder0"));
+	}
+
+	int numBanks = dis.readInt();
+	int bankSize = dis.readInt();
+
+	DataInputStream in = dis;
+	Inflater inflater = null;
+	if ((flags & BinaryTileEncoder.FLAG_COMPRESSION) != 0) {
+	    inflater = new Inflater();
+	    in = new DataInputStream(new InflaterInputStream(inputStream,
+							     inflater));
+	}
+
+	boolean predictor = (flags & BinaryTileEncoder.FLAG_PREDICTOR) != 0;
+
+	DataBuffer db;
+	try {
+	    db = readDataBuffer(in, dataType, numBanks, bankSize,
+				predictor, pixelStride, scanlineStride);
+	} finally {
+	    if (inflater != null) {
+		inflater.end();
+	    }
+	}
+
+	return RasterFactory.createWritableRaster(sm, db,
+						  new Point(minX, minY));
+    }
+
+    public Raster decode(Point location) throws IOException{
+        return decode();
+    }
+
+    /**
+     * Reads the banks of a <code>DataBuffer</code>, undoing the
+     * horizontal differencing if <code>predictor</code> is set.
+     */
+    private static DataBuffer readDataBuffer(DataInputStream in,
+					     int dataType,
+					     int numBanks, int size,
+					     boolean predictor,
+					     int pixelStride,
+					     int scanlineStride)
+	throws IOException {
+
+	switch (dataType) {
+	case DataBuffer.TYPE_BYTE:
+	    {
+		byte[][] data = new byte[numBanks][size];
+		for (int bank = 0; bank < numBanks; bank++) {
+		    byte[] d = data[bank];
+		    in.readFully(d);
+		    if (predictor) {
+			for (int start = 0; start < size;
+			     start += scanlineStride) {
+			    int end = Math.min(start + scanlineStride, size);
+			    for (int i = start + pixelStride; i < end; i++) {
+				d[i] += d[i - pixelStride];
+			    }
+			}
+		    }
+		}
+		return new DataBufferByte(data, size);
+	    }
+	case DataBuffer.TYPE_USHORT:
+	case DataBuffer.TYPE_SHORT:
+	    {
+		short[][] data = new short[numBanks][size];
+		byte[] bytes = new byte[2*size];
+		for (int bank = 0; bank < numBanks; bank++) {
+		    short[] d = data[bank];
+		    in.readFully(bytes);
+		    ByteBuffer.wrap(bytes).asShortBuffer().get(d);
+		    if (predictor) {
+			for (int start = 0; start < size;
+			     start += scanlineStride) {
+			    int end = Math.min(start + scanlineStride, size);
+			    for (int i = start + pixelStride; i < end; i++) {
+				d[i] += d[i - pixelStride];
+			    }
+			}
+		    }
+		}
+		return dataType == DataBuffer.TYPE_USHORT ?
+		    (DataBuffer)new DataBufferUShort(data, size) :
+		    (DataBuffer)new DataBufferShort(data, size);
+	    }
+	case DataBuffer.TYPE_INT:
+	    {
+		int[][] data = new int[numBanks][size];
+		byte[] bytes = new byte[4*size];
+		for (int bank = 0; bank < numBanks; bank++) {
+		    int[] d = data[bank];
+		    in.readFully(bytes);
+		    ByteBuffer.wrap(bytes).asIntBuffer().get(d);
+		    if (predictor) {
+			for (int start = 0; start < size;
+			     start += scanlineStride) {
+			    int end = Math.min(start + scanlineStride, size);
+			    for (int i = start + pixelStride; i < end; i++) {
+				d[i] += d[i - pixelStride];
+			    }
+			}
+		    }
+		}
+		return new DataBufferInt(data, size);
+	    }
+	case DataBuffer.TYPE_FLOAT:
+	    {
+		float[][] data = new float[numBanks][size];
+		byte[] bytes = new byte[4*size];
+		for (int bank = 0; bank < numBanks; bank++) {
+		    in.readFully(bytes);
+		    ByteBuffer.wrap(bytes).asFloatBuffer().get(data[bank]);
+		}
+		return DataBufferUtils.createDataBufferFloat(data, size);
+	    }
+	case DataBuffer.TYPE_DOUBLE:
+	    {
+		double[][] data = new double[numBanks][size];
+		byte[] bytes = new byte[8*size];
+		for (int bank = 0; bank < numBanks; bank++) {
+		    in.readFully(bytes);
+		    ByteBuffer.wrap(bytes).asDoubleBuffer().get(data[bank]);
+		}
+		return DataBufferUtils.createDataBufferDouble(data, size);
+	    }
+	default:
+	    throw new IOException(JaiI18N.getString("BinaryTileDecoder0"));
+	}
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * $RCSfile: BinaryTileEncoder.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */package com.sun.media.jai.tilecodec ;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.media.jai.ComponentSampleModelJAI;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.tilecodec.TileEncoderImpl ;
+import javax.media.jai.tilecodec.TileCodecParameterList ;
+import com.sun.media.jai.util.DataBufferUtils;
+
+/**
+ * A concrete implementation of the <code>TileEncoderImpl</code> class
+ * for the binary tile codec.
+ *
+ * <p> The encoded stream is made of the following header, written as
+ * by a <code>DataOutputStream</code>:
+ *
+ * <pre>
+ * byte  version
+ * byte  flags                  (FLAG_COMPRESSION, FLAG_PREDICTOR)
+ * byte  kind of SampleModel    (one of the SAMPLE_MODEL_ constants)
+ * byte  data type
+ * int   minX, minY, width, height, numBands
+ * ...   the parameters of the SampleModel
+ * int   numBanks, bankSize
+ * </pre>
+ *
+ * followed by the elements of each bank of the <code>DataBuffer</code>
+ * in big-endian order, compressed with the deflate algorithm if
+ * <code>FLAG_COMPRESSION</code> is set.
+ */
+public class BinaryTileEncoder extends TileEncoderImpl {
+
+    /** The version of the encoded stream. */
+    static final int VERSION = 1;
+
+    /** Set if the sample data are deflated. */
+    static final int FLAG_COMPRESSION = 0x1;
+
+    /** Set if the sample data are horizontally differenced. */
+    static final int FLAG_PREDICTOR = 0x2;
+
+    // The kinds of SampleModel which are described in the header.
+    static final int SAMPLE_MODEL_COMPONENT = 0;
+    static final int SAMPLE_MODEL_PIXEL_INTERLEAVED = 1;
+    static final int SAMPLE_MODEL_BANDED = 2;
+    static final int SAMPLE_MODEL_COMPONENT_JAI = 3;
+    static final int SAMPLE_MODEL_SINGLE_PIXEL_PACKED = 4;
+    static final int SAMPLE_MODEL_MULTI_PIXEL_PACKED = 5;
+
+    /**
+     * Constructs a <code>BinaryTileEncoder</code>.
+     *
+     * @param output The <code>OutputStream</code> to write encoded data to.
+     * @param param  The object containing the tile encoding parameters.
+     * @throws IllegalArgumentException if param is not the appropriate
+     * Class type.
+     * @throws IllegalArgumentException is output is null.
+     */
+    public BinaryTileEncoder(OutputStream output,
+			     TileCodecParameterList param) {
+        super("binary", output, param) ;
+    }
+
+    /**
+     * Encodes a <code>Raster</code> and writes the output
+     * to the <code>OutputStream</code> associated with this
+     * <code>TileEncoder</code>.
+     *
+     * @param ras the <code>Raster</code> to encode.
+     * @throws IOException if an I/O error occurs while writing to the
+     * OutputStream.
+     * @throws IllegalArgumentException if ras is null.
+     */
+    public void encode(Raster ras) throws IOException {
+	if(ras == null)
+	    throw new IllegalArgumentException(
+			JaiI18N.getString("TileEncoder1")) ;
+
+	boolean compression = false;
+	boolean predictor = false;
+	if (paramList != null) {
+	    compression = paramList.getBooleanParameter("compression");
+	    predictor = paramList.getBooleanParameter("predictor");
+	}
+
+	int kind = getSampleModelKind(ras.getSampleModel());
+
+	// Write only whole DataBuffers: a child Raster, or one whose
+	// SampleModel cannot be described, is first copied.
+	if (kind < 0 || !isWholeDataBuffer(ras)) {
+	    SampleModel sm = ras.getSampleModel();
+	    if (kind < 0) {
+		sm = RasterFactory.createPixelInterleavedSampleModel(
+						   sm.getDataType(),
+						   ras.getWidth(),
+						   ras.getHeight(),
+						   sm.getNumBands());
+		kind = getSampleModelKind(sm);
+	    } else {
+		sm = sm.createCompatibleSampleModel(ras.getWidth(),
+						    ras.getHeight());
+	    }
+	    WritableRaster copy =
+		RasterFactory.createWritableRaster(sm,
+						   new Point(ras.getMinX(),
+							     ras.getMinY()));
+	    copy.setRect(ras);
+	    ras = copy;
+	}
+
+	SampleModel sm = ras.getSampleModel();
+	DataBuffer db = ras.getDataBuffer();
+	int dataType = sm.getDataType();
+	int numBands = sm.getNumBands();
+
+	// The predictor is only applied to integral data.
+	if (dataType == DataBuffer.TYPE_FLOAT ||
+	    dataType == DataBuffer.TYPE_DOUBLE) {
+	    predictor = false;
+	}
+
+	int flags = 0;
+	if (compression)
+	    flags |= FLAG_COMPRESSION;
+	if (predictor)
+	    flags |= FLAG_PREDICTOR;
+
+	DataOutputStream dos = new DataOutputStream(outputStream);
+	dos.writeByte(VERSION);
+	dos.writeByte(flags);
+	dos.writeByte(kind);
+	dos.writeByte(dataType);
+	dos.writeInt(ras.getMinX());
+	dos.writeInt(ras.getMinY());
+	dos.writeInt(ras.getWidth());
+	dos.writeInt(ras.getHeight());
+	dos.writeInt(numBands);
+
+	// The distance between the elements of horizontally adjacent
+	// pixels, and the number of elements in each line.
+	int pixelStride = 1;
+	int scanlineStride;
+
+	if (sm instanceof ComponentSampleModel) {
+	    ComponentSampleModel csm = (ComponentSampleModel)sm;
+	    pixelStride = csm.getPixelStride();
+	    scanlineStride = csm.getScanlineStride();
+	    int[] bankIndices = csm.getBankIndices();
+	    int[] bandOffsets = csm.getBandOffsets();
+
+	    dos.writeInt(pixelStride);
+	    dos.writeInt(scanlineStride);
+	    for (int b = 0; b < numBands; b++) {
+		dos.writeInt(bankIndices[b]);
+		dos.writeInt(bandOffsets[b]);
+	    }
+	} else if (sm instanceof SinglePixelPackedSampleModel) {
+	    SinglePixelPackedSampleModel sppsm =
+		(SinglePixelPackedSampleModel)sm;
+	    scanlineStride = sppsm.getScanlineStride();
+	    int[] bitMasks = sppsm.getBitMasks();
+
+	    dos.writeInt(scanlineStride);
+	    for (int b = 0; b < numBands; b++) {
+		dos.writeInt(bitMasks[b]);
+	    }
+	} else {
+	    MultiPixelPackedSampleModel mppsm =
+		(MultiPixelPackedSampleModel)sm;
+	    scanlineStride = mppsm.getScanlineStride();
+
+	    dos.writeInt(mppsm.getPixelBitStride());
+	    dos.writeInt(scanlineStride);
+	    dos.writeInt(mppsm.getDataBitOffset());
+	}
+
+	int numBanks = db.getNumBanks();
+	int bankSize = db.getSize();
+	dos.writeInt(numBanks);
+	dos.writeInt(bankSize);
+	dos.flush();
+
+	OutputStream out = outputStream;
+	Deflater deflater = null;
+	if (compression) {
+	    deflater = new Deflater(Deflater.BEST_SPEED);
+	    out = new DeflaterOutputStream(outputStream, deflater);
+	}
+
+	try {
+	    for (int bank = 0; bank < numBanks; bank++) {
+		out.write(getBankBytes(db, bank, predictor,
+				       pixelStride, scanlineStride));
+	    }
+
+	    if (compression) {
+		((DeflaterOutputStream)out).finish();
+	    }
+	    out.flush();
+	} finally {
+	    if (deflater != null) {
+		deflater.end();
+	    }
+	}
+    }
+
+    /**
+     * Returns the kind of the <code>SampleModel</code>, or -1 if it
+     * cannot be described in the header.  Subclasses of the known
+     * classes are not described, since they might not be recreated
+     * identically.
+     */
+    static int getSampleModelKind(SampleModel sm) {
+	Class c = sm.getClass();
+	if (c == PixelInterleavedSampleModel.class) {
+	    return SAMPLE_MODEL_PIXEL_INTERLEAVED;
+	} else if (c == BandedSampleModel.class) {
+	    return SAMPLE_MODEL_BANDED;
+	} else if (c == ComponentSampleModel.class) {
+	    return SAMPLE_MODEL_COMPONENT;
+	} else if (c == ComponentSampleModelJAI.class) {
+	    return SAMPLE_MODEL_COMPONENT_JAI;
+	} else if (c == SinglePixelPackedSampleModel.class) {
+	    return SAMPLE_MODEL_SINGLE_PIXEL_PACKED;
+	} else if (c == MultiPixelPackedSampleModel.class) {
+	    return SAMPLE_MODEL_MULTI_PIXEL_PACKED;
+	}
+	return -1;
+    }
+
+    /**
+     * Whether the <code>DataBuffer</code> of the <code>Raster</code>
+     * holds its samples only, starting at offset zero in each bank.
+     */
+    private static boolean isWholeDataBuffer(Raster ras) {
+	SampleModel sm = ras.getSampleModel();
+	if (ras.getSampleModelTranslateX() != -ras.getMinX() ||
+	    ras.getSampleModelTranslateY() != -ras.getMinY() ||
+	    sm.getWidth() != ras.getWidth() ||
+	    sm.getHeight() != ras.getHeight()) {
+	    return false;
+	}
+
+	int[] offsets = ras.getDataBuffer().getOffsets();
+	for (int i = 0; i < offsets.length; i++) {
+	    if (offsets[i] != 0) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Returns the elements of a bank as big-endian bytes, differenced
+     * along each line if <code>predictor</code> is set.  The bank data
+     * are left unchanged.
+     */
+    private static byte[] getBankBytes(DataBuffer db, int bank,
+				       boolean predictor,
+				       int pixelStride, int scanlineStride) {
+	int size = db.getSize();
+
+	switch (db.getDataType()) {
+	case DataBuffer.TYPE_BYTE:
+	    {
+		byte[] data = ((DataBufferByte)db).getData(bank);
+		if (!predictor) {
+		    if (data.length == size) {
+			return data;
+		    }
+		    byte[] bytes = new byte[size];
+		    System.arraycopy(data, 0, bytes, 0, size);
+		    return bytes;
+		}
+
+		byte[] bytes = new byte[size];
+		for (int start = 0; start < size; start += scanlineStride) {
+		    int end = Math.min(start + scanlineStride, size);
+		    int i = start;
+		    for (; i < end && i < start + pixelStride; i++) {
+			bytes[i] = data[i];
+		    }
+		    for (; i < end; i++) {
+			bytes[i] = (byte)(data[i] - data[i - pixelStride]);
+		    }
+		}
+		return bytes;
+	    }
+	case DataBuffer.TYPE_USHORT:
+	case DataBuffer.TYPE_SHORT:
+	    {
+		short[] data = db.getDataType() == DataBuffer.TYPE_USHORT ?
+		    ((DataBufferUShort)db).getData(bank) :
+		    ((DataBufferShort)db).getData(bank);
+		if (predictor) {
+		    short[] diff = new short[size];
+		    for (int start = 0; start < size;
+			 start += scanlineStride) {
+			int end = Math.min(start + scanlineStride, size);
+			int i = start;
+			for (; i < end && i < start + pixelStride; i++) {
+			    diff[i] = data[i];
+			}
+			for (; i < end; i++) {
+			    diff[i] = (short)(data[i] - data[i - pixelStride]);
+			}
+		    }
+		    data = diff;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(2*size);
+		buffer.asShortBuffer().put(data, 0, size);
+		return buffer.array();
+	    }
+	case DataBuffer.TYPE_INT:
+	    {
+		int[] data = ((DataBufferInt)db).getData(bank);
+		if (predictor) {
+		    int[] diff = new int[size];
+		    for (int start = 0; start < size;
+			 start += scanlineStride) {
+			int end = Math.min(start + scanlineStride, size);
+			int i = start;
+			for (; i < end && i < start + pixelStride; i++) {
+			    diff[i] = data[i];
+			}
+			for (; i < end; i++) {
+			    diff[i] = data[i] - data[i - pixelStride];
+			}
+		    }
+		    data = diff;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4*size);
+		buffer.asIntBuffer().put(data, 0, size);
+		return buffer.array();
+	    }
+	case DataBuffer.TYPE_FLOAT:
+	    {
+		ByteBuffer buffer = ByteBuffer.allocate(4*size);
+		buffer.asFloatBuffer().put(DataBufferUtils.getDataFloat(db,
+									bank),
+					   0, size);
+		return buffer.array();
+	    }
+	case DataBuffer.TYPE_DOUBLE:
+	    {
+		ByteBuffer buffer = ByteBuffer.allocate(8*size);
+		buffer.asDoubleBuffer().put(DataBufferUtils.getDataDouble(db,
+									  bank),
+					    0, size);
+		return buffer.array();
+	    }
+	default:
+	    throw new IllegalArgumentException(
+			JaiI18N.getString("BinaryTileEncoder0"));
+	}
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * $RCSfile: Request.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2005-02-11 04:57:02 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.util;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TileComputationListener;
+import javax.media.jai.TileRequest;
+import javax.media.jai.TileScheduler;
+
+/**
+ * A class representing a request for non-prefetch background computation
+ * of tiles.  The object stores the image, the indices of all tiles being
+ * requested, and references to all listeners associated with the request.
+ *
+ * <code>TileRequest</code> methods are not commented.
+ */
+class Request implements TileRequest {
+
+    private final TileScheduler scheduler;
+
+    final PlanarImage image;
+    final List indices;
+    final Set listeners;
+
+    final Hashtable tileStatus;
+
+    /**
+     * Constructs a <code>Request</code>.
+     *
+     * @param scheduler The scheduler processing this request.
+     * @param image The image for which tiles are being computed.
+     * @param tileIndices The indices of the tiles to be computed.
+     * @param tileListeners The listeners to be notified of tile
+     *        computation, cancellation, or failure.
+     *
+     * @exception IllegalArgumentException if <code>scheduler</code>,
+     *            <code>image</code>, or <code>tileIndices</code> is
+     *            <code>null</code> or if <code>tileIndices</code> is
+     *            zero-length.
+     */
+    Request(TileScheduler scheduler,
+            PlanarImage image,
+            Point[] tileIndices,
+            TileComputationListener[] tileListeners) {
+
+        // Save a reference to the scheduler.
+        if(scheduler == null) {
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+        this.scheduler = scheduler;
+
+        // Save a reference to the image.
+        if(image == null) {
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+        this.image = image;
+
+        // Ensure there is at least one tile in the request.
+        if(tileIndices == null || tileIndices.length == 0) {
+            // If this happens it is an internal programming error.
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+
+        // Save the tile indices.
+        indices = Arrays.asList(tileIndices);
+
+        // Save references to the listeners, if any.
+        if(tileListeners != null) {
+            int numListeners = tileListeners.length;
+            if(numListeners > 0) {
+                listeners = new HashSet(numListeners);
+                for(int i = 0; i < numListeners; i++) {
+                    listeners.add(tileListeners[i]);
+                }
+            } else {
+                listeners = null;
+            }
+        } else {
+            listeners = null;
+        }
+
+        // Initialize status table.
+        tileStatus = new Hashtable(tileIndices.length);
+    }
+
+    // --- TileRequest implementation ---
+
+    public PlanarImage getImage() {
+        return image;
+    }
+
+    public Point[] getTileIndices() {
+        return (Point[])indices.toArray(new Point[0]);
+    }
+
+    public TileComputationListener[] getTileListeners() {
+        return (TileComputationListener[])
+            listeners.toArray(new TileComputationListener[0]);
+    }
+
+    public boolean isStatusAvailable() {
+        return true;
+    }
+
+    public int getTileStatus(int tileX, int tileY) {
+        Point p = new Point(tileX, tileY);
+
+        int status;
+        if(tileStatus.containsKey(p)) {
+            status = ((Integer)tileStatus.get(p)).intValue();
+        } else {
+            status = TileRequest.TILE_STATUS_PENDING;
+        }
+
+        return status;
+    }
+
+    public void cancelTiles(Point[] tileIndices) {
+        // Forward the call to the scheduler.
+        scheduler.cancelTiles(this, tileIndices);
+    }
+}
@@ -56,6 +56,10 @@ final class SunCachedTile implements CachedTile {
 
     int action = 0;             // add, remove, update from tile cache
 
+    // Used only by SunConcurrentTileCache (CLOCK replacement).
+    boolean referenced;         // set on access, cleared by the clock hand
+    int slot = -1;              // position in the owning segment's ring
+
 
     /**
      * Constructor that takes a tile cache metric
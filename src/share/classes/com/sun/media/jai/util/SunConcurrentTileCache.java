@@ -0,0 +1,822 @@
+/*
+ * $RCSfile: SunConcurrentTileCache.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.util;
+import java.awt.Point;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Observable;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.media.jai.EnumeratedParameter;
+import javax.media.jai.TileCache;
+
+/**
+ * A <code>javax.media.jai.TileCache</code> implementation intended for
+ * use by many concurrently computing threads.
+ *
+ * <p> <code>SunTileCache</code> guards its single hashtable, LRU list
+ * and sorted set with the cache monitor so that every
+ * <code>getTile()</code> and <code>add()</code> call is serialized.
+ * This class instead partitions the tiles into a number of independently
+ * locked segments selected by the hash of the tile key, so that threads
+ * touching different tiles rarely contend.  Only the total memory usage,
+ * held in atomic counters, is shared between the segments.
+ *
+ * <p> Tile replacement is approximate.  Each segment keeps its tiles in
+ * a ring which is swept by a CLOCK hand: a cache hit merely sets the
+ * tile's reference bit, and <code>memoryControl()</code> visits the
+ * segments in turn, clearing reference bits and removing tiles whose bit
+ * was already clear, until the memory usage falls to the memory
+ * threshold.  If a tile <code>Comparator</code> is set it is honored
+ * by <code>memoryControl()</code> as in <code>SunTileCache</code>,
+ * although this requires a sort of a snapshot of all cached tiles.
+ *
+ * <p> The time stamps reported by the <code>CachedTile</code>s of this
+ * cache are coarse: they record the number of completed memory control
+ * passes at the time of last access rather than a per-access counter.
+ *
+ * <p> An instance may be used for an operation by supplying it as the
+ * value of the <code>JAI.KEY_TILE_CACHE</code> hint, or obtained via
+ * <code>JAI.createTileCache(long, int)</code>.
+ *
+ * @see javax.media.jai.TileCache
+ * @see SunTileCache
+ *
+ * @since JAI 1.1.4
+ */
+public final class SunConcurrentTileCache extends Observable
+                                          implements TileCache,
+                                                     CacheDiagnostics {
+
+    /** The default memory capacity of the cache (16 MB). */
+    private static final long DEFAULT_MEMORY_CAPACITY = 16L * 1024L * 1024L;
+
+    /** The minimum number of segments. */
+    private static final int MIN_SEGMENTS = 16;
+
+    /** The maximum number of segments. */
+    private static final int MAX_SEGMENTS = 1 << 12;
+
+    // diagnostic actions, identical to those of SunTileCache.
+    private static final int ADD                 = 0;
+    private static final int REMOVE              = 1;
+    private static final int REMOVE_FROM_FLUSH   = 2;
+    private static final int REMOVE_FROM_MEMCON  = 3;
+    private static final int UPDATE_FROM_ADD     = 4;
+    private static final int UPDATE_FROM_GETTILE = 5;
+
+    /**
+     * A partition of the cache.  All fields are guarded by the
+     * segment's monitor.
+     */
+    private static final class Segment {
+        /** Tile key to SunCachedTile. */
+        HashMap map = new HashMap();
+
+        /** The CLOCK ring; entries [0, count) are valid. */
+        SunCachedTile[] ring = new SunCachedTile[16];
+        int count = 0;
+
+        /** The position of the CLOCK hand in the ring. */
+        int hand = 0;
+
+        /** The memory used by the tiles in this segment. */
+        long memoryUsage = 0;
+
+        long hitCount = 0;
+        long missCount = 0;
+
+        /** Appends a tile to the ring. */
+        void link(SunCachedTile ct) {
+            if (count == ring.length) {
+                SunCachedTile[] tmp = new SunCachedTile[count * 2];
+                System.arraycopy(ring, 0, tmp, 0, count);
+                ring = tmp;
+            }
+            ct.slot = count;
+            ring[count++] = ct;
+        }
+
+        /** Removes a tile from the ring by moving the last entry into its slot. */
+        void unlink(SunCachedTile ct) {
+            int slot = ct.slot;
+            int lastSlot = --count;
+            if (slot != lastSlot) {
+                SunCachedTile moved = ring[lastSlot];
+                ring[slot] = moved;
+                moved.slot = slot;
+            }
+            ring[lastSlot] = null;
+            ct.slot = -1;
+            if (hand >= count) {
+                hand = 0;
+            }
+        }
+
+        /**
+         * Advances the hand until a tile with a clear reference bit is
+         * found, clearing the bits of the tiles passed over.  Returns
+         * <code>null</code> if the segment is empty.
+         */
+        SunCachedTile victim() {
+            if (count == 0) {
+                return null;
+            }
+            while (true) {
+                if (hand >= count) {
+                    hand = 0;
+                }
+                SunCachedTile ct = ring[hand++];
+                if (ct.referenced) {
+                    ct.referenced = false;
+                } else {
+                    return ct;
+                }
+            }
+        }
+    }
+
+    /** The segments; the length is a power of two. */
+    private final Segment[] segments;
+
+    /** The mask applied to a key hash to select the segment. */
+    private final int segmentMask;
+
+    /** The memory capacity of the cache. */
+    private volatile long memoryCapacity;
+
+    /** The amount of memory to keep after memory control */
+    private volatile float memoryThreshold = 0.75F;
+
+    /**
+     * The amount of memory currently being used by the cache.  Updated
+     * only when tiles enter or leave the cache, without locking.
+     */
+    private final AtomicLong memoryUsage = new AtomicLong();
+
+    /** The number of tiles in the cache. */
+    private final AtomicLong tileCount = new AtomicLong();
+
+    /** Count of completed memory control passes; used as time stamp. */
+    private volatile long epoch = 0;
+
+    /**
+     * Serializes memory control passes.  A thread whose <code>add()</code>
+     * exceeds the capacity while another pass runs leaves the eviction
+     * to that pass rather than waiting for it.
+     */
+    private final ReentrantLock controlLock = new ReentrantLock();
+
+    /** Where the next memory control pass begins. */
+    private int controlSegment = 0;
+
+    /** Custom comparator used to order tiles for removal. */
+    private volatile Comparator comparator = null;
+
+    /** Diagnostics enable/disable */
+    private volatile boolean diagnostics = false;
+
+    /**
+     * Returns an array of <code>EnumeratedParameter</code>s corresponding
+     * to the numeric values returned by the <code>getAction()</code>
+     * method of the <code>CachedTile</code> implementation used by
+     * <code>SunConcurrentTileCache</code>.  These are the same as the
+     * actions of <code>SunTileCache</code>.
+     */
+    public static EnumeratedParameter[] getCachedTileActions() {
+        return SunTileCache.getCachedTileActions();
+    }
+
+    /**
+     * No args constructor. Uses the default memory capacity of 16 Megs
+     * and a number of segments derived from the number of available
+     * processors.
+     */
+    public SunConcurrentTileCache() {
+        this(DEFAULT_MEMORY_CAPACITY);
+    }
+
+    /**
+     * Constructor.  The number of segments is derived from the number
+     * of available processors.
+     *
+     * @param memoryCapacity  The maximum cache memory size in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public SunConcurrentTileCache(long memoryCapacity) {
+        this(memoryCapacity,
+             4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryCapacity  The maximum cache memory size in bytes.
+     * @param concurrencyLevel The expected number of threads accessing
+     *        the cache concurrently.  The number of segments is the
+     *        smallest power of two not less than this value, clamped
+     *        to a reasonable range.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public SunConcurrentTileCache(long memoryCapacity, int concurrencyLevel) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        int n = MIN_SEGMENTS;
+        while (n < concurrencyLevel && n < MAX_SEGMENTS) {
+            n <<= 1;
+        }
+
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = n - 1;
+    }
+
+    /** Returns the segment holding the tile with the given key. */
+    private Segment segmentFor(Object key) {
+        // Spread the bits: Long keys carry the tile index in the low bits
+        // and BigInteger keys in the low bytes.
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & segmentMask];
+    }
+
+    /** Adjusts the shared memory accounting. */
+    private long updateUsage(long delta, int tiles) {
+        tileCount.addAndGet(tiles);
+        return memoryUsage.addAndGet(delta);
+    }
+
+    private void notifyDiagnostics(SunCachedTile ct, int action) {
+        ct.action = action;
+        synchronized (this) {
+            setChanged();
+            notifyObservers(ct);
+        }
+    }
+
+    /**
+     * Adds a tile to the cache.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     */
+    public void add(RenderedImage owner,
+                    int tileX,
+                    int tileY,
+                    Raster tile) {
+        add(owner, tileX, tileY, tile, null);
+    }
+
+    /**
+     * Adds a tile to the cache with an associated tile compute cost.
+     *
+     * <p> If the specified tile is already in the cache, it will not be
+     * cached again.  If by adding this tile, the cache exceeds the memory
+     * capacity, tiles in the cache are removed to keep the cache
+     * memory usage under the specified limit.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     * @param tileCacheMetric  Metric for prioritizing tiles
+     */
+    public void add(RenderedImage owner,
+                    int tileX,
+                    int tileY,
+                    Raster tile,
+                    Object tileCacheMetric) {
+
+        long capacity = memoryCapacity;
+        if ( capacity == 0 ) {
+            return;
+        }
+
+        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
+        Segment seg = segmentFor(key);
+        SunCachedTile ct;
+        boolean added = false;
+
+        synchronized (seg) {
+            ct = (SunCachedTile) seg.map.get(key);
+
+            if ( ct != null ) {
+                ct.referenced = true;
+                ct.timeStamp = epoch;
+                seg.hitCount++;
+            } else {
+                ct = new SunCachedTile(owner, tileX, tileY, tile,
+                                       tileCacheMetric);
+
+                // Don't cache tile if adding it would provoke memoryControl()
+                // which would in turn only end up removing the tile.
+                if (getCacheMemoryUsed() + ct.memorySize > capacity &&
+                    ct.memorySize > (long)(capacity * memoryThreshold)) {
+                    return;
+                }
+
+                ct.timeStamp = epoch;
+                seg.map.put(key, ct);
+                seg.link(ct);
+                seg.memoryUsage += ct.memorySize;
+                added = true;
+            }
+        }
+
+        if ( added ) {
+            long usage = updateUsage(ct.memorySize, 1);
+
+            if ( diagnostics ) {
+                notifyDiagnostics(ct, ADD);
+            }
+
+            // Bring memory usage down to memoryThreshold % of memory
+            // capacity, unless another thread is already doing so.
+            if ( usage > capacity && controlLock.tryLock() ) {
+                try {
+                    memoryControlLocked();
+                } finally {
+                    controlLock.unlock();
+                }
+            }
+        } else if ( diagnostics ) {
+            notifyDiagnostics(ct, UPDATE_FROM_ADD);
+        }
+    }
+
+    /**
+     * Removes a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * does nothing.
+     */
+    public void remove(RenderedImage owner,
+                       int tileX,
+                       int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
+        Segment seg = segmentFor(key);
+        SunCachedTile ct;
+
+        synchronized (seg) {
+            ct = (SunCachedTile) seg.map.remove(key);
+            if ( ct == null ) {
+                return;
+            }
+            seg.unlink(ct);
+            seg.memoryUsage -= ct.memorySize;
+        }
+
+        updateUsage(-ct.memorySize, -1);
+
+        if ( diagnostics ) {
+            notifyDiagnostics(ct, REMOVE);
+        }
+    }
+
+    /**
+     * Retrieves a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * returns <code>null</code>.  If the specified tile is in the
+     * cache, it is marked as recently referenced.
+     *
+     * @param owner  The image the tile blongs to.
+     * @param tileX  The tile's X index within the image.
+     * @param tileY  The tile's Y index within the image.
+     */
+    public Raster getTile(RenderedImage owner,
+                          int tileX,
+                          int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
+        Segment seg = segmentFor(key);
+        SunCachedTile ct;
+
+        synchronized (seg) {
+            ct = (SunCachedTile) seg.map.get(key);
+
+            if ( ct == null ) {
+                seg.missCount++;
+                return null;
+            }
+
+            ct.referenced = true;
+            ct.timeStamp = epoch;
+            seg.hitCount++;
+        }
+
+        if ( diagnostics ) {
+            notifyDiagnostics(ct, UPDATE_FROM_GETTILE);
+        }
+
+        return ct.tile;
+    }
+
+    /**
+     * Retrieves a contiguous array of all tiles in the cache which are
+     * owned by the specified image.  May be <code>null</code> if there
+     * were no tiles in the cache.  The array contains no null entries.
+     *
+     * @param owner The <code>RenderedImage</code> to which the tiles belong.
+     * @return An array of all tiles owned by the specified image or
+     *         <code>null</code> if there are none currently in the cache.
+     */
+    public Raster[] getTiles(RenderedImage owner) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        int minTx = owner.getMinTileX();
+        int minTy = owner.getMinTileY();
+        int maxTx = minTx + owner.getNumXTiles();
+        int maxTy = minTy + owner.getNumYTiles();
+
+        Vector temp = new Vector(10, 20);
+
+        for (int y = minTy; y < maxTy; y++) {
+            for (int x = minTx; x < maxTx; x++) {
+                Raster raster = getTile(owner, x, y);
+                if ( raster != null ) {
+                    temp.add(raster);
+                }
+            }
+        }
+
+        int tmpsize = temp.size();
+        return tmpsize > 0 ?
+            (Raster[])temp.toArray(new Raster[tmpsize]) : null;
+    }
+
+    /**
+     * Removes all the tiles that belong to a <code>RenderedImage</code>
+     * from the cache.
+     *
+     * @param owner  The image whose tiles are to be removed from the cache.
+     */
+    public void removeTiles(RenderedImage owner) {
+        if ( memoryCapacity > 0 ) {
+            int minTx = owner.getMinTileX();
+            int minTy = owner.getMinTileY();
+            int maxTx = minTx + owner.getNumXTiles();
+            int maxTy = minTy + owner.getNumYTiles();
+
+            for (int y=minTy; y<maxTy; y++) {
+                for (int x=minTx; x<maxTx; x++) {
+                    remove(owner, x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an array of tiles to the tile cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     * @param tiles The array of tile <code>Raster</code>s containing tile data.
+     * @param tileCacheMetric Object which provides an ordering metric
+     *        associated with the <code>RenderedImage</code> owner.
+     */
+    public void addTiles(RenderedImage owner,
+                         Point[] tileIndices,
+                         Raster[] tiles,
+                         Object tileCacheMetric) {
+        for ( int i = 0; i < tileIndices.length; i++ ) {
+            add(owner, tileIndices[i].x, tileIndices[i].y,
+                tiles[i], tileCacheMetric);
+        }
+    }
+
+    /**
+     * Returns an array of tile <code>Raster</code>s from the cache.
+     * Any or all of the elements of the returned array may be <code>null</code>
+     * if the corresponding tile is not in the cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices  An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     */
+    public Raster[] getTiles(RenderedImage owner, Point[] tileIndices) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        Raster[] tiles = new Raster[tileIndices.length];
+
+        for ( int i = 0; i < tiles.length; i++ ) {
+            tiles[i] = getTile(owner, tileIndices[i].x, tileIndices[i].y);
+        }
+
+        return tiles;
+    }
+
+    /** Removes -ALL- tiles from the cache. */
+    public void flush() {
+        for (int i = 0; i < segments.length; i++) {
+            Segment seg = segments[i];
+            SunCachedTile[] removed;
+            int n;
+
+            synchronized (seg) {
+                n = seg.count;
+                removed = seg.ring;
+
+                seg.map = new HashMap();
+                seg.ring = new SunCachedTile[16];
+                seg.count = 0;
+                seg.hand = 0;
+                seg.hitCount = 0;
+                seg.missCount = 0;
+
+                long freed = seg.memoryUsage;
+                seg.memoryUsage = 0;
+                updateUsage(-freed, -n);
+            }
+
+            for (int j = 0; j < n; j++) {
+                removed[j].slot = -1;
+                if ( diagnostics ) {
+                    notifyDiagnostics(removed[j], REMOVE_FROM_FLUSH);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cache's tile capacity.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  This method always returns 0.
+     */
+    public int getTileCapacity() { return 0; }
+
+    /**
+     * Sets the cache's tile capacity to the desired number of tiles.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  This method does nothing.
+     *
+     * @param tileCapacity  The desired tile capacity for this cache
+     *        in number of tiles.
+     */
+    public void setTileCapacity(int tileCapacity) { }
+
+    /** Returns the cache's memory capacity in bytes. */
+    public long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Sets the cache's memory capacity to the desired number of bytes.
+     * If the new memory capacity is smaller than the amount of memory
+     * currently being used by this cache, tiles are removed from the
+     * cache until the memory usage is less than the specified memory
+     * capacity.
+     *
+     * @param memoryCapacity  The desired memory capacity for this cache
+     *        in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public void setMemoryCapacity(long memoryCapacity) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else if ( memoryCapacity == 0 ) {
+            flush();
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        if ( getCacheMemoryUsed() > memoryCapacity ) {
+            memoryControl();
+        }
+    }
+
+    /** Enable Tile Monitoring and Diagnostics */
+    public void enableDiagnostics() {
+        diagnostics = true;
+    }
+
+    /** Turn off diagnostic notification */
+    public void disableDiagnostics() {
+        diagnostics = false;
+    }
+
+    public long getCacheTileCount() {
+        return tileCount.get();
+    }
+
+    public long getCacheMemoryUsed() {
+        return memoryUsage.get();
+    }
+
+    public long getCacheHitCount() {
+        long count = 0;
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                count += segments[i].hitCount;
+            }
+        }
+        return count;
+    }
+
+    public long getCacheMissCount() {
+        long count = 0;
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                count += segments[i].missCount;
+            }
+        }
+        return count;
+    }
+
+    /** Reset hit and miss counters. */
+    public void resetCounts() {
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                segments[i].hitCount = 0;
+                segments[i].missCount = 0;
+            }
+        }
+    }
+
+    /** Set the memory threshold value. */
+    public void setMemoryThreshold(float mt) {
+        if ( mt < 0.0F || mt > 1.0F ) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else {
+            memoryThreshold = mt;
+            memoryControl();
+        }
+    }
+
+    /** Returns the current <code>memoryThreshold</code>. */
+    public float getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /** Returns a string representation of the class object. */
+    public String toString() {
+        return getClass().getName() + "@" + Integer.toHexString(hashCode()) +
+               ": memoryCapacity = " + Long.toHexString(memoryCapacity) +
+               " memoryUsage = " + Long.toHexString(getCacheMemoryUsed()) +
+               " #tilesInCache = " + Long.toString(getCacheTileCount()) +
+               " #segments = " + Integer.toString(segments.length);
+    }
+
+    /**
+     * Removes tiles from the cache until the memory usage is
+     * memoryThreshold % of that of the memory capacity.  Tiles are
+     * chosen by the tile <code>Comparator</code> if one is set and
+     * otherwise by the per-segment CLOCK hands.
+     */
+    public void memoryControl() {
+        controlLock.lock();
+        try {
+            memoryControlLocked();
+        } finally {
+            controlLock.unlock();
+        }
+    }
+
+    // Memory control with controlLock held.
+    private void memoryControlLocked() {
+        long limit = (long)(memoryCapacity * memoryThreshold);
+
+        if ( getCacheMemoryUsed() <= limit ) {
+            return;
+        }
+
+        if ( comparator != null ) {
+            custom_memory_control(limit);
+        }
+
+        clock_memory_control(limit);
+
+        epoch++;
+    }
+
+    // CLOCK based memory control, round robin over the segments.
+    private void clock_memory_control(long limit) {
+        int nseg = segments.length;
+        int idle = 0;
+
+        while ( getCacheMemoryUsed() > limit && idle < nseg ) {
+            Segment seg = segments[controlSegment];
+            controlSegment = (controlSegment + 1) & segmentMask;
+
+            SunCachedTile ct;
+            synchronized (seg) {
+                ct = seg.victim();
+                if ( ct != null ) {
+                    seg.map.remove(ct.key);
+                    seg.unlink(ct);
+                    seg.memoryUsage -= ct.memorySize;
+                }
+            }
+
+            if ( ct == null ) {
+                idle++;
+                continue;
+            }
+
+            idle = 0;
+            updateUsage(-ct.memorySize, -1);
+
+            if ( diagnostics ) {
+                notifyDiagnostics(ct, REMOVE_FROM_MEMCON);
+            }
+        }
+    }
+
+    // comparator based memory control over a snapshot of all tiles.
+    private void custom_memory_control(long limit) {
+        ArrayList all = new ArrayList();
+        for (int i = 0; i < segments.length; i++) {
+            Segment seg = segments[i];
+            synchronized (seg) {
+                all.addAll(Arrays.asList(seg.ring).subList(0, seg.count));
+            }
+        }
+
+        Object[] sorted = all.toArray();
+        Arrays.sort(sorted, comparator);
+
+        for (int i = 0; i < sorted.length && getCacheMemoryUsed() > limit; i++) {
+            SunCachedTile ct = (SunCachedTile)sorted[i];
+            Segment seg = segmentFor(ct.key);
+
+            synchronized (seg) {
+                // Skip tiles removed since the snapshot was taken.
+                if ( seg.map.get(ct.key) != ct ) {
+                    continue;
+                }
+                seg.map.remove(ct.key);
+                seg.unlink(ct);
+                seg.memoryUsage -= ct.memorySize;
+            }
+
+            updateUsage(-ct.memorySize, -1);
+
+            if ( diagnostics ) {
+                notifyDiagnostics(ct, REMOVE_FROM_MEMCON);
+            }
+        }
+    }
+
+    /**
+     *  The <code>Comparator</code> is used to produce an
+     *  ordered list of tiles based on a user defined
+     *  compute cost or priority metric.  This determines
+     *  which tiles are subject to "ordered" removal
+     *  during a memory control operation.
+     */
+    public void setTileComparator(Comparator c) {
+        comparator = c;
+    }
+
+    /** Return the current comparator */
+    public Comparator getTileComparator() {
+        return comparator;
+    }
+}
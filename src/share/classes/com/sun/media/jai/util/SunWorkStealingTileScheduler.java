@@ -0,0 +1,957 @@
+/*
+ * $RCSfile: SunWorkStealingTileScheduler.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package com.sun.media.jai.util;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.Raster;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TileCache;
+import javax.media.jai.TileComputationListener;
+import javax.media.jai.TileRequest;
+import javax.media.jai.TileScheduler;
+import javax.media.jai.util.ImagingException;
+import javax.media.jai.util.ImagingListener;
+
+/**
+ * A <code>javax.media.jai.TileScheduler</code> which distributes tile
+ * computation over a pool of work-stealing threads.
+ *
+ * <p> <code>SunTileScheduler</code> feeds its worker threads from two
+ * global job queues guarded by <code>wait()</code>/<code>notify()</code>
+ * so that every queued tile serializes on the queue monitor, and a
+ * thread which waits for queued tiles does nothing until a worker has
+ * computed them.  In this implementation each worker owns a deque of
+ * single-tile tasks.  A worker takes tasks from the tail of its own
+ * deque and, when that is empty, steals from the head of the deque of
+ * another worker, so that the workers only contend when work is being
+ * redistributed.  Tiles requested via <code>scheduleTiles()</code> by a
+ * worker are pushed onto that worker's own deque.  A thread blocked in
+ * <code>scheduleTiles()</code> does not sit idle: it claims the tasks of
+ * its own request which no worker has yet started and computes them
+ * itself, only waiting for those already in progress elsewhere.
+ *
+ * <p> As in <code>SunTileScheduler</code>, simultaneous requests for the
+ * same tile via <code>scheduleTile()</code> result in a single
+ * computation whose result is handed to all requesters, and prefetch
+ * requests are processed by a separate pool of (by default lower
+ * priority) threads.  The semantics of <code>TileRequest</code> and
+ * <code>TileComputationListener</code> are those of
+ * <code>SunTileScheduler</code>, except that duplicate tiles of
+ * different requests are not merged into a single notification.
+ *
+ * <p> An instance may be used by an operation by supplying it as the
+ * value of the <code>JAI.KEY_TILE_SCHEDULER</code> hint or installed
+ * via <code>JAI.setTileScheduler()</code>.
+ *
+ * @see javax.media.jai.TileScheduler
+ * @see SunTileScheduler
+ *
+ * @since JAI 1.1.4
+ */
+public final class SunWorkStealingTileScheduler implements TileScheduler {
+
+    /** The default number of prefetch threads. */
+    private static final int NUM_PREFETCH_THREADS_DEFAULT = 1;
+
+    /** Maximum time in milliseconds an idle worker waits for a signal. */
+    private static final long IDLE_WAIT = 1000L;
+
+    /** The instance counter used to compose thread names. */
+    private static int numInstances = 0;
+
+    /** The tile scheduler name used to compose thread names. */
+    private static String name =
+        JaiI18N.getString("SunWorkStealingTileSchedulerName");
+
+    // Task states.
+    private static final int PENDING   = 0;
+    private static final int RUNNING   = 1;
+    private static final int DONE      = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * The computation of a single tile on behalf of a blocking request,
+     * a non-blocking <code>TileRequest</code>, or a prefetch request.
+     */
+    private static final class Task {
+        final PlanarImage owner;
+        final int tileX;
+        final int tileY;
+
+        /** The blocking request or <code>null</code>. */
+        final Batch batch;
+
+        /** The non-blocking request or <code>null</code>. */
+        final StealingRequest request;
+
+        /** Index of the tile in the request. */
+        final int index;
+
+        private int state = PENDING;
+
+        Task(PlanarImage owner, int tileX, int tileY,
+             Batch batch, StealingRequest request, int index) {
+            this.owner = owner;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.batch = batch;
+            this.request = request;
+            this.index = index;
+        }
+
+        /** Atomically moves the task from pending to running. */
+        synchronized boolean claim() {
+            if (state != PENDING) {
+                return false;
+            }
+            state = RUNNING;
+            return true;
+        }
+
+        /** Atomically moves the task from pending to cancelled. */
+        synchronized boolean cancel() {
+            if (state != PENDING) {
+                return false;
+            }
+            state = CANCELLED;
+            return true;
+        }
+
+        synchronized void done() {
+            state = DONE;
+        }
+    }
+
+    /** The tasks and results of a blocking <code>scheduleTiles()</code>. */
+    private static final class Batch {
+        final Task[] tasks;
+        final Raster[] tiles;
+        private int pending;
+        private int cursor = 0;
+        Exception exception = null;
+
+        Batch(int numTiles) {
+            tasks = new Task[numTiles];
+            tiles = new Raster[numTiles];
+            pending = numTiles;
+        }
+
+        /** Returns the next task of this batch not yet started, if any. */
+        synchronized Task claimNext() {
+            while (cursor < tasks.length) {
+                Task t = tasks[cursor++];
+                if (t.claim()) {
+                    return t;
+                }
+            }
+            return null;
+        }
+
+        synchronized void finished(int index, Raster tile, Exception e) {
+            tiles[index] = tile;
+            if (e != null && exception == null) {
+                exception = e;
+            }
+            if (--pending == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void await() {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException ie) {
+                    // Ignore: should never happen.
+                }
+            }
+        }
+    }
+
+    /** A <code>TileRequest</code> which records its tasks for cancellation. */
+    private static final class StealingRequest extends Request {
+        Task[] tasks;
+
+        StealingRequest(TileScheduler scheduler,
+                        PlanarImage image,
+                        Point[] tileIndices,
+                        TileComputationListener[] tileListeners) {
+            super(scheduler, image, tileIndices, tileListeners);
+        }
+    }
+
+    /**
+     * A double-ended task queue.  The owning worker pushes and pops at
+     * the tail; other threads steal from the head.
+     */
+    private static final class WorkQueue {
+        private Task[] queue = new Task[32];
+        private int head = 0;
+        private int tail = 0;
+        private boolean closed = false;
+
+        /** Returns <code>false</code> if the queue no longer accepts tasks. */
+        synchronized boolean push(Task t) {
+            if (closed) {
+                return false;
+            }
+            if (tail - head == queue.length) {
+                Task[] tmp = new Task[queue.length * 2];
+                int mask = queue.length - 1;
+                for (int i = head; i < tail; i++) {
+                    tmp[i - head] = queue[i & mask];
+                }
+                tail -= head;
+                head = 0;
+                queue = tmp;
+            }
+            queue[tail++ & (queue.length - 1)] = t;
+            return true;
+        }
+
+        synchronized Task pop() {
+            if (tail == head) {
+                return null;
+            }
+            int i = --tail & (queue.length - 1);
+            Task t = queue[i];
+            queue[i] = null;
+            return t;
+        }
+
+        synchronized Task steal() {
+            if (tail == head) {
+                return null;
+            }
+            int i = head++ & (queue.length - 1);
+            Task t = queue[i];
+            queue[i] = null;
+            return t;
+        }
+
+        synchronized boolean isEmpty() {
+            return tail == head;
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+    }
+
+    /** A worker thread which owns a <code>WorkQueue</code>. */
+    private static final class Worker extends Thread {
+        final Pool pool;
+        final WorkQueue queue = new WorkQueue();
+        volatile boolean retired = false;
+
+        Worker(Pool pool, String name) {
+            super(name);
+            this.pool = pool;
+            setDaemon(true);
+        }
+
+        public void run() {
+            while (true) {
+                Task t = queue.pop();
+                if (t == null) {
+                    t = pool.steal(this);
+                }
+
+                if (t != null) {
+                    try {
+                        pool.scheduler.run(t);
+                    } catch (Throwable e) {
+                        pool.scheduler.sendExceptionToListener(
+                            JaiI18N.getString("SunTileScheduler7"), e);
+                    }
+                    continue;
+                }
+
+                if (retired) {
+                    // Refuse further tasks and run any that slipped in.
+                    queue.close();
+                    while ((t = queue.pop()) != null) {
+                        pool.scheduler.run(t);
+                    }
+                    return;
+                }
+
+                pool.idle(this);
+            }
+        }
+    }
+
+    /** A set of workers sharing their tasks. */
+    private static final class Pool {
+        final SunWorkStealingTileScheduler scheduler;
+        final String threadName;
+
+        /** The workers; replaced, never modified, when resized. */
+        private volatile Worker[] workers = new Worker[0];
+
+        /** The priority of the workers. */
+        private volatile int workerPriority = Thread.NORM_PRIORITY;
+
+        /** The number of workers waiting for a signal. */
+        private volatile int numIdle = 0;
+
+        /** Round-robin index for tasks submitted by non-workers. */
+        private int next = 0;
+
+        private int numCreated = 0;
+
+        Pool(SunWorkStealingTileScheduler scheduler, String threadName) {
+            this.scheduler = scheduler;
+            this.threadName = threadName;
+        }
+
+        /**
+         * Adjusts the number and priority of the workers.  Returns the
+         * number of workers.  As this is called for every request, the
+         * common case of nothing to adjust takes no lock.
+         */
+        int resize(int parallelism, int priority) {
+            if (workers.length == parallelism &&
+                (parallelism == 0 || workerPriority == priority)) {
+                return parallelism;
+            }
+            return resizeLocked(parallelism, priority);
+        }
+
+        /** Retires the workers beyond <code>parallelism</code>. */
+        synchronized void trim(int parallelism) {
+            if (workers.length > parallelism) {
+                resizeLocked(parallelism, workerPriority);
+            }
+        }
+
+        private synchronized int resizeLocked(int parallelism, int priority) {
+            Worker[] w = workers;
+            int n = w.length;
+
+            if (n != parallelism) {
+                Worker[] tmp = new Worker[parallelism];
+                System.arraycopy(w, 0, tmp, 0, Math.min(n, parallelism));
+
+                for (int i = n; i < parallelism; i++) {
+                    tmp[i] = new Worker(this, threadName + numCreated++);
+                    tmp[i].setPriority(workerPriority);
+                    tmp[i].start();
+                }
+
+                workers = tmp;
+
+                for (int i = parallelism; i < n; i++) {
+                    w[i].retired = true;
+                }
+                if (parallelism < n) {
+                    notifyAll();
+                }
+                w = tmp;
+            }
+
+            if (parallelism > 0 && workerPriority != priority) {
+                for (int i = 0; i < w.length; i++) {
+                    w[i].setPriority(priority);
+                }
+            }
+            workerPriority = priority;
+
+            return parallelism;
+        }
+
+        /** Returns the calling thread if it is a worker of this pool. */
+        Worker currentWorker() {
+            Thread t = Thread.currentThread();
+            if (t instanceof Worker && ((Worker)t).pool == this) {
+                return (Worker)t;
+            }
+            return null;
+        }
+
+        /** Queues the tasks and wakes idle workers. */
+        void submit(Task[] tasks, int numTasks) {
+            Worker self = currentWorker();
+
+            for (int i = 0; i < numTasks; i++) {
+                if (self != null && !self.retired &&
+                    self.queue.push(tasks[i])) {
+                    continue;
+                }
+
+                while (true) {
+                    Worker[] w = workers;
+                    if (w.length == 0) {
+                        // Pool was shut down: compute in this thread.
+                        scheduler.run(tasks[i]);
+                        break;
+                    }
+                    int k = next++ % w.length;
+                    if (k < 0) {
+                        k += w.length;
+                    }
+                    if (w[k].queue.push(tasks[i])) {
+                        break;
+                    }
+                }
+            }
+
+            if (numIdle > 0) {
+                synchronized (this) {
+                    if (numTasks >= numIdle) {
+                        notifyAll();
+                    } else {
+                        for (int i = 0; i < numTasks; i++) {
+                            notify();
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Steals a task from another worker, starting at a random one. */
+        Task steal(Worker thief) {
+            Worker[] w = workers;
+            int n = w.length;
+            if (n == 0) {
+                return null;
+            }
+            int start = (int)(Math.random() * n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = w[(start + i) % n];
+                if (victim != thief) {
+                    Task t = victim.queue.steal();
+                    if (t != null) {
+                        return t;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private boolean hasWork() {
+            Worker[] w = workers;
+            for (int i = 0; i < w.length; i++) {
+                if (!w[i].queue.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Parks an idle worker until work is submitted. */
+        synchronized void idle(Worker worker) {
+            numIdle++;
+            try {
+                // Re-check under the monitor so that a submission made
+                // before numIdle was incremented is not missed.
+                if (!worker.retired && !hasWork()) {
+                    wait(IDLE_WAIT);
+                }
+            } catch (InterruptedException ie) {
+                // Ignore: should never happen.
+            } finally {
+                numIdle--;
+            }
+        }
+    }
+
+    /**
+     * An in-progress <code>scheduleTile()</code> computation.  The tile
+     * is handed to waiting threads via <code>result</code>, which is set
+     * to a non-<code>null</code> value on completion.
+     */
+    private static final class InProgress {
+        Object result = null;
+    }
+
+    /** The worker thread parallelism. */
+    private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** The prefetch thread parallelism. */
+    private volatile int prefetchParallelism = NUM_PREFETCH_THREADS_DEFAULT;
+
+    /** The worker thread priority. */
+    private volatile int priority = Thread.NORM_PRIORITY;
+
+    /** The prefetch thread priority. */
+    private volatile int prefetchPriority = Thread.MIN_PRIORITY;
+
+    /** The pool computing standard requests. */
+    private final Pool pool;
+
+    /** The pool computing prefetch requests. */
+    private final Pool prefetchPool;
+
+    /**
+     * Tiles currently being computed by <code>scheduleTile()</code>,
+     * keyed by <code>SunTileScheduler.tileKey()</code>.
+     */
+    private final ConcurrentHashMap tilesInProgress = new ConcurrentHashMap();
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism  The number of worker threads to do tile computation.
+     *        If this number is less than 1, no multi-threading is used.
+     * @param priority  The priority of worker threads.
+     * @param prefetchParallelism  The number of threads to do prefetching.
+     *        If this number is less than 1, no multi-threading is used.
+     * @param prefetchPriority  The priority of prefetch threads.
+     */
+    public SunWorkStealingTileScheduler(int parallelism, int priority,
+                                        int prefetchParallelism,
+                                        int prefetchPriority) {
+        this();
+
+        setParallelism(parallelism);
+        setPriority(priority);
+        setPrefetchParallelism(prefetchParallelism);
+        setPrefetchPriority(prefetchPriority);
+    }
+
+    /**
+     * Constructor.  The parallelism defaults to the number of available
+     * processors and the prefetch parallelism to one.
+     */
+    public SunWorkStealingTileScheduler() {
+        String nameOfThisInstance;
+        synchronized (SunWorkStealingTileScheduler.class) {
+            nameOfThisInstance = name + numInstances++;
+        }
+        pool = new Pool(this, nameOfThisInstance + "Standard");
+        prefetchPool = new Pool(this, nameOfThisInstance + "Prefetch");
+    }
+
+    /**
+     * Computes the tile of a task and reports the result to its batch
+     * or request.  Does nothing if the task has already been claimed
+     * or cancelled.
+     */
+    void run(Task t) {
+        if (t.claim()) {
+            execute(t);
+        }
+    }
+
+    /** Computes the tile of a claimed task. */
+    private void execute(Task t) {
+        StealingRequest request = t.request;
+        Point p = null;
+
+        if (request != null) {
+            p = new Point(t.tileX, t.tileY);
+            request.tileStatus.put(p,
+                new Integer(TileRequest.TILE_STATUS_PROCESSING));
+        }
+
+        Raster tile = null;
+        Exception exception = null;
+
+        try {
+            tile = t.owner.getTile(t.tileX, t.tileY);
+        } catch (Exception e) {
+            exception = e;
+        } finally {
+            t.done();
+
+            if (t.batch != null) {
+                t.batch.finished(t.index, tile, exception);
+            }
+        }
+
+        if (request != null) {
+            request.tileStatus.put(p,
+                new Integer(exception == null ?
+                            TileRequest.TILE_STATUS_COMPUTED :
+                            TileRequest.TILE_STATUS_FAILED));
+
+            if (request.listeners != null) {
+                TileRequest[] reqs = new TileRequest[] {request};
+                Iterator iter = request.listeners.iterator();
+                while (iter.hasNext()) {
+                    TileComputationListener listener =
+                        (TileComputationListener)iter.next();
+                    if (exception == null) {
+                        listener.tileComputed(this, reqs, t.owner,
+                                              t.tileX, t.tileY, tile);
+                    } else {
+                        listener.tileComputationFailure(this, reqs, t.owner,
+                                                        t.tileX, t.tileY,
+                                                        exception);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules a single tile for computation.  The tile is computed in
+     * the calling thread unless another thread is already computing it,
+     * in which case the calling thread waits for and returns that result.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileX  The tile's X index.
+     * @param tileY  The tile's Y index.
+     *
+     * @exception IllegalArgumentException if <code>owner</code> is
+     * <code>null</code>.
+     *
+     * @return  The computed tile
+     */
+    public Raster scheduleTile(OpImage owner,
+                               int tileX,
+                               int tileY) {
+        if (owner == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler1"));
+        }
+
+        Raster tile = null;
+
+        Object tileID = SunTileScheduler.tileKey(owner, tileX, tileY);
+
+        InProgress cache = new InProgress();
+        InProgress existing =
+            (InProgress)tilesInProgress.putIfAbsent(tileID, cache);
+
+        if (existing == null) {
+            try {
+                try {
+                    tile = owner.computeTile(tileX, tileY);
+                } catch (OutOfMemoryError e) {
+                    // Empty the cache and call System.gc()
+                    TileCache tileCache = owner.getTileCache();
+                    if(tileCache != null) {
+                        tileCache.flush();
+                        System.gc(); //slow
+                    }
+
+                    // Re-attempt to compute the tile.
+                    tile = owner.computeTile(tileX, tileY);
+                }
+            } catch(Throwable e) {
+                if(e instanceof Error) {
+                    throw (Error)e;
+                } else if(e instanceof RuntimeException) {
+                    sendExceptionToListener(JaiI18N.getString("SunTileScheduler6"), e);
+                } else {
+                    String message = JaiI18N.getString("SunTileScheduler6");
+                    sendExceptionToListener(message,
+                                            new ImagingException(message, e));
+                }
+            } finally {
+                tilesInProgress.remove(tileID);
+
+                synchronized(cache) {
+                    // Always set the result to a non-null value.
+                    cache.result = tile != null ? (Object)tile : new Object();
+                    cache.notifyAll();
+                }
+            }
+        } else {
+            synchronized(existing) {
+                while(existing.result == null) {
+                    try {
+                        existing.wait();
+                    } catch(InterruptedException e) {
+                        // Ignore: should never happen.
+                    }
+                }
+
+                if(existing.result instanceof Raster) {
+                    tile = (Raster)existing.result;
+                } else {
+                    throw new RuntimeException(JaiI18N.getString("SunTileScheduler5"));
+                }
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Schedules multiple tiles of an image for computation.  The tiles
+     * are queued for the worker threads, and the calling thread computes
+     * any of them which have not been started by a worker before it
+     * waits for the remainder.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileIndices  An array of tile X and Y indices.
+     *
+     * @return  An array of computed tiles.
+     */
+    public Raster[] scheduleTiles(OpImage owner,
+                                  Point tileIndices[]) {
+        if (owner == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler0"));
+        }
+
+        int numTiles = tileIndices.length;
+        Batch batch = new Batch(numTiles);
+
+        for (int i = 0; i < numTiles; i++) {
+            Point p = tileIndices[i];
+            batch.tasks[i] = new Task(owner, p.x, p.y, batch, null, i);
+        }
+
+        // With a single tile or no workers there is nothing to share.
+        if (numTiles > 1 && pool.resize(parallelism, priority) > 0) {
+            pool.submit(batch.tasks, numTiles);
+        }
+
+        Task t;
+        while ((t = batch.claimNext()) != null) {
+            execute(t);
+        }
+        batch.await();
+
+        if (batch.exception != null) {
+            String message = JaiI18N.getString("SunTileScheduler7");
+            sendExceptionToListener(message,
+                                    new ImagingException(message,
+                                                         batch.exception));
+        }
+
+        return batch.tiles;
+    }
+
+    /**
+     * Schedule a list of tiles for computation.  The supplied listeners
+     * will be notified after each tile has been computed.  If the
+     * parallelism is positive this method does not block and the
+     * listeners are notified by the worker threads.
+     */
+    public TileRequest scheduleTiles(PlanarImage target, Point[] tileIndices,
+                                     TileComputationListener[] tileListeners) {
+        if (target == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler4"));
+        }
+
+        int numTiles = tileIndices.length;
+        StealingRequest request =
+            new StealingRequest(this, target, tileIndices, tileListeners);
+
+        Task[] tasks = new Task[numTiles];
+        for (int i = 0; i < numTiles; i++) {
+            Point p = tileIndices[i];
+            tasks[i] = new Task(target, p.x, p.y, null, request, i);
+        }
+        request.tasks = tasks;
+
+        if (pool.resize(parallelism, priority) > 0) {
+            pool.submit(tasks, numTiles);
+        } else {
+            for (int i = 0; i < numTiles; i++) {
+                run(tasks[i]);
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * Issues an advisory cancellation request to the
+     * <code>TileScheduler</code> stating that the indicated tiles of the
+     * specified request should not be processed.  Tiles which have not
+     * yet been started are removed from processing and their listeners
+     * notified; computation already in progress is not terminated.
+     */
+    public void cancelTiles(TileRequest request, Point[] tileIndices) {
+        if(request == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler3"));
+        }
+
+        if (!(request instanceof StealingRequest)) {
+            return;
+        }
+
+        StealingRequest req = (StealingRequest)request;
+        Task[] tasks = req.tasks;
+        Integer tileStatus = new Integer(TileRequest.TILE_STATUS_CANCELLED);
+
+        for (int i = 0; i < tasks.length; i++) {
+            Task t = tasks[i];
+
+            if (tileIndices != null && tileIndices.length > 0) {
+                boolean found = false;
+                for (int j = 0; j < tileIndices.length && !found; j++) {
+                    found = tileIndices[j].x == t.tileX &&
+                            tileIndices[j].y == t.tileY;
+                }
+                if (!found) {
+                    continue;
+                }
+            }
+
+            if (!t.cancel()) {
+                continue;
+            }
+
+            req.tileStatus.put(new Point(t.tileX, t.tileY), tileStatus);
+
+            if(req.listeners != null) {
+                TileRequest[] reqArray = new TileRequest[] {req};
+                Iterator iter = req.listeners.iterator();
+                while(iter.hasNext()) {
+                    TileComputationListener listener =
+                        (TileComputationListener)iter.next();
+                    listener.tileCancelled(this, reqArray,
+                                           req.image, t.tileX, t.tileY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prefetchs a list of tiles of an image.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileIndices  An array of tile X and Y indices.
+     */
+    public void prefetchTiles(PlanarImage owner,
+                              Point[] tileIndices) {
+        if (owner == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler0"));
+        }
+
+        int numTiles = tileIndices.length;
+        Task[] tasks = new Task[numTiles];
+        for (int i = 0; i < numTiles; i++) {
+            Point p = tileIndices[i];
+            tasks[i] = new Task(owner, p.x, p.y, null, null, i);
+        }
+
+        if (prefetchPool.resize(prefetchParallelism, prefetchPriority) > 0) {
+            prefetchPool.submit(tasks, numTiles);
+        } else {
+            for (int i = 0; i < numTiles; i++) {
+                run(tasks[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the number of worker threads.  A parallelism value of zero
+     * indicates that all tile computation will be effected in the
+     * requesting thread.  The default is the number of available
+     * processors.  Surplus worker threads are retired at once; new ones
+     * are started by the next request.
+     *
+     * @param parallelism The suggested degree of parallelism.
+     * @throws IllegalArgumentException if <code>parallelism</code>
+     *         is negative.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler2"));
+        }
+        this.parallelism = parallelism;
+        pool.trim(parallelism);
+    }
+
+    /**
+     * Returns the degree of parallelism of the scheduler.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns <code>true</code> if a thread is one of the worker threads
+     * of this scheduler, which must not wait for tiles it schedules.
+     */
+    public boolean isWorkerThread(Thread thread) {
+        return thread instanceof Worker &&
+            (((Worker)thread).pool == pool ||
+             ((Worker)thread).pool == prefetchPool);
+    }
+
+    /**
+     * Identical to <code>setParallelism()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public void setPrefetchParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler2"));
+        }
+        prefetchParallelism = parallelism;
+        prefetchPool.trim(parallelism);
+    }
+
+    /**
+     * Identical to <code>getParallelism()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public int getPrefetchParallelism() {
+        return prefetchParallelism;
+    }
+
+    /**
+     * Sets the priority of the worker threads.  Values outside of the
+     * accepted priority range will be clamped to the nearest extremum.
+     * Its initial value is <code>Thread.NORM_PRIORITY</code>.
+     *
+     * @param priority The suggested priority.
+     */
+    public void setPriority(int priority) {
+        this.priority = Math.max(Math.min(priority, Thread.MAX_PRIORITY),
+                                 Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * Returns the priority of <code>scheduleTiles()</code> processing.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Identical to <code>setPriority()</code> but applies only to
+     * <code>prefetchTiles()</code>.  Its initial value is
+     * <code>Thread.MIN_PRIORITY</code>.
+     */
+    public void setPrefetchPriority(int priority) {
+        prefetchPriority = Math.max(Math.min(priority, Thread.MAX_PRIORITY),
+                                    Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * Identical to <code>getPriority()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public int getPrefetchPriority() {
+        return prefetchPriority;
+    }
+
+    /**
+     * Retires all worker and prefetch threads once they have finished
+     * the tiles queued to them.  The threads are daemon threads which
+     * keep this scheduler reachable, so a scheduler which is no longer
+     * used should be disposed of.  It remains usable: the next request
+     * starts new threads.
+     *
+     * @since JAI 1.1.4
+     */
+    public void dispose() {
+        pool.trim(0);
+        prefetchPool.trim(0);
+    }
+
+    void sendExceptionToListener(String message, Throwable e) {
+        ImagingListener listener =
+            ImageUtil.getImagingListener((RenderingHints)null);
+        listener.errorOccurred(message, e, this, false);
+    }
+}
@@ -11,6 +11,7 @@
  */
 package javax.media.jai;
 
+import com.sun.media.jai.util.SunConcurrentTileCache;
 import com.sun.media.jai.util.SunTileCache;
 import com.sun.media.jai.util.SunTileScheduler;
 import java.awt.Dimension;
@@ -170,6 +171,11 @@ public final class JAI {
     private static final int HINT_CACHED_TILE_RECYCLING_ENABLED = 123;
     private static final int HINT_TRANSFORM_ON_COLORMAP = 124;
     private static final int HINT_IMAGING_LISTENER = 125;
+    private static final int HINT_POINT_OP_FUSION = 126;
+    private static final int HINT_FREQUENCY_TRANSFORM_PADDING = 127;
+    private static final int HINT_COLOR_CONVERT_LUT = 128;
+    private static final int HINT_INTEGRAL_IMAGE = 129;
+    private static final int HINT_JPEG_SCALED_DECODING = 130;
 
     //
     // Public keys
@@ -525,6 +531,119 @@ public final class JAI {
 	new RenderingKey(HINT_IMAGING_LISTENER,
 			 ImagingListener.class);
 
+    /**
+     * Key for <code>Boolean</code> object values which specify whether
+     * consecutive single-source point operations are fused when
+     * <code>RenderedOp</code> nodes are rendered.  When this hint is
+     * <code>TRUE</code> and a node performing one of the operations
+     * "Absolute", "AddConst", "AndConst", "Clamp", "DivideByConst",
+     * "DivideIntoConst", "Exp", "Format", "Invert", "Log", "Lookup",
+     * "MultiplyConst", "Not", "OrConst", "Piecewise", "Rescale",
+     * "SubtractConst", "SubtractFromConst", "Threshold" or "XorConst"
+     * has for its source another such node, and the data of the image
+     * at the start of the chain are of byte, unsigned short or short
+     * type, the node is rendered as a single "Lookup" of that image
+     * through a table giving the result of the whole chain for every
+     * possible sample value.  The tiles of the intermediate nodes are
+     * then neither computed nor cached.  Nodes having an
+     * {@link ImageLayout} hint, and images having an
+     * <code>IndexColorModel</code>, are not fused.  The common
+     * <code>RenderingHints</code> do not contain a default hint
+     * corresponding to this key.
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderingHints.Key KEY_POINT_OP_FUSION =
+	new RenderingKey(HINT_POINT_OP_FUSION, Boolean.class);
+
+    /**
+     * Key for <code>Boolean</code> object values which specify whether
+     * the "DFT", "IDFT", "DCT" and "IDCT" operations enlarge the
+     * dimensions of their destination to the next positive powers of 2.
+     * When this hint is <code>FALSE</code> the destination has the
+     * dimensions of the source, which may be any, and the source is not
+     * padded with zeros.  Padding is done if the hint is absent or
+     * <code>TRUE</code>.  The common <code>RenderingHints</code> do not
+     * contain a default hint corresponding to this key.
+     *
+     * @see javax.media.jai.operator.DFTDescriptor
+     * @see javax.media.jai.operator.DCTDescriptor
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderingHints.Key KEY_FREQUENCY_TRANSFORM_PADDING =
+	new RenderingKey(HINT_FREQUENCY_TRANSFORM_PADDING, Boolean.class);
+
+    /**
+     * Key for <code>Boolean</code> object values which specify whether
+     * the "ColorConvert" operation converts byte images through a three
+     * dimensional lookup table.  When this hint is <code>TRUE</code>,
+     * the source has three color bands and neither color space is a
+     * <code>ColorSpaceJAI</code>, the colors of a lattice of source
+     * colors are converted once per pair of color spaces and the other
+     * colors are interpolated between them, which is faster but not as
+     * exact.  The common <code>RenderingHints</code> do not contain a
+     * default hint corresponding to this key.
+     *
+     * @see javax.media.jai.operator.ColorConvertDescriptor
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderingHints.Key KEY_COLOR_CONVERT_LUT =
+	new RenderingKey(HINT_COLOR_CONVERT_LUT, Boolean.class);
+
+    /**
+     * Key for <code>RenderedImage</code> object values which specify an
+     * "IntegralImage" of the source of an operation computing sums over
+     * boxes.  The "BoxFilter", "SubsampleAverage" and "LocalStatistics"
+     * operations read their sums from this image in constant time per
+     * pixel whatever the size of the box if it is the "IntegralImage" of
+     * their source, which lets several operations on the same source
+     * share it.  The value is ignored otherwise.  The common
+     * <code>RenderingHints</code> do not contain a default hint
+     * corresponding to this key.
+     *
+     * @see javax.media.jai.operator.IntegralImageDescriptor
+     * @see javax.media.jai.operator.BoxFilterDescriptor
+     * @see javax.media.jai.operator.SubsampleAverageDescriptor
+     * @see javax.media.jai.operator.LocalStatisticsDescriptor
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderingHints.Key KEY_INTEGRAL_IMAGE =
+	new RenderingKey(HINT_INTEGRAL_IMAGE, RenderedImage.class);
+
+    /**
+     * Key for <code>Boolean</code> object values which specify whether a
+     * "Scale" or "SubsampleAverage" operation whose source is the
+     * rendering of a "JPEG" or "Stream" operation on JPEG data may have
+     * the decoder reduce the image by 2, 4 or 8 before the operation
+     * reduces it further.  The decoder then applies reduced inverse
+     * discrete cosine transforms to the coefficients of the data, and
+     * the full size image is not decoded.  This is only done if the
+     * bounds of the destination are unchanged, and if the JPEG data are
+     * sequential.  As the decoder averages blocks of pixels and
+     * interpolates subsampled chrominance at the reduced size, the
+     * result differs from that of the operation on the full size image,
+     * by less than one level on average but by up to a few tens of
+     * levels at sharp color edges.  It is therefore only done if the
+     * value is <code>Boolean.TRUE</code>.  The hint must then also be
+     * given to the "JPEG" or "Stream" operation, which defers the
+     * decoding of the data until they are requested, so that errors in
+     * them are only thrown then.  The common
+     * <code>RenderingHints</code> do not contain a default hint
+     * corresponding to this key.
+     *
+     * @see javax.media.jai.operator.ScaleDescriptor
+     * @see javax.media.jai.operator.SubsampleAverageDescriptor
+     * @see com.sun.media.jai.codec.JPEGDecodeParam#setScaleDenominator
+     * @see com.sun.media.jai.codec.JPEGDecodeParam#setDeferDecoding
+     *
+     * @since JAI 1.1.4
+     */
+    public static RenderingHints.Key KEY_JPEG_SCALED_DECODING =
+	new RenderingKey(HINT_JPEG_SCALED_DECODING, Boolean.class);
+
     /**
      * Initial default tile size. Applies to both dimensions.
      */
@@ -909,6 +1028,35 @@ public final class JAI {
         return new SunTileCache();
     }
 
+    /**
+     * Constructs a <code>TileCache</code> with the given memory capacity
+     * in bytes which is suited to being accessed by the given number of
+     * threads at once.  If <code>concurrencyLevel</code> is greater than
+     * one the returned cache partitions its tiles into independently
+     * locked segments and uses approximate (CLOCK) rather than strict
+     * LRU replacement, so that concurrent tile lookups do not serialize
+     * on a single monitor.  Otherwise the result is the same as that of
+     * <code>createTileCache(memCapacity)</code>.
+     *
+     * <p> An exception will be thrown if memCapacity is negative.
+     *
+     * @param memCapacity The memory capacity of the cache in bytes.
+     * @param concurrencyLevel The expected number of threads accessing
+     *        the cache concurrently.
+     *
+     * @since JAI 1.1.4
+     */
+    public static TileCache createTileCache(long memCapacity,
+                                            int concurrencyLevel) {
+        if (memCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("JAI10"));
+        }
+        if (concurrencyLevel > 1) {
+            return new SunConcurrentTileCache(memCapacity, concurrencyLevel);
+        }
+        return new SunTileCache(memCapacity);
+    }
+
     /**
      * Constructs a <code>TileScheduler</code> with the default parallelism
      * and priorities.
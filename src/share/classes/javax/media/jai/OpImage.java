@@ -24,6 +24,7 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel; // 3-22-00 used in deprecated methods only
 import java.awt.image.WritableRaster;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -266,6 +267,13 @@ public abstract class OpImage extends PlanarImage {
      */
     protected TileRecycler tileRecycler;
 
+    /**
+     * Tiles currently being computed by <code>getTile()</code>.  Each
+     * <code>Long</code> tile index is mapped to a
+     * <code>TileInProgress</code>.
+     */
+    private final HashMap tilesInProgress = new HashMap();
+
     /** The default RasterAccessor format tags. */
     // XXX This variable should be removed if we stop using RasterAccessor.
     private RasterFormatTag[] formatTags = null;
@@ -1105,7 +1113,9 @@ public abstract class OpImage extends PlanarImage {
      * <p> This method attempts to retrieve the requested tile from the
      * cache.  If the tile is not currently in the cache, it schedules
      * the tile for computation and adds it to the cache once the tile
-     * has been computed.
+     * has been computed.  If several threads request the same tile which
+     * is not in the cache, only one of them schedules its computation;
+     * the others wait for and return the tile it computes.
      *
      * <p> If a subclass overrides this method, then it needs to handle
      * tile caching and scheduling.  It should also override
@@ -1125,27 +1135,113 @@ public abstract class OpImage extends PlanarImage {
             tile = getTileFromCache(tileX, tileY);
 
             if (tile == null) {         // tile not in cache
-                try {
-                    tile = scheduler.scheduleTile(this, tileX, tileY);
-                } catch (OutOfMemoryError e) {
-                    // Empty the cache and call System.gc()
-                    if(cache != null) {
-                        cache.flush();
-                        System.gc(); //slow
+                tile = computeTileOnce(tileX, tileY);
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * A tile of this image being computed by <code>getTile()</code>.
+     * Threads requesting the same tile wait on this object until the
+     * computing thread sets <code>result</code> to the tile, or to an
+     * <code>Object</code> which is not a <code>Raster</code> if the
+     * computation failed.
+     */
+    private static final class TileInProgress {
+        final Thread computer = Thread.currentThread();
+        Object result = null;
+    }
+
+    /**
+     * Ensures that concurrent <code>getTile()</code> calls which miss the
+     * cache for the same tile result in a single computation.  The first
+     * requesting thread schedules the tile and caches it; the others wait
+     * for and share its result.  The tile is withdrawn from
+     * <code>tilesInProgress</code> only after it has been added to the
+     * cache so that a requester arriving in between finds it in one or
+     * the other.
+     */
+    private Raster computeTileOnce(int tileX, int tileY) {
+        Long tileID = new Long(((long)tileY << 32) | (tileX & 0xffffffffL));
+
+        TileInProgress inProgress;
+        boolean isComputing;
+        synchronized(tilesInProgress) {
+            inProgress = (TileInProgress)tilesInProgress.get(tileID);
+            if(isComputing = (inProgress == null)) {
+                tilesInProgress.put(tileID, inProgress = new TileInProgress());
+            }
+        }
+
+        if(!isComputing) {
+            // A thread re-entering its own computation cannot wait for it.
+            if(inProgress.computer != Thread.currentThread()) {
+                synchronized(inProgress) {
+                    while(inProgress.result == null) {
+                        try {
+                            inProgress.wait();
+                        } catch(InterruptedException e) {
+                            // Ignore: should never happen.
+                        }
                     }
+                }
 
-                    // Need to reissue the tile scheduling.
-                    tile = scheduler.scheduleTile(this, tileX, tileY);
+                if(inProgress.result instanceof Raster) {
+                    return (Raster)inProgress.result;
                 }
+            }
 
-                // Cache the result tile.
-                addTileToCache(tileX, tileY, tile);
+            // The shared computation failed: try again in this thread.
+            return scheduleTileAndCache(tileX, tileY);
+        }
+
+        Raster tile = null;
+        try {
+            // The tile may have been cached between the cache miss in
+            // getTile() and the registration above.
+            tile = getTileFromCache(tileX, tileY);
+
+            if(tile == null) {
+                tile = scheduleTileAndCache(tileX, tileY);
+            }
+        } finally {
+            synchronized(tilesInProgress) {
+                tilesInProgress.remove(tileID);
+            }
+
+            synchronized(inProgress) {
+                inProgress.result = tile != null ? (Object)tile : new Object();
+                inProgress.notifyAll();
             }
         }
 
         return tile;
     }
 
+    /** Schedules the computation of a tile and caches the result. */
+    private Raster scheduleTileAndCache(int tileX, int tileY) {
+        Raster tile;
+        try {
+            tile = scheduler.scheduleTile(this, tileX, tileY);
+        } catch (OutOfMemoryError e) {
+            // Empty the cache and call System.gc()
+            if(cache != null) {
+                cache.flush();
+                System.gc(); //slow
+            }
+
+            // Need to reissue the tile scheduling.
+            tile = scheduler.scheduleTile(this, tileX, tileY);
+        }
+
+        // Cache the result tile.
+        addTileToCache(tileX, tileY, tile);
+
+        return tile;
+    }
+
     /**
      * Computes the image data of a tile.
      *
@@ -1503,6 +1599,14 @@ public abstract class OpImage extends PlanarImage {
         return newListeners;
     }
 
+    /**
+     * Returns the <code>TileScheduler</code> which computes the tiles of
+     * this image.
+     */
+    TileScheduler getTileScheduler() {
+        return scheduler;
+    }
+
     /**
      * Returns an array of indices of tiles which are not cached or
      * <code>null</code> if all are cached.
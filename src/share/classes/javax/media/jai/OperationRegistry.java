@@ -32,13 +32,16 @@ import java.io.StringWriter;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.media.jai.registry.CIFRegistry;
 import javax.media.jai.registry.CRIFRegistry;
 import javax.media.jai.registry.RIFRegistry;
@@ -297,6 +300,111 @@ public class OperationRegistry implements Externalizable {
 	return dc;
     }
 
+    /**
+     * Identifies a memoized factory list by its mode, descriptor and
+     * product names, or by the mode and descriptor names for the list of
+     * the factories of all products.  The mode and descriptor names are
+     * compared without regard to case, as they are by the caches.
+     */
+    private static final class FactoryListKey {
+	private final String modeName;
+	private final String descriptorName;
+	private final String productName;
+	private final boolean allProducts;
+	private final int hashCode;
+
+	FactoryListKey(String modeName, String descriptorName,
+		       String productName, boolean allProducts) {
+	    this.modeName = modeName.toLowerCase(Locale.ENGLISH);
+	    this.descriptorName = descriptorName.toLowerCase(Locale.ENGLISH);
+	    this.productName = productName;
+	    this.allProducts = allProducts;
+
+	    int h = 31*this.modeName.hashCode() +
+		this.descriptorName.hashCode();
+	    if (productName != null)
+		h = 31*h + productName.hashCode();
+	    hashCode = allProducts ? ~h : h;
+	}
+
+	public int hashCode() {
+	    return hashCode;
+	}
+
+	public boolean equals(Object o) {
+	    if (!(o instanceof FactoryListKey))
+		return false;
+
+	    FactoryListKey key = (FactoryListKey)o;
+
+	    return hashCode == key.hashCode &&
+		allProducts == key.allProducts &&
+		modeName.equals(key.modeName) &&
+		descriptorName.equals(key.descriptorName) &&
+		(productName == null ? key.productName == null :
+		 productName.equals(key.productName));
+	}
+    }
+
+    /** The memoized value standing for a <code>null</code> list. */
+    static final List NO_FACTORIES =
+	Collections.unmodifiableList(new ArrayList(0));
+
+    /**
+     * The unmodifiable factory lists computed by
+     * <code>getOrderedFactoryList()</code> and
+     * <code>getFactoryIterator()</code>, keyed by
+     * <code>FactoryListKey</code>.  They are discarded whenever a
+     * descriptor, a factory or a preference changes.  Being held in a
+     * <code>ConcurrentHashMap</code> they may be looked up without
+     * the lock of <code>ThreadSafeOperationRegistry</code>.
+     */
+    private final Map factoryLists = new ConcurrentHashMap();
+
+    /**
+     * Returns the memoized factory list, <code>NO_FACTORIES</code> if
+     * there was none, or <code>null</code> if it is not memoized.
+     */
+    final List lookupFactoryList(String modeName,
+				 String descriptorName,
+				 String productName,
+				 boolean allProducts) {
+	// Invalid arguments are left to the caches to report.
+	if (modeName == null || descriptorName == null)
+	    return null;
+
+	return (List)factoryLists.get(
+	    new FactoryListKey(modeName, descriptorName,
+			       productName, allProducts));
+    }
+
+    /**
+     * Memoizes an unmodifiable copy of a factory list and returns it,
+     * or <code>NO_FACTORIES</code> if the list is <code>null</code>.
+     */
+    private List memoizeFactoryList(String modeName,
+				    String descriptorName,
+				    String productName,
+				    boolean allProducts,
+				    List list) {
+	List value = (list == null) ? NO_FACTORIES :
+	    Collections.unmodifiableList(new ArrayList(list));
+
+	factoryLists.put(new FactoryListKey(modeName, descriptorName,
+					    productName, allProducts),
+			 value);
+
+	return value;
+    }
+
+    /**
+     * Discards the memoized factory lists.  This must be called before
+     * any change to the descriptors, factories or preferences.
+     */
+    final void invalidateFactoryLists() {
+	factoryLists.clear();
+    }
+
     /**
      * Initialize all the internal OperationRegistry fields.
      *
@@ -312,6 +420,8 @@ public class OperationRegistry implements Externalizable {
 	// Create a Hashtable to hold a FactoryCache for each
 	// known registry mode.
 	factories   = new Hashtable();
+
+	invalidateFactoryLists();
     }
 
     /**
@@ -629,6 +739,8 @@ public class OperationRegistry implements Externalizable {
      */
     public void removeRegistryMode(String modeName) {
 
+	invalidateFactoryLists();
+
 	if (getDescriptorCache(modeName) != null)
 	    descriptors.remove(new CaselessStringKey(modeName));
 
@@ -699,6 +811,8 @@ public class OperationRegistry implements Externalizable {
 			new Object[] {descriptorName, supportedModes[i]}));
 	}
 
+	invalidateFactoryLists();
+
 	// Now register the descriptor against each supported mode.
 	for (int i = 0; i < supportedModes.length; i++) {
 
@@ -743,6 +857,8 @@ public class OperationRegistry implements Externalizable {
 			new Object[] {descriptorName, supportedModes[i]}));
 	}
 
+	invalidateFactoryLists();
+
 	// Now unregister the descriptor against each supported mode.
 	for (int i = 0; i < supportedModes.length; i++) {
 
@@ -990,6 +1106,8 @@ public class OperationRegistry implements Externalizable {
 
 	DescriptorCache dc = getDescriptorCache(modeName);
 
+	invalidateFactoryLists();
+
 	if (dc != null)
 	    dc.setProductPreference(descriptorName, preferredProductName,
 						    otherProductName);
@@ -1026,6 +1144,8 @@ public class OperationRegistry implements Externalizable {
 
 	DescriptorCache dc = getDescriptorCache(modeName);
 
+	invalidateFactoryLists();
+
 	if (dc != null)
 	    dc.unsetProductPreference(descriptorName, preferredProductName,
 						      otherProductName);
@@ -1052,6 +1172,8 @@ public class OperationRegistry implements Externalizable {
 
 	DescriptorCache dc = getDescriptorCache(modeName);
 
+	invalidateFactoryLists();
+
 	if (dc != null)
 	    dc.clearProductPreferences(descriptorName);
     }
@@ -1179,6 +1301,8 @@ public class OperationRegistry implements Externalizable {
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
 	}
 
+	invalidateFactoryLists();
+
 	if (dc.arePreferencesSupported) {
 
 	    OperationGraph og =
@@ -1239,6 +1363,8 @@ public class OperationRegistry implements Externalizable {
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
 	}
 
+	invalidateFactoryLists();
+
 	fc.removeFactory(descriptorName, productName, factory);
 
 	if (dc.arePreferencesSupported) {
@@ -1296,6 +1422,8 @@ public class OperationRegistry implements Externalizable {
 		    new Object[] {descriptorName, modeName}));
 	}
 
+	invalidateFactoryLists();
+
 	// This should throw an exception if preferences are not
 	// supported.
 	fc.setPreference(
@@ -1356,6 +1484,8 @@ public class OperationRegistry implements Externalizable {
 		    new Object[] {descriptorName, modeName}));
 	}
 
+	invalidateFactoryLists();
+
 	// This should throw an exception if preferences are not
 	// supported.
 	fc.unsetPreference(
@@ -1408,6 +1538,8 @@ public class OperationRegistry implements Externalizable {
 		    new Object[] {descriptorName, modeName}));
 	}
 
+	invalidateFactoryLists();
+
 	Object prefs[][] = fc.getPreferences(descriptorName, productName);
 
 	if (prefs != null) {
@@ -1496,6 +1628,24 @@ public class OperationRegistry implements Externalizable {
                                       String descriptorName,
                                       String productName) {
 
+	List list = lookupFactoryList(modeName, descriptorName,
+				      productName, false);
+
+	if (list == null)
+	    list = resolveOrderedFactoryList(modeName,
+					     descriptorName, productName);
+
+	return (list == NO_FACTORIES) ? null : new ArrayList(list);
+    }
+
+    /**
+     * Computes the ordered factory list of a product and memoizes it.
+     * <code>NO_FACTORIES</code> is returned if there is none.
+     */
+    List resolveOrderedFactoryList(String modeName,
+				   String descriptorName,
+				   String productName) {
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1511,12 +1661,14 @@ public class OperationRegistry implements Externalizable {
 		dc.lookupProduct(descriptorName, productName);
 
 	    if (og == null)
-		return null;
+		return memoizeFactoryList(modeName, descriptorName,
+					  productName, false, null);
 
 	    Vector v = og.getOrderedOperationList();
 
 	    if ((v == null) || (v.size() <= 0))
-		return null;
+		return memoizeFactoryList(modeName, descriptorName,
+					  productName, false, null);
 
 	    ArrayList list = new ArrayList(v.size());
 
@@ -1524,10 +1676,14 @@ public class OperationRegistry implements Externalizable {
 		list.add(((PartialOrderNode)v.elementAt(i)).getData());
 	    }
 
-	    return list;
+	    return memoizeFactoryList(modeName, descriptorName,
+				      productName, false, list);
 
 	} else {
-	    return fc.getFactoryList(descriptorName, productName);
+	    return memoizeFactoryList(modeName, descriptorName,
+				      productName, false,
+				      fc.getFactoryList(descriptorName,
+							productName));
 	}
     }
 
@@ -1560,6 +1716,21 @@ public class OperationRegistry implements Externalizable {
     public Iterator getFactoryIterator(String modeName,
                                        String descriptorName) {
 
+	List list = lookupFactoryList(modeName, descriptorName, null, true);
+
+	if (list == null)
+	    list = resolveFactoryList(modeName, descriptorName);
+
+	return (list == NO_FACTORIES) ? null : list.iterator();
+    }
+
+    /**
+     * Computes the list of factories of all products, in the order of
+     * <code>getFactoryIterator()</code>, and memoizes it.
+     * <code>NO_FACTORIES</code> is returned if there is none.
+     */
+    List resolveFactoryList(String modeName, String descriptorName) {
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1573,7 +1744,8 @@ public class OperationRegistry implements Externalizable {
 	    Vector v = getOrderedProductList(modeName, descriptorName);
 
 	    if ((v == null) || (v.size() <= 0))
-		return null;
+		return memoizeFactoryList(modeName, descriptorName,
+					  null, true, null);
 
 	    ArrayList list = new ArrayList();
 
@@ -1586,16 +1758,14 @@ public class OperationRegistry implements Externalizable {
 		    list.addAll(plist);
 	    }
 
-	    return list.iterator();
+	    return memoizeFactoryList(modeName, descriptorName,
+				      null, true, list);
 
 	} else {
-	    List list = fc.getFactoryList(descriptorName, null);
-
-	    if (list != null)
-		return list.iterator();
+	    return memoizeFactoryList(modeName, descriptorName,
+				      null, true,
+				      fc.getFactoryList(descriptorName, null));
 	}
-
-	return null;
     }
 
     /**
@@ -0,0 +1,379 @@
+/*
+ * $RCSfile: PointOpFusion.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package javax.media.jai;
+
+import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import javax.media.jai.registry.RIFRegistry;
+import com.sun.media.jai.util.ImageUtil;
+
+/**
+ * Fuses chains of single-source point operations into a single
+ * "Lookup" operation when <code>RenderedOp</code> nodes are rendered
+ * with <code>JAI.KEY_POINT_OP_FUSION</code> set to <code>TRUE</code>.
+ *
+ * <p> The table of the lookup is computed by applying the operations
+ * of the chain, through the same factories as would render the nodes,
+ * to an image holding every value of the data type of the image at the
+ * start of the chain.  The fused rendering therefore has the same
+ * samples as the chain whatever the rounding and clamping done by each
+ * operation.  It is also given the <code>ColorModel</code> the last node
+ * would have, and the node is rendered as usual if the lookup cannot
+ * take it.  The renderings created here are remembered together with
+ * their source and the image of their table so that a node whose source
+ * was itself fused only needs to apply its own operation to that table.
+ *
+ * @since JAI 1.1.4
+ */
+final class PointOpFusion {
+
+    /** The names of the operations which may be fused, in lower case. */
+    private static final Set fusableOperations = new HashSet();
+
+    static {
+        String[] names = {
+            "absolute", "addconst", "andconst", "clamp", "dividebyconst",
+            "divideintoconst", "exp", "format", "invert", "log", "lookup",
+            "multiplyconst", "not", "orconst", "piecewise", "rescale",
+            "subtractconst", "subtractfromconst", "threshold", "xorconst"
+        };
+        for (int i = 0; i < names.length; i++) {
+            fusableOperations.add(names[i]);
+        }
+    }
+
+    /** The source of a fused rendering and the image of its table. */
+    private static final class Fusion {
+        final RenderedImage source;
+        final RenderedImage table;
+
+        Fusion(RenderedImage source, RenderedImage table) {
+            this.source = source;
+            this.table = table;
+        }
+    }
+
+    /** The fused renderings, mapped to their <code>Fusion</code>. */
+    private static final Map fusions =
+        Collections.synchronizedMap(new WeakHashMap());
+
+    private PointOpFusion() {}
+
+    /**
+     * Returns a fused rendering of a node, or <code>null</code> if the
+     * node cannot be fused with its source, in which case it should be
+     * rendered as usual.
+     *
+     * @param node the node being rendered.
+     * @param pb the parameters of the node, evaluated, with the renderings
+     *        of its sources.
+     * @param hints the hints of the node.
+     */
+    static RenderedImage fuse(RenderedOp node,
+                              ParameterBlock pb,
+                              RenderingHints hints) {
+        if (!isFusable(node) || pb.getNumSources() != 1) {
+            return null;
+        }
+
+        Object nodeSource = node.getNodeSource(0);
+        if (!(nodeSource instanceof RenderedOp) ||
+            !isFusable((RenderedOp)nodeSource)) {
+            return null;
+        }
+        RenderedOp sourceNode = (RenderedOp)nodeSource;
+
+        try {
+            RenderedImage source;
+            RenderedImage table;
+
+            Fusion fusion = (Fusion)fusions.get(pb.getRenderedSource(0));
+            if (fusion != null) {
+                source = fusion.source;
+                table = fusion.table;
+            } else {
+                // The source node was rendered on its own: fuse it too.
+                Object o = sourceNode.getNodeSource(0);
+                if (o instanceof RenderedOp) {
+                    source = ((RenderedOp)o).getRendering();
+                } else if (o instanceof RenderedImage) {
+                    source = (RenderedImage)o;
+                } else {
+                    return null;
+                }
+
+                if (!canLookup(source)) {
+                    return null;
+                }
+
+                table = apply(sourceNode,
+                              ImageUtil.evaluateParameters(
+                                  sourceNode.getParameterBlock().getParameters()),
+                              createRamp(source),
+                              sourceNode.getRenderingHints());
+                if (table == null) {
+                    return null;
+                }
+            }
+
+            table = apply(node, pb.getParameters(), table, hints);
+            if (table == null) {
+                return null;
+            }
+
+            // The ColorModel the node would have if it were not fused.
+            // Creating the rendering computes no tiles.
+            RenderedImage unfused =
+                RIFRegistry.create(node.getRegistry(),
+                                   node.getOperationName(), pb, hints);
+            if (unfused == null) {
+                return null;
+            }
+            ColorModel colorModel = unfused.getColorModel();
+            if (unfused != pb.getRenderedSource(0) &&
+                unfused instanceof PlanarImage) {
+                ((PlanarImage)unfused).dispose();
+            }
+
+            ParameterBlock lookupPB = new ParameterBlock();
+            lookupPB.addSource(source);
+            lookupPB.add(createLookupTable(table,
+                                           source.getSampleModel().getDataType()));
+
+            RenderingHints lookupHints = (RenderingHints)hints.clone();
+            if (colorModel != null) {
+                ImageLayout layout = new ImageLayout();
+                layout.setColorModel(colorModel);
+                lookupHints.put(JAI.KEY_IMAGE_LAYOUT, layout);
+            }
+
+            RenderedImage rendering =
+                RIFRegistry.create(node.getRegistry(), "lookup",
+                                   lookupPB, lookupHints);
+            if (rendering == null) {
+                return null;
+            }
+
+            // Render the node as usual if the lookup would not have its
+            // ColorModel.
+            ColorModel fusedColorModel = rendering.getColorModel();
+            if (colorModel == null ?
+                fusedColorModel != null :
+                !colorModel.equals(fusedColorModel)) {
+                if (rendering instanceof PlanarImage) {
+                    ((PlanarImage)rendering).dispose();
+                }
+                return null;
+            }
+
+            fusions.put(rendering, new Fusion(source, table));
+            return rendering;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // A "Lookup" of the chain has no entry for some value of the
+            // ramp, although the source may not hold that value. Render
+            // the node as usual.
+            return null;
+        }
+    }
+
+    /**
+     * Whether the node performs a fusable operation on a single source,
+     * with fusion enabled and no <code>ImageLayout</code> hint.
+     */
+    private static boolean isFusable(RenderedOp node) {
+        if (node.getNumSources() != 1 ||
+            !fusableOperations.contains(
+                node.getOperationName().toLowerCase(Locale.ENGLISH))) {
+            return false;
+        }
+
+        RenderingHints hints = node.getRenderingHints();
+        return hints != null &&
+            Boolean.TRUE.equals(hints.get(JAI.KEY_POINT_OP_FUSION)) &&
+            hints.get(JAI.KEY_IMAGE_LAYOUT) == null;
+    }
+
+    /**
+     * Whether an image may be the source of a lookup table covering
+     * all its values.
+     */
+    private static boolean canLookup(RenderedImage image) {
+        SampleModel sm = image.getSampleModel();
+        int dataType = sm.getDataType();
+
+        return (dataType == DataBuffer.TYPE_BYTE ||
+                dataType == DataBuffer.TYPE_USHORT ||
+                dataType == DataBuffer.TYPE_SHORT) &&
+            !ImageUtil.isBinary(sm) &&
+            !(image.getColorModel() instanceof IndexColorModel);
+    }
+
+    /**
+     * Creates an image having the data type and number of bands of the
+     * given image, whose samples in every band are all the values of
+     * the data type in increasing order.
+     */
+    private static RenderedImage createRamp(RenderedImage image) {
+        SampleModel sm = image.getSampleModel();
+        int dataType = sm.getDataType();
+        int numBands = sm.getNumBands();
+
+        int width = 256;
+        int height = dataType == DataBuffer.TYPE_BYTE ? 1 : 256;
+        int offset = dataType == DataBuffer.TYPE_SHORT ? Short.MIN_VALUE : 0;
+
+        TiledImage ramp =
+            new TiledImage(0, 0, width, height, 0, 0,
+                           RasterFactory.createPixelInterleavedSampleModel(
+                               dataType, width, height, numBands),
+                           null);
+
+        int[] values = new int[width*height];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = offset + i;
+        }
+
+        WritableRaster raster = ramp.getWritableTile(0, 0);
+        for (int b = 0; b < numBands; b++) {
+            raster.setSamples(0, 0, width, height, b, values);
+        }
+        ramp.releaseWritableTile(0, 0);
+
+        return ramp;
+    }
+
+    /**
+     * Applies the operation of a node to an image and returns a copy of
+     * the result, or <code>null</code> if the node's factories cannot.
+     */
+    private static RenderedImage apply(RenderedOp node,
+                                       Vector parameters,
+                                       RenderedImage image,
+                                       RenderingHints hints) {
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(image);
+        pb.setParameters(parameters);
+
+        RenderedImage result =
+            RIFRegistry.create(node.getRegistry(), node.getOperationName(),
+                               pb, hints);
+        if (result == null) {
+            return null;
+        }
+
+        Raster data = result.getData();
+        if (result instanceof PlanarImage) {
+            ((PlanarImage)result).dispose();
+        }
+
+        TiledImage copy =
+            new TiledImage(data.getMinX(), data.getMinY(),
+                           data.getWidth(), data.getHeight(),
+                           data.getMinX(), data.getMinY(),
+                           data.getSampleModel(), null);
+        copy.setData(data);
+
+        return copy;
+    }
+
+    /**
+     * Creates a lookup table from the samples of an image created by
+     * applying operations to a ramp of the given data type.
+     */
+    private static LookupTableJAI createLookupTable(RenderedImage table,
+                                                    int sourceDataType) {
+        Raster data = table.getData();
+        int minX = data.getMinX();
+        int minY = data.getMinY();
+        int width = data.getWidth();
+        int height = data.getHeight();
+        int numBands = data.getNumBands();
+        int numEntries = width*height;
+
+        int offset =
+            sourceDataType == DataBuffer.TYPE_SHORT ? Short.MIN_VALUE : 0;
+
+        switch (data.getSampleModel().getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+        case DataBuffer.TYPE_INT:
+            {
+                int dataType = data.getSampleModel().getDataType();
+                int[] samples = new int[numEntries];
+
+                if (dataType == DataBuffer.TYPE_INT) {
+                    int[][] t = new int[numBands][];
+                    for (int b = 0; b < numBands; b++) {
+                        t[b] = data.getSamples(minX, minY, width, height,
+                                               b, (int[])null);
+                    }
+                    return new LookupTableJAI(t, offset);
+                } else if (dataType == DataBuffer.TYPE_BYTE) {
+                    byte[][] t = new byte[numBands][numEntries];
+                    for (int b = 0; b < numBands; b++) {
+                        data.getSamples(minX, minY, width, height,
+                                        b, samples);
+                        for (int i = 0; i < numEntries; i++) {
+                            t[b][i] = (byte)samples[i];
+                        }
+                    }
+                    return new LookupTableJAI(t, offset);
+                } else {
+                    short[][] t = new short[numBands][numEntries];
+                    for (int b = 0; b < numBands; b++) {
+                        data.getSamples(minX, minY, width, height,
+                                        b, samples);
+                        for (int i = 0; i < numEntries; i++) {
+                            t[b][i] = (short)samples[i];
+                        }
+                    }
+                    return new LookupTableJAI(t, offset,
+                                              dataType ==
+                                              DataBuffer.TYPE_USHORT);
+                }
+            }
+        case DataBuffer.TYPE_FLOAT:
+            {
+                float[][] t = new float[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    t[b] = data.getSamples(minX, minY, width, height,
+                                           b, (float[])null);
+                }
+                return new LookupTableJAI(t, offset);
+            }
+        default:
+            {
+                double[][] t = new double[numBands][];
+                for (int b = 0; b < numBands; b++) {
+                    t[b] = data.getSamples(minX, minY, width, height,
+                                           b, (double[])null);
+                }
+                return new LookupTableJAI(t, offset);
+            }
+        }
+    }
+}
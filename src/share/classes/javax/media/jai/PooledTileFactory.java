@@ -0,0 +1,345 @@
+/*
+ * $RCSfile: PooledTileFactory.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package javax.media.jai;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Iterator;
+import java.util.Observable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A <code>TileFactory</code> and <code>TileRecycler</code> which keeps
+ * the data arrays of recycled tiles in bounded pools for reuse by
+ * <code>createTile()</code>.
+ *
+ * <p> Unlike <code>RecyclingTileFactory</code>, which holds any number
+ * of arrays through soft references, this factory holds its arrays
+ * strongly but never more than a given number of bytes in all, nor more
+ * than a given number of arrays of each size class.  A size class is
+ * made of the arrays of the same data type, number of banks and bank
+ * size.  Arrays recycled beyond either limit are left to the garbage
+ * collector.  Each size class has its own lock so that threads creating
+ * or recycling tiles of different sizes do not contend, and the number
+ * of tiles created from pooled arrays and from new ones are counted.
+ *
+ * <p> The factory is installed in the same way as a
+ * <code>RecyclingTileFactory</code>:
+ * <pre>
+ * RenderingHints rh = new RenderingHints(null);
+ * PooledTileFactory ptf = new PooledTileFactory(64*1024*1024, 32);
+ * rh.put(JAI.KEY_TILE_RECYCLER, ptf);
+ * rh.put(JAI.KEY_TILE_FACTORY, ptf);
+ * </pre>
+ *
+ * @see RecyclingTileFactory
+ *
+ * @since JAI 1.1.4
+ */
+public class PooledTileFactory extends Observable
+    implements TileFactory, TileRecycler {
+
+    /** The default memory capacity in bytes. */
+    public static final long DEFAULT_MEMORY_CAPACITY = 16L*1024L*1024L;
+
+    /** The default maximum number of arrays of each size class. */
+    public static final int DEFAULT_MAX_ARRAYS_PER_CLASS = 32;
+
+    /** The arrays of one size class. */
+    private static final class SizeClass {
+        /** The amount of memory used by each array. */
+        final long arraySize;
+
+        /** The pooled arrays, the last of which is used first. */
+        final Object[] arrays;
+
+        /** The number of pooled arrays. */
+        int count = 0;
+
+        SizeClass(long arraySize, int maxArrays) {
+            this.arraySize = arraySize;
+            this.arrays = new Object[maxArrays];
+        }
+    }
+
+    /**
+     * The size classes, keyed by a <code>Long</code> formed as by
+     * <code>RecyclingTileFactory</code> from the data type, the number
+     * of banks and the size of each bank.
+     */
+    private final ConcurrentHashMap sizeClasses = new ConcurrentHashMap();
+
+    private volatile long memoryCapacity;
+
+    private final int maxArraysPerClass;
+
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructs a <code>PooledTileFactory</code> with the default
+     * memory capacity and maximum number of arrays per size class.
+     */
+    public PooledTileFactory() {
+        this(DEFAULT_MEMORY_CAPACITY, DEFAULT_MAX_ARRAYS_PER_CLASS);
+    }
+
+    /**
+     * Constructs a <code>PooledTileFactory</code>.
+     *
+     * @param memoryCapacity The maximum amount of memory in bytes used
+     *        by the pooled arrays.
+     * @param maxArraysPerClass The maximum number of arrays pooled for
+     *        each size class.
+     *
+     * @throws IllegalArgumentException if either parameter is negative.
+     */
+    public PooledTileFactory(long memoryCapacity, int maxArraysPerClass) {
+        if(memoryCapacity < 0) {
+            throw new IllegalArgumentException
+                (JaiI18N.getString("PooledTileFactory0"));
+        }
+        if(maxArraysPerClass < 0) {
+            throw new IllegalArgumentException
+                (JaiI18N.getString("PooledTileFactory1"));
+        }
+
+        this.memoryCapacity = memoryCapacity;
+        this.maxArraysPerClass = maxArraysPerClass;
+    }
+
+    private static Long getKey(int type, long numBanks, long size) {
+        return new Long(((long)type << 56) | (numBanks << 32) | size);
+    }
+
+    /**
+     * Returns the size class of the given key, creating it if needed.
+     */
+    private SizeClass getSizeClass(Long key, long arraySize) {
+        SizeClass sizeClass = (SizeClass)sizeClasses.get(key);
+        if(sizeClass == null) {
+            sizeClass = new SizeClass(arraySize, maxArraysPerClass);
+            SizeClass previous =
+                (SizeClass)sizeClasses.putIfAbsent(key, sizeClass);
+            if(previous != null) {
+                sizeClass = previous;
+            }
+        }
+        return sizeClass;
+    }
+
+    /**
+     * Reserves memory for an array.  Returns <code>false</code> if this
+     * would exceed the memory capacity.
+     */
+    private boolean reserve(long arraySize) {
+        while(true) {
+            long used = memoryUsed.get();
+            if(used + arraySize > memoryCapacity) {
+                return false;
+            }
+            if(memoryUsed.compareAndSet(used, used + arraySize)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code>.
+     */
+    public boolean canReclaimMemory() {
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code>.
+     */
+    public boolean isMemoryCache() {
+        return true;
+    }
+
+    public long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    /**
+     * Returns the maximum amount of memory in bytes used by the pooled
+     * arrays.
+     */
+    public long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Sets the maximum amount of memory in bytes used by the pooled
+     * arrays.  If the memory used exceeds the new capacity arrays are
+     * released until it does not.
+     *
+     * @throws IllegalArgumentException if <code>memoryCapacity</code>
+     *         is negative.
+     */
+    public void setMemoryCapacity(long memoryCapacity) {
+        if(memoryCapacity < 0) {
+            throw new IllegalArgumentException
+                (JaiI18N.getString("PooledTileFactory0"));
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        Iterator iter = sizeClasses.values().iterator();
+        while(memoryUsed.get() > memoryCapacity && iter.hasNext()) {
+            SizeClass sizeClass = (SizeClass)iter.next();
+            synchronized(sizeClass) {
+                while(sizeClass.count > 0 &&
+                      memoryUsed.get() > memoryCapacity) {
+                    sizeClass.arrays[--sizeClass.count] = null;
+                    memoryUsed.addAndGet(-sizeClass.arraySize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of arrays pooled for each size class.
+     */
+    public int getMaxArraysPerClass() {
+        return maxArraysPerClass;
+    }
+
+    /**
+     * Returns the number of tiles created from pooled arrays.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of tiles created with new arrays.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Resets the hit and miss counts to zero.
+     */
+    public void resetCounts() {
+        hitCount.set(0L);
+        missCount.set(0L);
+    }
+
+    /**
+     * Releases all the pooled arrays.
+     */
+    public void flush() {
+        Iterator iter = sizeClasses.values().iterator();
+        while(iter.hasNext()) {
+            SizeClass sizeClass = (SizeClass)iter.next();
+            synchronized(sizeClass) {
+                while(sizeClass.count > 0) {
+                    sizeClass.arrays[--sizeClass.count] = null;
+                    memoryUsed.addAndGet(-sizeClass.arraySize);
+                }
+            }
+        }
+    }
+
+    public WritableRaster createTile(SampleModel sampleModel,
+                                     Point location) {
+
+        if(sampleModel == null) {
+            throw new IllegalArgumentException("sampleModel == null!");
+        }
+
+        if(location == null) {
+           location = new Point(0,0);
+        }
+
+        DataBuffer db = null;
+
+        int type = sampleModel.getTransferType();
+        long numBanks = RecyclingTileFactory.getNumBanks(sampleModel);
+        long size = RecyclingTileFactory.getBankSize(sampleModel);
+
+        if(size != 0) {
+            SizeClass sizeClass =
+                (SizeClass)sizeClasses.get(getKey(type, numBanks, size));
+            if(sizeClass != null) {
+                Object array = null;
+                synchronized(sizeClass) {
+                    if(sizeClass.count > 0) {
+                        array = sizeClass.arrays[--sizeClass.count];
+                        sizeClass.arrays[sizeClass.count] = null;
+                    }
+                }
+
+                if(array != null) {
+                    memoryUsed.addAndGet(-sizeClass.arraySize);
+                    db = RecyclingTileFactory.createDataBuffer(type, array,
+                                                               numBanks,
+                                                               size);
+                }
+            }
+        }
+
+        if(db == null) {
+            missCount.incrementAndGet();
+            db = sampleModel.createDataBuffer();
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        return Raster.createWritableRaster(sampleModel,
+                                           db,
+                                           location);
+    }
+
+    /**
+     * Recycles the data arrays of the given tile if neither the memory
+     * capacity nor the limit of its size class would be exceeded.
+     */
+    public void recycleTile(Raster tile) {
+        DataBuffer db = tile.getDataBuffer();
+
+        int type = db.getDataType();
+        int numBanks = db.getNumBanks();
+        int size = db.getSize();
+
+        Object array = RecyclingTileFactory.getBankData(db);
+        long arraySize =
+            RecyclingTileFactory.getDataBankSize(type, numBanks, size);
+
+        SizeClass sizeClass =
+            getSizeClass(getKey(type, numBanks, size), arraySize);
+
+        if(!reserve(arraySize)) {
+            return;
+        }
+
+        synchronized(sizeClass) {
+            if(sizeClass.count < sizeClass.arrays.length) {
+                sizeClass.arrays[sizeClass.count++] = array;
+                return;
+            }
+        }
+
+        // The size class is full.
+        memoryUsed.addAndGet(-arraySize);
+    }
+}
@@ -512,7 +512,7 @@ public class ROI implements Serializable {
      * Create a binary PlanarImage of the size/bounds specified by
      * the rectangle.
      */
-    private static PlanarImage createBinaryImage(Rectangle r) {
+    static PlanarImage createBinaryImage(Rectangle r) {
 
 	if ((r.x == 0) && (r.y == 0)) {
 
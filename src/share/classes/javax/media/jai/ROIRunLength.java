@@ -0,0 +1,849 @@
+/*
+ * $RCSfile: ROIRunLength.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package javax.media.jai;
+
+import com.sun.media.jai.util.ImageUtil;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import javax.media.jai.iterator.RectIter;
+import javax.media.jai.iterator.RectIterFactory;
+
+/**
+ * A class representing a region of interest within an image as runs
+ * of included pixels along each row of its bounds.  Such regions are
+ * binary by definition.  The runs of a row are kept sorted, so that
+ * inclusion tests need only a binary search of a single row, and the
+ * boolean operations between two <code>ROIRunLength</code>s merge the
+ * runs row by row without rendering either region as an image.  The
+ * <code>Rectangle</code> lists and bitmasks used by the operations
+ * which are restricted to an <code>ROI</code> are likewise computed
+ * directly from the runs.
+ *
+ * <p> An <code>ROIRunLength</code> is constructed from a single-banded
+ * image and a threshold, in the same manner as an <code>ROI</code>, or
+ * from any other <code>ROI</code>.  The boolean operations accept any
+ * <code>ROI</code>, converting it to runs if necessary, and always
+ * return an <code>ROIRunLength</code>.  The bounds of their results are
+ * those documented by <code>ROI</code>.
+ *
+ * <p> <code>getAsShape()</code> returns <code>null</code>; the region
+ * is rendered as an image only when <code>getAsImage()</code> is called.
+ *
+ * @see ROI
+ * @see ROIShape
+ *
+ * @since JAI 1.1.4
+ */
+public class ROIRunLength extends ROI {
+
+    /** The runs of an empty row. */
+    private static final int[] EMPTY_ROW = new int[0];
+
+    /** Merge operation codes. */
+    private static final int OP_ADD = 0;
+    private static final int OP_SUBTRACT = 1;
+    private static final int OP_INTERSECT = 2;
+    private static final int OP_XOR = 3;
+
+    /** The bounds of the region. */
+    Rectangle bounds;
+
+    /**
+     * The runs of each row of the bounds.  Each row holds pairs of
+     * abscissae, the first included pixel and the first excluded pixel
+     * following it, in increasing order.  Runs neither overlap nor
+     * abut, lie within the bounds, and are never modified once created.
+     */
+    int[][] runs;
+
+    /**
+     * Constructs an <code>ROIRunLength</code> from a
+     * <code>RenderedImage</code>.  The inclusion threshold is 127, as
+     * for <code>ROI</code>.
+     *
+     * @param im A single-banded RenderedImage.
+     *
+     * @throws IllegalArgumentException if im is null.
+     * @throws IllegalArgumentException if im does not have exactly one band
+     */
+    public ROIRunLength(RenderedImage im) {
+        this(im, 127);
+    }
+
+    /**
+     * Constructs an <code>ROIRunLength</code> from a
+     * <code>RenderedImage</code>.  The pixels whose value is greater
+     * than or equal to the threshold are included in the region; as for
+     * <code>ROI</code>, every non-zero pixel of a binary image is
+     * included when the threshold is positive.
+     *
+     * @param im A single-banded RenderedImage.
+     * @param threshold The desired inclusion threshold.
+     *
+     * @throws IllegalArgumentException if im is null.
+     * @throws IllegalArgumentException if im does not have exactly one band
+     */
+    public ROIRunLength(RenderedImage im, int threshold) {
+
+        if (im == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (im.getSampleModel().getNumBands() != 1) {
+            throw new IllegalArgumentException(JaiI18N.getString("ROI0"));
+        }
+
+        this.threshold = threshold;
+
+        double level = threshold;
+        if ((threshold >= 1) && ImageUtil.isBinary(im.getSampleModel())) {
+            level = 1.0;
+        }
+
+        bounds = new Rectangle(im.getMinX(), im.getMinY(),
+                               im.getWidth(), im.getHeight());
+        runs = new int[bounds.height][];
+
+        // A row holds at most one run for every two pixels.
+        int[] row = new int[bounds.width + 1];
+
+        RectIter iter = RectIterFactory.create(im, bounds);
+        iter.startLines();
+        for (int y = 0; !iter.finishedLines(); y++) {
+            int count = 0;
+            boolean inside = false;
+
+            iter.startPixels();
+            for (int x = bounds.x; !iter.finishedPixels(); x++) {
+                if ((iter.getSampleDouble() >= level) != inside) {
+                    row[count++] = x;
+                    inside = !inside;
+                }
+                iter.nextPixel();
+            }
+            if (inside) {
+                row[count++] = bounds.x + bounds.width;
+            }
+
+            runs[y] = copyRow(row, count);
+            iter.nextLine();
+        }
+    }
+
+    /**
+     * Constructs an <code>ROIRunLength</code> holding the same region as
+     * another <code>ROI</code>.  The region is obtained from the
+     * <code>Rectangle</code> list of the <code>ROI</code> over its bounds.
+     *
+     * @param roi An ROI.
+     *
+     * @throws IllegalArgumentException if roi is null.
+     */
+    public ROIRunLength(ROI roi) {
+
+        if (roi == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        threshold = roi.getThreshold();
+
+        if (roi instanceof ROIRunLength) {
+            ROIRunLength rl = (ROIRunLength)roi;
+            bounds = new Rectangle(rl.bounds);
+            runs = (int[][])rl.runs.clone();
+        } else {
+            bounds = roi.getBounds();
+            runs = createRuns(bounds,
+                              roi.getAsRectangleList(bounds.x, bounds.y,
+                                                     bounds.width,
+                                                     bounds.height,
+                                                     false));
+        }
+    }
+
+    /** Constructs an <code>ROIRunLength</code> from its runs. */
+    private ROIRunLength(Rectangle bounds, int[][] runs, int threshold) {
+        this.bounds = bounds;
+        this.runs = runs;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the first <code>count</code> entries of a row, or the
+     * shared empty row if there are none.
+     */
+    private static int[] copyRow(int[] row, int count) {
+        if (count == 0) {
+            return EMPTY_ROW;
+        }
+
+        int[] copy = new int[count];
+        System.arraycopy(row, 0, copy, 0, count);
+        return copy;
+    }
+
+    /**
+     * Converts a list of <code>Rectangle</code>s into the runs of the
+     * rows of the given bounds.  The <code>Rectangle</code>s are clipped
+     * to the bounds and may overlap.
+     *
+     * @param bounds The bounds of the region.
+     * @param rectList The list of <code>Rectangle</code>s, or null.
+     *
+     * @return The runs of each row of the bounds.
+     */
+    private static int[][] createRuns(Rectangle bounds, LinkedList rectList) {
+        int[][] runs = new int[bounds.height][];
+        int[] counts = new int[bounds.height];
+
+        // Clip the Rectangles and count the runs of each row.
+        LinkedList clipped = new LinkedList();
+        if (rectList != null) {
+            ListIterator rectIter = rectList.listIterator(0);
+            while (rectIter.hasNext()) {
+                Rectangle rect =
+                    bounds.intersection((Rectangle)rectIter.next());
+                if (!rect.isEmpty()) {
+                    clipped.addLast(rect);
+                    for (int y = rect.y; y < rect.y + rect.height; y++) {
+                        counts[y - bounds.y] += 2;
+                    }
+                }
+            }
+        }
+
+        for (int row = 0; row < bounds.height; row++) {
+            runs[row] = counts[row] == 0 ? EMPTY_ROW : new int[counts[row]];
+            counts[row] = 0;
+        }
+
+        ListIterator rectIter = clipped.listIterator(0);
+        while (rectIter.hasNext()) {
+            Rectangle rect = (Rectangle)rectIter.next();
+            for (int y = rect.y; y < rect.y + rect.height; y++) {
+                int row = y - bounds.y;
+                runs[row][counts[row]++] = rect.x;
+                runs[row][counts[row]++] = rect.x + rect.width;
+            }
+        }
+
+        for (int row = 0; row < bounds.height; row++) {
+            runs[row] = normalizeRow(runs[row]);
+        }
+
+        return runs;
+    }
+
+    /**
+     * Sorts the runs of a row and coalesces those which overlap or abut.
+     * The row is returned unchanged if it is already in that form.
+     */
+    private static int[] normalizeRow(int[] row) {
+        boolean normal = true;
+        for (int i = 1; i < row.length - 1; i += 2) {
+            if (row[i] >= row[i + 1]) {
+                normal = false;
+                break;
+            }
+        }
+
+        if (normal) {
+            return row;
+        }
+
+        // Sort the runs on their starting abscissae.
+        int numRuns = row.length/2;
+        long[] sorted = new long[numRuns];
+        for (int i = 0; i < numRuns; i++) {
+            sorted[i] = ((long)row[2*i] << 32) | (row[2*i + 1] & 0xffffffffL);
+        }
+        Arrays.sort(sorted);
+
+        int count = 0;
+        for (int i = 0; i < numRuns; i++) {
+            int start = (int)(sorted[i] >> 32);
+            int end = (int)sorted[i];
+
+            if (count > 0 && start <= row[count - 1]) {
+                row[count - 1] = Math.max(row[count - 1], end);
+            } else {
+                row[count++] = start;
+                row[count++] = end;
+            }
+        }
+
+        return copyRow(row, count);
+    }
+
+    /**
+     * Returns the runs of the row at the given ordinate, which are
+     * empty outside of the bounds.
+     */
+    private int[] getRow(int y) {
+        int row = y - bounds.y;
+        return (row >= 0 && row < bounds.height) ? runs[row] : EMPTY_ROW;
+    }
+
+    /**
+     * Returns the index of the first run of a row which ends after the
+     * given abscissa, or the number of runs of the row if there is none.
+     */
+    private static int findRun(int[] row, int x) {
+        int low = 0;
+        int high = row.length/2;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (row[2*mid + 1] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Merges the runs of two rows with a boolean operation.
+     *
+     * @param a The runs of the row of <code>this</code> region.
+     * @param b The runs of the row of the other region.
+     * @param op The operation code.
+     *
+     * @return The runs of the merged row.
+     */
+    private static int[] mergeRow(int[] a, int[] b, int op) {
+
+        // Rows are never modified, so that they may be shared.
+        if (b.length == 0) {
+            return op == OP_INTERSECT ? EMPTY_ROW : a;
+        } else if (a.length == 0) {
+            return (op == OP_ADD || op == OP_XOR) ? b : EMPTY_ROW;
+        }
+
+        // Traverse the boundaries of the runs of both rows in order,
+        // recording those at which the inclusion of the result changes.
+        int[] merged = new int[a.length + b.length];
+        int count = 0;
+        boolean inA = false;
+        boolean inB = false;
+        boolean inside = false;
+
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int x = (j == b.length || (i < a.length && a[i] <= b[j])) ?
+                a[i] : b[j];
+
+            if (i < a.length && a[i] == x) {
+                inA = !inA;
+                i++;
+            }
+            if (j < b.length && b[j] == x) {
+                inB = !inB;
+                j++;
+            }
+
+            boolean included;
+            switch (op) {
+            case OP_ADD:
+                included = inA || inB;
+                break;
+            case OP_SUBTRACT:
+                included = inA && !inB;
+                break;
+            case OP_INTERSECT:
+                included = inA && inB;
+                break;
+            default:
+                included = inA != inB;
+                break;
+            }
+
+            if (included != inside) {
+                merged[count++] = x;
+                inside = included;
+            }
+        }
+
+        return copyRow(merged, count);
+    }
+
+    /**
+     * Creates the <code>ROIRunLength</code> resulting from a boolean
+     * operation between <code>this</code> and another <code>ROI</code>.
+     *
+     * @param roi The ROI to merge with <code>this</code>.
+     * @param op The operation code.
+     *
+     * @throws IllegalArgumentException if roi is null.
+     * @return The merged ROI.
+     */
+    private ROI mergeROI(ROI roi, int op) {
+
+        if (roi == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        ROIRunLength other = (roi instanceof ROIRunLength) ?
+            (ROIRunLength)roi : new ROIRunLength(roi);
+
+        Rectangle merged;
+        if (op == OP_SUBTRACT) {
+            merged = new Rectangle(bounds);
+        } else if (op == OP_INTERSECT) {
+            merged = bounds.intersection(other.bounds);
+            merged.width = Math.max(merged.width, 0);
+            merged.height = Math.max(merged.height, 0);
+        } else {
+            merged = bounds.union(other.bounds);
+        }
+
+        int[][] mergedRuns = new int[merged.height][];
+        for (int row = 0; row < merged.height; row++) {
+            int y = merged.y + row;
+            mergedRuns[row] = mergeRow(getRow(y), other.getRow(y), op);
+        }
+
+        return new ROIRunLength(merged, mergedRuns, threshold);
+    }
+
+    /**
+     * Fills bits <code>start</code> (inclusive) to <code>end</code>
+     * (exclusive) of a row of a bitmask, the MSB of each integer lying
+     * on the left.
+     */
+    private static void setBits(int[] maskRow, int start, int end) {
+        int first = start >> 5;
+        int last = (end - 1) >> 5;
+        int firstMask = -1 >>> (start & 31);
+        int lastMask = ~(-1 >>> ((end - 1) & 31) >>> 1);
+
+        if (first == last) {
+            maskRow[first] |= firstMask & lastMask;
+        } else {
+            maskRow[first] |= firstMask;
+            for (int i = first + 1; i < last; i++) {
+                maskRow[i] = -1;
+            }
+            maskRow[last] |= lastMask;
+        }
+    }
+
+    /** Returns the bounds of the ROI as a <code>Rectangle</code>. */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /** Returns the bounds of the ROI as a <code>Rectangle2D</code>. */
+    public Rectangle2D getBounds2D() {
+        return new Rectangle2D.Float((float)bounds.x, (float)bounds.y,
+                                     (float)bounds.width,
+                                     (float)bounds.height);
+    }
+
+    /**
+     * Returns <code>true</code> if the ROI contains the point (x, y).
+     *
+     * @param x An int specifying the X coordinate of the pixel to be queried.
+     * @param y An int specifying the Y coordinate of the pixel to be queried.
+     * @return <code>true</code> if the pixel lies within the ROI.
+     */
+    public boolean contains(int x, int y) {
+        int[] row = getRow(y);
+        int i = findRun(row, x);
+        return i < row.length/2 && row[2*i] <= x;
+    }
+
+    /**
+     * Returns <code>true</code> if a given <code>Rectangle</code> is
+     * entirely included within the ROI.
+     *
+     * @param rect A <code>Rectangle</code> specifying the region to be tested
+     *        for inclusion.
+     * @throws IllegalArgumentException if rect is null.
+     * @return <code>true</code> if the rectangle is entirely
+     *         contained within the ROI.
+     */
+    public boolean contains(Rectangle rect) {
+        if ( rect == null ) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (!rect.equals(rect.intersection(bounds))) {
+            return false;
+        }
+
+        if (rect.width <= 0) {
+            return true;
+        }
+
+        // Each row must hold a single run covering the rectangle.
+        int maxX = rect.x + rect.width;
+        for (int y = rect.y; y < rect.y + rect.height; y++) {
+            int[] row = getRow(y);
+            int i = findRun(row, rect.x);
+            if (i == row.length/2 ||
+                row[2*i] > rect.x || row[2*i + 1] < maxX) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if a given <code>Rectangle</code>
+     * intersects the ROI.
+     *
+     * @param rect A <code>Rectangle</code> specifying the region to be tested
+     *        for inclusion.
+     * @throws IllegalArgumentException if rect is null.
+     * @return <code>true</code> if the rectangle intersects the ROI.
+     */
+    public boolean intersects(Rectangle rect) {
+        if ( rect == null ) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        Rectangle r = rect.intersection(bounds);
+
+        if (r.isEmpty()) {
+            return false;
+        }
+
+        int maxX = r.x + r.width;
+        for (int y = r.y; y < r.y + r.height; y++) {
+            int[] row = getRow(y);
+            int i = findRun(row, r.x);
+            if (i < row.length/2 && row[2*i] < maxX) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds another <code>ROI</code> to this one and returns the result
+     * as a new <code>ROIRunLength</code>. The supplied <code>ROI</code>
+     * will be converted to runs if necessary. The bounds of the
+     * resultant <code>ROI</code> will be the union of the bounds of the
+     * two <code>ROI</code>s being merged.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI add(ROI roi) {
+        return mergeROI(roi, OP_ADD);
+    }
+
+    /**
+     * Subtracts another <code>ROI</code> from this one and returns the
+     * result as a new <code>ROIRunLength</code>. The supplied
+     * <code>ROI</code> will be converted to runs if necessary. The
+     * bounds of the resultant <code>ROI</code> will be the same as
+     * <code>this</code> <code>ROI</code>.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI subtract(ROI roi) {
+        return mergeROI(roi, OP_SUBTRACT);
+    }
+
+    /**
+     * Intersects the <code>ROI</code> with another <code>ROI</code> and
+     * returns the result as a new <code>ROIRunLength</code>. The
+     * supplied <code>ROI</code> will be converted to runs if necessary.
+     * The bounds of the resultant <code>ROI</code> will be the
+     * intersection of the bounds of the two <code>ROI</code>s being
+     * merged.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI intersect(ROI roi) {
+        return mergeROI(roi, OP_INTERSECT);
+    }
+
+    /**
+     * Exclusive-ors the <code>ROI</code> with another <code>ROI</code>
+     * and returns the result as a new <code>ROIRunLength</code>. The
+     * supplied <code>ROI</code> will be converted to runs if necessary.
+     * The bounds of the resultant <code>ROI</code> will be the union of
+     * the bounds of the two <code>ROI</code>s being merged.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI exclusiveOr(ROI roi) {
+        return mergeROI(roi, OP_XOR);
+    }
+
+    /**
+     * Performs an affine transformation and returns the result as a new
+     * ROI.  A translation by whole pixels is applied to the runs and
+     * yields a new <code>ROIRunLength</code>; any other transformation
+     * is performed by an "Affine" RIF using the indicated interpolation
+     * method, as for <code>ROI</code>.
+     *
+     * @param at an AffineTransform specifying the transformation.
+     * @param interp the Interpolation to be used.
+     * @throws IllegalArgumentException if at is null.
+     * @throws IllegalArgumentException if interp is null.
+     * @return a new ROI containing the transformed ROI data.
+     */
+    public ROI transform(AffineTransform at, Interpolation interp) {
+
+	if (at == null) {
+	    throw new IllegalArgumentException(JaiI18N.getString("ROI5"));
+	}
+
+	if (interp == null) {
+	    throw new IllegalArgumentException(JaiI18N.getString("ROI6"));
+	}
+
+        if ((at.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0) {
+            return super.transform(at, interp);
+        }
+
+        int dx = (int)at.getTranslateX();
+        int dy = (int)at.getTranslateY();
+        if (dx != at.getTranslateX() || dy != at.getTranslateY()) {
+            return super.transform(at, interp);
+        }
+
+        int[][] translated = new int[bounds.height][];
+        for (int row = 0; row < bounds.height; row++) {
+            int[] runRow = runs[row];
+            if (dx == 0 || runRow.length == 0) {
+                translated[row] = runRow;
+            } else {
+                translated[row] = new int[runRow.length];
+                for (int i = 0; i < runRow.length; i++) {
+                    translated[row][i] = runRow[i] + dx;
+                }
+            }
+        }
+
+        return new ROIRunLength(new Rectangle(bounds.x + dx, bounds.y + dy,
+                                              bounds.width, bounds.height),
+                                translated, threshold);
+    }
+
+    /**
+     * Returns the ROI as a <code>PlanarImage</code>.  The image is
+     * rendered from the runs when first requested.
+     *
+     * @return If the upper-left corner of the bounds of this
+     * <code>ROIRunLength</code> is (0, 0), the returned image is a
+     * <code>BufferedImage</code> of type TYPE_BYTE_BINARY wrapped as
+     * a <code>PlanarImage</code>. Otherwise, the returned image is a
+     * (bilevel) <code>TiledImage</code> whose <code>SampleModel</code>
+     * is an instance of <code>MultiPixelPackedSampleModel</code>.
+     */
+    public PlanarImage getAsImage() {
+
+        if (theImage != null) {
+            return theImage;
+        }
+
+        PlanarImage pi = createBinaryImage(bounds);
+
+        // The image is a single tile which shares its data.
+        Raster tile = pi.getTile(pi.getMinTileX(), pi.getMinTileY());
+        MultiPixelPackedSampleModel sm =
+            (MultiPixelPackedSampleModel)tile.getSampleModel();
+        DataBufferByte db = (DataBufferByte)tile.getDataBuffer();
+        byte[] data = db.getData();
+        int lineStride = sm.getScanlineStride();
+        int offset = db.getOffset() + sm.getOffset(0, 0);
+        int numBytes = (bounds.width + 7)/8;
+
+        int[][] mask = getAsBitmask(bounds.x, bounds.y,
+                                    bounds.width, bounds.height, null);
+
+        for (int row = 0; row < bounds.height; row++) {
+            int[] maskRow = mask[row];
+            for (int k = 0; k < numBytes; k++) {
+                data[offset + k] =
+                    (byte)(maskRow[k >> 2] >>> (24 - 8*(k & 3)));
+            }
+            offset += lineStride;
+        }
+
+        theImage = pi; // Cache the output
+
+        return theImage;
+    }
+
+    /**
+     * Returns a bitmask for a given rectangular region of the ROI
+     * indicating whether the pixel is included in the region of
+     * interest.  The results are packed into 32-bit integers, with
+     * the MSB considered to lie on the left.  The first bit of the
+     * first row corresponds to the pixel (x, y).  The last entry in
+     * each row of the result may have bits that lie outside of the
+     * requested rectangle.  These bits are guaranteed to be zeroed.
+     *
+     * <p> The <code>mask</code> array, if supplied, must be of length
+     * equal to or greater than <code>height</code> and each of its
+     * subarrays must have length equal to or greater than (width +
+     * 31)/32.  If <code>null</code> is passed in, a suitable array
+     * will be constructed.  If the mask is non-null but has
+     * insufficient size, an exception will be thrown.
+     *
+     * @param x The X coordinate of the upper left corner of the rectangle.
+     * @param y The Y coordinate of the upper left corner of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param mask A two-dimensional array of ints at least
+     *        (width + 31)/32 entries wide and (height) entries tall,
+     *        or null.
+     * @return A reference to the <code>mask</code> parameter, or
+     *         to a newly constructed array if <code>mask</code> is
+     *         <code>null</code>. If the specified rectangle does not
+     *	       intersect with the bounds then a <code>null</code>
+     *	       is returned.
+     */
+    public int[][] getAsBitmask(int x, int y,
+                                int width, int height,
+                                int[][] mask) {
+
+        Rectangle rect =
+            bounds.intersection(new Rectangle(x, y, width, height));
+
+        // Verify that the requested area actually intersects the ROI.
+        if (rect.isEmpty()) {
+            return null;
+        }
+
+        // Determine the minimum required width of the bitmask in integers.
+        int bitmaskIntWidth = (width + 31)/32;
+
+        // Construct bitmask array if argument is null.
+        if (mask == null) {
+	    mask = new int[height][bitmaskIntWidth];
+	} else if (mask.length < height || mask[0].length < bitmaskIntWidth) {
+            throw new RuntimeException(JaiI18N.getString("ROI3"));
+        }
+
+        int maxX = rect.x + rect.width;
+
+        for (int row = 0; row < height; row++) {
+            int[] maskRow = mask[row];
+            Arrays.fill(maskRow, 0, bitmaskIntWidth, 0);
+
+            int[] runRow = getRow(y + row);
+            for (int i = findRun(runRow, rect.x);
+                 i < runRow.length/2 && runRow[2*i] < maxX; i++) {
+                int start = Math.max(runRow[2*i], rect.x);
+                int end = Math.min(runRow[2*i + 1], maxX);
+                setBits(maskRow, start - x, end - x);
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Returns a <code>LinkedList</code> of <code>Rectangle</code>s for
+     * a given rectangular region of the ROI.  The runs of each row
+     * clipped to the region are the run length <code>Rectangle</code>s;
+     * if they are merged, a run which is identical to one of the
+     * previous row extends its <code>Rectangle</code> downwards.
+     *
+     * @param x The X coordinate of the upper left corner of the rectangle.
+     * @param y The Y coordinate of the upper left corner of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param mergeRectangles <code>true</code> if the <code>Rectangle</code>s
+     *        are to be merged into a minimal set.
+     * @return A <code>LinkedList</code> of <code>Rectangle</code>s.
+     *	       If the specified rectangle does not intersect with the
+     *	       bounds then a <code>null</code> is returned.
+     */
+    protected LinkedList getAsRectangleList(int x, int y,
+                                            int width, int height,
+                                            boolean mergeRectangles) {
+
+        // Verify that the requested area actually intersects the ROI.
+        Rectangle rect = new Rectangle(x, y, width, height);
+        if (!bounds.intersects(rect)) {
+            return null;
+        }
+
+        // Clip the requested area to the bounds.
+        rect = bounds.intersection(rect);
+        int maxX = rect.x + rect.width;
+
+        LinkedList rectList = new LinkedList();
+
+        // The Rectangles ending on the previous and on the current row.
+        int maxRuns = rect.width/2 + 1;
+        Rectangle[] previous = new Rectangle[maxRuns];
+        Rectangle[] current = new Rectangle[maxRuns];
+        int numPrevious = 0;
+
+        for (int yCur = rect.y; yCur < rect.y + rect.height; yCur++) {
+            int[] runRow = getRow(yCur);
+            int numCurrent = 0;
+            int k = 0;
+
+            for (int i = findRun(runRow, rect.x);
+                 i < runRow.length/2 && runRow[2*i] < maxX; i++) {
+                int start = Math.max(runRow[2*i], rect.x);
+                int end = Math.min(runRow[2*i + 1], maxX);
+
+                Rectangle r = null;
+                if (mergeRectangles) {
+                    while (k < numPrevious && previous[k].x < start) {
+                        k++;
+                    }
+                    if (k < numPrevious && previous[k].x == start &&
+                        previous[k].width == end - start) {
+                        r = previous[k++];
+                        r.height++;
+                    }
+                }
+
+                if (r == null) {
+                    r = new Rectangle(start, yCur, end - start, 1);
+                    rectList.addLast(r);
+                }
+
+                current[numCurrent++] = r;
+            }
+
+            Rectangle[] swap = previous;
+            previous = current;
+            current = swap;
+            numPrevious = numCurrent;
+        }
+
+        return rectList;
+    }
+}
@@ -169,10 +169,9 @@ public class RecyclingTileFactory extends Observable
     }
 
     /**
-     * Returns a <code>SoftReference</code> to the internal bank
-     * data of the <code>DataBuffer</code>.
+     * Returns the internal bank data of the <code>DataBuffer</code>.
      */
-    private static SoftReference getBankReference(DataBuffer db) {
+    static Object getBankData(DataBuffer db) {
         Object array = null;
 
         switch(db.getDataType()) {
@@ -200,14 +199,14 @@ public class RecyclingTileFactory extends Observable
 
         }
 
-        return new SoftReference(array);
+        return array;
     }
 
     /**
      * Returns the amount of memory (in bytes) used by the supplied data
      * bank array.
      */
-    private static long getDataBankSize(int dataType, int numBanks, int size) {
+    static long getDataBankSize(int dataType, int numBanks, int size) {
         int bytesPerElement = 0;
         switch(dataType) {
         case DataBuffer.TYPE_BYTE:
@@ -233,6 +232,121 @@ public class RecyclingTileFactory extends Observable
         return numBanks*size*bytesPerElement;
     }
 
+    /**
+     * Returns the number of banks of the <code>DataBuffer</code> needed
+     * by the <code>SampleModel</code>, or zero if it is of an unknown
+     * class.
+     */
+    static long getNumBanks(SampleModel sampleModel) {
+        if(sampleModel instanceof ComponentSampleModel) {
+            return getNumBanksCSM((ComponentSampleModel)sampleModel);
+        } else if(sampleModel instanceof MultiPixelPackedSampleModel ||
+                  sampleModel instanceof SinglePixelPackedSampleModel) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the size of each bank of the <code>DataBuffer</code>
+     * needed by the <code>SampleModel</code>, or zero if it is of an
+     * unknown class.
+     */
+    static long getBankSize(SampleModel sampleModel) {
+        int type = sampleModel.getTransferType();
+        long size = 0;
+
+        if(sampleModel instanceof ComponentSampleModel) {
+            size = getBufferSizeCSM((ComponentSampleModel)sampleModel);
+        } else if(sampleModel instanceof MultiPixelPackedSampleModel) {
+            MultiPixelPackedSampleModel mppsm =
+                (MultiPixelPackedSampleModel)sampleModel;
+            int dataTypeSize = DataBuffer.getDataTypeSize(type);
+            size = mppsm.getScanlineStride()*mppsm.getHeight() +
+                (mppsm.getDataBitOffset() + dataTypeSize - 1)/dataTypeSize;
+        } else if(sampleModel instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel sppsm =
+                (SinglePixelPackedSampleModel)sampleModel;
+            size = sppsm.getScanlineStride()*(sppsm.getHeight() - 1) +
+                sppsm.getWidth();
+        }
+
+        return size;
+    }
+
+    /**
+     * Clears the recycled bank data of the given type and dimensions
+     * and wraps it in a <code>DataBuffer</code>.
+     */
+    static DataBuffer createDataBuffer(int type, Object array,
+                                       long numBanks, long size) {
+        DataBuffer db = null;
+
+        switch(type) {
+        case DataBuffer.TYPE_BYTE:
+            {
+                byte[][] bankData = (byte[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], (byte)0);
+                }
+                db = new DataBufferByte(bankData, (int)size);
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+            {
+                short[][] bankData = (short[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], (short)0);
+                }
+                db = new DataBufferUShort(bankData, (int)size);
+            }
+            break;
+        case DataBuffer.TYPE_SHORT:
+            {
+                short[][] bankData = (short[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], (short)0);
+                }
+                db = new DataBufferShort(bankData, (int)size);
+            }
+            break;
+        case DataBuffer.TYPE_INT:
+            {
+                int[][] bankData = (int[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], 0);
+                }
+                db = new DataBufferInt(bankData, (int)size);
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            {
+                float[][] bankData = (float[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], 0.0F);
+                }
+                db = DataBufferUtils.createDataBufferFloat(bankData,
+                                                           (int)size);
+            }
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            {
+                double[][] bankData = (double[][])array;
+                for(int i = 0; i < numBanks; i++) {
+                    Arrays.fill(bankData[i], 0.0);
+                }
+                db = DataBufferUtils.createDataBufferDouble(bankData,
+                                                            (int)size);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException
+                (JaiI18N.getString("Generic3"));
+        }
+
+        return db;
+    }
+
     /**
      * Constructs a <code>RecyclingTileFactory</code>.
      */
@@ -277,93 +391,14 @@ public class RecyclingTileFactory extends Observable
         DataBuffer db = null;
 
         int type = sampleModel.getTransferType();
-        long numBanks = 0;
-        long size = 0;
-
-        if(sampleModel instanceof ComponentSampleModel) {
-            ComponentSampleModel csm = (ComponentSampleModel)sampleModel;
-            numBanks = getNumBanksCSM(csm);
-            size = getBufferSizeCSM(csm);
-        } else if(sampleModel instanceof MultiPixelPackedSampleModel) {
-            MultiPixelPackedSampleModel mppsm =
-                (MultiPixelPackedSampleModel)sampleModel;
-            numBanks = 1;
-            int dataTypeSize = DataBuffer.getDataTypeSize(type);
-            size = mppsm.getScanlineStride()*mppsm.getHeight() +
-                (mppsm.getDataBitOffset() + dataTypeSize - 1)/dataTypeSize;
-        } else if(sampleModel instanceof SinglePixelPackedSampleModel) {
-            SinglePixelPackedSampleModel sppsm =
-                (SinglePixelPackedSampleModel)sampleModel;
-            numBanks = 1;
-            size = sppsm.getScanlineStride()*(sppsm.getHeight() - 1) +
-                sppsm.getWidth();
-        }
+        long numBanks = getNumBanks(sampleModel);
+        long size = getBankSize(sampleModel);
 
         if(size != 0) {
             Object array =
                 getRecycledArray(type, numBanks, size);
             if(array != null) {
-                switch(type) {
-                case DataBuffer.TYPE_BYTE:
-                    {
-                        byte[][] bankData = (byte[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], (byte)0);
-                        }
-                        db = new DataBufferByte(bankData, (int)size);
-                    }
-                    break;
-                case DataBuffer.TYPE_USHORT:
-                    {
-                        short[][] bankData = (short[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], (short)0);
-                        }
-                        db = new DataBufferUShort(bankData, (int)size);
-                    }
-                    break;
-                case DataBuffer.TYPE_SHORT:
-                    {
-                        short[][] bankData = (short[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], (short)0);
-                        }
-                        db = new DataBufferShort(bankData, (int)size);
-                    }
-                    break;
-                case DataBuffer.TYPE_INT:
-                    {
-                        int[][] bankData = (int[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], 0);
-                        }
-                        db = new DataBufferInt(bankData, (int)size);
-                    }
-                    break;
-                case DataBuffer.TYPE_FLOAT:
-                    {
-                        float[][] bankData = (float[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], 0.0F);
-                        }
-                        db = DataBufferUtils.createDataBufferFloat(bankData,
-                                                                   (int)size);
-                    }
-                    break;
-                case DataBuffer.TYPE_DOUBLE:
-                    {
-                        double[][] bankData = (double[][])array;
-                        for(int i = 0; i < numBanks; i++) {
-                            Arrays.fill(bankData[i], 0.0);
-                        }
-                        db = DataBufferUtils.createDataBufferDouble(bankData,
-                                                                    (int)size);
-                    }
-                    break;
-                default:
-                    throw new IllegalArgumentException
-                        (JaiI18N.getString("Generic3"));
-                }
+                db = createDataBuffer(type, array, numBanks, size);
 
                 if(DEBUG) {
                     System.out.println(getClass().getName()+
@@ -425,7 +460,7 @@ public class RecyclingTileFactory extends Observable
                                           db.getNumBanks(),
                                           db.getSize());
 
-            arrays.add(getBankReference(db));
+            arrays.add(new SoftReference(getBankData(db)));
 
             if(value == null) {
                 recycledArrays.put(key, arrays);
@@ -815,12 +815,23 @@ public class RenderedOp extends PlanarImage
             pb.addSource(ai);
         }
 
+        RenderingHints hints = nodeSupport.getRenderingHints();
+
+        // Fuse the rendering with those of point operation sources
+        // if so requested.
+        RenderedImage rendering = null;
+        if (isNodeRendered && hints != null &&
+            Boolean.TRUE.equals(hints.get(JAI.KEY_POINT_OP_FUSION))) {
+            rendering = PointOpFusion.fuse(this, pb, hints);
+        }
+
         // Create the rendering.
-        RenderedImage rendering =
-            RIFRegistry.create(getRegistry(),
-                               nodeSupport.getOperationName(),
-                               pb,
-                               nodeSupport.getRenderingHints());
+        if (rendering == null) {
+            rendering = RIFRegistry.create(getRegistry(),
+                                           nodeSupport.getOperationName(),
+                                           pb,
+                                           hints);
+        }
 
         // Throw an exception if the rendering is null.
         if (rendering == null) {
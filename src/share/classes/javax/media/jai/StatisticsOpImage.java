@@ -14,8 +14,13 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.util.Enumeration;
+import java.util.Hashtable;
 import java.util.Vector;
+import javax.media.jai.util.ImagingException;
 import com.sun.media.jai.util.PropertyUtil;
+import com.sun.media.jai.util.SunTileScheduler;
+import com.sun.media.jai.util.SunWorkStealingTileScheduler;
 
 /**
  * An abstract base class representing image operators that compute
@@ -42,6 +47,14 @@ import com.sun.media.jai.util.PropertyUtil;
  * <p> Subclasses should provide implementations
  * of the <code>getStatisticsNames</code>, <code>createStatistics</code>,
  * and <code>accumulateStatistics</code> methods.
+ *
+ * <p> The source tiles are passed to <code>accumulateStatistics</code>
+ * directly rather than copied.  A statistic for which the subclass
+ * returns <code>true</code> from <code>isMergeable</code> is accumulated
+ * concurrently on the threads of the <code>TileScheduler</code> of the
+ * image, each thread into a statistics object of its own, and these
+ * objects are then combined by <code>mergeStatistics</code>.  A thread
+ * of the scheduler itself accumulates all the tiles in turn instead.
  * 
  * @see OpImage
  */
@@ -247,52 +260,24 @@ public abstract class StatisticsOpImage extends OpImage {
                 stats = createStatistics(name);
 
                 if (!stats.equals(java.awt.Image.UndefinedProperty)) {
-                    PlanarImage source = getSource(0);
-
-                    // Cycle throw all source tiles.
-                    int minTileX = source.getMinTileX();
-                    int maxTileX = source.getMaxTileX();
-                    int minTileY = source.getMinTileY();
-                    int maxTileY = source.getMaxTileY();
-
-                    for (int y = minTileY; y <= maxTileY; y++) {
-                        for (int x = minTileX; x <= maxTileX; x++) {
-                            // Determine the required region of this tile.
-                            // (Note that getTileRect() instersects tile and
-                            // image bounds.)
-                            Rectangle tileRect = getTileRect(x, y);
-
-                            // Process if and only if within ROI bounds.
-                            if (roi.intersects(tileRect)) {
-
-                                // If checking for skipped tiles determine
-                                // whether this tile is "hit".
-                                if(checkForSkippedTiles &&
-                                   tileRect.x >= xStart &&
-                                   tileRect.y >= yStart) {
-                                    // Determine the offset within the tile.
-                                    int offsetX =
-                                        (xPeriod -
-                                         ((tileRect.x - xStart) % xPeriod)) %
-                                        xPeriod;
-                                    int offsetY =
-                                        (yPeriod -
-                                         ((tileRect.y - yStart) % yPeriod)) %
-                                        yPeriod;
-
-                                    // Continue with next tile if offset
-                                    // is larger than either tile dimension.
-                                    if(offsetX >= tileRect.width ||
-                                       offsetY >= tileRect.height) {
-                                        continue;
-                                    }
-                                }
-
-                                // Accumulate statistics for this tile.
-                                accumulateStatistics(name,
-                                                     source.getData(tileRect),
-                                                     stats);
-                            }
+                    Point[] tileIndices = getStatisticsTileIndices();
+
+                    if (tileIndices.length > 1 &&
+                        isMergeable(name) &&
+                        canWaitForTiles()) {
+                        accumulateInParallel(name, tileIndices, stats);
+                    } else {
+                        PlanarImage source = getSource(0);
+                        for (int i = 0; i < tileIndices.length; i++) {
+                            int x = tileIndices[i].x;
+                            int y = tileIndices[i].y;
+
+                            // Accumulate statistics for this tile.
+                            accumulateStatistics(name,
+                                                 getStatisticsData(
+                                                     source.getTile(x, y),
+                                                     x, y),
+                                                 stats);
                         }
                     }
 
@@ -305,6 +290,209 @@ public abstract class StatisticsOpImage extends OpImage {
         return stats;
     }
 
+    /**
+     * Returns the indices of the source tiles which contain pixels over
+     * which the statistics are accumulated.
+     */
+    private Point[] getStatisticsTileIndices() {
+        PlanarImage source = getSource(0);
+
+        // Cycle throw all source tiles.
+        int minTileX = source.getMinTileX();
+        int maxTileX = source.getMaxTileX();
+        int minTileY = source.getMinTileY();
+        int maxTileY = source.getMaxTileY();
+
+        Vector indices = new Vector();
+        for (int y = minTileY; y <= maxTileY; y++) {
+            for (int x = minTileX; x <= maxTileX; x++) {
+                // Determine the required region of this tile.
+                // (Note that getTileRect() instersects tile and
+                // image bounds.)
+                Rectangle tileRect = getTileRect(x, y);
+
+                // Process if and only if within ROI bounds.
+                if (!roi.intersects(tileRect)) {
+                    continue;
+                }
+
+                // If checking for skipped tiles determine
+                // whether this tile is "hit".
+                if(checkForSkippedTiles &&
+                   tileRect.x >= xStart &&
+                   tileRect.y >= yStart) {
+                    // Determine the offset within the tile.
+                    int offsetX =
+                        (xPeriod - ((tileRect.x - xStart) % xPeriod)) %
+                        xPeriod;
+                    int offsetY =
+                        (yPeriod - ((tileRect.y - yStart) % yPeriod)) %
+                        yPeriod;
+
+                    // Continue with next tile if offset
+                    // is larger than either tile dimension.
+                    if(offsetX >= tileRect.width ||
+                       offsetY >= tileRect.height) {
+                        continue;
+                    }
+                }
+
+                indices.add(new Point(x, y));
+            }
+        }
+
+        return (Point[])indices.toArray(new Point[indices.size()]);
+    }
+
+    /**
+     * Returns the part of a source tile which lies within the image
+     * bounds.  The tile is used directly, or through a child
+     * <code>Raster</code> sharing its data, rather than copied.
+     */
+    private Raster getStatisticsData(Raster tile, int tileX, int tileY) {
+        Rectangle tileRect = getTileRect(tileX, tileY);
+        Rectangle bounds = tile.getBounds();
+
+        if (bounds.equals(tileRect)) {
+            return tile;
+        }
+
+        tileRect = tileRect.intersection(bounds);
+        return tile.createChild(tileRect.x, tileRect.y,
+                                tileRect.width, tileRect.height,
+                                tileRect.x, tileRect.y, null);
+    }
+
+    /**
+     * Whether the tiles of this image may be computed on the threads of
+     * its <code>TileScheduler</code> while the current thread waits for
+     * them.  This is so only for the schedulers whose worker threads
+     * are known, if the current thread is not one of them: a worker
+     * waiting for tiles queued to its own scheduler could wait forever.
+     */
+    private boolean canWaitForTiles() {
+        TileScheduler scheduler = getTileScheduler();
+        Thread thread = Thread.currentThread();
+
+        if (scheduler instanceof SunTileScheduler) {
+            return scheduler.getParallelism() > 1 &&
+                !((SunTileScheduler)scheduler).isWorkerThread(thread);
+        } else if (scheduler instanceof SunWorkStealingTileScheduler) {
+            return scheduler.getParallelism() > 1 &&
+                !((SunWorkStealingTileScheduler)scheduler).isWorkerThread(thread);
+        }
+        return false;
+    }
+
+    /**
+     * Accumulates a mergeable statistic over the supplied tiles on the
+     * threads of the <code>TileScheduler</code> of this image.  Each
+     * thread gathers its tiles into a statistics object of its own, and
+     * these are merged into <code>stats</code> once all tiles have been
+     * seen.
+     */
+    private void accumulateInParallel(final String name,
+                                      Point[] tileIndices,
+                                      Object stats) {
+        // Partial statistics, keyed by the accumulating Thread.
+        final Hashtable partials = new Hashtable();
+
+        final int[] numPending = new int[] {tileIndices.length};
+        final Throwable[] failure = new Throwable[1];
+
+        TileComputationListener listener = new TileComputationListener() {
+                public void tileComputed(Object eventSource,
+                                         TileRequest[] requests,
+                                         PlanarImage image,
+                                         int tileX, int tileY,
+                                         Raster tile) {
+                    try {
+                        Thread thread = Thread.currentThread();
+                        Object partial = partials.get(thread);
+                        if (partial == null) {
+                            partial = createStatistics(name);
+                            partials.put(thread, partial);
+                        }
+                        accumulateStatistics(name,
+                                             getStatisticsData(tile,
+                                                               tileX, tileY),
+                                             partial);
+                    } catch (Throwable t) {
+                        failed(t);
+                    } finally {
+                        finished();
+                    }
+                }
+
+                public void tileCancelled(Object eventSource,
+                                          TileRequest[] requests,
+                                          PlanarImage image,
+                                          int tileX, int tileY) {
+                    finished();
+                }
+
+                public void tileComputationFailure(Object eventSource,
+                                                   TileRequest[] requests,
+                                                   PlanarImage image,
+                                                   int tileX, int tileY,
+                                                   Throwable situation) {
+                    failed(situation);
+                    finished();
+                }
+
+                private void failed(Throwable t) {
+                    synchronized (numPending) {
+                        if (failure[0] == null) {
+                            failure[0] = t;
+                        }
+                    }
+                }
+
+                private void finished() {
+                    synchronized (numPending) {
+                        if (--numPending[0] == 0) {
+                            numPending.notifyAll();
+                        }
+                    }
+                }
+            };
+
+        // The tiles are scheduled with the listener alone rather than
+        // through queueTiles(), which would also notify the listeners of
+        // this image, such as that of its RenderedOp, which may be
+        // locked by the thread waiting below.
+        getTileScheduler().scheduleTiles(this, tileIndices,
+                                         new TileComputationListener[] {listener});
+
+        // Wait for all tiles to be accumulated.
+        boolean interrupted = false;
+        synchronized (numPending) {
+            while (numPending[0] > 0) {
+                try {
+                    numPending.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException)failure[0];
+        } else if (failure[0] instanceof Error) {
+            throw (Error)failure[0];
+        } else if (failure[0] != null) {
+            throw new ImagingException(failure[0]);
+        }
+
+        Enumeration e = partials.elements();
+        while (e.hasMoreElements()) {
+            mergeStatistics(name, stats, e.nextElement());
+        }
+    }
+
     /**
      * Returns a list of property names that are recognized by this image.
      *
@@ -382,4 +570,43 @@ public abstract class StatisticsOpImage extends OpImage {
     protected abstract void accumulateStatistics(String name,
                                                  Raster source,
                                                  Object stats);
+    /**
+     * Returns whether the named statistic may be accumulated in parts
+     * which are then combined by <code>mergeStatistics()</code>.  If
+     * so, <code>accumulateStatistics()</code> may be called concurrently
+     * from several threads, each with a different statistics object
+     * obtained from <code>createStatistics()</code>.
+     *
+     * <p> The implementation in this class returns <code>false</code>.
+     *
+     * @param name  The name of the statistic.
+     *
+     * @since JAI 1.1.4
+     */
+    protected boolean isMergeable(String name) {
+        return false;
+    }
+
+    /**
+     * Merges a statistics object into which a part of the image was
+     * accumulated into another.  This method is called only for
+     * statistics for which <code>isMergeable()</code> returns
+     * <code>true</code>.
+     *
+     * <p> The implementation in this class throws an
+     * <code>UnsupportedOperationException</code>.
+     *
+     * @param name  The name of the statistic.
+     * @param stats  The statistics object into which to merge.
+     * @param partialStats  A statistics object created by
+     *        <code>createStatistics()</code> and accumulated over part
+     *        of the image.
+     *
+     * @since JAI 1.1.4
+     */
+    protected void mergeStatistics(String name,
+                                   Object stats,
+                                   Object partialStats) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -17,15 +17,15 @@ import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
 /**
  * A wrapper class on <code>OperationRegistry</code> which is
  * thread safe. Every method is wrapped with an appropriate read
- * or a write lock. Exceptions are caught and the lock is released
- * before the exception is re-thrown.
+ * or a write lock, except for the lookups of factory lists which
+ * have already been memoized. Exceptions are caught and the lock
+ * is released before the exception is re-thrown.
  *
  * @since JAI 1.1
  */
@@ -423,27 +423,23 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 	}
     }
 
-    public List getOrderedFactoryList(String modeName,
-				      String descriptorName,
-				      String productName) {
-	try {
-	    lock.forReading();
-	    List t = super.getOrderedFactoryList(modeName,
-					descriptorName,
-					productName);
-	    lock.release();
-	    return t;
-	} catch (RuntimeException e) {
-	    lock.release();
-	    throw e;
-	}
-    }
+    /*
+     * The factory lists are memoized by OperationRegistry, and a
+     * memoized list is returned by getOrderedFactoryList(),
+     * getFactoryIterator() and getFactory() without taking the lock.
+     * The lock is only needed to compute a list which is not memoized;
+     * since the lists are discarded under the write lock they cannot
+     * be memoized from a state which is being changed.
+     */
 
-    public Iterator getFactoryIterator(String modeName,
-				       String descriptorName) {
+    List resolveOrderedFactoryList(String modeName,
+				   String descriptorName,
+				   String productName) {
 	try {
 	    lock.forReading();
-	    Iterator t = super.getFactoryIterator(modeName, descriptorName);
+	    List t = super.resolveOrderedFactoryList(modeName,
+						     descriptorName,
+						     productName);
 	    lock.release();
 	    return t;
 	} catch (RuntimeException e) {
@@ -452,10 +448,10 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 	}
     }
 
-    public Object getFactory(String modeName, String descriptorName) {
+    List resolveFactoryList(String modeName, String descriptorName) {
 	try {
 	    lock.forReading();
-	    Object t = super.getFactory(modeName, descriptorName);
+	    List t = super.resolveFactoryList(modeName, descriptorName);
 	    lock.release();
 	    return t;
 	} catch (RuntimeException e) {
@@ -464,7 +460,6 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 	}
     }
 
-
     public Object invokeFactory(String modeName,
 				String descriptorName,
 				Object[] args) {
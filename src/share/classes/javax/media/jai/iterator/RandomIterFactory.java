@@ -24,7 +24,7 @@ import com.sun.media.jai.iterator.RandomIterCSMUShort;
 import com.sun.media.jai.iterator.RandomIterCSMInt;
 import com.sun.media.jai.iterator.RandomIterCSMFloat;
 import com.sun.media.jai.iterator.RandomIterCSMDouble;
-import com.sun.media.jai.iterator.RandomIterFallback;
+import com.sun.media.jai.iterator.RandomIterCached;
 import com.sun.media.jai.iterator.WrapperRI;
 import com.sun.media.jai.iterator.WrapperWRI;
 import com.sun.media.jai.iterator.WritableRandomIterCSMByte;
@@ -65,25 +65,7 @@ public class RandomIterFactory {
                                    im.getWidth(), im.getHeight());
         }
 
-        SampleModel sm = im.getSampleModel();
-        if (sm instanceof ComponentSampleModel) {
-            switch (sm.getDataType()) {
-            case DataBuffer.TYPE_BYTE:
-                // return new RandomIterCSMByte(im, bounds);
-            case DataBuffer.TYPE_SHORT:
-                // return new RandomIterCSMShort(im, bounds);
-            case DataBuffer.TYPE_USHORT:
-                // return new RandomIterCSMUShort(im, bounds);
-            case DataBuffer.TYPE_INT:
-                // return new RandomIterCSMInt(im, bounds);
-            case DataBuffer.TYPE_FLOAT:
-                // return new RandomIterCSMFloat(im, bounds);
-            case DataBuffer.TYPE_DOUBLE:
-                // return new RandomIterCSMDouble(im, bounds);
-            }
-        }
-
-        return new RandomIterFallback(im, bounds);
+        return new RandomIterCached(im, bounds);
     }
 
     /**
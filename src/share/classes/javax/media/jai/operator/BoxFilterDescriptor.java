@@ -55,6 +55,14 @@ import javax.media.jai.registry.RenderedRegistryMode;
  *
  * <p> The kernel may not be bigger in any dimension than the image data.
  *
+ * <p> If the hint <code>JAI.KEY_INTEGRAL_IMAGE</code> holds an
+ * "IntegralImage" of the source, the sums over the box are read from it
+ * in constant time per pixel whatever the size of the box.  One may be
+ * shared by several "BoxFilter" operations on the same source.  Without
+ * the hint one is only created for large boxes over byte data, whose
+ * results do not change; the means of 16 bit data read from an integral
+ * image may differ by one from those of the convolution.
+ *
  * <p><table border=1>
  * <caption>Resource List</caption>
  * <tr><th>Name</th>        <th>Value</th></tr>
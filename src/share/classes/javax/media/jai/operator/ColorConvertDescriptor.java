@@ -46,6 +46,15 @@ import javax.media.jai.registry.RenderedRegistryMode;
  * Microsystems implementation, an <code>ICC_ColorSpace</code> instance
  * is what is returned by <code>ColorSpace.getInstance()</code>.
  *
+ * <p> If the hint <code>JAI.KEY_COLOR_CONVERT_LUT</code> is
+ * <code>TRUE</code>, byte images whose source has three color bands,
+ * whose source and destination have no alpha and whose color spaces are
+ * not <code>ColorSpaceJAI</code>s are converted by tetrahedral
+ * interpolation in a lookup table of converted colors.  The
+ * table is computed once for each pair of color spaces.  The converted
+ * samples may then differ from those of the exact conversion by a few
+ * units.
+ *
  * <p> Integral data are assumed to occupy the full range of the respective
  * data type; floating point data are assumed to be normalized to the range
  * [0.0,1.0].
@@ -30,6 +30,13 @@ import javax.media.jai.registry.RenderedRegistryMode;
  * performing a two-dimensional DCT on the corresponding band of the
  * source image.
  *
+ * <p> If an underlying fast cosine transform implementation is used
+ * which requires that the image dimensions be powers of 2, then the width
+ * and height may each be increased to the power of 2 greater than or equal
+ * to the original width and height, respectively.  The dimensions are
+ * not increased if the hint <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code>
+ * is <code>FALSE</code>.
+ *
  * <p><table border=1>
  * <caption>Resource List</caption>
  * <tr><th>Name</th>        <th>Value</th></tr>
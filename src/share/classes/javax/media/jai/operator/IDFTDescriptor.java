@@ -96,7 +96,9 @@ class IDFTPropertyGenerator extends PropertyGeneratorImpl {
  * <p> If an underlying fast Fourier transform (FFT) implementation is used
  * which requires that the image dimensions be powers of 2, then the width
  * and height may each be increased to the power of 2 greater than or equal
- * to the original width and height, respectively.
+ * to the original width and height, respectively.  The dimensions are
+ * not increased if the hint <code>JAI.KEY_FREQUENCY_TRANSFORM_PADDING</code>
+ * is <code>FALSE</code>.
  *
  * <p>"IDFT" defines a PropertyGenerator that sets the "COMPLEX" property of
  * the image to <code>java.lang.Boolean.FALSE</code> if the "dataNature"
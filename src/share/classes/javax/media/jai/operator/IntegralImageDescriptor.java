@@ -0,0 +1,157 @@
+/*
+ * $RCSfile: IntegralImageDescriptor.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */
+package javax.media.jai.operator;
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import javax.media.jai.JAI;
+import javax.media.jai.OperationDescriptorImpl;
+import javax.media.jai.ParameterBlockJAI;
+import javax.media.jai.RenderedOp;
+import javax.media.jai.registry.RenderedRegistryMode;
+
+/**
+ * An <code>OperationDescriptor</code> describing the "IntegralImage"
+ * operation.
+ *
+ * <p> The "IntegralImage" operation computes the summed-area table of an
+ * image: each destination sample is the sum of the source samples of its
+ * band above and to the left of it.  The destination is one pixel wider
+ * and higher than the source and has the same origin, and its first row
+ * and column are zero:
+ *
+ * <pre>
+ *     dst[x][y][b] = 0;
+ *     for (int j = minY; j < y; j++) {
+ *         for (int i = minX; i < x; i++) {
+ *             dst[x][y][b] += src[i][j][b];
+ *         }
+ *     }
+ * </pre>
+ *
+ * The sum of the source over any rectangle [x0, x1) x [y0, y1) is then
+ * given by four destination samples whatever the size of the rectangle:
+ *
+ * <pre>
+ *     dst[x1][y1][b] - dst[x0][y1][b] - dst[x1][y0][b] + dst[x0][y0][b]
+ * </pre>
+ *
+ * <p> If <code>sumOfSquares</code> is <code>TRUE</code> the destination
+ * has twice as many bands as the source, the sums of the squares of the
+ * source samples following the sums of the samples.  The destination data
+ * type is always <code>DataBuffer.TYPE_DOUBLE</code>, which holds the
+ * sums of integral samples exactly up to 2<sup>53</sup>.
+ *
+ * <p> The destination may be given to the "BoxFilter", "SubsampleAverage"
+ * and "LocalStatistics" operations on the same source with the hint
+ * <code>JAI.KEY_INTEGRAL_IMAGE</code>, which then compute each pixel in
+ * constant time whatever the size of their boxes.
+ *
+ * <p><table border=1>
+ * <caption>Resource List</caption>
+ * <tr><th>Name</th>        <th>Value</th></tr>
+ * <tr><td>GlobalName</td>  <td>IntegralImage</td></tr>
+ * <tr><td>LocalName</td>   <td>IntegralImage</td></tr>
+ * <tr><td>Vendor</td>      <td>com.sun.media.jai</td></tr>
+ * <tr><td>Description</td> <td>Computes the sums of the pixel values of an
+ *                              image over the rectangles starting at its
+ *                              origin.</td></tr>
+ * <tr><td>DocURL</td>      <td>http://java.sun.com/products/java-media/jai/forDevelopers/jai-apidocs/javax/media/jai/operator/IntegralImageDescriptor.html</td></tr>
+ * <tr><td>Version</td>     <td>1.0</td></tr>
+ * <tr><td>arg0Desc</td>    <td>Whether the sums of the squares of the pixel
+ *                              values are also computed.</td></tr>
+ * </table></p>
+ *
+ * <p><table border=1>
+ * <caption>Parameter List</caption>
+ * <tr><th>Name</th>         <th>Class Type</th>
+ *                           <th>Default Value</th></tr>
+ * <tr><td>sumOfSquares</td> <td>java.lang.Boolean</td>
+ *                           <td>Boolean.FALSE</td>
+ * </table></p>
+ *
+ * @see javax.media.jai.OperationDescriptor
+ * @see javax.media.jai.JAI#KEY_INTEGRAL_IMAGE
+ * @see BoxFilterDescriptor
+ * @see LocalStatisticsDescriptor
+ *
+ * @since JAI 1.1.4
+ */
+public class IntegralImageDescriptor extends OperationDescriptorImpl {
+
+    /**
+     * The resource strings that provide the general documentation
+     * and specify the parameter list for this operation.
+     */
+    private static final String[][] resources = {
+        {"GlobalName",  "IntegralImage"},
+        {"LocalName",   "IntegralImage"},
+        {"Vendor",      "com.sun.media.jai"},
+        {"Description", JaiI18N.getString("IntegralImageDescriptor0")},
+        {"DocURL",      "http://java.sun.com/products/java-media/jai/forDevelopers/jai-apidocs/javax/media/jai/operator/IntegralImageDescriptor.html"},
+        {"Version",     JaiI18N.getString("DescriptorVersion")},
+        {"arg0Desc",    JaiI18N.getString("IntegralImageDescriptor1")}
+    };
+
+    /** The parameter class list for this operation. */
+    private static final Class[] paramClasses = {
+        java.lang.Boolean.class
+    };
+
+    /** The parameter name list for this operation. */
+    private static final String[] paramNames = {
+        "sumOfSquares"
+    };
+
+    /** The parameter default value list for this operation. */
+    private static final Object[] paramDefaults = {
+        Boolean.FALSE
+    };
+
+    /** Constructor. */
+    public IntegralImageDescriptor() {
+        super(resources, 1, paramClasses, paramNames, paramDefaults);
+    }
+
+    /**
+     * Computes the sums of the pixel values of an image over the rectangles starting at its origin.
+     *
+     * <p>Creates a <code>ParameterBlockJAI</code> from all
+     * supplied arguments except <code>hints</code> and invokes
+     * {@link JAI#create(String,ParameterBlock,RenderingHints)}.
+     *
+     * @see JAI
+     * @see ParameterBlockJAI
+     * @see RenderedOp
+     *
+     * @param source0 <code>RenderedImage</code> source 0.
+     * @param sumOfSquares Whether the sums of the squares of the pixel
+     * values are also computed.
+     * May be <code>null</code>.
+     * @param hints The <code>RenderingHints</code> to use.
+     * May be <code>null</code>.
+     * @return The <code>RenderedOp</code> destination.
+     * @throws IllegalArgumentException if <code>source0</code> is <code>null</code>.
+     */
+    public static RenderedOp create(RenderedImage source0,
+                                    Boolean sumOfSquares,
+                                    RenderingHints hints)  {
+        ParameterBlockJAI pb =
+            new ParameterBlockJAI("IntegralImage",
+                                  RenderedRegistryMode.MODE_NAME);
+
+        pb.setSource("source0", source0);
+
+        pb.setParameter("sumOfSquares", sumOfSquares);
+
+        return JAI.create("IntegralImage", pb, hints);
+    }
+}
@@ -246,6 +246,16 @@ class SubsampleAveragePropertyGenerator implements PropertyGenerator {
  * image dimensions, respectively.
  * </p>
  *
+ * <p>
+ * If the hint <code>JAI.KEY_INTEGRAL_IMAGE</code> holds an
+ * "IntegralImage" of the source, each block is averaged from it in
+ * constant time whatever the scale factors, which lets the levels of a
+ * pyramid built from the same source each cost time proportional to
+ * their own size.  The blocks are placed as without the hint, and
+ * those which cross the source bounds are averaged over the source
+ * pixels which they contain.
+ * </p>
+ *
  * <p><table border=1>
  * <caption>Resource List</caption>
  * <tr><th>Name</th>        <th>Value</th></tr>
@@ -11,6 +11,7 @@
  */package javax.media.jai.remote;
 
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.RenderedImage;
@@ -430,6 +431,35 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
     public abstract Raster computeTile(int tileX, int tileY)
 	throws RemoteImagingException;
 
+    /**
+     * Returns tiles from the server in a single request.  Note that the
+     * indices are into the tile array, not pixel locations.  The
+     * <code>Raster</code>s that are returned are copies.  Network errors
+     * encountered should be signalled by throwing a
+     * <code>RemoteImagingException</code>.
+     *
+     * <p> The default implementation calls <code>computeTile</code> for
+     * each of the indices.  Subclasses whose protocol can transfer
+     * several tiles at once should override this method.
+     *
+     * @param tileIndices the indices of the requested tiles, all of which
+     *        lie within the tile grid of the image.
+     * @return the tiles, in the order of the indices.
+     * @throws RemoteImagingException if an error condition during remote
+     *         image processing occurs
+     *
+     * @since JAI 1.1.4
+     */
+    public Raster[] computeTiles(Point[] tileIndices)
+	throws RemoteImagingException {
+
+	Raster[] tiles = new Raster[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    tiles[i] = computeTile(tileIndices[i].x, tileIndices[i].y);
+	}
+	return tiles;
+    }
+
     /**
      * Returns the amount of time between retries in milliseconds.
      */
@@ -811,6 +841,94 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
         return tile;
     }
 
+    /**
+     * Returns the tiles at the given indices.  The tiles which are not in
+     * the cache are obtained from the server in a single request through
+     * the <code>computeTiles</code> method, which is retried in the same
+     * way as <code>computeTile</code> is by <code>getTile</code>, and
+     * cached.  The elements corresponding to indices outside the tile
+     * grid are <code>null</code>.
+     *
+     * @param tileIndices An array of Points representing tile indices.
+     * @throws IllegalArgumentException if <code>tileIndices</code> is
+     *         <code>null</code>.
+     * @throws RemoteImagingException if limit of retries is exceeded.
+     *
+     * @since JAI 1.1.4
+     */
+    public Raster[] getTiles(Point[] tileIndices) {
+
+	if (tileIndices == null) {
+	    throw new IllegalArgumentException(
+				JaiI18N.getString("Generic0"));
+	}
+
+	Raster[] tiles = new Raster[tileIndices.length];
+
+	// Look for the tiles in the cache and note those which are missing.
+	int numMissing = 0;
+	int[] missing = new int[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    int tileX = tileIndices[i].x;
+	    int tileY = tileIndices[i].y;
+	    if (tileX >= getMinTileX() && tileX <= getMaxTileX() &&
+		tileY >= getMinTileY() && tileY <= getMaxTileY()) {
+		tiles[i] = cache != null ? cache.getTile(this, tileX, tileY) :
+		    null;
+		if (tiles[i] == null) {
+		    missing[numMissing++] = i;
+		}
+	    }
+	}
+
+	if (numMissing == 0) {
+	    return tiles;
+	}
+
+	Point[] missingIndices = new Point[numMissing];
+	for (int k = 0; k < numMissing; k++) {
+	    missingIndices[k] = tileIndices[missing[k]];
+	}
+
+	// Ask the subclass for all the missing tiles at once.
+	Raster[] computed = null;
+	int count = 0;
+	Exception rieSave = null;
+	while (count++ < numRetries) {
+	    try {
+		computed = computeTiles(missingIndices);
+		break;
+	    } catch (RemoteImagingException rie) {
+		System.err.println(
+				JaiI18N.getString("PlanarImageServerProxy0"));
+		rieSave = rie;
+		try {
+		    Thread.sleep(retryInterval);
+		} catch (InterruptedException ie) {
+
+		}
+	    }
+	}
+
+	if (count > numRetries) {
+	    sendExceptionToListener(rieSave);
+	}
+
+	// Cache the result tiles.
+	if (computed != null) {
+	    for (int k = 0; k < numMissing; k++) {
+		Raster tile = computed[k];
+		tiles[missing[k]] = tile;
+		if (cache != null && tile != null) {
+		    cache.add(this, missingIndices[k].x, missingIndices[k].y,
+			      tile, tileCacheMetric);
+		}
+	    }
+	}
+
+	return tiles;
+    }
+
     /**
      * Uncaches all the tiles when this image is garbage collected.
      */
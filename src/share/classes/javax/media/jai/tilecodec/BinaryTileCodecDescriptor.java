@@ -0,0 +1,278 @@
+/*
+ * $RCSfile: BinaryTileCodecDescriptor.java,v $
+ *
+ * Copyright (c) 2005 Sun Microsystems, Inc. All rights reserved.
+ *
+ * Use is subject to license terms.
+ *
+ * $Revision: 1.1 $
+ * $Date: 2007-09-14 18:02:11 $
+ * $State: Exp $
+ */package javax.media.jai.tilecodec ;
+
+import java.awt.image.SampleModel ;
+import javax.media.jai.ParameterListDescriptor;
+import javax.media.jai.ParameterListDescriptorImpl;
+
+/**
+ * This class is the descriptor for the "binary" tile codec. "binary"
+ * is a lossless tile codec which writes a small fixed header describing
+ * the <code>SampleModel</code> and the location of the tile, followed
+ * by the sample data copied directly from the banks of the tile's
+ * <code>DataBuffer</code>. Unlike the "raw" and "gzip" codecs it does
+ * not use Java serialization, so that no class descriptors are sent with
+ * each tile. The format name for the binary tile codec is "binary".
+ * The encoded stream contains the <code>SampleModel</code> and the
+ * tile's upper left corner position, thus the
+ * <code>includesSampleModelInfo()</code> and
+ * <code>includesLocationInfo()</code> methods in this descriptor return
+ * true.
+ *
+ * <p> The <code>SampleModel</code>s which can be described in the
+ * header are <code>ComponentSampleModel</code>,
+ * <code>PixelInterleavedSampleModel</code>,
+ * <code>BandedSampleModel</code>, <code>ComponentSampleModelJAI</code>,
+ * <code>SinglePixelPackedSampleModel</code> and
+ * <code>MultiPixelPackedSampleModel</code>. Tiles having any other
+ * <code>SampleModel</code> are encoded with a
+ * <code>PixelInterleavedSampleModel</code> holding the same samples.
+ *
+ * <p> Two optional transformations of the sample data may be requested
+ * when encoding. The "predictor" parameter replaces each integral data
+ * element by its difference with the element of the previous pixel on
+ * the same line, which makes the data of smooth images much more
+ * compressible. The "compression" parameter compresses the sample data
+ * with the fastest setting of the deflate algorithm.
+ *
+ * <p> While both the "tileDecoder" and "tileEncoder" registry modes for
+ * the "binary" tile codec scheme have the same set of parameters, the
+ * parameters for the "tileDecoder" mode are ignored since the
+ * transformations applied to the data are recorded in the encoded
+ * stream.
+ *
+ * <p><table border=1>
+ * <caption>Resource List</caption>
+ * <tr><th>Name</th>        <th>Value</th></tr>
+ * <tr><td>Vendor</td>      <td>com.sun.media.jai</td></tr>
+ * <tr><td>Description</td> <td>A descriptor to describe the lossless
+ *                              "binary" codec scheme. </td></tr>
+ * <tr><td>DocURL</td>      <td>http://java.sun.com/products/java-media/jai/forDevelopers/jai-apidocs/javax/media/jai/tilecodec/BinaryTileCodecDescriptor.html</td></tr>
+ * <tr><td>Version</td>     <td>1.2</td></tr>
+ * <tr><td>compression</td> <td>Whether the sample data are compressed
+ *                              using the fastest deflate setting. The
+ *                              default value is false.</td></tr>
+ * <tr><td>predictor</td>   <td>Whether horizontal differencing is applied
+ *                              to integral sample data before they are
+ *                              written. The default value is
+ *                              false.</td></tr>
+ * </table></p>
+ *
+ * <p><table border=1>
+ * <caption>Parameter List</caption>
+ * <tr><th>Name</th>          <th>Class Type</th>
+ *                            <th>Default Value</th></tr>
+ * <tr><td>compression</td>   <td>java.lang.Boolean</td>
+ *                            <td>false</td>
+ * <tr><td>predictor</td>     <td>java.lang.Boolean</td>
+ *                            <td>false</td>
+ * </table></p>
+ *
+ * @since JAI 1.1.4
+ */
+public class BinaryTileCodecDescriptor extends TileCodecDescriptorImpl {
+
+    // Parameter names
+    private static final String[] paramNames = {
+	"compression",
+	"predictor"} ;
+
+    // Parameter class names
+    private static final Class[] paramClasses = {
+	java.lang.Boolean.class,
+	java.lang.Boolean.class} ;
+
+    // Parameter default values.
+    private static final Object[] paramDefaults = {
+	Boolean.FALSE,
+	Boolean.FALSE
+    };
+
+    private static ParameterListDescriptor paramListDescriptor =
+        new ParameterListDescriptorImpl(null,
+					paramNames,
+					paramClasses,
+					paramDefaults,
+					null);
+
+    /**
+     * Creates a <code>BinaryTileCodecDescriptor</code>
+     */
+    public BinaryTileCodecDescriptor() {
+	super("binary", true, true) ;
+    }
+
+    /**
+     * Returns a <code>TileCodecParameterList</code> valid for the
+     * specified modeName and compatible with the supplied
+     * <code>TileCodecParameterList</code>. For example, given a
+     * <code>TileCodecParameterList</code> used to encode a tile with
+     * the modeName being specified as "tileDecoder", this method will return
+     * a <code>TileCodecParameterList</code> sufficient to decode that
+     * same tile.
+     *
+     * @param modeName       The registry mode to return a valid parameter
+     *                       list for.
+     * @param otherParamList The parameter list for which a compatible
+     *                       parameter list for the complementary modeName is
+     *                       to be found.
+     *
+     * @throws IllegalArgumentException if <code>modeName</code> is null.
+     * @throws IllegalArgumentException if <code>modeName</code> is not
+     * one of the modes valid for this descriptor, i.e those returned
+     * from the getSupportedNames() method.
+     * @throws IllegalArgumentException if <code>otherParamList</code> is null.
+     */
+    public TileCodecParameterList getCompatibleParameters(
+				       String modeName,
+				       TileCodecParameterList otherParamList) {
+	if (modeName == null) {
+	    throw new IllegalArgumentException(
+				JaiI18N.getString("TileCodecDescriptorImpl1"));
+	}
+
+	if (otherParamList == null) {
+	    throw new IllegalArgumentException(
+			        JaiI18N.getString("TileCodecDescriptorImpl3"));
+	}
+
+	String name = getName();
+	if (!otherParamList.getFormatName().equals(name)) {
+	    throw new IllegalArgumentException(
+					     JaiI18N.getString("TileCodec2"));
+	}
+
+	if (otherParamList.isValidForMode(modeName))
+	    return otherParamList;
+
+	if (modeName.equalsIgnoreCase("tileDecoder")) {
+	    return new TileCodecParameterList(
+			          name,
+				  new String[]{"tileDecoder"},
+				  otherParamList.getParameterListDescriptor());
+	} else if (modeName.equalsIgnoreCase("tileEncoder")) {
+	    return new TileCodecParameterList(
+				  name,
+				  new String[]{"tileEncoder"},
+				  otherParamList.getParameterListDescriptor());
+	} else {
+	   throw new IllegalArgumentException(JaiI18N.getString("TileCodec1"));
+	}
+    }
+
+    /**
+     * Returns the default parameters for the specified modeName as an
+     * instance of the <code>TileCodecParameterList</code>. If the supplied
+     * modeName is one of the valid mode names as ascertained from the
+     * <code>getSupportedNames()</code> method, this method returns the
+     * default parameters for that mode.
+     *
+     * @param modeName  The mode to return the default parameters for.
+     *
+     * @throws IllegalArgumentException if <code>modeName</code> is null.
+     * @throws IllegalArgumentException if <code>modeName</code> is not
+     * one of the modes valid for this descriptor, i.e those returned
+     * from the getSupportedNames() method.
+     */
+    public TileCodecParameterList getDefaultParameters(String modeName){
+        if (modeName == null)
+	    throw new IllegalArgumentException(
+	        JaiI18N.getString("TileCodecDescriptorImpl1")) ;
+
+	String validNames[] = getSupportedModes();
+	boolean valid = false;
+
+	for (int i=0; i<validNames.length; i++) {
+	    if (modeName.equalsIgnoreCase(validNames[i])) {
+		valid = true;
+		break;
+	    }
+	}
+
+	if (valid == false) {
+	    throw new IllegalArgumentException(
+					    JaiI18N.getString("TileCodec1"));
+	}
+
+	return new TileCodecParameterList("binary",
+					  new String[] {"tileDecoder",
+							"tileEncoder"},
+					  paramListDescriptor);
+    }
+
+    /**
+     * Returns the default parameters for the specified modeName as an
+     * instance of the <code>TileCodecParameterList</code>, adding a
+     * "sampleModel" parameter with the specified value to the parameter
+     * list. If the supplied modeName is one of the valid mode names as
+     * ascertained from the <code>getSupportedNames()</code> method, this
+     * method returns the default parameters for that mode.
+     *
+     * <p> This method should be used when includesSampleModelInfo()
+     * returns false. If includesSampleModelInfo() returns true, the
+     * supplied <code>SampleModel</code> is ignored.
+     *
+     * <p>For the binary codec, includesSampleModelInfo() returns true, so
+     * the supplied <code> SampleModel</code> is ignored.
+     *
+     * @param modeName  The mode to return the default parameters for.
+     * @param sm    The <code>SampleModel</code> used to create the
+     *              default decoding parameter list.
+     *
+     * @throws IllegalArgumentException if <code>modeName</code> is null.
+     * @throws IllegalArgumentException if <code>modeName</code> is not
+     * one of the modes valid for this descriptor, i.e those returned
+     * from the getSupportedNames() method.
+     */
+    public TileCodecParameterList getDefaultParameters(String modeName,
+						       SampleModel sm){
+	return getDefaultParameters(modeName);
+    }
+
+    /**
+     * Returns the <code>ParameterListDescriptor</code> that describes
+     * the associated parameters (NOT sources). If the supplied modeName
+     * is one of the valid mode names as ascertained from the
+     * <code>getSupportedNames()</code> method, this method returns a
+     * non-null <code>ParameterListDescriptor</code> with the appropriate
+     * parameters.
+     *
+     * @param modeName  The mode to return the ParameterListDescriptor for.
+     *
+     * @throws IllegalArgumentException if <code>modeName</code> is null.
+     * @throws IllegalArgumentException if <code>modeName</code> is not
+     * one of the modes valid for this descriptor, i.e those returned
+     * from the getSupportedNames() method.
+     */
+    public ParameterListDescriptor getParameterListDescriptor(String modeName){
+	if(modeName == null)
+	    throw new IllegalArgumentException(
+		JaiI18N.getString("TileCodecDescriptorImpl1")) ;
+
+	String validNames[] = getSupportedModes();
+	boolean valid = false;
+
+	for (int i=0; i<validNames.length; i++) {
+	    if (modeName.equalsIgnoreCase(validNames[i])) {
+		valid = true;
+		break;
+	    }
+	}
+
+	if (valid == false) {
+	    throw new IllegalArgumentException(
+					    JaiI18N.getString("TileCodec1"));
+	}
+
+	return paramListDescriptor;
+    }
+}